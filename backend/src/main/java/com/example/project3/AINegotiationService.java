@@ -1,8 +1,10 @@
 package com.example.project3;
 
+import jakarta.annotation.PostConstruct;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
-import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
@@ -13,8 +15,13 @@ import java.util.Arrays;
 import java.util.List;
 import java.util.Optional;
 
+/**
+ * Runs a negotiation in three phases so no connection is held while Gemini answers, which
+ * takes seconds: a short read-only transaction builds the {@link NegotiationContext}, the
+ * model is called outside any transaction, and a short write transaction creates the coupon
+ * and records the outcome on freshly read profiles.
+ */
 @Service
-@Transactional
 public class AINegotiationService {
 
     @Autowired
@@ -25,6 +32,9 @@ public class AINegotiationService {
     
     @Autowired
     private CouponService couponService;
+
+    @Autowired
+    private DirtyCustomerTracker dirtyCustomerTracker;
     
     @Autowired
     private GeminiService geminiService;
@@ -35,10 +45,25 @@ public class AINegotiationService {
     @Autowired
     private FruitRepository fruitRepository;
 
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate readTransaction;
+    private TransactionTemplate writeTransaction;
+
+    @PostConstruct
+    void init() {
+        readTransaction = new TransactionTemplate(transactionManager);
+        readTransaction.setReadOnly(true);
+        writeTransaction = new TransactionTemplate(transactionManager);
+    }
+
     public NegotiationResponse processNegotiationRequest(Customer customer, NegotiationRequest request) {
         try {
-            // 1. Build negotiation context
-            NegotiationContext context = buildNegotiationContext(customer, request);
+            // 1. Build negotiation context; a first negotiation creates the profile beforehand,
+            // as the read-only context transaction cannot insert it
+            customerProfileService.ensureProfile(customer.getId());
+            NegotiationContext context = readTransaction.execute(status -> buildNegotiationContext(customer, request));
             
             // 2. Check eligibility
             if (!context.canNegotiate()) {
@@ -48,17 +73,18 @@ public class AINegotiationService {
             // 3. Determine negotiation strategy
             NegotiationStrategy strategy = determineNegotiationStrategy(context);
             
-            // 4. Generate AI response
+            // 4. Generate AI response, with no transaction open
             String aiResponse = generateAINegotiationResponse(context, strategy);
             
-            // 5. Create coupon if offer is being made
-            Coupon generatedCoupon = null;
-            if (strategy.shouldMakeOffer()) {
-                generatedCoupon = createNegotiationCoupon(customer, strategy, context.getCartValue());
-            }
-            
-            // 6. Update customer profiles
-            updateCustomerProfiles(customer, context, strategy, generatedCoupon != null);
+            // 5 and 6. Create coupon if offer is being made, then update customer profiles
+            Coupon generatedCoupon = writeTransaction.execute(status -> {
+                Coupon coupon = null;
+                if (strategy.shouldMakeOffer()) {
+                    coupon = createNegotiationCoupon(customer, strategy, context.getCartValue());
+                }
+                updateCustomerProfiles(customer, strategy, coupon != null);
+                return coupon;
+            });
             
             // 7. Build response
             return buildNegotiationResponse(aiResponse, generatedCoupon, strategy, context);
@@ -73,14 +99,16 @@ public class AINegotiationService {
         NegotiationContext context = new NegotiationContext();
         
         // Customer information
+        CustomerProfile profile = customerProfileService.getOrCreateProfile(customer.getId());
         context.setCustomer(customer);
-        context.setCustomerProfile(customerProfileService.getOrCreateProfile(customer.getId()));
-        context.setNegotiationProfile(getOrCreateNegotiationProfile(customer.getId()));
+        context.setCustomerProfile(profile);
+        // Created by the write phase on the first negotiation; none yet means not blocked
+        context.setNegotiationProfile(negotiationProfileRepository.findByCustomerId(customer.getId()).orElse(null));
         
-        // Tier and capability calculation
-        CustomerTierService.CustomerTier tier = customerTierService.determineCustomerTier(customer);
-        context.setCustomerTier(tier);
-        context.setNegotiationCapability(customerTierService.calculateNegotiationCapability(customer));
+        // Tier and capability, computed once and read from the context for the rest of the request
+        CustomerTierService.NegotiationCapability capability = customerTierService.capabilityFor(profile);
+        context.setCustomerTier(capability.getTier());
+        context.setNegotiationCapability(capability);
         
         // Request information
         context.setCartValue(request.getCartValue());
@@ -108,7 +136,6 @@ public class AINegotiationService {
         }
         
         // Behavioral context
-        CustomerProfile profile = context.getCustomerProfile();
         context.setRepeatNegotiator(profile.getNegotiationAttempts() != null && profile.getNegotiationAttempts() > 0);
         context.setHasRecentPurchase(profile.getLastOrderDate() != null && 
                                     ChronoUnit.DAYS.between(profile.getLastOrderDate(), LocalDateTime.now()) <= 30);
@@ -288,24 +315,25 @@ public class AINegotiationService {
         );
     }
 
-    private void updateCustomerProfiles(Customer customer, NegotiationContext context, 
-                                      NegotiationStrategy strategy, boolean offerMade) {
-        // Update CustomerProfile
-        CustomerProfile profile = context.getCustomerProfile();
+    private void updateCustomerProfiles(Customer customer, NegotiationStrategy strategy, boolean offerMade) {
+        // Locked re-read rather than the context's copy, so concurrent negotiations don't lose counts
+        CustomerProfile profile = customerProfileService.getOrCreateProfileForUpdate(customer.getId());
+        profile.resetMonthlyCountIfNeeded();
         profile.incrementNegotiationAttempt();
         
         if (offerMade) {
             profile.recordSuccessfulNegotiation(BigDecimal.ZERO); // Will be updated when coupon is used
         }
         
-        // Update tier information
-        profile.setNegotiationTier(context.getCustomerTier().name());
+        // The stored tier only changes with the order aggregates, so it is not rewritten here
         profile.setMaxDiscountPercentage(BigDecimal.valueOf(strategy.getMaxDiscountPercentage()));
         
-        customerProfileService.updateProfileFromOrders(customer.getId());
+        // Order aggregates are unchanged by a negotiation; they are kept current per order
+        customerProfileService.saveProfile(profile);
+        dirtyCustomerTracker.mark(customer.getId());
         
         // Update NegotiationProfile
-        NegotiationProfile negProfile = context.getNegotiationProfile();
+        NegotiationProfile negProfile = getOrCreateNegotiationProfile(customer.getId());
         negProfile.recordNegotiationOutcome(offerMade ? "offer_made" : "no_offer");
         negotiationProfileRepository.save(negProfile);
     }
@@ -16,7 +16,9 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.UUID;
 import java.math.BigDecimal;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
 import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -55,6 +57,9 @@ public class AdminController {
     @Autowired
     private CustomerProfileService customerProfileService;
 
+    @Autowired
+    private CustomerProfileRebuildJob customerProfileRebuildJob;
+
     @Autowired
     private AIEmailMarketingService aiEmailMarketingService;
 
@@ -70,12 +75,33 @@ public class AdminController {
     @Autowired
     private AnalyticsService analyticsService;
 
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private SalesCubeService salesCubeService;
+
+    @Autowired
+    private CustomerReachService customerReachService;
+
+    @Autowired
+    private CohortRetentionService cohortRetentionService;
+
+    @Autowired
+    private CheckoutMetrics checkoutMetrics;
+
+    @Autowired
+    private DashboardSnapshotService dashboardSnapshotService;
+
     @Autowired
     private CouponService couponService;
 
     @Autowired
     private CouponRepository couponRepository;
 
+    @Autowired
+    private OrderService orderService;
+
     @Value("${app.upload.dir:uploads/}")
     private String uploadDir;
 
@@ -138,15 +164,11 @@ public class AdminController {
     public String fulfillOrder(@PathVariable Long id, 
                                @RequestParam(value = "notes", required = false) String notes,
                                RedirectAttributes redirectAttributes) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid order Id:" + id));
-        
-        order.setFulfilled(true);
-        order.setFulfilledDate(LocalDateTime.now());
-        if (notes != null && !notes.trim().isEmpty()) {
-            order.setOrderNotes(notes);
+        try {
+            orderService.fulfillOrder(id, notes);
+        } catch (OrderService.OrderNotFoundException e) {
+            throw new IllegalArgumentException("Invalid order Id:" + id);
         }
-        orderRepository.save(order);
         
         redirectAttributes.addFlashAttribute("message", "Order #" + id + " has been fulfilled successfully!");
         return "redirect:/admin/orders/" + id;
@@ -155,12 +177,11 @@ public class AdminController {
     @PostMapping("/orders/{id}/unfulfill")
     @PreAuthorize("hasRole('ADMIN')")
     public String unfulfillOrder(@PathVariable Long id, RedirectAttributes redirectAttributes) {
-        Order order = orderRepository.findById(id)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid order Id:" + id));
-        
-        order.setFulfilled(false);
-        order.setFulfilledDate(null);
-        orderRepository.save(order);
+        try {
+            orderService.unfulfillOrder(id);
+        } catch (OrderService.OrderNotFoundException e) {
+            throw new IllegalArgumentException("Invalid order Id:" + id);
+        }
         
         redirectAttributes.addFlashAttribute("message", "Order #" + id + " has been marked as unfulfilled!");
         return "redirect:/admin/orders/" + id;
@@ -463,8 +484,11 @@ public class AdminController {
     @PreAuthorize("hasRole('ADMIN')")
     public String updateAllCustomerProfiles(RedirectAttributes redirectAttributes) {
         try {
-            customerProfileService.updateAllProfiles();
-            redirectAttributes.addFlashAttribute("message", "All customer profiles updated successfully!");
+            if (customerProfileRebuildJob.runInBackground()) {
+                redirectAttributes.addFlashAttribute("message", "Customer profile rebuild started in the background.");
+            } else {
+                redirectAttributes.addFlashAttribute("message", "A customer profile rebuild is already running.");
+            }
         } catch (Exception e) {
             redirectAttributes.addFlashAttribute("message", "Error updating profiles: " + e.getMessage());
         }
@@ -717,10 +741,11 @@ public class AdminController {
     @PreAuthorize("hasRole('ADMIN') or hasRole('EMPLOYEE')")
     public String analyticsPage(Model model) {
         try {
-            // Get dashboard data
-            Map<String, Object> dashboardData = analyticsService.getDashboardData();
-            model.addAllAttributes(dashboardData);
-            
+            // Latest shared snapshot; recomputed in the background, not per request
+            SnapshotCache.Snapshot<Map<String, Object>> snapshot = dashboardSnapshotService.getAdminAnalytics();
+            model.addAllAttributes(snapshot.getValue());
+            model.addAttribute("snapshotAgeSeconds", snapshot.getAgeSeconds());
+
             return "admin/analytics";
         } catch (Exception e) {
             model.addAttribute("error", "Failed to load analytics data: " + e.getMessage());
@@ -743,7 +768,10 @@ public class AdminController {
     @ResponseBody
     public ResponseEntity<Map<String, Object>> getDashboardData() {
         try {
-            return ResponseEntity.ok(analyticsService.getDashboardData());
+            SnapshotCache.Snapshot<Map<String, Object>> snapshot = dashboardSnapshotService.getAdminAnalytics();
+            Map<String, Object> dashboard = new HashMap<>(snapshot.getValue());
+            dashboard.put("snapshotAgeSeconds", snapshot.getAgeSeconds());
+            return ResponseEntity.ok(dashboard);
         } catch (Exception e) {
             return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
         }
@@ -763,9 +791,16 @@ public class AdminController {
     @GetMapping("/api/analytics/products/top")
     @PreAuthorize("hasRole('ADMIN') or hasRole('EMPLOYEE')")
     @ResponseBody
-    public ResponseEntity<List<Map<String, Object>>> getTopProducts() {
+    public ResponseEntity<List<Map<String, Object>>> getTopProducts(
+            @RequestParam(value = "window", required = false) String window) {
         try {
+            if (window != null) {
+                // today, 7d or 30d: approximate best sellers from the streaming sketches
+                return ResponseEntity.ok(analyticsService.getTopSellingProducts(TopProductsTracker.Window.fromParam(window)));
+            }
             return ResponseEntity.ok(analyticsService.getTopSellingProducts());
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(List.of());
         } catch (Exception e) {
             return ResponseEntity.status(500).body(List.of());
         }
@@ -782,6 +817,125 @@ public class AdminController {
         }
     }
 
+    @PostMapping("/api/analytics/rollups/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> rebuildSalesRollups() {
+        try {
+            int rows = salesRollupService.rebuild();
+            return ResponseEntity.ok(Map.of("message", "Sales rollups rebuilt", "rows", rows));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Ad-hoc slicing, e.g. ?groupBy=category,week&from=2024-01-01 or ?groupBy=product,zone&categoryId=3
+    @GetMapping("/api/analytics/cube")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('EMPLOYEE')")
+    @ResponseBody
+    public ResponseEntity<?> querySalesCube(@RequestParam(value = "groupBy", required = false) List<String> groupBy,
+                                            @RequestParam(value = "from", required = false) String from,
+                                            @RequestParam(value = "to", required = false) String to,
+                                            @RequestParam(value = "productId", required = false) Integer productId,
+                                            @RequestParam(value = "categoryId", required = false) Integer categoryId,
+                                            @RequestParam(value = "zoneId", required = false) Integer zoneId) {
+        try {
+            List<SalesCube.Dimension> dimensions = new ArrayList<>();
+            if (groupBy != null) {
+                for (String dimension : groupBy) {
+                    dimensions.add(SalesCube.Dimension.valueOf(dimension.trim().toUpperCase()));
+                }
+            }
+            SalesCube.Query query = new SalesCube.Query(dimensions)
+                    .between(from != null ? LocalDate.parse(from) : null, to != null ? LocalDate.parse(to) : null)
+                    .product(productId != null ? productId : SalesCube.ANY)
+                    .category(categoryId != null ? categoryId : SalesCube.ANY)
+                    .zone(zoneId != null ? zoneId : SalesCube.ANY);
+            return ResponseEntity.ok(salesCubeService.query(query));
+        } catch (SalesCubeService.CubeNotReadyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Approximate distinct buyers (HyperLogLog): estimates are within ~1.6% (one standard error)
+    @GetMapping("/api/analytics/reach")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('EMPLOYEE')")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getActiveBuyers() {
+        try {
+            return ResponseEntity.ok(customerReachService.getActiveBuyers());
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/api/analytics/reach/daily")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('EMPLOYEE')")
+    @ResponseBody
+    public ResponseEntity<?> getDailyActiveBuyers(@RequestParam(value = "days", defaultValue = "30") int days) {
+        try {
+            return ResponseEntity.ok(customerReachService.getDailyActiveBuyers(days));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping("/api/analytics/reach/products")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('EMPLOYEE')")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getProductReach(@RequestParam(value = "days", defaultValue = "30") int days) {
+        try {
+            return ResponseEntity.ok(customerReachService.getProductReach(days));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @PostMapping("/api/analytics/reach/rebuild")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> rebuildReachSketches() {
+        try {
+            int rows = customerReachService.rebuild();
+            return ResponseEntity.ok(Map.of("message", "Reach sketches rebuilt", "rows", rows));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Retention by signup month: activeCustomers[n] of a cohort ordered n months after signing up
+    @GetMapping("/api/analytics/cohorts")
+    @PreAuthorize("hasRole('ADMIN') or hasRole('EMPLOYEE')")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getCohortRetention(
+            @RequestParam(value = "cohorts", defaultValue = "12") int cohorts) {
+        try {
+            return ResponseEntity.ok(cohortRetentionService.getRetention(cohorts));
+        } catch (CohortRetentionService.RetentionNotReadyException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (Exception e) {
+            return ResponseEntity.status(500).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Checkout latency and order value percentiles over the last hour (also on /actuator/prometheus)
+    @GetMapping("/api/metrics/checkout")
+    @PreAuthorize("hasRole('ADMIN')")
+    @ResponseBody
+    public ResponseEntity<Map<String, Object>> getCheckoutMetrics() {
+        return ResponseEntity.ok(checkoutMetrics.getSummary());
+    }
+
     @GetMapping("/api/analytics/customers/segments")
     @PreAuthorize("hasRole('ADMIN') or hasRole('EMPLOYEE')")
     @ResponseBody
@@ -882,7 +1036,7 @@ public class AdminController {
             // First delete related data
             CustomerProfile profile = customerProfileRepository.findByCustomerId(id).orElse(null);
             if (profile != null) {
-                customerProfileRepository.delete(profile);
+                customerProfileService.deleteProfile(profile);
             }
             
             // Delete orders (if any - though this should be handled carefully in production)
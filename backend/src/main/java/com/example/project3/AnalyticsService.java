@@ -1,57 +1,176 @@
 package com.example.project3;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.time.LocalDate;
-import java.time.LocalDateTime;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
 
 @Service
 public class AnalyticsService {
 
-    @Autowired
-    private OrderRepository orderRepository;
+    private static final Logger logger = LoggerFactory.getLogger(AnalyticsService.class);
+
+    static final String STATUS_OK = "ok";
+    static final String STATUS_STALE = "stale";
+    static final String STATUS_UNAVAILABLE = "unavailable";
 
     @Autowired
     private CustomerRepository customerRepository;
 
     @Autowired
-    private FruitRepository fruitRepository;
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private CustomerSegmentTracker customerSegmentTracker;
 
     @Autowired
-    private OrderItemRepository orderItemRepository;
+    private TopProductsTracker topProductsTracker;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.analytics.dashboard.threads:4}")
+    private int dashboardThreads;
+
+    @Value("${app.analytics.dashboard.queue-capacity:32}")
+    private int dashboardQueueCapacity;
 
-    // Dashboard Overview
+    @Value("${app.analytics.dashboard.component-timeout-ms:2000}")
+    private long componentTimeoutMs;
+
+    private ThreadPoolExecutor dashboardExecutor;
+
+    // Last successful result per dashboard component, served (flagged stale) when it times out
+    private final Map<String, Map<String, Object>> lastComponentResults = new ConcurrentHashMap<>();
+
+    @PostConstruct
+    void startDashboardExecutor() {
+        AtomicInteger threadCount = new AtomicInteger();
+        dashboardExecutor = new ThreadPoolExecutor(dashboardThreads, dashboardThreads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(dashboardQueueCapacity), runnable -> {
+                    Thread thread = new Thread(runnable, "analytics-dashboard-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        dashboardExecutor.allowCoreThreadTimeOut(true);
+    }
+
+    @PreDestroy
+    void stopDashboardExecutor() {
+        dashboardExecutor.shutdownNow();
+    }
+
+    // Dashboard Overview - the components run concurrently, each bounded by its own deadline
     public Map<String, Object> getDashboardData() {
-        Map<String, Object> dashboard = new HashMap<>();
-        
-        // Basic KPIs
-        dashboard.put("totalRevenue", getTotalRevenue());
-        dashboard.put("totalOrders", getTotalOrders());
-        dashboard.put("totalCustomers", getTotalCustomers());
-        dashboard.put("averageOrderValue", getAverageOrderValue());
-        
+        Map<String, Supplier<Map<String, Object>>> components = new LinkedHashMap<>();
+        components.put("totals", this::getTotalsComponent);
+        components.put("totalCustomers", () -> Map.of("totalCustomers", getTotalCustomers()));
         // Recent trends (last 30 days)
-        dashboard.put("recentSales", getRecentSalesData());
-        dashboard.put("topProducts", getTopSellingProducts());
-        dashboard.put("customerSegments", getCustomerSegments());
-        
+        components.put("recentSales", () -> Map.of("recentSales", getRecentSalesData()));
+        components.put("topProducts", () -> Map.of("topProducts", getTopSellingProducts()));
+        components.put("customerSegments", () -> Map.of("customerSegments", getCustomerSegments()));
+
+        long startedAt = System.nanoTime();
+        Map<String, Future<Map<String, Object>>> futures = new LinkedHashMap<>();
+        components.forEach((name, component) -> futures.put(name, submitComponent(name, component)));
+
+        long deadline = startedAt + TimeUnit.MILLISECONDS.toNanos(componentTimeoutMs);
+        Map<String, Object> dashboard = new HashMap<>();
+        Map<String, String> componentStatus = new LinkedHashMap<>();
+        futures.forEach((name, future) -> componentStatus.put(name, collectComponent(name, future, deadline, dashboard)));
+        dashboard.put("componentStatus", componentStatus);
         return dashboard;
     }
 
+    private Map<String, Object> getTotalsComponent() {
+        // Revenue, order count and average come from the monthly rollups
+        OrderRepository.OrderTotals totals = salesRollupService.getAllTimeTotals();
+        Map<String, Object> values = new HashMap<>();
+        values.put("totalRevenue", totals.getRevenue());
+        values.put("totalOrders", totals.getOrderCount());
+        values.put("averageOrderValue", averageOrderValue(totals));
+        return values;
+    }
+
+    private Future<Map<String, Object>> submitComponent(String name, Supplier<Map<String, Object>> component) {
+        try {
+            return dashboardExecutor.submit(() -> {
+                long started = System.nanoTime();
+                String outcome = "success";
+                try {
+                    Map<String, Object> values = component.get();
+                    lastComponentResults.put(name, values);
+                    return values;
+                } catch (RuntimeException e) {
+                    outcome = "error";
+                    throw e;
+                } finally {
+                    Timer.builder("analytics.dashboard.component")
+                            .description("Time to compute one analytics dashboard component")
+                            .tag("component", name)
+                            .tag("outcome", outcome)
+                            .register(meterRegistry)
+                            .record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    private String collectComponent(String name, Future<Map<String, Object>> future, long deadline,
+                                    Map<String, Object> dashboard) {
+        try {
+            dashboard.putAll(future.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS));
+            return STATUS_OK;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return degraded(name, "interrupted", dashboard);
+        } catch (TimeoutException e) {
+            // Left running: a late result still refreshes the value served as stale next time
+            return degraded(name, "timeout", dashboard);
+        } catch (ExecutionException e) {
+            logger.warn("Analytics dashboard component {} failed", name, e.getCause());
+            return degraded(name, e.getCause() instanceof RejectedExecutionException ? "rejected" : "error", dashboard);
+        }
+    }
+
+    private String degraded(String name, String reason, Map<String, Object> dashboard) {
+        Counter.builder("analytics.dashboard.degraded")
+                .description("Dashboard components served stale or left out")
+                .tag("component", name)
+                .tag("reason", reason)
+                .register(meterRegistry)
+                .increment();
+        Map<String, Object> previous = lastComponentResults.get(name);
+        if (previous == null) {
+            return STATUS_UNAVAILABLE;
+        }
+        dashboard.putAll(previous);
+        return STATUS_STALE;
+    }
+
     // Sales Analytics
     public BigDecimal getTotalRevenue() {
-        List<Order> orders = orderRepository.findAll();
-        return orders.stream()
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        return salesRollupService.getAllTimeTotals().getRevenue();
     }
 
     public Long getTotalOrders() {
-        return orderRepository.count();
+        return salesRollupService.getAllTimeTotals().getOrderCount();
     }
 
     public Long getTotalCustomers() {
@@ -59,154 +178,71 @@ public class AnalyticsService {
     }
 
     public BigDecimal getAverageOrderValue() {
-        BigDecimal totalRevenue = getTotalRevenue();
-        Long totalOrders = getTotalOrders();
-        if (totalOrders == 0) return BigDecimal.ZERO;
-        return totalRevenue.divide(BigDecimal.valueOf(totalOrders), 2, BigDecimal.ROUND_HALF_UP);
+        return averageOrderValue(salesRollupService.getAllTimeTotals());
+    }
+
+    private BigDecimal averageOrderValue(OrderRepository.OrderTotals totals) {
+        if (totals.getOrderCount() == 0) return BigDecimal.ZERO;
+        return totals.getRevenue().divide(BigDecimal.valueOf(totals.getOrderCount()), 2, RoundingMode.HALF_UP);
     }
 
-    // Sales trend for last 30 days
+    // Sales trend for the last 30 days, today included
     public List<Map<String, Object>> getRecentSalesData() {
-        LocalDateTime thirtyDaysAgo = LocalDateTime.now().minusDays(30);
-        List<Order> recentOrders = orderRepository.findByOrderDateAfter(thirtyDaysAgo);
-        
-        // Group by date
-        Map<LocalDate, List<Order>> ordersByDate = recentOrders.stream()
-                .collect(Collectors.groupingBy(order -> order.getOrderDate().toLocalDate()));
+        LocalDate from = LocalDate.now().minusDays(29);
         
         List<Map<String, Object>> salesData = new ArrayList<>();
-        for (Map.Entry<LocalDate, List<Order>> entry : ordersByDate.entrySet()) {
+        for (SalesRollup day : salesRollupService.getDailyTotalsSince(from)) {
             Map<String, Object> dayData = new HashMap<>();
-            dayData.put("date", entry.getKey().toString());
-            dayData.put("orders", entry.getValue().size());
-            dayData.put("revenue", entry.getValue().stream()
-                    .map(Order::getTotalAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add));
+            dayData.put("date", day.getPeriodStart().toString());
+            dayData.put("orders", (int) day.getOrderCount());
+            dayData.put("revenue", day.getRevenue());
             salesData.add(dayData);
         }
-        
-        // Sort by date
-        salesData.sort((a, b) -> ((String) a.get("date")).compareTo((String) b.get("date")));
         return salesData;
     }
 
     // Product Analytics
     public List<Map<String, Object>> getTopSellingProducts() {
-        List<OrderItem> allOrderItems = orderItemRepository.findAll();
-        
-        // Group by product and sum quantities
-        Map<String, Integer> productSales = new HashMap<>();
-        Map<String, BigDecimal> productRevenue = new HashMap<>();
-        
-        for (OrderItem item : allOrderItems) {
-            String productName = item.getFruit().getName();
-            productSales.merge(productName, item.getQuantity(), Integer::sum);
-            productRevenue.merge(productName, 
-                item.getFruit().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())), 
-                BigDecimal::add);
-        }
-        
-        List<Map<String, Object>> topProducts = new ArrayList<>();
-        for (Map.Entry<String, Integer> entry : productSales.entrySet()) {
-            Map<String, Object> product = new HashMap<>();
-            product.put("name", entry.getKey());
-            product.put("quantitySold", entry.getValue());
-            product.put("revenue", productRevenue.get(entry.getKey()));
-            topProducts.add(product);
-        }
-        
-        // Sort by quantity sold (descending)
-        topProducts.sort((a, b) -> 
-            Integer.compare((Integer) b.get("quantitySold"), (Integer) a.get("quantitySold")));
-        
-        // Return top 10
-        return topProducts.stream().limit(10).collect(Collectors.toList());
+        return toNamedSalesRows(salesRollupService.getTopProducts(10));
+    }
+
+    public List<Map<String, Object>> getTopSellingProducts(TopProductsTracker.Window window) {
+        return topProductsTracker.getTopProducts(window, 10);
     }
 
     // Customer Analytics
     public Map<String, Object> getCustomerSegments() {
-        List<Customer> customers = customerRepository.findAll();
-        Map<String, Object> segments = new HashMap<>();
-        
-        // Simple segmentation based on order count
-        int newCustomers = 0;
-        int regularCustomers = 0;
-        int vipCustomers = 0;
-        
-        for (Customer customer : customers) {
-            List<Order> customerOrders = orderRepository.findByCustomerId(customer.getId());
-            int orderCount = customerOrders.size();
-            
-            if (orderCount == 0) {
-                newCustomers++;
-            } else if (orderCount <= 3) {
-                regularCustomers++;
-            } else {
-                vipCustomers++;
-            }
-        }
-        
-        segments.put("new", newCustomers);
-        segments.put("regular", regularCustomers);
-        segments.put("vip", vipCustomers);
-        segments.put("total", customers.size());
-        
-        return segments;
+        return customerSegmentTracker.getSegments();
     }
 
     // Monthly sales report
     public List<Map<String, Object>> getMonthlySalesReport() {
-        List<Order> orders = orderRepository.findAll();
-        
-        Map<String, List<Order>> ordersByMonth = orders.stream()
-                .collect(Collectors.groupingBy(order -> 
-                    order.getOrderDate().getYear() + "-" + 
-                    String.format("%02d", order.getOrderDate().getMonthValue())));
-        
         List<Map<String, Object>> monthlyData = new ArrayList<>();
-        for (Map.Entry<String, List<Order>> entry : ordersByMonth.entrySet()) {
+        for (SalesRollup month : salesRollupService.getMonthlyTotals()) {
             Map<String, Object> monthData = new HashMap<>();
-            monthData.put("month", entry.getKey());
-            monthData.put("orders", entry.getValue().size());
-            monthData.put("revenue", entry.getValue().stream()
-                    .map(Order::getTotalAmount)
-                    .reduce(BigDecimal.ZERO, BigDecimal::add));
+            monthData.put("month", month.getPeriodStart().getYear() + "-" +
+                    String.format("%02d", month.getPeriodStart().getMonthValue()));
+            monthData.put("orders", (int) month.getOrderCount());
+            monthData.put("revenue", month.getRevenue());
             monthlyData.add(monthData);
         }
-        
-        // Sort by month
-        monthlyData.sort((a, b) -> ((String) a.get("month")).compareTo((String) b.get("month")));
         return monthlyData;
     }
 
-    // Category performance
+    // Category performance, sorted by revenue (descending)
     public List<Map<String, Object>> getCategoryPerformance() {
-        List<OrderItem> allOrderItems = orderItemRepository.findAll();
-        
-        Map<String, Integer> categorySales = new HashMap<>();
-        Map<String, BigDecimal> categoryRevenue = new HashMap<>();
-        
-        for (OrderItem item : allOrderItems) {
-            String categoryName = item.getFruit().getCategory().getName();
-            categorySales.merge(categoryName, item.getQuantity(), Integer::sum);
-            categoryRevenue.merge(categoryName,
-                item.getFruit().getPrice().multiply(BigDecimal.valueOf(item.getQuantity())),
-                BigDecimal::add);
-        }
-        
-        List<Map<String, Object>> categoryData = new ArrayList<>();
-        for (Map.Entry<String, Integer> entry : categorySales.entrySet()) {
-            Map<String, Object> category = new HashMap<>();
-            category.put("name", entry.getKey());
-            category.put("quantitySold", entry.getValue());
-            category.put("revenue", categoryRevenue.get(entry.getKey()));
-            categoryData.add(category);
+        return toNamedSalesRows(salesRollupService.getCategoryPerformance());
+    }
+
+    private List<Map<String, Object>> toNamedSalesRows(List<OrderItemRepository.NamedSales> rows) {
+        List<Map<String, Object>> result = new ArrayList<>(rows.size());
+        for (OrderItemRepository.NamedSales row : rows) {
+            Map<String, Object> entry = new HashMap<>();
+            entry.put("name", row.getName());
+            entry.put("quantitySold", (int) row.getQuantitySold());
+            entry.put("revenue", row.getRevenue());
+            result.add(entry);
         }
-        
-        // Sort by revenue (descending)
-        categoryData.sort((a, b) -> 
-            ((BigDecimal) b.get("revenue")).compareTo((BigDecimal) a.get("revenue")));
-        
-        return categoryData;
+        return result;
     }
-} 
\ No newline at end of file
+}
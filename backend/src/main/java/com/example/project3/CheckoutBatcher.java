@@ -0,0 +1,226 @@
+package com.example.project3;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Optional group-commit checkout for flash sales. Requests are queued and coalesced into
+ * batches of up to max-batch-size requests or max-wait-ms, then committed together by
+ * {@link OrderService#createOrders}. Each caller still gets its own order or exception.
+ * If the batch loses a stock race, its requests are retried one by one on the normal path.
+ * A request that times out while still queued is cancelled and never committed; once a batch
+ * has claimed it, the caller waits for that batch's outcome instead.
+ */
+@Service
+public class CheckoutBatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutBatcher.class);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Value("${app.checkout.batching.enabled:false}")
+    private boolean enabled;
+
+    @Value("${app.checkout.batching.max-batch-size:64}")
+    private int maxBatchSize;
+
+    @Value("${app.checkout.batching.max-wait-ms:5}")
+    private long maxWaitMs;
+
+    @Value("${app.checkout.batching.queue-capacity:10000}")
+    private int queueCapacity;
+
+    @Value("${app.checkout.batching.request-timeout-ms:10000}")
+    private long requestTimeoutMs;
+
+    private LinkedBlockingQueue<PendingCheckout> queue;
+    private Thread worker;
+    private volatile boolean running;
+
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong fallbacks = new AtomicLong();
+
+    @PostConstruct
+    void start() {
+        if (!enabled) {
+            return;
+        }
+        queue = new LinkedBlockingQueue<>(queueCapacity);
+        running = true;
+        worker = new Thread(this::runLoop, "checkout-batcher");
+        worker.setDaemon(true);
+        worker.start();
+        logger.info("Checkout batching enabled (max {} requests / {} ms)", maxBatchSize, maxWaitMs);
+    }
+
+    @PreDestroy
+    void stop() throws InterruptedException {
+        running = false;
+        if (worker != null) {
+            worker.interrupt();
+            worker.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public OrderDTO submit(CheckoutRequest request, String username) {
+        PendingCheckout pending = new PendingCheckout(new OrderService.BatchCheckout(request, username));
+        if (!running || !queue.offer(pending)) {
+            // Queue full or shutting down: do not make the caller wait behind the backlog
+            return orderService.createOrder(request, username);
+        }
+
+        try {
+            try {
+                return pending.result.get(requestTimeoutMs, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (pending.cancel()) {
+                    throw new IllegalStateException("Timed out waiting for checkout batch", e);
+                }
+                // A batch already claimed it and will commit or fail it; report that outcome
+                return pending.result.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pending.cancel();
+            throw new IllegalStateException("Interrupted while waiting for checkout batch", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    long getBatchCount() {
+        return batches.get();
+    }
+
+    long getFallbackCount() {
+        return fallbacks.get();
+    }
+
+    private void runLoop() {
+        List<PendingCheckout> batch = new ArrayList<>(maxBatchSize);
+        while (running) {
+            try {
+                collectBatch(batch);
+                if (!batch.isEmpty()) {
+                    processBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                break;
+            } catch (RuntimeException e) {
+                logger.error("Unexpected error in checkout batcher", e);
+            } finally {
+                batch.clear();
+            }
+        }
+
+        // Anything still queued at shutdown is completed on the caller-facing path
+        List<PendingCheckout> remaining = new ArrayList<>();
+        queue.drainTo(remaining);
+        remaining.stream().filter(PendingCheckout::claim).forEach(this::processAlone);
+    }
+
+    private void collectBatch(List<PendingCheckout> batch) throws InterruptedException {
+        PendingCheckout first = queue.take();
+        batch.add(first);
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(maxWaitMs);
+        while (batch.size() < maxBatchSize) {
+            long remainingNanos = deadline - System.nanoTime();
+            if (remainingNanos <= 0) {
+                break;
+            }
+            PendingCheckout next = queue.poll(remainingNanos, TimeUnit.NANOSECONDS);
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, maxBatchSize - batch.size());
+        }
+    }
+
+    private void processBatch(List<PendingCheckout> batch) {
+        // Callers that gave up while queued have already been answered with a timeout
+        batch.removeIf(pending -> !pending.claim());
+        if (batch.isEmpty()) {
+            return;
+        }
+        List<OrderService.BatchCheckout> checkouts = new ArrayList<>(batch.size());
+        batch.forEach(pending -> checkouts.add(pending.checkout));
+
+        List<OrderService.BatchOutcome> outcomes;
+        try {
+            outcomes = orderService.createOrders(checkouts);
+        } catch (RuntimeException e) {
+            // The whole batch rolled back (usually a stock race with the per-request path)
+            logger.warn("Checkout batch of {} rolled back, retrying individually: {}", batch.size(), e.getMessage());
+            fallbacks.incrementAndGet();
+            batch.forEach(this::processAlone);
+            return;
+        }
+
+        batches.incrementAndGet();
+        for (int i = 0; i < batch.size(); i++) {
+            OrderService.BatchOutcome outcome = outcomes.get(i);
+            if (outcome.getError() != null) {
+                batch.get(i).result.completeExceptionally(outcome.getError());
+            } else {
+                batch.get(i).result.complete(outcome.getOrder());
+            }
+        }
+    }
+
+    private void processAlone(PendingCheckout pending) {
+        try {
+            pending.result.complete(orderService.createOrder(pending.checkout.request, pending.checkout.username));
+        } catch (RuntimeException e) {
+            pending.result.completeExceptionally(e);
+        }
+    }
+
+    private static class PendingCheckout {
+        final OrderService.BatchCheckout checkout;
+        final CompletableFuture<OrderDTO> result = new CompletableFuture<>();
+        // The caller's cancel and the worker's claim race; exactly one of them wins
+        private final AtomicReference<State> state = new AtomicReference<>(State.QUEUED);
+
+        PendingCheckout(OrderService.BatchCheckout checkout) {
+            this.checkout = checkout;
+        }
+
+        boolean claim() {
+            return state.compareAndSet(State.QUEUED, State.CLAIMED);
+        }
+
+        boolean cancel() {
+            return state.compareAndSet(State.QUEUED, State.CANCELLED);
+        }
+
+        private enum State {
+            QUEUED,
+            CLAIMED,
+            CANCELLED
+        }
+    }
+}
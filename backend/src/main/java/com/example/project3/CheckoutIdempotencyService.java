@@ -0,0 +1,241 @@
+package com.example.project3;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
+
+/**
+ * Remembers the result of each checkout by client-supplied Idempotency-Key, so mobile
+ * retries replay the stored order instead of charging stock and coupons again.
+ * Keys are scoped per user and evicted after the configured TTL, or least recently used
+ * first once the store is full. Each key keeps a SHA-256 digest of the request and the
+ * serialized response, so a replay returns exactly the body of the original checkout.
+ */
+@Service
+public class CheckoutIdempotencyService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CheckoutIdempotencyService.class);
+
+    public static final int MAX_KEY_LENGTH = 255;
+
+    // Derived getters such as discountPercentage are written out but have no setter to read back
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    // Guarded by itself; access order makes the eldest entry the least recently used key
+    private final Map<String, StoredCheckout> store = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, StoredCheckout> eldest) {
+            return size() > maxEntries;
+        }
+    };
+
+    @Value("${app.idempotency.ttl-minutes:1440}")
+    private long ttlMinutes;
+
+    @Value("${app.idempotency.max-entries:10000}")
+    private int maxEntries;
+
+    @Value("${app.idempotency.wait-timeout-ms:30000}")
+    private long waitTimeoutMs;
+
+    public CheckoutResult execute(String username, String idempotencyKey, CheckoutRequest request,
+                                  Supplier<OrderDTO> checkout) {
+        if (idempotencyKey.isBlank() || idempotencyKey.length() > MAX_KEY_LENGTH) {
+            throw new OrderService.InvalidOrderException(
+                "Idempotency-Key must be between 1 and " + MAX_KEY_LENGTH + " characters");
+        }
+
+        String storeKey = username + ":" + idempotencyKey;
+        byte[] fingerprint = fingerprint(request);
+
+        while (true) {
+            StoredCheckout fresh = new StoredCheckout(fingerprint);
+            StoredCheckout existing;
+            synchronized (store) {
+                existing = store.putIfAbsent(storeKey, fresh);
+            }
+
+            if (existing == null) {
+                return runFirst(storeKey, fresh, checkout);
+            }
+            if (existing.isExpired(Instant.now(), ttl())) {
+                synchronized (store) {
+                    store.remove(storeKey, existing);
+                }
+                continue;
+            }
+            if (!MessageDigest.isEqual(existing.fingerprint, fingerprint)) {
+                throw new IdempotencyKeyReuseException(
+                    "Idempotency-Key was already used for a different checkout request");
+            }
+            return new CheckoutResult(deserialize(awaitResult(existing)), true);
+        }
+    }
+
+    @Scheduled(fixedRate = 60000)
+    public void evictExpired() {
+        Instant now = Instant.now();
+        int evicted;
+        synchronized (store) {
+            int before = store.size();
+            store.values().removeIf(entry -> entry.isExpired(now, ttl()));
+            evicted = before - store.size();
+        }
+        if (evicted > 0) {
+            logger.debug("Evicted {} expired checkout idempotency keys", evicted);
+        }
+    }
+
+    int size() {
+        synchronized (store) {
+            return store.size();
+        }
+    }
+
+    private CheckoutResult runFirst(String storeKey, StoredCheckout entry, Supplier<OrderDTO> checkout) {
+        try {
+            OrderDTO order = checkout.get();
+            entry.complete(serialize(order));
+            return new CheckoutResult(order, false);
+        } catch (RuntimeException e) {
+            // Failed checkouts are not remembered, so the client can retry with the same key
+            synchronized (store) {
+                store.remove(storeKey, entry);
+            }
+            entry.result.completeExceptionally(e);
+            throw e;
+        }
+    }
+
+    private byte[] awaitResult(StoredCheckout entry) {
+        try {
+            return entry.result.get(waitTimeoutMs, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException e) {
+            throw new CheckoutInProgressException("A checkout with this Idempotency-Key is still in progress");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new CheckoutInProgressException("Interrupted while waiting for the original checkout");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private byte[] serialize(OrderDTO order) {
+        try {
+            return objectMapper.writeValueAsBytes(order);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not store checkout response", e);
+        }
+    }
+
+    private OrderDTO deserialize(byte[] response) {
+        try {
+            return objectMapper.readValue(response, OrderDTO.class);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not replay checkout response", e);
+        }
+    }
+
+    private Duration ttl() {
+        return Duration.ofMinutes(ttlMinutes);
+    }
+
+    // SHA-256 over an unambiguous encoding of coupon and cart lines, in request order
+    private static byte[] fingerprint(CheckoutRequest request) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            out.writeBoolean(request.getCouponCode() != null);
+            out.writeUTF(request.getCouponCode() != null ? request.getCouponCode() : "");
+            List<CartItemDTO> items = request.getCartItems() != null ? request.getCartItems() : List.of();
+            out.writeInt(items.size());
+            for (CartItemDTO item : items) {
+                out.writeBoolean(item.getFruitId() != null);
+                out.writeLong(item.getFruitId() != null ? item.getFruitId() : 0L);
+                out.writeInt(item.getQuantity());
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        try {
+            return MessageDigest.getInstance("SHA-256").digest(bytes.toByteArray());
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 is not available", e);
+        }
+    }
+
+    private static class StoredCheckout {
+        final byte[] fingerprint;
+        final CompletableFuture<byte[]> result = new CompletableFuture<>();
+        volatile Instant completedAt;
+
+        StoredCheckout(byte[] fingerprint) {
+            this.fingerprint = fingerprint;
+        }
+
+        void complete(byte[] response) {
+            completedAt = Instant.now();
+            result.complete(response);
+        }
+
+        boolean isExpired(Instant now, Duration ttl) {
+            Instant completed = completedAt;
+            return completed != null && completed.plus(ttl).isBefore(now);
+        }
+    }
+
+    public static class CheckoutResult {
+        private final OrderDTO order;
+        private final boolean replayed;
+
+        public CheckoutResult(OrderDTO order, boolean replayed) {
+            this.order = order;
+            this.replayed = replayed;
+        }
+
+        public OrderDTO getOrder() {
+            return order;
+        }
+
+        public boolean isReplayed() {
+            return replayed;
+        }
+    }
+
+    public static class IdempotencyKeyReuseException extends RuntimeException {
+        public IdempotencyKeyReuseException(String message) {
+            super(message);
+        }
+    }
+
+    public static class CheckoutInProgressException extends RuntimeException {
+        public CheckoutInProgressException(String message) {
+            super(message);
+        }
+    }
+}
@@ -0,0 +1,150 @@
+package com.example.project3;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.HistogramSnapshot;
+import io.micrometer.core.instrument.distribution.ValueAtPercentile;
+import jakarta.annotation.PostConstruct;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
+
+/**
+ * Checkout distributions: end-to-end checkout latency as the caller sees it (connection
+ * acquisition, commit and any group-commit wait included), stock reservation and coupon
+ * validation time, and order value. Micrometer keeps them in
+ * HdrHistogram-backed rotating windows, so the published p50/p90/p99 (and the admin summary)
+ * cover roughly the last hour, while the SLO buckets are cumulative for Prometheus.
+ */
+@Component
+public class CheckoutMetrics {
+
+    static final String CHECKOUT = "checkout.latency";
+    static final String STOCK_RESERVATION = "checkout.stock.reservation";
+    static final String COUPON_VALIDATION = "checkout.coupon.validation";
+    static final String ORDER_VALUE = "checkout.order.value";
+
+    private static final double[] PERCENTILES = {0.5, 0.9, 0.99};
+    private static final Duration WINDOW = Duration.ofHours(1);
+    // The window rotates in six steps, so percentiles cover the last 50 to 60 minutes
+    private static final int WINDOW_BUFFERS = 6;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.metrics.checkout.latency-slo-ms:50,100,250,500,1000,2000}")
+    private long[] latencySloMs;
+
+    @Value("${app.metrics.checkout.step-slo-ms:5,10,25,50,100,250}")
+    private long[] stepSloMs;
+
+    @Value("${app.metrics.checkout.value-slo:10,25,50,100,250,500}")
+    private double[] valueSlo;
+
+    private Timer committed;
+    private Timer rolledBack;
+    private Timer stockReservation;
+    private Timer couponValidation;
+    private DistributionSummary orderValue;
+
+    @PostConstruct
+    void registerMeters() {
+        committed = timer(CHECKOUT, "End-to-end checkout including transaction begin and commit", latencySloMs)
+                .tag("outcome", "committed").register(meterRegistry);
+        rolledBack = timer(CHECKOUT, "End-to-end checkout including transaction begin and commit", latencySloMs)
+                .tag("outcome", "rolled_back").register(meterRegistry);
+        stockReservation = timer(STOCK_RESERVATION, "Conditional stock decrement for all cart products", stepSloMs)
+                .register(meterRegistry);
+        couponValidation = timer(COUPON_VALIDATION, "Coupon lookup and eligibility checks", stepSloMs)
+                .register(meterRegistry);
+        orderValue = DistributionSummary.builder(ORDER_VALUE)
+                .description("Order total after discounts")
+                .publishPercentiles(PERCENTILES)
+                .percentilePrecision(2)
+                .serviceLevelObjectives(valueSlo)
+                .distributionStatisticExpiry(WINDOW)
+                .distributionStatisticBufferLength(WINDOW_BUFFERS)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Times one caller's checkout around the transactional call, so connection acquisition,
+     * begin and commit are included. Recorded once per caller: as committed when it returns,
+     * as rolled back when it throws, whatever batches or retries happened in between.
+     */
+    public <T> T timeCheckout(Supplier<T> checkout) {
+        long started = System.nanoTime();
+        try {
+            T result = checkout.get();
+            committed.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            return result;
+        } catch (RuntimeException e) {
+            rolledBack.record(System.nanoTime() - started, TimeUnit.NANOSECONDS);
+            throw e;
+        }
+    }
+
+    public <T> T timeStockReservation(Supplier<T> reservation) {
+        return stockReservation.record(reservation);
+    }
+
+    public <T> T timeCouponValidation(Supplier<T> validation) {
+        return couponValidation.record(validation);
+    }
+
+    public void recordOrderValue(BigDecimal total) {
+        if (total != null) {
+            orderValue.record(total.doubleValue());
+        }
+    }
+
+    /** p50/p90/p99 and max over the rolling window, latencies in milliseconds. */
+    public Map<String, Object> getSummary() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("window", "last 50-60 minutes");
+        summary.put("checkout", latency(committed.takeSnapshot()));
+        summary.put("checkoutRolledBack", latency(rolledBack.takeSnapshot()));
+        summary.put("stockReservation", latency(stockReservation.takeSnapshot()));
+        summary.put("couponValidation", latency(couponValidation.takeSnapshot()));
+        summary.put("orderValue", percentiles(orderValue.takeSnapshot(), 1));
+        return summary;
+    }
+
+    private Map<String, Object> latency(HistogramSnapshot snapshot) {
+        return percentiles(snapshot, TimeUnit.MILLISECONDS.toNanos(1));
+    }
+
+    private static Map<String, Object> percentiles(HistogramSnapshot snapshot, double scale) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        // Count and mean are since startup; Micrometer only windows the distribution
+        values.put("countSinceStart", snapshot.count());
+        for (ValueAtPercentile percentile : snapshot.percentileValues()) {
+            values.put("p" + Math.round(percentile.percentile() * 100), round(percentile.value() / scale));
+        }
+        values.put("max", round(snapshot.max() / scale));
+        return values;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 100) / 100.0;
+    }
+
+    private static Timer.Builder timer(String name, String description, long[] sloMs) {
+        return Timer.builder(name)
+                .description(description)
+                .publishPercentiles(PERCENTILES)
+                .percentilePrecision(2)
+                .serviceLevelObjectives(Arrays.stream(sloMs).mapToObj(Duration::ofMillis).toArray(Duration[]::new))
+                .distributionStatisticExpiry(WINDOW)
+                .distributionStatisticBufferLength(WINDOW_BUFFERS);
+    }
+}
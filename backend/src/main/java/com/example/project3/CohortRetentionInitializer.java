@@ -0,0 +1,23 @@
+package com.example.project3;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Builds the cohort retention matrix once the data seeders have run. Going through the service
+ * proxy keeps the scan in its read-only transaction, so the driver streams rows by fetch size.
+ */
+@Component
+@Order(20)
+public class CohortRetentionInitializer implements CommandLineRunner {
+
+    @Autowired
+    private CohortRetentionService cohortRetentionService;
+
+    @Override
+    public void run(String... args) {
+        cohortRetentionService.rebuild();
+    }
+}
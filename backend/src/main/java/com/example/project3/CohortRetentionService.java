@@ -0,0 +1,242 @@
+package com.example.project3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.time.temporal.ChronoUnit;
+import java.util.*;
+
+/**
+ * Monthly retention by signup cohort: for each month customers signed up in, how many of
+ * them ordered 0, 1, 2... months later. Built by streaming customers joined to their order
+ * dates once, ordered by customer, into a compact cohort x period matrix of counts that is
+ * kept in memory. The nightly refresh only rescans orders and signups from the previous
+ * month on: older calendar months can no longer change, so only the latest cohorts and the
+ * latest cells of older cohorts are recomputed. A weekly full rebuild picks up deletions.
+ * The first build runs from {@link CohortRetentionInitializer}; until then reads report that
+ * the matrix is still loading rather than scanning on the request thread.
+ */
+@Service
+public class CohortRetentionService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CohortRetentionService.class);
+
+    private static final String ALL_SQL =
+            "SELECT c.id AS customer_id, c.created_at, o.order_date " +
+            "FROM customers c LEFT JOIN orders o ON o.customer_id = c.id ORDER BY c.id";
+
+    // Customers who signed up, or ordered, on or after the cutoff
+    private static final String SINCE_SQL =
+            "SELECT c.id AS customer_id, c.created_at, o.order_date " +
+            "FROM customers c LEFT JOIN orders o ON o.customer_id = c.id AND o.order_date >= ? " +
+            "WHERE c.created_at >= ? OR o.id IS NOT NULL ORDER BY c.id";
+
+    private static final int FETCH_SIZE = 10_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private volatile RetentionMatrix matrix;
+
+    /** The latest {@code cohorts} signup months, oldest first, in the shape the admin chart plots. */
+    public Map<String, Object> getRetention(int cohorts) {
+        if (cohorts < 1) {
+            throw new IllegalArgumentException("cohorts must be at least 1");
+        }
+        RetentionMatrix current = matrix;
+        if (current == null) {
+            throw new RetentionNotReadyException("Retention matrix is still loading");
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>();
+        List<YearMonth> months = new ArrayList<>(current.cohorts.keySet());
+        for (YearMonth month : months.subList(Math.max(0, months.size() - cohorts), months.size())) {
+            Cohort cohort = current.cohorts.get(month);
+            List<Double> retention = new ArrayList<>(cohort.active.length);
+            for (int active : cohort.active) {
+                retention.add(cohort.size == 0 ? 0.0 : Math.round(active * 1000.0 / cohort.size) / 10.0);
+            }
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("cohort", month.toString());
+            row.put("customers", cohort.size);
+            row.put("activeCustomers", Arrays.stream(cohort.active).boxed().toList());
+            row.put("retentionPercent", retention);
+            rows.add(row);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("asOf", current.asOf.toString());
+        result.put("generatedAt", current.generatedAt.toString());
+        result.put("periodUnit", "month");
+        result.put("cohorts", rows);
+        return result;
+    }
+
+    /** Rescans every customer and order. */
+    @Scheduled(cron = "${app.analytics.cohorts.full-rebuild-cron:0 0 3 * * SUN}")
+    @Transactional(readOnly = true)
+    public synchronized RetentionMatrix rebuild() {
+        long started = System.currentTimeMillis();
+        YearMonth asOf = YearMonth.now();
+        RetentionMatrix fresh = scan(ALL_SQL, null, asOf);
+        matrix = fresh;
+        logger.info("Built retention matrix for {} cohorts in {} ms", fresh.cohorts.size(),
+                System.currentTimeMillis() - started);
+        return fresh;
+    }
+
+    /** Recomputes only what orders and signups since the start of last month can have changed. */
+    @Scheduled(cron = "${app.analytics.cohorts.refresh-cron:0 30 2 * * *}")
+    @Transactional(readOnly = true)
+    public synchronized RetentionMatrix refreshRecent() {
+        YearMonth asOf = YearMonth.now();
+        YearMonth frontier = asOf.minusMonths(1);
+        RetentionMatrix cached = matrix;
+        // Cells before the frontier are only final if the cache was built after they ended
+        if (cached == null || cached.asOf.isBefore(frontier)) {
+            return rebuild();
+        }
+
+        long started = System.currentTimeMillis();
+        RetentionMatrix recent = scan(SINCE_SQL, frontier, asOf);
+        RetentionMatrix merged = new RetentionMatrix(asOf);
+        cached.cohorts.forEach((month, old) -> {
+            if (month.isBefore(frontier)) {
+                Cohort cohort = merged.cohort(month);
+                cohort.size = old.size;
+                // Periods before the frontier keep their counts; later ones come from the rescan
+                System.arraycopy(old.active, 0, cohort.active, 0, (int) month.until(frontier, ChronoUnit.MONTHS));
+            }
+        });
+        recent.cohorts.forEach((month, fresh) -> {
+            Cohort cohort = merged.cohort(month);
+            if (!month.isBefore(frontier)) {
+                cohort.size = fresh.size;
+            }
+            int first = month.isBefore(frontier) ? (int) month.until(frontier, ChronoUnit.MONTHS) : 0;
+            System.arraycopy(fresh.active, first, cohort.active, first, fresh.active.length - first);
+        });
+        matrix = merged;
+        logger.info("Refreshed retention matrix from {} in {} ms", frontier, System.currentTimeMillis() - started);
+        return merged;
+    }
+
+    private RetentionMatrix scan(String sql, YearMonth since, YearMonth asOf) {
+        RetentionMatrix result = new RetentionMatrix(asOf);
+        CustomerScan scan = new CustomerScan(result, since);
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(sql);
+            statement.setFetchSize(FETCH_SIZE);
+            if (since != null) {
+                Timestamp cutoff = Timestamp.valueOf(since.atDay(1).atStartOfDay());
+                statement.setTimestamp(1, cutoff);
+                statement.setTimestamp(2, cutoff);
+            }
+            return statement;
+        }, (RowCallbackHandler) scan::add);
+        scan.finish();
+        return result;
+    }
+
+    /** Folds one customer's rows at a time into the matrix; rows must arrive ordered by customer. */
+    private static final class CustomerScan {
+        private final RetentionMatrix target;
+        private final YearMonth since;
+        private final BitSet periods = new BitSet();
+        private long customerId = -1;
+        private YearMonth signup;
+
+        CustomerScan(RetentionMatrix target, YearMonth since) {
+            this.target = target;
+            this.since = since;
+        }
+
+        void add(ResultSet rs) throws SQLException {
+            long id = rs.getLong("customer_id");
+            if (id != customerId) {
+                finish();
+                customerId = id;
+                Timestamp createdAt = rs.getTimestamp("created_at");
+                signup = createdAt != null ? YearMonth.from(createdAt.toLocalDateTime()) : null;
+            }
+            Timestamp orderDate = rs.getTimestamp("order_date");
+            if (signup != null && orderDate != null) {
+                YearMonth month = YearMonth.from(orderDate.toLocalDateTime());
+                // Orders imported from before signup count towards the signup month
+                periods.set((int) Math.max(0, signup.until(month, ChronoUnit.MONTHS)));
+            }
+        }
+
+        void finish() {
+            if (signup == null || signup.isAfter(target.asOf)) {
+                periods.clear();
+                return;
+            }
+            Cohort cohort = target.cohort(signup);
+            if (since == null || !signup.isBefore(since)) {
+                cohort.size++;
+            }
+            for (int period = periods.nextSetBit(0); period >= 0 && period < cohort.active.length;
+                 period = periods.nextSetBit(period + 1)) {
+                cohort.active[period]++;
+            }
+            periods.clear();
+            signup = null;
+        }
+    }
+
+    public static class RetentionNotReadyException extends RuntimeException {
+        public RetentionNotReadyException(String message) {
+            super(message);
+        }
+    }
+
+    public static class RetentionMatrix {
+        private final YearMonth asOf;
+        private final LocalDateTime generatedAt = LocalDateTime.now();
+        private final SortedMap<YearMonth, Cohort> cohorts = new TreeMap<>();
+
+        RetentionMatrix(YearMonth asOf) {
+            this.asOf = asOf;
+        }
+
+        public YearMonth getAsOf() {
+            return asOf;
+        }
+
+        public int getSize(YearMonth cohort) {
+            return cohorts.containsKey(cohort) ? cohorts.get(cohort).size : 0;
+        }
+
+        /** Customers of the cohort who ordered {@code period} months after signing up. */
+        public int getActive(YearMonth cohort, int period) {
+            Cohort row = cohorts.get(cohort);
+            return row != null && period < row.active.length ? row.active[period] : 0;
+        }
+
+        private Cohort cohort(YearMonth month) {
+            return cohorts.computeIfAbsent(month, m -> new Cohort((int) m.until(asOf, ChronoUnit.MONTHS) + 1));
+        }
+    }
+
+    private static final class Cohort {
+        private int size;
+        private final int[] active;
+
+        Cohort(int periods) {
+            this.active = new int[periods];
+        }
+    }
+}
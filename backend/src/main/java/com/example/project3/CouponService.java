@@ -18,9 +18,6 @@ public class CouponService {
     @Autowired
     private CouponRepository couponRepository;
 
-    @Autowired
-    private CustomerTierService customerTierService;
-
     private static final String COUPON_CHARS = "ABCDEFGHIJKLMNOPQRSTUVWXYZ0123456789";
     private static final SecureRandom random = new SecureRandom();
 
@@ -135,13 +132,13 @@ public class CouponService {
         return couponRepository.findValidCouponsByCustomerId(customer.getId(), LocalDateTime.now());
     }
 
-    public boolean hasNegotiationCouponsThisMonth(Customer customer) {
+    /** Takes the tier the caller already determined for this request rather than looking it up again. */
+    public boolean hasNegotiationCouponsThisMonth(Customer customer, CustomerTierService.CustomerTier tier) {
         LocalDateTime monthStart = LocalDateTime.now().withDayOfMonth(1)
                                                      .withHour(0).withMinute(0).withSecond(0);
         Long count = couponRepository.countNegotiationCouponsThisMonth(customer.getId(), monthStart);
         
         // Limit based on customer tier
-        CustomerTierService.CustomerTier tier = customerTierService.determineCustomerTier(customer);
         int monthlyLimit = getMonthlyNegotiationCouponLimit(tier);
         
         return count >= monthlyLimit;
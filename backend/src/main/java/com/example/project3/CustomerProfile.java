@@ -49,6 +49,15 @@ public class CustomerProfile {
     @Column(name = "amount_spent")
     private Map<String, BigDecimal> categorySpending;
     
+    @ElementCollection
+    @CollectionTable(name = "customer_monthly_orders", joinColumns = @JoinColumn(name = "profile_id"))
+    @MapKeyColumn(name = "order_month")
+    @Column(name = "order_count")
+    private Map<String, Integer> monthlyOrderCounts; // calendar month name -> orders, across years
+    
+    @Column(name = "last_applied_order_id")
+    private Long lastAppliedOrderId; // highest order folded into the running totals
+    
     // AI-generated insights
     @Column(name = "customer_segment")
     private String customerSegment; // "Premium", "Regular", "Budget", "New"
@@ -220,6 +229,22 @@ public class CustomerProfile {
         this.categorySpending = categorySpending;
     }
     
+    public Map<String, Integer> getMonthlyOrderCounts() {
+        return monthlyOrderCounts;
+    }
+    
+    public void setMonthlyOrderCounts(Map<String, Integer> monthlyOrderCounts) {
+        this.monthlyOrderCounts = monthlyOrderCounts;
+    }
+    
+    public Long getLastAppliedOrderId() {
+        return lastAppliedOrderId;
+    }
+    
+    public void setLastAppliedOrderId(Long lastAppliedOrderId) {
+        this.lastAppliedOrderId = lastAppliedOrderId;
+    }
+    
     public String getCustomerSegment() {
         return customerSegment;
     }
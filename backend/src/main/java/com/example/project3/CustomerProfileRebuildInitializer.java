@@ -0,0 +1,29 @@
+package com.example.project3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Continues a customer profile rebuild that the previous process did not finish, in the
+ * background so startup is not held up.
+ */
+@Component
+@Order(10) // Run after the data seeders
+public class CustomerProfileRebuildInitializer implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerProfileRebuildInitializer.class);
+
+    @Autowired
+    private CustomerProfileRebuildJob customerProfileRebuildJob;
+
+    @Override
+    public void run(String... args) {
+        if (customerProfileRebuildJob.resumeIfInterrupted()) {
+            logger.info("Resuming interrupted customer profile rebuild");
+        }
+    }
+}
@@ -0,0 +1,312 @@
+package com.example.project3;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.roaringbitmap.longlong.PeekableLongIterator;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Recomputes customer profiles in two modes: {@link #run()} walks every customer (the weekly
+ * repair), {@link #runDirty()} only the customers {@link DirtyCustomerTracker} marked plus
+ * those whose risk level or tier changes with time, so the nightly run scales with the day's
+ * activity. Ids are taken in ascending pages of chunk-size x threads; each page is split into
+ * chunks recomputed in parallel on a bounded pool, one transaction per chunk, and the
+ * checkpoint advances once the whole page is done. A run that dies part-way is continued
+ * after the last checkpointed id, so at most one page is recomputed twice. No connection is
+ * held between chunks.
+ */
+@Component
+public class CustomerProfileRebuildJob {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerProfileRebuildJob.class);
+
+    static final String JOB_NAME = "customer-profile-rebuild";
+    static final String DIRTY_JOB_NAME = "customer-profile-dirty-refresh";
+
+    // Days since the last order at which the risk level (over 30/90) or tier (30/60/90/120) moves
+    private static final int[] LAST_ORDER_AGE_DAYS = {31, 61, 91, 121};
+    // Customers stop being NEW_CUSTOMER 30 days after their first order
+    private static final int[] FIRST_ORDER_AGE_DAYS = {30};
+
+    @Autowired
+    private CustomerProfileService customerProfileService;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private CustomerProfileRepository customerProfileRepository;
+
+    @Autowired
+    private DirtyCustomerTracker dirtyCustomerTracker;
+
+    @Autowired
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.profiles.rebuild.chunk-size:200}")
+    private int chunkSize;
+
+    @Value("${app.profiles.rebuild.threads:4}")
+    private int threads;
+
+    private ThreadPoolExecutor workers;
+    private ExecutorService launcher;
+    private final AtomicBoolean running = new AtomicBoolean();
+    private Counter processedProfiles;
+    private Counter failedProfiles;
+    // Profiles per second of the current run, or of the last one once it has finished
+    private volatile double throughput;
+
+    @PostConstruct
+    void start() {
+        AtomicInteger threadCount = new AtomicInteger();
+        // Each page submits exactly one chunk per thread, so the queue never grows past that
+        workers = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new ArrayBlockingQueue<>(threads), runnable -> {
+                    Thread thread = new Thread(runnable, "profile-rebuild-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+        workers.allowCoreThreadTimeOut(true);
+        launcher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "profile-rebuild-driver");
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        processedProfiles = Counter.builder("profiles.rebuild.processed")
+                .description("Customers whose profile the rebuild job recomputed")
+                .register(meterRegistry);
+        failedProfiles = Counter.builder("profiles.rebuild.failed")
+                .description("Customers whose profile could not be recomputed")
+                .register(meterRegistry);
+        Gauge.builder("profiles.rebuild.throughput", this, job -> job.throughput)
+                .description("Profiles recomputed per second by the current or last rebuild")
+                .baseUnit("profiles/s")
+                .register(meterRegistry);
+    }
+
+    @PreDestroy
+    void stop() {
+        launcher.shutdownNow();
+        workers.shutdownNow();
+    }
+
+    /**
+     * Runs (or continues) the full rebuild on the calling thread. Returns the final checkpoint,
+     * or empty if a run of either mode is already in progress.
+     */
+    public Optional<JobCheckpoint> run() {
+        return runExclusive(this::executeFull);
+    }
+
+    /** Runs (or continues) the dirty-set refresh on the calling thread. */
+    public Optional<JobCheckpoint> runDirty() {
+        return runExclusive(this::executeDirty);
+    }
+
+    /** Starts the full rebuild on a background thread, e.g. from an admin request. */
+    public boolean runInBackground() {
+        if (running.get()) {
+            return false;
+        }
+        launcher.submit(this::run);
+        return true;
+    }
+
+    /** Continues a run that was interrupted by a crash or restart, in the background. */
+    public boolean resumeIfInterrupted() {
+        if (running.get()) {
+            return false;
+        }
+        if (isInterrupted(JOB_NAME)) {
+            launcher.submit(this::run);
+            return true;
+        }
+        if (isInterrupted(DIRTY_JOB_NAME)) {
+            launcher.submit(this::runDirty);
+            return true;
+        }
+        return false;
+    }
+
+    public boolean isRunning() {
+        return running.get();
+    }
+
+    public double getThroughput() {
+        return throughput;
+    }
+
+    private Optional<JobCheckpoint> runExclusive(Supplier<JobCheckpoint> job) {
+        if (!running.compareAndSet(false, true)) {
+            logger.info("Customer profile rebuild is already running");
+            return Optional.empty();
+        }
+        try {
+            return Optional.of(job.get());
+        } finally {
+            running.set(false);
+        }
+    }
+
+    private JobCheckpoint executeFull() {
+        JobCheckpoint checkpoint = begin(JOB_NAME);
+        return process(checkpoint, (afterId, limit) ->
+                customerRepository.findIdsAfter(afterId, PageRequest.of(0, limit)));
+    }
+
+    private JobCheckpoint executeDirty() {
+        JobCheckpoint previous = jobCheckpointRepository.findById(DIRTY_JOB_NAME).orElse(null);
+        Roaring64Bitmap ids;
+        if (previous != null && previous.isInterrupted()) {
+            ids = dirtyCustomerTracker.loadRebuilding().orElseGet(Roaring64Bitmap::new);
+        } else {
+            LocalDateTime now = LocalDateTime.now();
+            // Ages crossed since the previous run started (or the last day, on the first run)
+            LocalDateTime since = previous != null && previous.getStartedAt() != null
+                    ? previous.getStartedAt() : now.minusDays(1);
+            ids = dirtyCustomerTracker.rotate(findAgedCustomerIds(since, now));
+        }
+        logger.info("Refreshing {} dirty customer profiles", ids.getLongCardinality());
+
+        JobCheckpoint checkpoint = begin(DIRTY_JOB_NAME);
+        checkpoint = process(checkpoint, (afterId, limit) -> {
+            List<Long> page = new ArrayList<>(limit);
+            PeekableLongIterator iterator = ids.getLongIteratorFrom(afterId + 1);
+            while (iterator.hasNext() && page.size() < limit) {
+                page.add(iterator.next());
+            }
+            return page;
+        });
+        dirtyCustomerTracker.finishRebuilding();
+        return checkpoint;
+    }
+
+    // Customers whose days since last (or first) order reached a threshold in (since, now]
+    private Set<Long> findAgedCustomerIds(LocalDateTime since, LocalDateTime now) {
+        Set<Long> ids = new HashSet<>();
+        for (int days : LAST_ORDER_AGE_DAYS) {
+            ids.addAll(customerProfileRepository.findCustomerIdsByLastOrderDateBetween(
+                    since.minusDays(days), now.minusDays(days)));
+        }
+        for (int days : FIRST_ORDER_AGE_DAYS) {
+            ids.addAll(customerProfileRepository.findCustomerIdsByFirstOrderDateBetween(
+                    since.minusDays(days), now.minusDays(days)));
+        }
+        return ids;
+    }
+
+    private boolean isInterrupted(String jobName) {
+        return jobCheckpointRepository.findById(jobName)
+                .map(JobCheckpoint::isInterrupted)
+                .orElse(false);
+    }
+
+    // Loads the job's checkpoint, starting a fresh pass unless the last one was interrupted
+    private JobCheckpoint begin(String jobName) {
+        JobCheckpoint checkpoint = jobCheckpointRepository.findById(jobName)
+                .orElseGet(() -> new JobCheckpoint(jobName));
+        if (checkpoint.isInterrupted()) {
+            logger.info("Resuming {} after customer {} ({} done)",
+                    jobName, checkpoint.getLastProcessedId(), checkpoint.getProcessed());
+            return checkpoint;
+        }
+        checkpoint.start();
+        return jobCheckpointRepository.save(checkpoint);
+    }
+
+    private JobCheckpoint process(JobCheckpoint checkpoint, IdPages pages) {
+        long started = System.nanoTime();
+        long processedThisRun = 0;
+        int pageSize = chunkSize * threads;
+        List<Long> ids;
+        do {
+            ids = pages.after(checkpoint.getLastProcessedId(), pageSize);
+            if (ids.isEmpty()) {
+                break;
+            }
+            int failed = processPage(ids);
+            checkpoint.advance(ids.get(ids.size() - 1), ids.size() - failed, failed);
+            checkpoint = jobCheckpointRepository.save(checkpoint);
+
+            processedThisRun += ids.size() - failed;
+            throughput = processedThisRun / Math.max((System.nanoTime() - started) / 1e9, 1e-3);
+        } while (ids.size() == pageSize);
+
+        checkpoint.complete();
+        checkpoint = jobCheckpointRepository.save(checkpoint);
+        logger.info("{} finished: {} profiles ({} failed) at {} profiles/s", checkpoint.getJobName(),
+                checkpoint.getProcessed(), checkpoint.getFailed(), Math.round(throughput));
+        return checkpoint;
+    }
+
+    // Returns how many customers of the page failed
+    private int processPage(List<Long> ids) {
+        List<Future<Integer>> chunks = new ArrayList<>();
+        for (int from = 0; from < ids.size(); from += chunkSize) {
+            List<Long> chunk = ids.subList(from, Math.min(from + chunkSize, ids.size()));
+            chunks.add(workers.submit(() -> processChunk(chunk)));
+        }
+        int failed = 0;
+        for (Future<Integer> chunk : chunks) {
+            try {
+                failed += chunk.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Customer profile rebuild interrupted", e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Customer profile rebuild chunk failed", e.getCause());
+            }
+        }
+        return failed;
+    }
+
+    private int processChunk(List<Long> chunk) {
+        try {
+            customerProfileService.recomputeProfiles(chunk);
+            processedProfiles.increment(chunk.size());
+            return 0;
+        } catch (RuntimeException e) {
+            logger.warn("Recomputing profiles {}..{} failed, retrying one customer at a time",
+                    chunk.get(0), chunk.get(chunk.size() - 1), e);
+        }
+        // The chunk's transaction rolled back; isolate the bad customer(s) one transaction each
+        int failed = 0;
+        for (Long customerId : chunk) {
+            try {
+                customerProfileService.updateProfileFromOrders(customerId);
+                processedProfiles.increment();
+            } catch (RuntimeException e) {
+                failed++;
+                failedProfiles.increment();
+                logger.error("Error updating profile for customer {}", customerId, e);
+            }
+        }
+        return failed;
+    }
+
+    /** Ascending customer ids greater than {@code afterId}, at most {@code limit} of them. */
+    private interface IdPages {
+        List<Long> after(long afterId, int limit);
+    }
+}
@@ -1,12 +1,15 @@
 package com.example.project3;
 
+import jakarta.persistence.LockModeType;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -16,6 +19,26 @@ public interface CustomerProfileRepository extends JpaRepository<CustomerProfile
     Optional<CustomerProfile> findByCustomerId(Long customerId);
     
     Optional<CustomerProfile> findByCustomerUsername(String username);
+
+    // Held until the transaction ends, for read-modify-write updates such as the negotiation counters
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT p FROM CustomerProfile p WHERE p.id = :id")
+    Optional<CustomerProfile> findByIdForUpdate(@Param("id") Long id);
+
+    // One read over the unique username and customer_id indexes, without loading the profile
+    @Query("SELECT new com.example.project3.CustomerTierDTO(p.negotiationTier, p.averageOrderValue, p.priceSensitivity) " +
+           "FROM CustomerProfile p WHERE p.customer.username = :username")
+    Optional<CustomerTierDTO> findTierByCustomerUsername(@Param("username") String username);
+
+    List<CustomerProfile> findByCustomerIdIn(Collection<Long> customerIds);
+
+    @Query("SELECT p.customer.id FROM CustomerProfile p WHERE p.lastOrderDate > :after AND p.lastOrderDate <= :upTo")
+    List<Long> findCustomerIdsByLastOrderDateBetween(@Param("after") LocalDateTime after,
+                                                     @Param("upTo") LocalDateTime upTo);
+
+    @Query("SELECT p.customer.id FROM CustomerProfile p WHERE p.firstOrderDate > :after AND p.firstOrderDate <= :upTo")
+    List<Long> findCustomerIdsByFirstOrderDateBetween(@Param("after") LocalDateTime after,
+                                                      @Param("upTo") LocalDateTime upTo);
     
     // Backward compatibility methods (deprecated)
     default Optional<CustomerProfile> findByUserId(Long userId) {
@@ -27,6 +50,8 @@ public interface CustomerProfileRepository extends JpaRepository<CustomerProfile
     }
     
     List<CustomerProfile> findByCustomerSegment(String segment);
+
+    long countByCustomerSegment(String segment);
     
     List<CustomerProfile> findByRiskLevel(String riskLevel);
     
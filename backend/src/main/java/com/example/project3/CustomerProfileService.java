@@ -1,20 +1,28 @@
 package com.example.project3;
 
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.math.BigDecimal;
 import java.math.RoundingMode;
 import java.time.LocalDateTime;
+import java.time.Month;
 import java.time.temporal.ChronoUnit;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 
 @Service
 @Transactional
 public class CustomerProfileService {
 
+    private static final Logger logger = LoggerFactory.getLogger(CustomerProfileService.class);
+
     @Autowired
     private CustomerProfileRepository customerProfileRepository;
     
@@ -26,12 +34,50 @@ public class CustomerProfileService {
     
     @Autowired
     private CustomerRepository customerRepository;
-    
 
+    @Autowired
+    private DirtyCustomerTracker dirtyCustomerTracker;
+
+    // Customer id -> profile id, only for committed profiles
+    private final ConcurrentHashMap<Long, Long> profileIds = new ConcurrentHashMap<>();
 
+    /**
+     * Read-through by customer id. Once the profile id is known the row is loaded by primary key,
+     * so repeated calls within one transaction (a negotiation asks five times) are served by the
+     * persistence context instead of re-querying. A missing profile is created in the caller's
+     * transaction, so a lookup never needs a second pooled connection; concurrent first requests
+     * queue on the customer row and the later ones find the profile the first one committed.
+     */
     public CustomerProfile getOrCreateProfile(Long customerId) {
-        return customerProfileRepository.findByCustomerId(customerId)
-                .orElse(createNewProfile(customerId));
+        if (!profileIds.containsKey(customerId)) {
+            Optional<CustomerProfile> existing = customerProfileRepository.findByCustomerId(customerId);
+            if (existing.isPresent()) {
+                profileIds.putIfAbsent(customerId, existing.get().getId());
+                return existing.get();
+            }
+        }
+        Optional<CustomerProfile> profile = customerProfileRepository.findById(awaitProfileId(customerId));
+        if (profile.isPresent()) {
+            return profile.get();
+        }
+        // Deleted without going through deleteProfile, e.g. by another instance
+        profileIds.remove(customerId);
+        return customerProfileRepository.findById(awaitProfileId(customerId))
+                .orElseThrow(() -> new IllegalStateException("Profile of customer " + customerId + " keeps disappearing"));
+    }
+
+    /**
+     * Like {@link #getOrCreateProfile(Long)}, but locks the row until the surrounding transaction
+     * ends, so concurrent read-modify-write updates of the same profile apply one after another.
+     */
+    public CustomerProfile getOrCreateProfileForUpdate(Long customerId) {
+        Optional<CustomerProfile> profile = customerProfileRepository.findByIdForUpdate(awaitProfileId(customerId));
+        if (profile.isPresent()) {
+            return profile.get();
+        }
+        profileIds.remove(customerId);
+        return customerProfileRepository.findByIdForUpdate(awaitProfileId(customerId))
+                .orElseThrow(() -> new IllegalStateException("Profile of customer " + customerId + " keeps disappearing"));
     }
 
     public CustomerProfile getOrCreateProfile(String username) {
@@ -39,23 +85,82 @@ public class CustomerProfileService {
                 .orElseGet(() -> {
                     Customer customer = customerRepository.findByUsername(username)
                             .orElseThrow(() -> new RuntimeException("Customer not found: " + username));
-                    return createNewProfile(customer.getId());
+                    return getOrCreateProfile(customer.getId());
                 });
     }
 
+    /** Deletes the profile and drops it from the lookup cache. */
+    public void deleteProfile(CustomerProfile profile) {
+        Long customerId = profile.getCustomer().getId();
+        customerProfileRepository.findById(profile.getId()).ifPresent(managed -> {
+            // The customer cascades to its profile, so unlink it or the delete is undone at flush
+            managed.getCustomer().setProfile(null);
+            customerProfileRepository.delete(managed);
+        });
+        profileIds.remove(customerId);
+    }
+
+    /**
+     * Creates the profile of a customer that has none. Runs in the caller's transaction, so the
+     * caller must not be read-only; read-only callers create it beforehand with {@link #ensureProfile}.
+     */
+    private Long awaitProfileId(Long customerId) {
+        Long cached = profileIds.get(customerId);
+        if (cached != null) {
+            return cached;
+        }
+        Optional<CustomerProfile> existing = customerProfileRepository.findByCustomerId(customerId);
+        if (existing.isPresent()) {
+            profileIds.putIfAbsent(customerId, existing.get().getId());
+            return existing.get().getId();
+        }
+
+        // Concurrent creators wait here, then see the committed profile on the second look
+        customerRepository.findByIdForUpdate(customerId)
+                .orElseThrow(() -> new RuntimeException("Customer not found with id: " + customerId));
+        existing = customerProfileRepository.findByCustomerId(customerId);
+        Long profileId = existing.isPresent() ? existing.get().getId() : createNewProfile(customerId).getId();
+        // Cached once committed, so other transactions never look up a row they cannot see yet
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    profileIds.putIfAbsent(customerId, profileId);
+                }
+            });
+        }
+        return profileId;
+    }
+
+    /** Makes sure the customer has a profile, creating it in this service's own transaction. */
+    public void ensureProfile(Long customerId) {
+        if (!profileIds.containsKey(customerId)) {
+            awaitProfileId(customerId);
+        }
+    }
+
     private CustomerProfile createNewProfile(Long customerId) {
         Customer customer = customerRepository.findById(customerId)
                 .orElseThrow(() -> new RuntimeException("Customer not found with id: " + customerId));
-        
+        return createNewProfile(customer);
+    }
+
+    private CustomerProfile createNewProfile(Customer customer) {
         CustomerProfile profile = new CustomerProfile();
         profile.setCustomer(customer);
         profile.setCustomerSegment("New");
         profile.setRiskLevel("Low");
         profile.setPriceSensitivity("Medium");
+        profile.setNegotiationTier(CustomerTierService.tierFor(profile, LocalDateTime.now()).name());
         
         return customerProfileRepository.save(profile);
     }
 
+    /**
+     * Full recompute from every order of the customer. Orders are folded in through
+     * {@link #applyOrder(Order)} incrementally, so this is only the repair path: the nightly
+     * job, the admin "update profile" action and profiles whose running totals can't be trusted.
+     */
     public CustomerProfile updateProfileFromOrders(Long customerId) {
         CustomerProfile profile = getOrCreateProfile(customerId);
         
@@ -65,74 +170,154 @@ public class CustomerProfileService {
             return profile;
         }
 
-        // Calculate basic metrics
-        calculateBasicMetrics(profile, orders);
-        
-        // Analyze category preferences
-        analyzeCategoryPreferences(profile, orders);
-        
-        // Generate AI insights
-        generateAIInsights(profile, orders);
-        
-        // Update customer segment
+        return recompute(profile, orders);
+    }
+
+    /**
+     * Full recompute of a chunk of customers in the caller's transaction, loading their
+     * profiles and orders (with items and categories) in one query each. Customers without
+     * orders are left untouched, as in {@link #updateProfileFromOrders(Long)}.
+     */
+    public int recomputeProfiles(Collection<Long> customerIds) {
+        Map<Long, CustomerProfile> profiles = new HashMap<>();
+        for (CustomerProfile profile : customerProfileRepository.findByCustomerIdIn(customerIds)) {
+            profiles.put(profile.getCustomer().getId(), profile);
+        }
+        Map<Long, List<Order>> ordersByCustomer = orderRepository.findByCustomerIdIn(customerIds).stream()
+                .collect(Collectors.groupingBy(order -> order.getCustomer().getId()));
+
+        List<Long> missing = ordersByCustomer.keySet().stream()
+                .filter(customerId -> !profiles.containsKey(customerId))
+                .collect(Collectors.toList());
+        for (Customer customer : customerRepository.findAllById(missing)) {
+            profiles.put(customer.getId(), createNewProfile(customer));
+        }
+
+        ordersByCustomer.forEach((customerId, orders) -> recompute(profiles.get(customerId), orders));
+        return ordersByCustomer.size();
+    }
+
+    private CustomerProfile recompute(CustomerProfile profile, List<Order> orders) {
+        resetAggregates(profile);
+        for (Order order : orders) {
+            accumulate(profile, order);
+        }
+        return refreshDerivedFields(profile);
+    }
+
+    /**
+     * Folds one new order into the running aggregates without reloading the customer's history.
+     * Falls back to a full recompute when the profile has never been aggregated, or when the
+     * order is not newer than the last one applied (a retried or late-committing order that a
+     * recompute may or may not already have counted).
+     */
+    public CustomerProfile applyOrder(Order order) {
+        Long customerId = order.getCustomer().getId();
+        // Locked: the whole row is saved, which must not undo a concurrent negotiation's counters
+        CustomerProfile profile = getOrCreateProfileForUpdate(customerId);
+
+        Long lastApplied = profile.getLastAppliedOrderId();
+        if (lastApplied == null || order.getId() <= lastApplied) {
+            if (lastApplied != null) {
+                logger.info("Order {} is not newer than {} for customer {}, recomputing profile",
+                        order.getId(), lastApplied, customerId);
+            }
+            return updateProfileFromOrders(customerId);
+        }
+
+        accumulate(profile, order);
+        return refreshDerivedFields(profile);
+    }
+
+    /** Saves state changed outside the order aggregates, e.g. negotiation counters. */
+    public CustomerProfile saveProfile(CustomerProfile profile) {
+        calculateRiskLevel(profile);
+        return customerProfileRepository.save(profile);
+    }
+
+    private void resetAggregates(CustomerProfile profile) {
+        profile.setTotalOrders(0);
+        profile.setTotalSpent(BigDecimal.ZERO);
+        profile.setFirstOrderDate(null);
+        profile.setLastOrderDate(null);
+        profile.setCategorySpending(new HashMap<>());
+        profile.setMonthlyOrderCounts(new HashMap<>());
+        profile.setLastAppliedOrderId(null);
+    }
+
+    private void accumulate(CustomerProfile profile, Order order) {
+        profile.setTotalOrders(profile.getTotalOrders() + 1);
+        if (order.getTotalAmount() != null) {
+            profile.setTotalSpent(profile.getTotalSpent().add(order.getTotalAmount()));
+        }
+
+        LocalDateTime orderDate = order.getOrderDate();
+        if (profile.getFirstOrderDate() == null || orderDate.isBefore(profile.getFirstOrderDate())) {
+            profile.setFirstOrderDate(orderDate);
+        }
+        if (profile.getLastOrderDate() == null || orderDate.isAfter(profile.getLastOrderDate())) {
+            profile.setLastOrderDate(orderDate);
+        }
+
+        if (profile.getCategorySpending() == null) {
+            profile.setCategorySpending(new HashMap<>());
+        }
+        for (OrderItem item : order.getOrderItems()) {
+            Category category = item.getFruit().getCategory();
+            if (category == null) {
+                continue;
+            }
+            BigDecimal itemTotal = item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+            profile.getCategorySpending().merge(category.getName(), itemTotal, BigDecimal::add);
+        }
+
+        if (profile.getMonthlyOrderCounts() == null) {
+            profile.setMonthlyOrderCounts(new HashMap<>());
+        }
+        profile.getMonthlyOrderCounts().merge(orderDate.getMonth().name(), 1, Integer::sum);
+
+        if (profile.getLastAppliedOrderId() == null || order.getId() > profile.getLastAppliedOrderId()) {
+            profile.setLastAppliedOrderId(order.getId());
+        }
+    }
+
+    // Everything below is a function of the aggregates alone, so both paths end up identical
+    private CustomerProfile refreshDerivedFields(CustomerProfile profile) {
+        calculateBasicMetrics(profile);
+        analyzeCategoryPreferences(profile);
+        generateAIInsights(profile);
         updateCustomerSegment(profile);
-        
-        // Calculate risk level
         calculateRiskLevel(profile);
+        profile.setNegotiationTier(CustomerTierService.tierFor(profile, LocalDateTime.now()).name());
         
         profile.setProfileUpdatedAt(LocalDateTime.now());
         
         return customerProfileRepository.save(profile);
     }
 
-    private void calculateBasicMetrics(CustomerProfile profile, List<Order> orders) {
-        profile.setTotalOrders(orders.size());
-        
-        BigDecimal totalSpent = orders.stream()
-                .map(Order::getTotalAmount)
-                .reduce(BigDecimal.ZERO, BigDecimal::add);
-        profile.setTotalSpent(totalSpent);
-        
-        if (orders.size() > 0) {
-            profile.setAverageOrderValue(totalSpent.divide(
-                    BigDecimal.valueOf(orders.size()), 2, RoundingMode.HALF_UP));
-        }
-        
-        // Sort orders by date
-        orders.sort(Comparator.comparing(Order::getOrderDate));
-        
-        profile.setFirstOrderDate(orders.get(0).getOrderDate());
-        profile.setLastOrderDate(orders.get(orders.size() - 1).getOrderDate());
+    private void calculateBasicMetrics(CustomerProfile profile) {
+        int totalOrders = profile.getTotalOrders();
+        profile.setAverageOrderValue(totalOrders > 0
+                ? profile.getTotalSpent().divide(BigDecimal.valueOf(totalOrders), 2, RoundingMode.HALF_UP)
+                : BigDecimal.ZERO);
         
         // Calculate order frequency
-        if (orders.size() > 1) {
+        double frequency = 0.0;
+        if (totalOrders > 1) {
             long daysBetweenFirstAndLast = ChronoUnit.DAYS.between(
                     profile.getFirstOrderDate(), profile.getLastOrderDate());
             if (daysBetweenFirstAndLast > 0) {
-                profile.setOrderFrequencyDays((double) daysBetweenFirstAndLast / (orders.size() - 1));
+                frequency = (double) daysBetweenFirstAndLast / (totalOrders - 1);
             }
         }
+        profile.setOrderFrequencyDays(frequency);
     }
 
-    private void analyzeCategoryPreferences(CustomerProfile profile, List<Order> orders) {
-        Map<String, BigDecimal> categorySpending = new HashMap<>();
-        Map<String, Integer> categoryCount = new HashMap<>();
-        
-        for (Order order : orders) {
-            for (OrderItem item : order.getOrderItems()) {
-                String categoryName = item.getFruit().getCategory().getName();
-                BigDecimal itemTotal = item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
-                
-                categorySpending.merge(categoryName, itemTotal, BigDecimal::add);
-                categoryCount.merge(categoryName, 1, Integer::sum);
-            }
-        }
-        
-        profile.setCategorySpending(categorySpending);
-        
-        // Determine favorite categories (top 3)
-        List<String> favoriteCategories = categorySpending.entrySet().stream()
-                .sorted(Map.Entry.<String, BigDecimal>comparingByValue().reversed())
+    private void analyzeCategoryPreferences(CustomerProfile profile) {
+        // Determine favorite categories (top 3), ties broken by name
+        List<String> favoriteCategories = profile.getCategorySpending().entrySet().stream()
+                .sorted(Map.Entry.<String, BigDecimal>comparingByValue().reversed()
+                        .thenComparing(Map.Entry.comparingByKey()))
                 .limit(3)
                 .map(Map.Entry::getKey)
                 .collect(Collectors.toList());
@@ -140,17 +325,18 @@ public class CustomerProfileService {
         profile.setFavoriteCategories(favoriteCategories);
     }
 
-    private void generateAIInsights(CustomerProfile profile, List<Order> orders) {
+    private void generateAIInsights(CustomerProfile profile) {
         try {
             // Generate AI insights without external API call for now
+            String seasonalPreferences = analyzeSeasonalPreferences(profile);
             String aiResponse = "Based on customer behavior analysis:\n" +
                     "Customer shows " + determinePriceSensitivity(profile) + " price sensitivity.\n" +
                     "Preferred shopping pattern: " + determineShoppingPattern(profile) + ".\n" +
-                    "Seasonal preferences: " + analyzeSeasonalPreferences(orders) + ".";
+                    "Seasonal preferences: " + seasonalPreferences + ".";
             
             profile.setAiPersonalityProfile(aiResponse);
             profile.setPriceSensitivity(determinePriceSensitivity(profile));
-            profile.setSeasonalPreferences(analyzeSeasonalPreferences(orders));
+            profile.setSeasonalPreferences(seasonalPreferences);
             
         } catch (Exception e) {
             // Fallback analysis without AI
@@ -181,16 +367,11 @@ public class CustomerProfileService {
         }
     }
 
-    private String analyzeSeasonalPreferences(List<Order> orders) {
-        Map<String, Integer> monthlyOrders = new HashMap<>();
-        
-        for (Order order : orders) {
-            String month = order.getOrderDate().getMonth().toString();
-            monthlyOrders.merge(month, 1, Integer::sum);
-        }
-        
-        return monthlyOrders.entrySet().stream()
-                .max(Map.Entry.comparingByValue())
+    private String analyzeSeasonalPreferences(CustomerProfile profile) {
+        // Ties go to the earlier calendar month
+        return profile.getMonthlyOrderCounts().entrySet().stream()
+                .max(Map.Entry.<String, Integer>comparingByValue()
+                        .thenComparing(entry -> Month.valueOf(entry.getKey()), Comparator.reverseOrder()))
                 .map(entry -> "Most active in " + entry.getKey())
                 .orElse("No clear seasonal pattern");
     }
@@ -229,19 +410,6 @@ public class CustomerProfileService {
         }
     }
 
-    public void updateAllProfiles() {
-        List<Customer> customers = customerRepository.findAll();
-        
-        for (Customer customer : customers) {
-            try {
-                updateProfileFromOrders(customer.getId());
-            } catch (Exception e) {
-                // Log error and continue with next customer
-                System.err.println("Error updating profile for customer " + customer.getId() + ": " + e.getMessage());
-            }
-        }
-    }
-
     public List<CustomerProfile> getProfilesBySegment(String segment) {
         return customerProfileRepository.findByCustomerSegment(segment);
     }
@@ -256,7 +424,8 @@ public class CustomerProfileService {
     }
 
     public void recordEmailActivity(Long customerId, String activityType) {
-        CustomerProfile profile = getOrCreateProfile(customerId);
+        CustomerProfile profile = getOrCreateProfileForUpdate(customerId);
+        dirtyCustomerTracker.mark(customerId);
         
         switch (activityType.toLowerCase()) {
             case "sent":
@@ -289,6 +458,7 @@ public class CustomerProfileService {
         profile.setRiskLevel("Low");
         profile.setPriceSensitivity("Medium");
         profile.setPreferredCommunicationTime("Evening");
+        profile.setNegotiationTier(CustomerTierService.tierFor(profile, LocalDateTime.now()).name());
         
         customerProfileRepository.save(profile);
         customer.setProfile(profile);
@@ -0,0 +1,37 @@
+package com.example.project3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills the reach sketches at startup when they are empty but orders exist (first deploy),
+ * or on demand with --app.analytics.reach.rebuild-on-startup=true.
+ */
+@Component
+@Order(10) // Run after the data seeders
+public class CustomerReachInitializer implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerReachInitializer.class);
+
+    @Autowired
+    private CustomerReachService customerReachService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Value("${app.analytics.reach.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    @Override
+    public void run(String... args) {
+        if (rebuildOnStartup || (customerReachService.isEmpty() && orderRepository.count() > 0)) {
+            logger.info("Rebuilding reach sketches from order history");
+            customerReachService.rebuild();
+        }
+    }
+}
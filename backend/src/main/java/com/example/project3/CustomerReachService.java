@@ -0,0 +1,259 @@
+package com.example.project3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDate;
+import java.util.*;
+
+/**
+ * Approximate distinct buyers per day and distinct customers per product per day, kept as
+ * {@link HyperLogLog} sketches in reach_sketches. Weekly and monthly reach merge the daily
+ * sketches. Created orders are buffered in memory and written on the next flush tick or
+ * read; because re-adding a customer is a no-op, a {@link #rebuild()} racing with new orders
+ * can never double count. Counts carry the sketch's relative standard error of about 1.6%.
+ */
+@Service
+public class CustomerReachService {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerReachService.class);
+
+    private static final String BUYERS_SQL =
+            "SELECT CAST(o.order_date AS DATE) AS order_day, o.customer_id, oi.fruit_id " +
+            "FROM orders o JOIN order_items oi ON oi.order_id = o.id " +
+            "WHERE o.customer_id IS NOT NULL ORDER BY order_day";
+
+    static final int MAX_DAYS = 366;
+
+    static final int FETCH_SIZE = 1_000;
+
+    @Autowired
+    private ReachSketchRepository reachSketchRepository;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    // Guards only the in-memory buffer, so the after-commit hook of a checkout never waits
+    // on a flush or rebuild writing to the database
+    private final Object pendingLock = new Object();
+
+    // Serialises flushes and rebuilds against each other
+    private final Object storeLock = new Object();
+
+    private Map<String, Bucket> pending = new HashMap<>();
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderDomainEvent event) {
+        if (event.getType() != OrderDomainEvent.Type.CREATED || event.getCustomerId() == null) {
+            return;
+        }
+        LocalDate day = event.getOrderDate() != null ? event.getOrderDate().toLocalDate() : LocalDate.now();
+        synchronized (pendingLock) {
+            bucket(pending, ReachSketch.Scope.BUYERS, day, ReachSketch.ALL_ID).sketch.add(event.getCustomerId());
+            for (OrderDomainEvent.Line line : event.getLines()) {
+                bucket(pending, ReachSketch.Scope.PRODUCT, day, line.getFruitId()).sketch.add(event.getCustomerId());
+            }
+        }
+    }
+
+    /** Merges buffered sketches into their stored rows; failed writes stay buffered for the next tick. */
+    @Scheduled(fixedDelayString = "${app.analytics.reach.flush-interval-ms:10000}")
+    public void flushPending() {
+        synchronized (storeLock) {
+            Map<String, Bucket> batch;
+            synchronized (pendingLock) {
+                if (pending.isEmpty()) {
+                    return;
+                }
+                batch = pending;
+                pending = new HashMap<>();
+            }
+            for (Bucket bucket : batch.values()) {
+                try {
+                    store(bucket);
+                } catch (RuntimeException e) {
+                    logger.warn("Writing the reach sketch {} {} {} failed, retrying on the next flush",
+                            bucket.scope, bucket.day, bucket.dimensionId, e);
+                    synchronized (pendingLock) {
+                        bucket(pending, bucket.scope, bucket.day, bucket.dimensionId).sketch.merge(bucket.sketch);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Recomputes every sketch from the order tables, one day at a time. The rows are read
+     * through a cursor with a fetch size; the surrounding transaction keeps autocommit off,
+     * which PostgreSQL needs to honour it instead of loading the whole result.
+     */
+    @Transactional
+    public int rebuild() {
+        synchronized (storeLock) {
+            reachSketchRepository.deleteAllInBatch();
+            // Rows arrive ordered by day, so only one day's sketches are held at a time
+            Map<String, Bucket> day = new HashMap<>();
+            LocalDate[] currentDay = new LocalDate[1];
+            int[] written = new int[1];
+            jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(BUYERS_SQL,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(FETCH_SIZE);
+                return statement;
+            }, (RowCallbackHandler) rs -> {
+                LocalDate orderDay = rs.getDate("order_day").toLocalDate();
+                if (!orderDay.equals(currentDay[0])) {
+                    written[0] += saveAll(day);
+                    currentDay[0] = orderDay;
+                }
+                long customerId = rs.getLong("customer_id");
+                bucket(day, ReachSketch.Scope.BUYERS, orderDay, ReachSketch.ALL_ID).sketch.add(customerId);
+                bucket(day, ReachSketch.Scope.PRODUCT, orderDay, rs.getLong("fruit_id")).sketch.add(customerId);
+            });
+            written[0] += saveAll(day);
+            logger.info("Rebuilt {} reach sketches from order history", written[0]);
+            return written[0];
+        }
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isEmpty() {
+        return reachSketchRepository.count() == 0;
+    }
+
+    /** Distinct buyers today and over the trailing 7 and 30 days (including today). */
+    public Map<String, Object> getActiveBuyers() {
+        flushPending();
+        LocalDate today = LocalDate.now();
+        HyperLogLog daily = new HyperLogLog();
+        HyperLogLog weekly = new HyperLogLog();
+        HyperLogLog monthly = new HyperLogLog();
+        for (ReachSketch row : reachSketchRepository.findByScopeAndBucketDayBetween(
+                ReachSketch.Scope.BUYERS, today.minusDays(29), today)) {
+            HyperLogLog sketch = row.toSketch();
+            monthly.merge(sketch);
+            if (!row.getBucketDay().isBefore(today.minusDays(6))) {
+                weekly.merge(sketch);
+            }
+            if (row.getBucketDay().equals(today)) {
+                daily.merge(sketch);
+            }
+        }
+
+        Map<String, Object> reach = new LinkedHashMap<>();
+        reach.put("date", today.toString());
+        reach.put("dailyActiveBuyers", daily.estimate());
+        reach.put("weeklyActiveBuyers", weekly.estimate());
+        reach.put("monthlyActiveBuyers", monthly.estimate());
+        reach.put("relativeStandardError", HyperLogLog.RELATIVE_STANDARD_ERROR);
+        return reach;
+    }
+
+    public List<Map<String, Object>> getDailyActiveBuyers(int days) {
+        checkDays(days);
+        flushPending();
+        LocalDate today = LocalDate.now();
+        Map<LocalDate, Long> byDay = new HashMap<>();
+        for (ReachSketch row : reachSketchRepository.findByScopeAndBucketDayBetween(
+                ReachSketch.Scope.BUYERS, today.minusDays(days - 1L), today)) {
+            byDay.put(row.getBucketDay(), row.toSketch().estimate());
+        }
+
+        List<Map<String, Object>> series = new ArrayList<>(days);
+        for (LocalDate day = today.minusDays(days - 1L); !day.isAfter(today); day = day.plusDays(1)) {
+            Map<String, Object> point = new LinkedHashMap<>();
+            point.put("date", day.toString());
+            point.put("activeBuyers", byDay.getOrDefault(day, 0L));
+            series.add(point);
+        }
+        return series;
+    }
+
+    /** Distinct customers per product over the trailing window, most reached first. */
+    public Map<String, Object> getProductReach(int days) {
+        checkDays(days);
+        flushPending();
+        LocalDate today = LocalDate.now();
+        Map<Long, HyperLogLog> products = new HashMap<>();
+        for (ReachSketch row : reachSketchRepository.findByScopeAndBucketDayBetween(
+                ReachSketch.Scope.PRODUCT, today.minusDays(days - 1L), today)) {
+            products.computeIfAbsent(row.getDimensionId(), id -> new HyperLogLog()).merge(row.toSketch());
+        }
+        Map<Long, String> names = new HashMap<>();
+        fruitRepository.findAllById(products.keySet()).forEach(fruit -> names.put(fruit.getId(), fruit.getName()));
+
+        List<Map<String, Object>> rows = new ArrayList<>(products.size());
+        products.forEach((productId, sketch) -> {
+            Map<String, Object> row = new LinkedHashMap<>();
+            row.put("productId", productId);
+            row.put("name", names.getOrDefault(productId, "#" + productId));
+            row.put("distinctCustomers", sketch.estimate());
+            rows.add(row);
+        });
+        rows.sort(Comparator.comparingLong((Map<String, Object> row) -> (Long) row.get("distinctCustomers")).reversed());
+
+        Map<String, Object> reach = new LinkedHashMap<>();
+        reach.put("days", days);
+        reach.put("relativeStandardError", HyperLogLog.RELATIVE_STANDARD_ERROR);
+        reach.put("products", rows);
+        return reach;
+    }
+
+    private void store(Bucket bucket) {
+        Optional<ReachSketch> stored = reachSketchRepository.findByScopeAndBucketDayAndDimensionId(
+                bucket.scope, bucket.day, bucket.dimensionId);
+        if (stored.isPresent()) {
+            ReachSketch row = stored.get();
+            HyperLogLog merged = row.toSketch();
+            merged.merge(bucket.sketch);
+            row.setSketch(merged);
+            reachSketchRepository.save(row);
+        } else {
+            reachSketchRepository.save(new ReachSketch(bucket.scope, bucket.day, bucket.dimensionId, bucket.sketch));
+        }
+    }
+
+    private int saveAll(Map<String, Bucket> buckets) {
+        List<ReachSketch> rows = new ArrayList<>(buckets.size());
+        buckets.values().forEach(b -> rows.add(new ReachSketch(b.scope, b.day, b.dimensionId, b.sketch)));
+        reachSketchRepository.saveAll(rows);
+        buckets.clear();
+        return rows.size();
+    }
+
+    private static void checkDays(int days) {
+        if (days < 1 || days > MAX_DAYS) {
+            throw new IllegalArgumentException("days must be between 1 and " + MAX_DAYS);
+        }
+    }
+
+    private static Bucket bucket(Map<String, Bucket> buckets, ReachSketch.Scope scope, LocalDate day, long dimensionId) {
+        String key = scope + "|" + day + "|" + dimensionId;
+        return buckets.computeIfAbsent(key, k -> new Bucket(scope, day, dimensionId));
+    }
+
+    private static final class Bucket {
+        private final ReachSketch.Scope scope;
+        private final LocalDate day;
+        private final long dimensionId;
+        private final HyperLogLog sketch = new HyperLogLog();
+
+        Bucket(ReachSketch.Scope scope, LocalDate day, long dimensionId) {
+            this.scope = scope;
+            this.day = day;
+            this.dimensionId = dimensionId;
+        }
+    }
+}
@@ -1,7 +1,11 @@
 package com.example.project3;
 
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDateTime;
@@ -14,12 +18,22 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     Optional<Customer> findByUsername(String username);
     
     Optional<Customer> findByEmail(String email);
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT c FROM Customer c WHERE c.id = :id")
+    Optional<Customer> findByIdForUpdate(@Param("id") Long id);
     
     Boolean existsByUsername(String username);
     
     Boolean existsByEmail(String email);
     
     List<Customer> findByIsActiveTrue();
+
+    long countByIsActiveTrue();
+
+    // Keyset page of customer ids for batch jobs
+    @Query("SELECT c.id FROM Customer c WHERE c.id > :afterId ORDER BY c.id")
+    List<Long> findIdsAfter(@Param("afterId") long afterId, Pageable pageable);
     
     List<Customer> findByIsActiveFalse();
     
@@ -39,4 +53,20 @@ public interface CustomerRepository extends JpaRepository<Customer, Long> {
     
     @Query("SELECT c FROM Customer c ORDER BY c.createdAt DESC")
     List<Customer> findAllOrderByCreatedAtDesc();
+
+    interface SegmentCounts {
+        long getNewCustomers();
+        long getRegularCustomers();
+        long getVipCustomers();
+        long getTotal();
+    }
+
+    // Customers bucketed by order count (0, 1-3, 4+) in one pass over a customers/orders join
+    @Query("SELECT COALESCE(SUM(CASE WHEN t.orderCount = 0 THEN 1 ELSE 0 END), 0) AS newCustomers, " +
+           "COALESCE(SUM(CASE WHEN t.orderCount BETWEEN 1 AND 3 THEN 1 ELSE 0 END), 0) AS regularCustomers, " +
+           "COALESCE(SUM(CASE WHEN t.orderCount > 3 THEN 1 ELSE 0 END), 0) AS vipCustomers, " +
+           "COUNT(*) AS total " +
+           "FROM (SELECT c.id AS id, COUNT(o.id) AS orderCount FROM Customer c " +
+           "LEFT JOIN Order o ON o.customer = c GROUP BY c.id) t")
+    SegmentCounts countCustomerSegments();
 } 
\ No newline at end of file
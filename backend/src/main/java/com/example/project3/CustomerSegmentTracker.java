@@ -0,0 +1,82 @@
+package com.example.project3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Customer segment counts for the analytics dashboard (new: 0 orders, regular: 1-3, vip: 4+).
+ * Seeded from one grouped query, then moved between buckets as orders are created, so reads
+ * never touch the database. A periodic rebuild picks up registrations and deletions and
+ * corrects any drift from concurrent updates.
+ */
+@Component
+public class CustomerSegmentTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(CustomerSegmentTracker.class);
+
+    static final int REGULAR_MAX_ORDERS = 3;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private final AtomicLong newCustomers = new AtomicLong();
+    private final AtomicLong regularCustomers = new AtomicLong();
+    private final AtomicLong vipCustomers = new AtomicLong();
+    private final AtomicLong totalCustomers = new AtomicLong();
+    private volatile boolean loaded;
+
+    public Map<String, Object> getSegments() {
+        if (!loaded) {
+            rebuild();
+        }
+        Map<String, Object> segments = new HashMap<>();
+        segments.put("new", (int) Math.max(0, newCustomers.get()));
+        segments.put("regular", (int) Math.max(0, regularCustomers.get()));
+        segments.put("vip", (int) Math.max(0, vipCustomers.get()));
+        segments.put("total", (int) totalCustomers.get());
+        return segments;
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.segments.rebuild-interval-ms:300000}")
+    public synchronized void rebuild() {
+        CustomerRepository.SegmentCounts counts = customerRepository.countCustomerSegments();
+        newCustomers.set(counts.getNewCustomers());
+        regularCustomers.set(counts.getRegularCustomers());
+        vipCustomers.set(counts.getVipCustomers());
+        totalCustomers.set(counts.getTotal());
+        loaded = true;
+        logger.debug("Customer segments rebuilt: {} new, {} regular, {} vip",
+                counts.getNewCustomers(), counts.getRegularCustomers(), counts.getVipCustomers());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderDomainEvent event) {
+        if (event.getType() != OrderDomainEvent.Type.CREATED || event.getCustomerId() == null || !loaded) {
+            return;
+        }
+        // Only crossing a bucket boundary changes anything: 0 -> 1 or 3 -> 4 orders. The count
+        // comes from the event, so this runs on the checkout thread without touching the database
+        long ordersBefore = event.getCustomerOrdersBefore();
+        AtomicLong from = bucketFor(ordersBefore);
+        AtomicLong to = bucketFor(ordersBefore + 1);
+        if (from != to) {
+            from.decrementAndGet();
+            to.incrementAndGet();
+        }
+    }
+
+    private AtomicLong bucketFor(long orderCount) {
+        if (orderCount <= 0) {
+            return newCustomers;
+        }
+        return orderCount <= REGULAR_MAX_ORDERS ? regularCustomers : vipCustomers;
+    }
+}
@@ -0,0 +1,32 @@
+package com.example.project3;
+
+import java.math.BigDecimal;
+
+/**
+ * The stored profile columns a negotiation capability is computed from, built directly by a
+ * JPQL constructor expression so eligibility checks don't load the whole profile.
+ */
+public class CustomerTierDTO {
+
+    private final String negotiationTier;
+    private final BigDecimal averageOrderValue;
+    private final String priceSensitivity;
+
+    public CustomerTierDTO(String negotiationTier, BigDecimal averageOrderValue, String priceSensitivity) {
+        this.negotiationTier = negotiationTier;
+        this.averageOrderValue = averageOrderValue;
+        this.priceSensitivity = priceSensitivity;
+    }
+
+    public String getNegotiationTier() {
+        return negotiationTier;
+    }
+
+    public BigDecimal getAverageOrderValue() {
+        return averageOrderValue;
+    }
+
+    public String getPriceSensitivity() {
+        return priceSensitivity;
+    }
+}
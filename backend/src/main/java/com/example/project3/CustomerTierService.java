@@ -8,6 +8,7 @@ import java.math.BigDecimal;
 import java.time.LocalDateTime;
 import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Optional;
 
 @Service
 @Transactional
@@ -16,6 +17,12 @@ public class CustomerTierService {
     @Autowired
     private CustomerProfileService customerProfileService;
     
+    @Autowired
+    private CustomerProfileRepository customerProfileRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+    
     @Autowired
     private OrderRepository orderRepository;
 
@@ -65,8 +72,23 @@ public class CustomerTierService {
     }
 
     public CustomerTier determineCustomerTier(Customer customer) {
-        CustomerProfile profile = customerProfileService.getOrCreateProfile(customer.getId());
-        
+        return tierOf(customerProfileService.getOrCreateProfile(customer.getId()));
+    }
+
+    /**
+     * The tier stored on the profile. It is recomputed whenever the order aggregates change and
+     * by the nightly refresh when a time threshold passes, so reading it is enough; profiles
+     * written before it was stored get it computed.
+     */
+    static CustomerTier tierOf(CustomerProfile profile) {
+        if (profile.getNegotiationTier() != null) {
+            return CustomerTier.valueOf(profile.getNegotiationTier());
+        }
+        return tierFor(profile, LocalDateTime.now());
+    }
+
+    /** The tier a profile's order history puts it in at {@code now}. */
+    static CustomerTier tierFor(CustomerProfile profile, LocalDateTime now) {
         BigDecimal totalSpent = profile.getTotalSpent();
         int totalOrders = profile.getTotalOrders();
         LocalDateTime lastOrderDate = profile.getLastOrderDate();
@@ -75,13 +97,13 @@ public class CustomerTierService {
         // Calculate days since last order
         long daysSinceLastOrder = 0;
         if (lastOrderDate != null) {
-            daysSinceLastOrder = ChronoUnit.DAYS.between(lastOrderDate, LocalDateTime.now());
+            daysSinceLastOrder = ChronoUnit.DAYS.between(lastOrderDate, now);
         }
         
         // Calculate days since first order (customer age)
         long daysSinceFirstOrder = 0;
         if (firstOrderDate != null) {
-            daysSinceFirstOrder = ChronoUnit.DAYS.between(firstOrderDate, LocalDateTime.now());
+            daysSinceFirstOrder = ChronoUnit.DAYS.between(firstOrderDate, now);
         }
 
         // Special case: At-risk customers (haven't ordered in 120+ days but have history)
@@ -127,13 +149,32 @@ public class CustomerTierService {
     }
 
     public NegotiationCapability calculateNegotiationCapability(Customer customer) {
-        CustomerTier tier = determineCustomerTier(customer);
-        CustomerProfile profile = customerProfileService.getOrCreateProfile(customer.getId());
-        
-        // Calculate additional factors
-        BigDecimal averageOrderValue = profile.getAverageOrderValue();
-        String priceSensitivity = profile.getPriceSensitivity();
-        
+        return capabilityFor(customerProfileService.getOrCreateProfile(customer.getId()));
+    }
+
+    /**
+     * Capability of a profile the caller already holds. A negotiation computes this once and
+     * passes it (and its tier) along instead of asking again.
+     */
+    public NegotiationCapability capabilityFor(CustomerProfile profile) {
+        return capabilityFor(tierOf(profile), profile.getAverageOrderValue(), profile.getPriceSensitivity());
+    }
+
+    /** Capability for the eligibility check, from the stored tier columns when there are any. */
+    public NegotiationCapability calculateNegotiationCapability(String username) {
+        Optional<CustomerTierDTO> stored = customerProfileRepository.findTierByCustomerUsername(username);
+        if (stored.isPresent() && stored.get().getNegotiationTier() != null) {
+            CustomerTierDTO tier = stored.get();
+            return capabilityFor(CustomerTier.valueOf(tier.getNegotiationTier()),
+                    tier.getAverageOrderValue(), tier.getPriceSensitivity());
+        }
+        // No profile yet, or one without a stored tier
+        Customer customer = customerRepository.findByUsername(username)
+                .orElseThrow(() -> new RuntimeException("Customer not found: " + username));
+        return calculateNegotiationCapability(customer);
+    }
+
+    private NegotiationCapability capabilityFor(CustomerTier tier, BigDecimal averageOrderValue, String priceSensitivity) {
         // Adjust max discount based on additional factors
         int adjustedMaxDiscount = tier.getMaxDiscountPercentage();
         
@@ -153,19 +194,14 @@ public class CustomerTierService {
         return new NegotiationCapability(
             tier,
             adjustedMaxDiscount,
-            calculateNegotiationAttemptsRemaining(customer),
-            determineNegotiationStrategy(tier, profile)
+            calculateNegotiationAttemptsRemaining(tier),
+            determineNegotiationStrategy(tier)
         );
     }
 
-    private int calculateNegotiationAttemptsRemaining(Customer customer) {
-        // Get current month's negotiation attempts
-        LocalDateTime monthStart = LocalDateTime.now().withDayOfMonth(1).withHour(0).withMinute(0).withSecond(0);
-        
+    private int calculateNegotiationAttemptsRemaining(CustomerTier tier) {
         // This would need to be implemented with a negotiation tracking system
         // For now, return a default based on tier
-        CustomerTier tier = determineCustomerTier(customer);
-        
         switch (tier) {
             case VIP_PLATINUM:
                 return 10; // Premium customers get more attempts
@@ -184,7 +220,7 @@ public class CustomerTierService {
         }
     }
 
-    private String determineNegotiationStrategy(CustomerTier tier, CustomerProfile profile) {
+    private String determineNegotiationStrategy(CustomerTier tier) {
         switch (tier) {
             case VIP_PLATINUM:
                 return "HIGHLY_ACCOMMODATING"; // Almost always say yes, offer premium perks
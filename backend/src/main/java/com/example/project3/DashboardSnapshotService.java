@@ -0,0 +1,136 @@
+package com.example.project3;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Shared snapshots of the admin analytics, owner and employee dashboards, so staff opening
+ * the pages read the latest snapshot instead of each recomputing every metric. Snapshots are
+ * recomputed in the background on a dedicated thread when orders change (at most once per
+ * poll interval) and when they exceed max-age.
+ */
+@Service
+public class DashboardSnapshotService {
+
+    private static final int RECENT_ORDERS = 5;
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private StaffRepository staffRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CustomerProfileRepository customerProfileRepository;
+
+    @Autowired
+    private EmailCampaignRepository emailCampaignRepository;
+
+    @Value("${app.dashboard.snapshot.max-age-ms:60000}")
+    private long maxAgeMs;
+
+    private ExecutorService refreshExecutor;
+    private SnapshotCache<Map<String, Object>> adminAnalytics;
+    private SnapshotCache<Map<String, Object>> ownerDashboard;
+    private SnapshotCache<EmployeeService.EmployeeDashboardData> employeeDashboard;
+
+    @PostConstruct
+    void start() {
+        refreshExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dashboard-snapshot");
+            thread.setDaemon(true);
+            return thread;
+        });
+        Duration maxAge = Duration.ofMillis(maxAgeMs);
+        adminAnalytics = new SnapshotCache<>("admin analytics",
+                () -> Collections.unmodifiableMap(analyticsService.getDashboardData()), maxAge, refreshExecutor);
+        ownerDashboard = new SnapshotCache<>("owner dashboard", this::computeOwnerDashboard, maxAge, refreshExecutor);
+        employeeDashboard = new SnapshotCache<>("employee dashboard", this::computeEmployeeDashboard, maxAge, refreshExecutor);
+    }
+
+    @PreDestroy
+    void stop() {
+        refreshExecutor.shutdownNow();
+    }
+
+    public SnapshotCache.Snapshot<Map<String, Object>> getAdminAnalytics() {
+        return adminAnalytics.get();
+    }
+
+    public SnapshotCache.Snapshot<Map<String, Object>> getOwnerDashboard() {
+        return ownerDashboard.get();
+    }
+
+    public SnapshotCache.Snapshot<EmployeeService.EmployeeDashboardData> getEmployeeDashboard() {
+        return employeeDashboard.get();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderDomainEvent event) {
+        adminAnalytics.markDirty();
+        ownerDashboard.markDirty();
+        employeeDashboard.markDirty();
+    }
+
+    @Scheduled(fixedDelayString = "${app.dashboard.snapshot.poll-interval-ms:5000}")
+    public void refreshOutdated() {
+        for (SnapshotCache<?> cache : List.of(adminAnalytics, ownerDashboard, employeeDashboard)) {
+            if (cache.needsRefresh()) {
+                cache.refresh();
+            }
+        }
+    }
+
+    private Map<String, Object> computeOwnerDashboard() {
+        // Owner dashboard with system-wide metrics
+        Map<String, Object> dashboard = new HashMap<>();
+        dashboard.put("totalStaff", staffRepository.count());
+        dashboard.put("totalCustomers", customerRepository.count());
+        dashboard.put("totalOrders", orderRepository.count());
+        dashboard.put("totalProducts", fruitRepository.count());
+        dashboard.put("activeStaff", staffRepository.countByIsActiveTrue());
+        dashboard.put("activeCustomers", customerRepository.countByIsActiveTrue());
+        dashboard.put("recentOrders", orderRepository.findRecentSummaries(PageRequest.of(0, RECENT_ORDERS)));
+        return Collections.unmodifiableMap(dashboard);
+    }
+
+    private EmployeeService.EmployeeDashboardData computeEmployeeDashboard() {
+        EmployeeService.EmployeeDashboardData data = new EmployeeService.EmployeeDashboardData();
+        data.setTotalProducts((int) fruitRepository.count());
+        data.setPendingOrders((int) orderRepository.countByFulfilledFalse());
+        data.setTotalCustomers((int) customerProfileRepository.count());
+        data.setActiveCampaigns((int) emailCampaignRepository.countActiveCampaigns());
+
+        // Customer segment breakdown
+        data.setPremiumCustomers((int) customerProfileRepository.countByCustomerSegment("Premium"));
+        data.setRegularCustomers((int) customerProfileRepository.countByCustomerSegment("Regular"));
+        data.setBudgetCustomers((int) customerProfileRepository.countByCustomerSegment("Budget"));
+        data.setNewCustomers((int) customerProfileRepository.countByCustomerSegment("New"));
+        data.setGeneratedAt(LocalDateTime.now());
+        return data;
+    }
+}
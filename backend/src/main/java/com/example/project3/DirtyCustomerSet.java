@@ -0,0 +1,80 @@
+package com.example.project3;
+
+import jakarta.persistence.*;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+
+import java.io.*;
+import java.time.LocalDateTime;
+
+/**
+ * Serialized {@link Roaring64Bitmap} of customer ids whose profile needs recomputing, written
+ * by {@link DirtyCustomerTracker}. PENDING collects new marks; REBUILDING is the set the
+ * current nightly refresh is working through, kept until it completes so it can resume.
+ */
+@Entity
+@Table(name = "dirty_customer_sets")
+public class DirtyCustomerSet {
+
+    @Id
+    @Enumerated(EnumType.STRING)
+    @Column(length = 16)
+    private Generation generation;
+
+    @Column(nullable = false, columnDefinition = "bytea")
+    private byte[] bitmap;
+
+    @Column(nullable = false)
+    private long cardinality;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    public enum Generation {
+        PENDING,
+        REBUILDING
+    }
+
+    public DirtyCustomerSet() {
+    }
+
+    public DirtyCustomerSet(Generation generation, Roaring64Bitmap ids) {
+        this.generation = generation;
+        setIds(ids);
+    }
+
+    public Roaring64Bitmap toIds() {
+        Roaring64Bitmap ids = new Roaring64Bitmap();
+        try {
+            ids.deserialize(new DataInputStream(new ByteArrayInputStream(bitmap)));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Corrupt dirty customer set " + generation, e);
+        }
+        return ids;
+    }
+
+    public void setIds(Roaring64Bitmap ids) {
+        ids.runOptimize();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream((int) ids.serializedSizeInBytes());
+        try {
+            ids.serialize(new DataOutputStream(bytes));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        this.bitmap = bytes.toByteArray();
+        this.cardinality = ids.getLongCardinality();
+        this.updatedAt = LocalDateTime.now();
+    }
+
+    // Getters
+    public Generation getGeneration() {
+        return generation;
+    }
+
+    public long getCardinality() {
+        return cardinality;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+}
@@ -0,0 +1,6 @@
+package com.example.project3;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface DirtyCustomerSetRepository extends JpaRepository<DirtyCustomerSet, DirtyCustomerSet.Generation> {
+}
@@ -0,0 +1,143 @@
+package com.example.project3;
+
+import jakarta.annotation.PostConstruct;
+import org.roaringbitmap.longlong.Roaring64Bitmap;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Collection;
+import java.util.Optional;
+
+/**
+ * Customers whose profile changed since the last nightly refresh: anyone who ordered,
+ * negotiated or had email activity. Marks go into an in-memory roaring bitmap (a few bytes
+ * per customer, far less for runs of nearby ids) that is merged into the stored PENDING set
+ * on every flush tick. Marks made after the last flush are lost with the process; the weekly
+ * full rebuild repairs those profiles.
+ */
+@Component
+public class DirtyCustomerTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(DirtyCustomerTracker.class);
+
+    @Autowired
+    private DirtyCustomerSetRepository dirtyCustomerSetRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    private TransactionTemplate transactionTemplate;
+    private Roaring64Bitmap pending = new Roaring64Bitmap();
+    // Serialises read-modify-write of the stored sets within this process
+    private final Object storeLock = new Object();
+
+    @PostConstruct
+    void init() {
+        transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    public synchronized void mark(Long customerId) {
+        if (customerId != null) {
+            pending.addLong(customerId);
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderDomainEvent event) {
+        mark(event.getCustomerId());
+    }
+
+    /** Merges buffered marks into the stored PENDING set; on failure they stay buffered. */
+    @Scheduled(fixedDelayString = "${app.profiles.dirty.flush-interval-ms:60000}")
+    public void flush() {
+        synchronized (storeLock) {
+            Roaring64Bitmap batch = takePending();
+            if (batch.isEmpty()) {
+                return;
+            }
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    Roaring64Bitmap stored = load(DirtyCustomerSet.Generation.PENDING);
+                    stored.or(batch);
+                    store(DirtyCustomerSet.Generation.PENDING, stored);
+                });
+            } catch (RuntimeException e) {
+                logger.warn("Storing {} dirty customers failed, retrying on the next flush", batch.getLongCardinality(), e);
+                restorePending(batch);
+            }
+        }
+    }
+
+    /**
+     * Starts a refresh: everything marked so far, plus {@code extraIds}, becomes the stored
+     * REBUILDING set and PENDING starts empty, in one transaction. A REBUILDING set left by a
+     * refresh that never got going is carried over.
+     */
+    public Roaring64Bitmap rotate(Collection<Long> extraIds) {
+        synchronized (storeLock) {
+            Roaring64Bitmap batch = takePending();
+            try {
+                return transactionTemplate.execute(status -> {
+                    Roaring64Bitmap ids = load(DirtyCustomerSet.Generation.REBUILDING);
+                    ids.or(load(DirtyCustomerSet.Generation.PENDING));
+                    ids.or(batch);
+                    extraIds.forEach(ids::addLong);
+                    store(DirtyCustomerSet.Generation.REBUILDING, ids);
+                    dirtyCustomerSetRepository.deleteById(DirtyCustomerSet.Generation.PENDING);
+                    return ids;
+                });
+            } catch (RuntimeException e) {
+                restorePending(batch);
+                throw e;
+            }
+        }
+    }
+
+    /** The set of a refresh that has not finished, if any. */
+    public Optional<Roaring64Bitmap> loadRebuilding() {
+        return dirtyCustomerSetRepository.findById(DirtyCustomerSet.Generation.REBUILDING)
+                .map(DirtyCustomerSet::toIds);
+    }
+
+    public void finishRebuilding() {
+        dirtyCustomerSetRepository.deleteById(DirtyCustomerSet.Generation.REBUILDING);
+    }
+
+    /** Customers marked and not yet taken by a refresh, buffered or stored. */
+    public long countPending() {
+        Roaring64Bitmap ids = load(DirtyCustomerSet.Generation.PENDING);
+        synchronized (this) {
+            ids.or(pending);
+        }
+        return ids.getLongCardinality();
+    }
+
+    private synchronized Roaring64Bitmap takePending() {
+        Roaring64Bitmap batch = pending;
+        pending = new Roaring64Bitmap();
+        return batch;
+    }
+
+    private synchronized void restorePending(Roaring64Bitmap batch) {
+        pending.or(batch);
+    }
+
+    private Roaring64Bitmap load(DirtyCustomerSet.Generation generation) {
+        return dirtyCustomerSetRepository.findById(generation)
+                .map(DirtyCustomerSet::toIds)
+                .orElseGet(Roaring64Bitmap::new);
+    }
+
+    private void store(DirtyCustomerSet.Generation generation, Roaring64Bitmap ids) {
+        DirtyCustomerSet set = dirtyCustomerSetRepository.findById(generation)
+                .orElseGet(() -> new DirtyCustomerSet(generation, ids));
+        set.setIds(ids);
+        dirtyCustomerSetRepository.save(set);
+    }
+}
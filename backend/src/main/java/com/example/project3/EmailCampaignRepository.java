@@ -24,6 +24,9 @@ public interface EmailCampaignRepository extends JpaRepository<EmailCampaign, Lo
     
     @Query("SELECT ec FROM EmailCampaign ec WHERE ec.status IN ('RUNNING', 'SCHEDULED') ORDER BY ec.scheduledDate ASC")
     List<EmailCampaign> findActiveCampaigns();
+
+    @Query("SELECT COUNT(ec) FROM EmailCampaign ec WHERE ec.status IN ('RUNNING', 'SCHEDULED')")
+    long countActiveCampaigns();
     
     @Query("SELECT ec FROM EmailCampaign ec WHERE ec.status = 'COMPLETED' ORDER BY ec.sentAt DESC")
     List<EmailCampaign> findCompletedCampaigns();
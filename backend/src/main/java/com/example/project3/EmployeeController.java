@@ -37,6 +37,9 @@ public class EmployeeController {
     @Autowired
     private EmailService emailService;
 
+    @Autowired
+    private OrderService orderService;
+
     @GetMapping
     @PreAuthorize("hasRole('EMPLOYEE')")
     public String employeeDashboard(Model model) {
@@ -106,13 +109,7 @@ public class EmployeeController {
     @PreAuthorize("hasRole('EMPLOYEE')")
     public String fulfillOrder(@PathVariable Long id, RedirectAttributes redirectAttributes) {
         try {
-            Order order = orderRepository.findById(id)
-                    .orElseThrow(() -> new IllegalArgumentException("Invalid order Id:" + id));
-            order.setFulfilled(true);
-            orderRepository.save(order);
-            
-            // Update customer profile after order fulfillment
-            customerProfileService.updateProfileFromOrders(order.getUser().getId());
+            orderService.fulfillOrder(id);
             
             redirectAttributes.addFlashAttribute("message", "Order fulfilled successfully!");
         } catch (Exception e) {
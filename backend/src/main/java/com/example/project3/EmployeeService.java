@@ -4,6 +4,7 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.LocalDateTime;
 import java.util.List;
 import java.util.stream.Collectors;
 
@@ -35,21 +36,15 @@ public class EmployeeService {
     @Autowired
     private EmailService emailService;
 
-    // Dashboard Analytics for Employees
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private DashboardSnapshotService dashboardSnapshotService;
+
+    // Dashboard Analytics for Employees - served from the shared snapshot, see generatedAt for its age
     public EmployeeDashboardData getDashboardData() {
-        EmployeeDashboardData data = new EmployeeDashboardData();
-        data.setTotalProducts((int) fruitRepository.count());
-        data.setPendingOrders(orderRepository.findAllByFulfilledFalse().size());
-        data.setTotalCustomers((int) customerProfileRepository.count());
-        data.setActiveCampaigns(emailCampaignRepository.findActiveCampaigns().size());
-        
-        // Customer segment breakdown
-        data.setPremiumCustomers(customerProfileRepository.findByCustomerSegment("Premium").size());
-        data.setRegularCustomers(customerProfileRepository.findByCustomerSegment("Regular").size());
-        data.setBudgetCustomers(customerProfileRepository.findByCustomerSegment("Budget").size());
-        data.setNewCustomers(customerProfileRepository.findByCustomerSegment("New").size());
-        
-        return data;
+        return dashboardSnapshotService.getEmployeeDashboard().getValue();
     }
 
     // Product Management (Limited permissions for employees)
@@ -83,15 +78,12 @@ public class EmployeeService {
     }
 
     public Order fulfillOrder(Long orderId) {
-        Order order = orderRepository.findById(orderId).orElse(null);
-        if (order != null) {
-            order.setFulfilled(true);
-            order = orderRepository.save(order);
-            
-            // Update customer profile after fulfillment
-            customerProfileService.updateProfileFromOrders(order.getUser().getId());
+        try {
+            orderService.fulfillOrder(orderId);
+        } catch (OrderService.OrderNotFoundException e) {
+            return null;
         }
-        return order;
+        return orderRepository.findById(orderId).orElse(null);
     }
 
     public Order getOrderById(Long orderId) {
@@ -225,6 +217,7 @@ public class EmployeeService {
         private int regularCustomers;
         private int budgetCustomers;
         private int newCustomers;
+        private LocalDateTime generatedAt;
 
         // Getters and setters
         public int getTotalProducts() { return totalProducts; }
@@ -250,6 +243,9 @@ public class EmployeeService {
 
         public int getNewCustomers() { return newCustomers; }
         public void setNewCustomers(int newCustomers) { this.newCustomers = newCustomers; }
+
+        public LocalDateTime getGeneratedAt() { return generatedAt; }
+        public void setGeneratedAt(LocalDateTime generatedAt) { this.generatedAt = generatedAt; }
     }
 
     public static class EmployeeReportData {
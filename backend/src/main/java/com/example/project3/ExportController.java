@@ -0,0 +1,89 @@
+package com.example.project3;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.OutputStream;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.Locale;
+import java.util.Map;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Bulk downloads for finance: GET /admin/api/export/orders and /admin/api/export/sales with
+ * optional from/to dates (inclusive, yyyy-MM-dd), format=csv|ndjson and gzip=true.
+ */
+@RestController
+@RequestMapping("/admin/api/export")
+public class ExportController {
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @GetMapping("/orders")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportOrders(@RequestParam(value = "from", required = false) String from,
+                                          @RequestParam(value = "to", required = false) String to,
+                                          @RequestParam(value = "format", defaultValue = "csv") String format,
+                                          @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        return export(from, to, format, gzip, Dataset.ORDERS);
+    }
+
+    @GetMapping("/sales")
+    @PreAuthorize("hasRole('ADMIN')")
+    public ResponseEntity<?> exportSales(@RequestParam(value = "from", required = false) String from,
+                                         @RequestParam(value = "to", required = false) String to,
+                                         @RequestParam(value = "format", defaultValue = "csv") String format,
+                                         @RequestParam(value = "gzip", defaultValue = "false") boolean gzip) {
+        return export(from, to, format, gzip, Dataset.SALES);
+    }
+
+    private ResponseEntity<?> export(String fromParam, String toParam, String formatParam,
+                                     boolean gzip, Dataset dataset) {
+        LocalDate from;
+        LocalDate to;
+        OrderExportService.Format format;
+        try {
+            from = fromParam != null ? LocalDate.parse(fromParam) : null;
+            to = toParam != null ? LocalDate.parse(toParam) : null;
+            format = OrderExportService.Format.fromParam(formatParam);
+            if (from != null && to != null && from.isAfter(to)) {
+                throw new IllegalArgumentException("from must not be after to");
+            }
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+
+        // Rows are written as they are read; nothing is collected before the response starts
+        StreamingResponseBody body = out -> {
+            OutputStream target = gzip ? new GZIPOutputStream(out, 64 * 1024) : out;
+            if (dataset == Dataset.ORDERS) {
+                orderExportService.exportOrders(from, to, format, target);
+            } else {
+                orderExportService.exportSales(from, to, format, target);
+            }
+            if (target instanceof GZIPOutputStream gzipStream) {
+                gzipStream.finish();
+            }
+        };
+
+        String filename = dataset.name().toLowerCase(Locale.ROOT)
+                + (from != null ? "-from-" + from : "") + (to != null ? "-to-" + to : "")
+                + "." + format.getExtension() + (gzip ? ".gz" : "");
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(gzip ? "application/gzip" : format.getContentType()))
+                .header(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"" + filename + "\"")
+                .body(body);
+    }
+
+    private enum Dataset {
+        ORDERS,
+        SALES
+    }
+}
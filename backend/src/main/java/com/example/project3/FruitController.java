@@ -26,8 +26,19 @@ public class FruitController {
     @Autowired
     private FruitService fruitService;
 
+    // Listing and single-product entries share the products cache, so keys are prefixed
+    static final String ALL_PRODUCTS_KEY = "all";
+
+    static String categoryKey(Long categoryId) {
+        return "category:" + categoryId;
+    }
+
+    static String productKey(Long fruitId) {
+        return "fruit:" + fruitId;
+    }
+
     @GetMapping
-    @Cacheable(value = "products", key = "#categoryId ?: 'all'")
+    @Cacheable(value = "products", key = "#categoryId != null ? 'category:' + #categoryId : 'all'")
     public ResponseEntity<List<FruitDTO>> getAllFruits(@RequestParam(required = false) Long categoryId) {
         try {
             List<Fruit> fruits;
@@ -99,7 +110,7 @@ public class FruitController {
     }
 
     @GetMapping("/{id}")
-    @Cacheable(value = "products", key = "#id")
+    @Cacheable(value = "products", key = "'fruit:' + #id")
     public ResponseEntity<FruitDTO> getFruitById(@PathVariable Long id) {
         try {
             Fruit fruit = fruitRepository.findById(id)
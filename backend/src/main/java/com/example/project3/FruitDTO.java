@@ -21,8 +21,10 @@ public class FruitDTO {
         this.price = fruit.getPrice();
         this.stock = fruit.getStock();
         this.unit = fruit.getUnit();
-        this.categoryId = fruit.getCategory().getId();
-        this.categoryName = fruit.getCategory().getName();
+        if (fruit.getCategory() != null) {
+            this.categoryId = fruit.getCategory().getId();
+            this.categoryName = fruit.getCategory().getName();
+        }
         this.imageFilename = fruit.getImageFilename();
         this.imageUrl = fruit.getImageUrl();
     }
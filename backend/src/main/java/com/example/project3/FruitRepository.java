@@ -1,8 +1,17 @@
 package com.example.project3;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.util.Collection;
 import java.util.List;
 
-public interface FruitRepository extends JpaRepository<Fruit, Long> {
+public interface FruitRepository extends JpaRepository<Fruit, Long>, FruitStockRepository {
     List<Fruit> findByCategoryId(Long categoryId);
-} 
\ No newline at end of file
+
+    @Query("SELECT f FROM Fruit f LEFT JOIN FETCH f.category")
+    List<Fruit> findAllWithCategory();
+
+    @Query("SELECT f FROM Fruit f LEFT JOIN FETCH f.category WHERE f.id IN :ids")
+    List<Fruit> findAllWithCategoryByIdIn(@Param("ids") Collection<Long> ids);
+}
@@ -0,0 +1,16 @@
+package com.example.project3;
+
+import java.util.Map;
+import java.util.Set;
+
+public interface FruitStockRepository {
+
+    /**
+     * Decrements stock for every fruit in one JDBC batch. Each statement only applies
+     * when enough stock remains, so concurrent checkouts can never oversell. Rows are
+     * updated in fruit id order whatever the order of the map.
+     *
+     * @return the ids of fruits whose stock was too low; empty when every line was reserved
+     */
+    Set<Long> decrementStockIfAvailable(Map<Long, Integer> quantitiesByFruitId);
+}
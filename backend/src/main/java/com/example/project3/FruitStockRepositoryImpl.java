@@ -0,0 +1,41 @@
+package com.example.project3;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+public class FruitStockRepositoryImpl implements FruitStockRepository {
+
+    private static final String DECREMENT_STOCK_SQL =
+            "UPDATE fruit SET stock = stock - ? WHERE id = ? AND stock >= ?";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public Set<Long> decrementStockIfAvailable(Map<Long, Integer> quantitiesByFruitId) {
+        // Rows are locked in id order, so two carts with the same products can't deadlock
+        List<Long> fruitIds = new ArrayList<>(new TreeSet<>(quantitiesByFruitId.keySet()));
+        List<Object[]> batchArgs = new ArrayList<>(fruitIds.size());
+        for (Long fruitId : fruitIds) {
+            int quantity = quantitiesByFruitId.get(fruitId);
+            batchArgs.add(new Object[]{quantity, fruitId, quantity});
+        }
+
+        int[] updateCounts = jdbcTemplate.batchUpdate(DECREMENT_STOCK_SQL, batchArgs);
+
+        Set<Long> shortFruitIds = new HashSet<>();
+        for (int i = 0; i < updateCounts.length; i++) {
+            if (updateCounts[i] == 0) {
+                shortFruitIds.add(fruitIds.get(i));
+            }
+        }
+        return shortFruitIds;
+    }
+}
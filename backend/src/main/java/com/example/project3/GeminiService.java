@@ -6,7 +6,6 @@ import com.google.cloud.vertexai.VertexAI;
 import com.google.cloud.vertexai.api.GenerateContentResponse;
 import com.google.cloud.vertexai.generativeai.GenerativeModel;
 import com.google.cloud.vertexai.generativeai.ResponseHandler;
-import org.modelmapper.ModelMapper;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
@@ -22,7 +21,6 @@ public class GeminiService {
     private final UserRepository userRepository;
     private final FruitRepository fruitRepository;
     private final OrderRepository orderRepository;
-    private final ModelMapper modelMapper;
     private final String projectId;
     private final String location;
     private final String modelName;
@@ -30,14 +28,12 @@ public class GeminiService {
     public GeminiService(UserRepository userRepository,
                          FruitRepository fruitRepository,
                          OrderRepository orderRepository,
-                         ModelMapper modelMapper,
                          @Value("${gemini.project.id}") String projectId,
                          @Value("${gemini.location}") String location,
                          @Value("${gemini.model.name}") String modelName) {
         this.userRepository = userRepository;
         this.fruitRepository = fruitRepository;
         this.orderRepository = orderRepository;
-        this.modelMapper = modelMapper;
         this.projectId = projectId;
         this.location = location;
         this.modelName = modelName;
@@ -73,8 +69,8 @@ public class GeminiService {
 
         String productsJson = "[]";
         try {
-            List<FruitDTO> fruitDTOs = fruitRepository.findAll().stream()
-                    .map(fruit -> modelMapper.map(fruit, FruitDTO.class))
+            List<FruitDTO> fruitDTOs = fruitRepository.findAllWithCategory().stream()
+                    .map(FruitDTO::new)
                     .collect(Collectors.toList());
             productsJson = new ObjectMapper().writeValueAsString(fruitDTOs);
         } catch (JsonProcessingException e) {
@@ -0,0 +1,132 @@
+package com.example.project3;
+
+import java.nio.ByteBuffer;
+
+/**
+ * HyperLogLog distinct counter over long ids with 2^12 registers. Estimates have a relative
+ * standard error of 1.04 / sqrt(4096), about 1.6% (within 3.3% for ~95% of estimates); below
+ * about 10,000 distinct ids linear counting is used, which is close to exact. Sketches merge
+ * losslessly (register-wise max) and adding an id twice is a no-op, so replays never inflate
+ * counts. Encoded sparsely (3 bytes per used register) while small, else 6 bits per register.
+ */
+public class HyperLogLog {
+
+    public static final int PRECISION = 12;
+    public static final int REGISTERS = 1 << PRECISION;
+    public static final double RELATIVE_STANDARD_ERROR = 1.04 / Math.sqrt(REGISTERS);
+
+    static final int MAX_ENCODED_BYTES = 2 + REGISTERS * 6 / 8;
+
+    private static final byte SPARSE = 1;
+    private static final byte DENSE = 2;
+    private static final int MAX_RANK = 64 - PRECISION + 1;
+    private static final double ALPHA = 0.7213 / (1 + 1.079 / REGISTERS);
+
+    private final byte[] registers = new byte[REGISTERS];
+
+    public void add(long id) {
+        long hash = mix(id);
+        int index = (int) (hash >>> (64 - PRECISION));
+        int rank = Math.min(Long.numberOfLeadingZeros(hash << PRECISION) + 1, MAX_RANK);
+        if (rank > registers[index]) {
+            registers[index] = (byte) rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        for (int i = 0; i < REGISTERS; i++) {
+            if (other.registers[i] > registers[i]) {
+                registers[i] = other.registers[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) {
+                zeros++;
+            }
+        }
+        double raw = ALPHA * REGISTERS * REGISTERS / sum;
+        if (raw <= 2.5 * REGISTERS && zeros > 0) {
+            return Math.round(REGISTERS * Math.log((double) REGISTERS / zeros));
+        }
+        // 64-bit hashes make the large-range correction unnecessary
+        return Math.round(raw);
+    }
+
+    public boolean isEmpty() {
+        for (byte register : registers) {
+            if (register != 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    public byte[] toBytes() {
+        int used = 0;
+        for (byte register : registers) {
+            if (register != 0) {
+                used++;
+            }
+        }
+        if (2 + used * 3 < MAX_ENCODED_BYTES) {
+            ByteBuffer buffer = ByteBuffer.allocate(2 + used * 3).put(SPARSE).put((byte) PRECISION);
+            for (int i = 0; i < REGISTERS; i++) {
+                if (registers[i] != 0) {
+                    buffer.putShort((short) i).put(registers[i]);
+                }
+            }
+            return buffer.array();
+        }
+
+        // Ranks never exceed 53, so four registers pack into three bytes
+        byte[] bytes = new byte[MAX_ENCODED_BYTES];
+        bytes[0] = DENSE;
+        bytes[1] = PRECISION;
+        for (int i = 0, out = 2; i < REGISTERS; i += 4, out += 3) {
+            int packed = registers[i] << 18 | registers[i + 1] << 12 | registers[i + 2] << 6 | registers[i + 3];
+            bytes[out] = (byte) (packed >>> 16);
+            bytes[out + 1] = (byte) (packed >>> 8);
+            bytes[out + 2] = (byte) packed;
+        }
+        return bytes;
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        if (bytes.length < 2 || bytes[1] != PRECISION) {
+            throw new IllegalArgumentException("Not a HyperLogLog sketch with precision " + PRECISION);
+        }
+        HyperLogLog sketch = new HyperLogLog();
+        if (bytes[0] == SPARSE) {
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, 2, bytes.length - 2);
+            while (buffer.hasRemaining()) {
+                int index = buffer.getShort() & 0xFFFF;
+                sketch.registers[index] = buffer.get();
+            }
+        } else if (bytes[0] == DENSE && bytes.length == MAX_ENCODED_BYTES) {
+            for (int i = 0, in = 2; i < REGISTERS; i += 4, in += 3) {
+                int packed = (bytes[in] & 0xFF) << 16 | (bytes[in + 1] & 0xFF) << 8 | (bytes[in + 2] & 0xFF);
+                sketch.registers[i] = (byte) (packed >>> 18 & 0x3F);
+                sketch.registers[i + 1] = (byte) (packed >>> 12 & 0x3F);
+                sketch.registers[i + 2] = (byte) (packed >>> 6 & 0x3F);
+                sketch.registers[i + 3] = (byte) (packed & 0x3F);
+            }
+        } else {
+            throw new IllegalArgumentException("Unknown HyperLogLog encoding " + bytes[0]);
+        }
+        return sketch;
+    }
+
+    // SplitMix64 finalizer: sequential ids spread evenly over the registers
+    private static long mix(long id) {
+        long z = id + 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,113 @@
+package com.example.project3;
+
+import jakarta.persistence.*;
+import java.time.LocalDateTime;
+
+/**
+ * Progress of a restartable batch job: every id up to {@code lastProcessedId} is done. A row
+ * left RUNNING means the job died mid-run and the next run continues after that id.
+ */
+@Entity
+@Table(name = "job_checkpoints")
+public class JobCheckpoint {
+
+    @Id
+    @Column(name = "job_name", length = 64)
+    private String jobName;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Status status;
+
+    @Column(name = "last_processed_id", nullable = false)
+    private long lastProcessedId;
+
+    @Column(nullable = false)
+    private long processed;
+
+    @Column(nullable = false)
+    private long failed;
+
+    @Column(name = "started_at")
+    private LocalDateTime startedAt;
+
+    @Column(name = "updated_at")
+    private LocalDateTime updatedAt;
+
+    @Column(name = "completed_at")
+    private LocalDateTime completedAt;
+
+    public enum Status {
+        RUNNING,
+        COMPLETED
+    }
+
+    public JobCheckpoint() {
+    }
+
+    public JobCheckpoint(String jobName) {
+        this.jobName = jobName;
+        this.status = Status.COMPLETED;
+    }
+
+    /** Resets progress for a fresh pass. */
+    public void start() {
+        status = Status.RUNNING;
+        lastProcessedId = 0;
+        processed = 0;
+        failed = 0;
+        startedAt = LocalDateTime.now();
+        updatedAt = startedAt;
+        completedAt = null;
+    }
+
+    public void advance(long lastId, int processedIds, int failedIds) {
+        lastProcessedId = lastId;
+        processed += processedIds;
+        failed += failedIds;
+        updatedAt = LocalDateTime.now();
+    }
+
+    public void complete() {
+        status = Status.COMPLETED;
+        completedAt = LocalDateTime.now();
+        updatedAt = completedAt;
+    }
+
+    public boolean isInterrupted() {
+        return status == Status.RUNNING;
+    }
+
+    // Getters
+    public String getJobName() {
+        return jobName;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public long getLastProcessedId() {
+        return lastProcessedId;
+    }
+
+    public long getProcessed() {
+        return processed;
+    }
+
+    public long getFailed() {
+        return failed;
+    }
+
+    public LocalDateTime getStartedAt() {
+        return startedAt;
+    }
+
+    public LocalDateTime getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public LocalDateTime getCompletedAt() {
+        return completedAt;
+    }
+}
@@ -63,12 +63,8 @@ public class NegotiationController {
         }
         
         try {
-            String username = authentication.getName();
-            Customer customer = customerRepository.findByUsername(username)
-                    .orElseThrow(() -> new RuntimeException("Customer not found: " + username));
-            
             CustomerTierService.NegotiationCapability capability = 
-                customerTierService.calculateNegotiationCapability(customer);
+                customerTierService.calculateNegotiationCapability(authentication.getName());
             
             Map<String, Object> eligibility = new HashMap<>();
             eligibility.put("eligible", capability.canNegotiate());
@@ -116,9 +112,9 @@ public class NegotiationController {
                     .orElseThrow(() -> new RuntimeException("Customer not found: " + username));
             
             // Get customer tier and capability info for testing
-            CustomerTierService.CustomerTier tier = customerTierService.determineCustomerTier(customer);
             CustomerTierService.NegotiationCapability capability = 
                 customerTierService.calculateNegotiationCapability(customer);
+            CustomerTierService.CustomerTier tier = capability.getTier();
             
             Map<String, Object> testResponse = new HashMap<>();
             testResponse.put("customer", username);
@@ -0,0 +1,52 @@
+package com.example.project3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.cache.Cache;
+import org.springframework.cache.CacheManager;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.util.List;
+
+/**
+ * Keeps the orders and products caches in line with {@link OrderDomainEvent}s.
+ * Runs after commit so a concurrent read cannot re-cache the pre-commit state.
+ */
+@Component
+public class OrderCacheInvalidator {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderCacheInvalidator.class);
+
+    // Every key OrderService caches per login: all orders, fulfilled, pending
+    static final List<String> ORDER_KEY_SUFFIXES = List.of("", "-fulfilled", "-pending");
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderDomainEvent event) {
+        Cache orders = cacheManager.getCache("orders");
+        if (orders != null && event.getCustomerId() == null && event.getCustomerLogins().isEmpty()) {
+            // A staff order changing state; the staff login is not stored with the order
+            orders.clear();
+        } else if (orders != null) {
+            for (String login : event.getCustomerLogins()) {
+                for (String suffix : ORDER_KEY_SUFFIXES) {
+                    orders.evict(login + suffix);
+                }
+            }
+        }
+
+        // Product listings carry stock, so any product sold in this order is stale
+        Cache products = cacheManager.getCache("products");
+        if (products != null && !event.getFruitIds().isEmpty()) {
+            products.evict(FruitController.ALL_PRODUCTS_KEY);
+            event.getFruitIds().forEach(id -> products.evict(FruitController.productKey(id)));
+            event.getCategoryIds().forEach(id -> products.evict(FruitController.categoryKey(id)));
+        }
+
+        logger.debug("Evicted caches for {} event on order {}", event.getType(), event.getOrderId());
+    }
+}
@@ -3,7 +3,6 @@ package com.example.project3;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.cache.annotation.CacheEvict;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.core.Authentication;
@@ -22,6 +21,18 @@ public class OrderController {
     @Autowired
     private OrderService orderService;
 
+    @Autowired
+    private CheckoutIdempotencyService checkoutIdempotencyService;
+
+    @Autowired
+    private OrderHistoryService orderHistoryService;
+
+    @Autowired
+    private CheckoutBatcher checkoutBatcher;
+
+    @Autowired
+    private CheckoutMetrics checkoutMetrics;
+
     @GetMapping
     public ResponseEntity<?> getUserOrders(Authentication authentication) {
         try {
@@ -61,19 +72,64 @@ public class OrderController {
         }
     }
 
+    // Paginated history: pass nextCursor back as cursor; view=summary omits line items
+    @GetMapping("/history")
+    public ResponseEntity<?> getOrderHistory(@RequestParam(defaultValue = "all") String status,
+                                             @RequestParam(defaultValue = "full") String view,
+                                             @RequestParam(required = false) String cursor,
+                                             @RequestParam(defaultValue = "" + OrderHistoryService.DEFAULT_PAGE_SIZE) int size,
+                                             Authentication authentication) {
+        try {
+            boolean includeItems = !"summary".equalsIgnoreCase(view);
+            OrderHistoryPage page = orderHistoryService.getHistory(authentication.getName(),
+                    OrderHistoryService.StatusFilter.fromParam(status), includeItems, cursor, size);
+            return ResponseEntity.ok(page);
+        } catch (OrderService.InvalidOrderException e) {
+            return ResponseEntity.badRequest()
+                    .body(Map.of("error", "Invalid request", "message", e.getMessage()));
+        } catch (Exception e) {
+            logger.error("Error fetching order history for user: {}", authentication.getName(), e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body(Map.of("error", "Failed to fetch order history"));
+        }
+    }
+
     @PostMapping("/checkout")
-    @CacheEvict(value = "orders", key = "#authentication.name")
     public ResponseEntity<?> createOrder(@Valid @RequestBody CheckoutRequest checkoutRequest, 
+                                       @RequestHeader(value = "Idempotency-Key", required = false) String idempotencyKey,
                                        Authentication authentication) {
         try {
             String username = authentication.getName();
             logger.info("Starting checkout for user: {}", username);
             
-            OrderDTO order = orderService.createOrder(checkoutRequest, username);
+            if (idempotencyKey == null) {
+                OrderDTO order = placeOrder(checkoutRequest, username);
+                logger.info("Order created successfully with ID: {} for user: {}", order.getId(), username);
+                return ResponseEntity.status(HttpStatus.CREATED).body(order);
+            }
+            
+            CheckoutIdempotencyService.CheckoutResult result = checkoutIdempotencyService.execute(
+                    username, idempotencyKey, checkoutRequest, () -> placeOrder(checkoutRequest, username));
             
-            logger.info("Order created successfully with ID: {} for user: {}", order.getId(), username);
-            return ResponseEntity.status(HttpStatus.CREATED).body(order);
+            if (result.isReplayed()) {
+                logger.info("Replayed order {} for user {} (Idempotency-Key: {})", result.getOrder().getId(), username, idempotencyKey);
+            } else {
+                logger.info("Order created successfully with ID: {} for user: {}", result.getOrder().getId(), username);
+            }
+            return ResponseEntity.status(HttpStatus.CREATED)
+                    .header("Idempotent-Replayed", String.valueOf(result.isReplayed()))
+                    .body(result.getOrder());
             
+        } catch (CheckoutIdempotencyService.IdempotencyKeyReuseException e) {
+            logger.warn("Idempotency-Key reused with a different cart by user {}", authentication.getName());
+            return ResponseEntity.status(HttpStatus.UNPROCESSABLE_ENTITY)
+                    .body(Map.of("error", "Idempotency key reuse", "message", e.getMessage()));
+                    
+        } catch (CheckoutIdempotencyService.CheckoutInProgressException e) {
+            logger.warn("Duplicate checkout still in progress for user {}", authentication.getName());
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body(Map.of("error", "Checkout in progress", "message", e.getMessage()));
+                    
         } catch (OrderService.InvalidOrderException e) {
             logger.warn("Invalid order for user {}: {}", authentication.getName(), e.getMessage());
             return ResponseEntity.badRequest()
@@ -102,7 +158,6 @@ public class OrderController {
     }
 
     @PostMapping("/{id}/fulfill")
-    @CacheEvict(value = "orders", allEntries = true)
     public ResponseEntity<?> fulfillOrder(@PathVariable Long id) {
         try {
             orderService.fulfillOrder(id);
@@ -120,6 +175,13 @@ public class OrderController {
         }
     }
 
+    // Timed outside the transactional proxy, once per request even when a batch falls back
+    private OrderDTO placeOrder(CheckoutRequest checkoutRequest, String username) {
+        return checkoutMetrics.timeCheckout(() -> checkoutBatcher.isEnabled()
+                ? checkoutBatcher.submit(checkoutRequest, username)
+                : orderService.createOrder(checkoutRequest, username));
+    }
+
     // Legacy endpoint for backward compatibility
     @GetMapping("/all")
     public ResponseEntity<?> getAllUserOrders(Authentication authentication) {
@@ -0,0 +1,117 @@
+package com.example.project3;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Published by {@link OrderService} whenever an order is created or its fulfilment changes.
+ * Carries everything cache listeners need, so they never have to go back to the database.
+ */
+public class OrderDomainEvent {
+
+    public enum Type {
+        CREATED,
+        FULFILLED,
+        UNFULFILLED
+    }
+
+    private final Type type;
+    private final Long orderId;
+    private final Long customerId;
+    private final Set<String> customerLogins;
+    private final Set<Long> fruitIds;
+    private final Set<Long> categoryIds;
+    private final LocalDateTime orderDate;
+    private final List<Line> lines;
+    private final long customerOrdersBefore;
+
+    public OrderDomainEvent(Type type, Long orderId, Long customerId, Set<String> customerLogins,
+                            Set<Long> fruitIds, Set<Long> categoryIds) {
+        this(type, orderId, customerId, customerLogins, fruitIds, categoryIds, null, List.of());
+    }
+
+    public OrderDomainEvent(Type type, Long orderId, Long customerId, Set<String> customerLogins,
+                            Set<Long> fruitIds, Set<Long> categoryIds, LocalDateTime orderDate, List<Line> lines) {
+        this(type, orderId, customerId, customerLogins, fruitIds, categoryIds, orderDate, lines, 0);
+    }
+
+    public OrderDomainEvent(Type type, Long orderId, Long customerId, Set<String> customerLogins,
+                            Set<Long> fruitIds, Set<Long> categoryIds, LocalDateTime orderDate, List<Line> lines,
+                            long customerOrdersBefore) {
+        this.type = type;
+        this.orderId = orderId;
+        this.customerId = customerId;
+        this.customerLogins = customerLogins;
+        this.fruitIds = fruitIds;
+        this.categoryIds = categoryIds;
+        this.orderDate = orderDate;
+        this.lines = lines;
+        this.customerOrdersBefore = customerOrdersBefore;
+    }
+
+    public Type getType() {
+        return type;
+    }
+
+    public Long getOrderId() {
+        return orderId;
+    }
+
+    public Long getCustomerId() {
+        return customerId;
+    }
+
+    // Username and email: the orders cache is keyed by whichever one the customer logged in with
+    public Set<String> getCustomerLogins() {
+        return customerLogins;
+    }
+
+    // Products whose stock changed; empty for fulfilment changes
+    public Set<Long> getFruitIds() {
+        return fruitIds;
+    }
+
+    public Set<Long> getCategoryIds() {
+        return categoryIds;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    // What was sold, for streaming analytics; empty for fulfilment changes
+    public List<Line> getLines() {
+        return lines;
+    }
+
+    // Orders the customer already had when this one was created; 0 for fulfilment changes
+    public long getCustomerOrdersBefore() {
+        return customerOrdersBefore;
+    }
+
+    public static class Line {
+        private final Long fruitId;
+        private final int quantity;
+        private final BigDecimal revenue;
+
+        public Line(Long fruitId, int quantity, BigDecimal revenue) {
+            this.fruitId = fruitId;
+            this.quantity = quantity;
+            this.revenue = revenue;
+        }
+
+        public Long getFruitId() {
+            return fruitId;
+        }
+
+        public int getQuantity() {
+            return quantity;
+        }
+
+        public BigDecimal getRevenue() {
+            return revenue;
+        }
+    }
+}
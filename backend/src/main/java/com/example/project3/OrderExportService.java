@@ -0,0 +1,260 @@
+package com.example.project3;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.ResultSetExtractor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.*;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.sql.*;
+import java.time.LocalDate;
+import java.util.Locale;
+
+/**
+ * Streams orders and order lines for a date range straight from a forward-only JDBC cursor
+ * into CSV or NDJSON, one row at a time, so memory use does not depend on the range. The
+ * read-only transaction keeps PostgreSQL on a server-side cursor honouring the fetch size.
+ */
+@Service
+public class OrderExportService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderExportService.class);
+
+    static final int FETCH_SIZE = 1_000;
+
+    private static final String ORDERS_SQL =
+            "SELECT o.id AS order_id, o.order_date, c.id AS customer_id, c.username, c.email, " +
+            "o.original_amount, o.discount_amount, o.total_amount, o.coupon_code, o.fulfilled, " +
+            "o.fulfilled_date, z.name AS delivery_zone " +
+            "FROM orders o LEFT JOIN customers c ON c.id = o.customer_id " +
+            "LEFT JOIN delivery_zones z ON z.id = o.delivery_zone_id " +
+            "WHERE o.order_date >= ? AND o.order_date < ? ORDER BY o.id";
+
+    private static final String SALES_SQL =
+            "SELECT o.id AS order_id, o.order_date, oi.fruit_id AS product_id, f.name AS product, " +
+            "cat.name AS category, oi.quantity, oi.price AS unit_price, oi.price * oi.quantity AS line_total " +
+            "FROM order_items oi JOIN orders o ON o.id = oi.order_id JOIN fruit f ON f.id = oi.fruit_id " +
+            "LEFT JOIN category cat ON cat.id = f.category_id " +
+            "WHERE o.order_date >= ? AND o.order_date < ? ORDER BY o.id, oi.id";
+
+    // Used when the request gives no bound
+    private static final LocalDate EARLIEST = LocalDate.of(1970, 1, 1);
+
+    public enum Format {
+        CSV("text/csv", "csv"),
+        NDJSON("application/x-ndjson", "ndjson");
+
+        private final String contentType;
+        private final String extension;
+
+        Format(String contentType, String extension) {
+            this.contentType = contentType;
+            this.extension = extension;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public String getExtension() {
+            return extension;
+        }
+
+        public static Format fromParam(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown format: " + value + " (use csv or ndjson)");
+            }
+        }
+    }
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    /** Orders placed between {@code from} and {@code to} inclusive; either bound may be null. Returns the row count. */
+    @Transactional(readOnly = true)
+    public long exportOrders(LocalDate from, LocalDate to, Format format, OutputStream out) throws IOException {
+        return export(ORDERS_SQL, from, to, format, out);
+    }
+
+    /** One row per order line, with product, category and line total. */
+    @Transactional(readOnly = true)
+    public long exportSales(LocalDate from, LocalDate to, Format format, OutputStream out) throws IOException {
+        return export(SALES_SQL, from, to, format, out);
+    }
+
+    private long export(String sql, LocalDate from, LocalDate to, Format format, OutputStream out) throws IOException {
+        if (from != null && to != null && from.isAfter(to)) {
+            throw new IllegalArgumentException("from must not be after to");
+        }
+        long started = System.currentTimeMillis();
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        RowWriter rows = format == Format.CSV ? new CsvRowWriter(writer) : new NdjsonRowWriter(writer);
+        long count;
+        try {
+            count = jdbcTemplate.query(connection -> {
+                PreparedStatement statement = connection.prepareStatement(sql,
+                        ResultSet.TYPE_FORWARD_ONLY, ResultSet.CONCUR_READ_ONLY);
+                statement.setFetchSize(FETCH_SIZE);
+                statement.setTimestamp(1, Timestamp.valueOf((from != null ? from : EARLIEST).atStartOfDay()));
+                statement.setTimestamp(2, Timestamp.valueOf((to != null ? to : LocalDate.now()).plusDays(1).atStartOfDay()));
+                return statement;
+            }, (ResultSetExtractor<Long>) rs -> {
+                long written = 0;
+                try {
+                    rows.start(rs.getMetaData());
+                    while (rs.next()) {
+                        rows.write(rs);
+                        written++;
+                    }
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                return written;
+            });
+        } catch (UncheckedIOException e) {
+            // Usually the client went away mid-download; the query is abandoned with it
+            throw e.getCause();
+        }
+        rows.finish();
+        writer.flush();
+        logger.info("Exported {} rows as {} in {} ms", count, format, System.currentTimeMillis() - started);
+        return count;
+    }
+
+    private interface RowWriter {
+        void start(ResultSetMetaData metaData) throws SQLException, IOException;
+
+        void write(ResultSet rs) throws SQLException, IOException;
+
+        default void finish() throws IOException {
+        }
+    }
+
+    private abstract static class ColumnRowWriter implements RowWriter {
+        protected final Writer writer;
+        protected String[] names;
+
+        ColumnRowWriter(Writer writer) {
+            this.writer = writer;
+        }
+
+        @Override
+        public void start(ResultSetMetaData metaData) throws SQLException, IOException {
+            names = new String[metaData.getColumnCount()];
+            for (int i = 0; i < names.length; i++) {
+                names[i] = metaData.getColumnLabel(i + 1).toLowerCase(Locale.ROOT);
+            }
+        }
+
+        // Timestamps as ISO-8601 local date-times, numbers as plain decimals
+        protected static Object value(ResultSet rs, int column) throws SQLException {
+            Object value = rs.getObject(column);
+            if (value instanceof Timestamp timestamp) {
+                return timestamp.toLocalDateTime().toString();
+            }
+            return value;
+        }
+    }
+
+    private static final class CsvRowWriter extends ColumnRowWriter {
+        CsvRowWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        public void start(ResultSetMetaData metaData) throws SQLException, IOException {
+            super.start(metaData);
+            writer.write(String.join(",", names));
+            writer.write("\r\n");
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            for (int i = 0; i < names.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                Object value = value(rs, i + 1);
+                if (value instanceof BigDecimal decimal) {
+                    writer.write(decimal.toPlainString());
+                } else if (value != null) {
+                    writeField(value.toString());
+                }
+            }
+            writer.write("\r\n");
+        }
+
+        private void writeField(String field) throws IOException {
+            boolean quote = false;
+            for (int i = 0; i < field.length() && !quote; i++) {
+                char c = field.charAt(i);
+                quote = c == ',' || c == '"' || c == '\n' || c == '\r';
+            }
+            if (!quote) {
+                writer.write(field);
+                return;
+            }
+            writer.write('"');
+            writer.write(field.replace("\"", "\"\""));
+            writer.write('"');
+        }
+    }
+
+    private static final class NdjsonRowWriter extends ColumnRowWriter {
+        private static final JsonFactory JSON = new JsonFactory();
+
+        private JsonGenerator generator;
+
+        NdjsonRowWriter(Writer writer) {
+            super(writer);
+        }
+
+        @Override
+        public void start(ResultSetMetaData metaData) throws SQLException, IOException {
+            super.start(metaData);
+            generator = JSON.createGenerator(writer);
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            generator.disable(JsonGenerator.Feature.FLUSH_PASSED_TO_STREAM);
+            // Rows are separated by the newline written after each one
+            generator.setRootValueSeparator(null);
+        }
+
+        @Override
+        public void write(ResultSet rs) throws SQLException, IOException {
+            generator.writeStartObject();
+            for (int i = 0; i < names.length; i++) {
+                Object value = value(rs, i + 1);
+                generator.writeFieldName(names[i]);
+                if (value == null) {
+                    generator.writeNull();
+                } else if (value instanceof BigDecimal decimal) {
+                    generator.writeNumber(decimal);
+                } else if (value instanceof Number number) {
+                    generator.writeNumber(number.longValue());
+                } else if (value instanceof Boolean bool) {
+                    generator.writeBoolean(bool);
+                } else {
+                    generator.writeString(value.toString());
+                }
+            }
+            generator.writeEndObject();
+            generator.writeRaw('\n');
+        }
+
+        @Override
+        public void finish() throws IOException {
+            if (generator != null) {
+                generator.flush();
+            }
+        }
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.project3;
+
+import java.util.List;
+
+public class OrderHistoryPage {
+
+    private final List<OrderSummaryDTO> orders;
+    private final String nextCursor;
+    private final boolean hasMore;
+
+    public OrderHistoryPage(List<OrderSummaryDTO> orders, String nextCursor) {
+        this.orders = orders;
+        this.nextCursor = nextCursor;
+        this.hasMore = nextCursor != null;
+    }
+
+    public List<OrderSummaryDTO> getOrders() {
+        return orders;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean isHasMore() {
+        return hasMore;
+    }
+}
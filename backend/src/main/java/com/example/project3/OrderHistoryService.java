@@ -0,0 +1,134 @@
+package com.example.project3;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keyset-paginated order history for the customer app. Pages are read with DTO projections
+ * ordered by (orderDate, id), so page N costs the same as page 1 and no entities are loaded.
+ */
+@Service
+@Transactional(readOnly = true)
+public class OrderHistoryService {
+
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 100;
+
+    // First page starts before any real order
+    private static final LocalDateTime FIRST_PAGE_DATE = LocalDateTime.of(9999, 12, 31, 23, 59, 59);
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    public enum StatusFilter {
+        ALL(List.of(true, false)),
+        FULFILLED(List.of(true)),
+        PENDING(List.of(false));
+
+        private final List<Boolean> fulfilledStates;
+
+        StatusFilter(List<Boolean> fulfilledStates) {
+            this.fulfilledStates = fulfilledStates;
+        }
+
+        public static StatusFilter fromParam(String value) {
+            try {
+                return valueOf(value.trim().toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new OrderService.InvalidOrderException("Unknown order status filter: " + value);
+            }
+        }
+    }
+
+    public OrderHistoryPage getHistory(String username, StatusFilter status, boolean includeItems,
+                                       String cursor, int size) {
+        if (size < 1 || size > MAX_PAGE_SIZE) {
+            throw new OrderService.InvalidOrderException("Page size must be between 1 and " + MAX_PAGE_SIZE);
+        }
+
+        Customer customer = customerRepository.findByUsername(username)
+                .or(() -> customerRepository.findByEmail(username))
+                .orElse(null);
+        if (customer == null) {
+            // Staff accounts have no orders of their own
+            userRepository.findByUsername(username)
+                    .orElseThrow(() -> new UsernameNotFoundException("User not found with username: " + username));
+            return new OrderHistoryPage(List.of(), null);
+        }
+
+        Cursor position = cursor == null || cursor.isBlank() ? Cursor.FIRST : Cursor.decode(cursor);
+        List<OrderSummaryDTO> rows = orderRepository.findHistoryPage(customer.getId(), status.fulfilledStates,
+                position.orderDate, position.id, PageRequest.of(0, size + 1));
+
+        String nextCursor = null;
+        if (rows.size() > size) {
+            rows = new ArrayList<>(rows.subList(0, size));
+            OrderSummaryDTO last = rows.get(size - 1);
+            nextCursor = new Cursor(last.getOrderDate(), last.getId()).encode();
+        }
+
+        if (includeItems && !rows.isEmpty()) {
+            attachItems(rows);
+        }
+        return new OrderHistoryPage(rows, nextCursor);
+    }
+
+    private void attachItems(List<OrderSummaryDTO> rows) {
+        Map<Long, OrderSummaryDTO> byId = new HashMap<>();
+        for (OrderSummaryDTO row : rows) {
+            row.setOrderItems(new ArrayList<>());
+            byId.put(row.getId(), row);
+        }
+        Collection<Long> orderIds = byId.keySet();
+        for (OrderItemDTO item : orderRepository.findHistoryItems(orderIds)) {
+            byId.get(item.getOrderId()).getOrderItems().add(item);
+        }
+    }
+
+    static final class Cursor {
+        static final Cursor FIRST = new Cursor(FIRST_PAGE_DATE, Long.MAX_VALUE);
+
+        final LocalDateTime orderDate;
+        final Long id;
+
+        Cursor(LocalDateTime orderDate, Long id) {
+            this.orderDate = orderDate;
+            this.id = id;
+        }
+
+        String encode() {
+            String raw = orderDate + "|" + id;
+            return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
+        }
+
+        static Cursor decode(String cursor) {
+            try {
+                String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+                int separator = raw.lastIndexOf('|');
+                return new Cursor(LocalDateTime.parse(raw.substring(0, separator)),
+                        Long.parseLong(raw.substring(separator + 1)));
+            } catch (IllegalArgumentException | DateTimeParseException | IndexOutOfBoundsException e) {
+                throw new OrderService.InvalidOrderException("Invalid order history cursor");
+            }
+        }
+    }
+}
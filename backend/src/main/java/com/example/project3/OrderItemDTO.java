@@ -1,5 +1,7 @@
 package com.example.project3;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
 import java.math.BigDecimal;
 
 public class OrderItemDTO {
@@ -13,6 +15,26 @@ public class OrderItemDTO {
     private String fruitImage;
     private BigDecimal subtotal;
 
+    // Only populated by order history projections, to group rows by order
+    @JsonIgnore
+    private Long orderId;
+
+    public OrderItemDTO() {
+    }
+
+    public OrderItemDTO(Long orderId, Long id, int quantity, BigDecimal price, Long fruitId, String fruitName,
+                        String fruitDescription, String categoryName, String fruitImage) {
+        this.orderId = orderId;
+        this.id = id;
+        this.quantity = quantity;
+        this.price = price;
+        this.fruitId = fruitId;
+        this.fruitName = fruitName;
+        this.fruitDescription = fruitDescription;
+        this.categoryName = categoryName;
+        this.fruitImage = fruitImage;
+    }
+
     // Getters and Setters
     public Long getId() {
         return id;
@@ -86,6 +108,10 @@ public class OrderItemDTO {
         this.subtotal = subtotal;
     }
 
+    public Long getOrderId() {
+        return orderId;
+    }
+
     // Utility method to calculate subtotal
     public BigDecimal calculateSubtotal() {
         if (price != null && quantity > 0) {
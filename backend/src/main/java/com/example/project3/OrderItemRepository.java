@@ -1,6 +1,42 @@
 package com.example.project3;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+
+import java.math.BigDecimal;
+import java.util.List;
 
 public interface OrderItemRepository extends JpaRepository<OrderItem, Long> {
-} 
\ No newline at end of file
+
+    interface NamedSales {
+        String getName();
+        long getQuantitySold();
+        BigDecimal getRevenue();
+    }
+
+    interface DailyLineSales {
+        int getYear();
+        int getMonth();
+        int getDay();
+        Long getId();
+        String getName();
+        long getOrders();
+        long getQuantity();
+        BigDecimal getRevenue();
+    }
+
+    // Sources of SalesRollupService.rebuild(); revenue uses OrderItem.price, the price at sale
+    @Query("SELECT YEAR(o.orderDate) AS year, MONTH(o.orderDate) AS month, DAY(o.orderDate) AS day, " +
+           "f.id AS id, f.name AS name, COUNT(DISTINCT o.id) AS orders, SUM(i.quantity) AS quantity, " +
+           "SUM(i.price * i.quantity) AS revenue " +
+           "FROM OrderItem i JOIN i.order o JOIN i.fruit f " +
+           "GROUP BY YEAR(o.orderDate), MONTH(o.orderDate), DAY(o.orderDate), f.id, f.name")
+    List<DailyLineSales> findDailyProductSales();
+
+    @Query("SELECT YEAR(o.orderDate) AS year, MONTH(o.orderDate) AS month, DAY(o.orderDate) AS day, " +
+           "c.id AS id, c.name AS name, COUNT(DISTINCT o.id) AS orders, SUM(i.quantity) AS quantity, " +
+           "SUM(i.price * i.quantity) AS revenue " +
+           "FROM OrderItem i JOIN i.order o JOIN i.fruit f JOIN f.category c " +
+           "GROUP BY YEAR(o.orderDate), MONTH(o.orderDate), DAY(o.orderDate), c.id, c.name")
+    List<DailyLineSales> findDailyCategorySales();
+}
@@ -0,0 +1,66 @@
+package com.example.project3;
+
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Handwritten replacement for the reflective ModelMapper mappings in {@link AppConfig}.
+ * Produces the same DTOs field for field; fruits map through {@link FruitDTO#FruitDTO(Fruit)}.
+ */
+@Component
+public class OrderMapper {
+
+    public OrderDTO toDto(Order order) {
+        OrderDTO dto = new OrderDTO();
+        dto.setId(order.getId());
+        dto.setOrderDate(order.getOrderDate());
+        dto.setTotalAmount(order.getTotalAmount());
+        dto.setOriginalAmount(order.getOriginalAmount());
+        dto.setDiscountAmount(order.getDiscountAmount());
+        dto.setCouponCode(order.getCouponCode());
+        // ModelMapper mapped username from the deprecated Order.getUser(), which is always null
+        dto.setUsername(order.getUser() != null ? order.getUser().getUsername() : null);
+        dto.setCustomerEmail(order.getCustomer() != null ? order.getCustomer().getEmail() : null);
+        dto.setFulfilled(order.isFulfilled());
+        dto.setFulfilledDate(order.getFulfilledDate());
+        dto.setOrderNotes(order.getOrderNotes());
+
+        if (order.getOrderItems() != null) {
+            List<OrderItemDTO> items = new ArrayList<>(order.getOrderItems().size());
+            for (OrderItem item : order.getOrderItems()) {
+                items.add(toDto(item));
+            }
+            dto.setOrderItems(items);
+        }
+        return dto;
+    }
+
+    public OrderItemDTO toDto(OrderItem item) {
+        OrderItemDTO dto = new OrderItemDTO();
+        dto.setId(item.getId());
+        dto.setQuantity(item.getQuantity());
+        dto.setPrice(item.getPrice());
+
+        Fruit fruit = item.getFruit();
+        if (fruit != null) {
+            dto.setFruitId(fruit.getId());
+            dto.setFruitName(fruit.getName());
+            dto.setFruitDescription(fruit.getDescription());
+            dto.setFruitImage(fruit.getImageUrl());
+            if (fruit.getCategory() != null) {
+                dto.setCategoryName(fruit.getCategory().getName());
+            }
+        }
+        return dto;
+    }
+
+    public List<OrderDTO> toDtos(List<Order> orders) {
+        List<OrderDTO> dtos = new ArrayList<>(orders.size());
+        for (Order order : orders) {
+            dtos.add(toDto(order));
+        }
+        return dtos;
+    }
+}
@@ -0,0 +1,76 @@
+package com.example.project3;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drains the order outbox in batches. Each event runs in its own transaction so a failing
+ * side effect is retried with backoff without holding up the rest of the batch.
+ */
+@Component
+public class OrderOutboxDispatcher {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderOutboxDispatcher.class);
+
+    @Autowired
+    private OrderOutboxService orderOutboxService;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.outbox.batch-size:50}")
+    private int batchSize;
+
+    private final AtomicLong pendingEvents = new AtomicLong();
+    private final AtomicLong lagSeconds = new AtomicLong();
+
+    @PostConstruct
+    void registerMetrics() {
+        Gauge.builder("orders.outbox.pending", pendingEvents, AtomicLong::get)
+                .description("Order outbox events waiting to be dispatched")
+                .register(meterRegistry);
+        Gauge.builder("orders.outbox.lag", lagSeconds, AtomicLong::get)
+                .description("Age of the oldest pending order outbox event")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+    }
+
+    @Scheduled(fixedDelayString = "${app.outbox.poll-interval-ms:2000}")
+    public void dispatch() {
+        List<Long> eventIds;
+        do {
+            eventIds = orderOutboxService.findDueEventIds(batchSize);
+            for (Long eventId : eventIds) {
+                try {
+                    orderOutboxService.process(eventId);
+                } catch (Exception e) {
+                    orderOutboxService.recordFailure(eventId, e);
+                }
+            }
+            if (!eventIds.isEmpty()) {
+                logger.debug("Dispatched {} order outbox events", eventIds.size());
+            }
+        } while (eventIds.size() == batchSize);
+
+        refreshMetrics();
+    }
+
+    private void refreshMetrics() {
+        pendingEvents.set(orderOutboxService.countPending());
+        lagSeconds.set(orderOutboxService.findOldestPendingCreatedAt()
+                .map(oldest -> Duration.between(oldest, LocalDateTime.now()).toSeconds())
+                .orElse(0L));
+    }
+}
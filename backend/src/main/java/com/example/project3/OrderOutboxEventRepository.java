@@ -0,0 +1,39 @@
+package com.example.project3;
+
+import jakarta.persistence.LockModeType;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface OrderOutboxEventRepository extends JpaRepository<OrderOutboxEvent, Long> {
+
+    @Query("SELECT e.id FROM OrderOutboxEvent e WHERE e.status = 'PENDING' AND e.nextAttemptAt <= :now ORDER BY e.id")
+    List<Long> findDueEventIds(@Param("now") LocalDateTime now, Pageable pageable);
+
+    long countByStatus(OrderOutboxEvent.Status status);
+
+    @Query("SELECT MIN(e.createdAt) FROM OrderOutboxEvent e WHERE e.status = 'PENDING'")
+    Optional<LocalDateTime> findOldestPendingCreatedAt();
+
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT e FROM OrderOutboxEvent e WHERE e.id = :id")
+    Optional<OrderOutboxEvent> findByIdForUpdate(@Param("id") Long id);
+
+    @Query("SELECT e.id FROM OrderOutboxEvent e WHERE e.status = 'PENDING' AND e.eventType IN :types ORDER BY e.id")
+    List<Long> findPendingEventIds(@Param("types") Collection<OrderOutboxEvent.EventType> types);
+
+    @Modifying
+    @Query("UPDATE OrderOutboxEvent e SET e.status = 'SKIPPED', e.processedAt = :now " +
+           "WHERE e.status = 'PENDING' AND e.id IN :ids")
+    int skipPending(@Param("ids") Collection<Long> ids, @Param("now") LocalDateTime now);
+}
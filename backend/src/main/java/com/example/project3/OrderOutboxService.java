@@ -0,0 +1,193 @@
+package com.example.project3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * Transactional outbox for order side effects. Events are written in the same transaction
+ * as the order and drained by {@link OrderOutboxDispatcher} once committed.
+ */
+@Service
+@Transactional
+public class OrderOutboxService {
+
+    private static final Logger logger = LoggerFactory.getLogger(OrderOutboxService.class);
+
+    @Autowired
+    private OrderOutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CustomerProfileService customerProfileService;
+
+    @Autowired
+    private UserRepository userRepository;
+
+    @Autowired
+    private EmailService emailService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Value("${app.outbox.max-attempts:8}")
+    private int maxAttempts;
+
+    @Value("${app.outbox.initial-backoff-ms:10000}")
+    private long initialBackoffMs;
+
+    @Value("${app.outbox.max-backoff-ms:1800000}")
+    private long maxBackoffMs;
+
+    public void enqueue(Order order, OrderOutboxEvent.EventType eventType) {
+        enqueue(order, eventType, null);
+    }
+
+    public void enqueue(Order order, OrderOutboxEvent.EventType eventType, User staff) {
+        OrderOutboxEvent event = new OrderOutboxEvent(order.getId(), eventType);
+        if (staff != null) {
+            event.setStaffUsername(staff.getUsername());
+        }
+        outboxEventRepository.save(event);
+    }
+
+    @Transactional(readOnly = true)
+    public List<Long> findDueEventIds(int limit) {
+        return outboxEventRepository.findDueEventIds(LocalDateTime.now(), PageRequest.of(0, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public long countPending() {
+        return outboxEventRepository.countByStatus(OrderOutboxEvent.Status.PENDING);
+    }
+
+    @Transactional(readOnly = true)
+    public Optional<LocalDateTime> findOldestPendingCreatedAt() {
+        return outboxEventRepository.findOldestPendingCreatedAt();
+    }
+
+    /**
+     * Runs the side effects for one event in its own transaction. Any exception rolls the
+     * work back and leaves the event pending for {@link #recordFailure}.
+     */
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void process(Long eventId) {
+        OrderOutboxEvent event = outboxEventRepository.findByIdForUpdate(eventId).orElse(null);
+        if (event == null || event.getStatus() != OrderOutboxEvent.Status.PENDING) {
+            return;
+        }
+
+        switch (event.getEventType()) {
+            case ORDER_CREATED:
+                handleOrderCreated(event.getOrderId());
+                break;
+            case ORDER_CONFIRMATION_EMAIL:
+                sendOrderConfirmationEmail(findOrder(event.getOrderId()), event.getStaffUsername());
+                break;
+            case ROLLUP_ORDER_CREATED:
+                salesRollupService.applyOrderCreated(event.getOrderId());
+                break;
+            case ROLLUP_ORDER_FULFILLED:
+                salesRollupService.applyFulfilmentChange(event.getOrderId(), true);
+                break;
+            case ROLLUP_ORDER_UNFULFILLED:
+                salesRollupService.applyFulfilmentChange(event.getOrderId(), false);
+                break;
+        }
+
+        event.setAttempts(event.getAttempts() + 1);
+        event.setStatus(OrderOutboxEvent.Status.PROCESSED);
+        event.setProcessedAt(LocalDateTime.now());
+        event.setLastError(null);
+        outboxEventRepository.save(event);
+    }
+
+    @Transactional(propagation = Propagation.REQUIRES_NEW)
+    public void recordFailure(Long eventId, Exception error) {
+        OrderOutboxEvent event = outboxEventRepository.findByIdForUpdate(eventId).orElse(null);
+        if (event == null || event.getStatus() != OrderOutboxEvent.Status.PENDING) {
+            return;
+        }
+
+        int attempts = event.getAttempts() + 1;
+        event.setAttempts(attempts);
+        event.setLastError(error.getClass().getSimpleName() + ": " + error.getMessage());
+
+        if (attempts >= maxAttempts) {
+            event.setStatus(OrderOutboxEvent.Status.FAILED);
+            logger.error("Giving up on outbox event {} for order {} after {} attempts", 
+                    eventId, event.getOrderId(), attempts, error);
+        } else {
+            Duration backoff = calculateBackoff(attempts);
+            event.setNextAttemptAt(LocalDateTime.now().plus(backoff));
+            logger.warn("Outbox event {} for order {} failed (attempt {}), retrying in {}s: {}", 
+                    eventId, event.getOrderId(), attempts, backoff.toSeconds(), error.getMessage());
+        }
+        outboxEventRepository.save(event);
+    }
+
+    Duration calculateBackoff(int attempts) {
+        // Exponential backoff: initial, 2x, 4x, ... capped at the maximum
+        long multiplier = 1L << Math.min(attempts - 1, 20);
+        return Duration.ofMillis(Math.min(initialBackoffMs * multiplier, maxBackoffMs));
+    }
+
+    private void handleOrderCreated(Long orderId) {
+        Order order = findOrder(orderId);
+        Customer customer = order.getCustomer();
+        if (customer == null) {
+            // Orders placed by staff have no customer profile to update
+            return;
+        }
+
+        customerProfileService.applyOrder(order);
+        logger.info("Customer profile updated for customer: {}", customer.getUsername());
+    }
+
+    private Order findOrder(Long orderId) {
+        return orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderService.OrderNotFoundException("Order not found with id: " + orderId));
+    }
+
+    private void sendOrderConfirmationEmail(Order order, String staffUsername) {
+        Customer customer = order.getCustomer();
+        User user = customer == null && staffUsername != null
+                ? userRepository.findByUsername(staffUsername).orElse(null) : null;
+        String email = customer != null ? customer.getEmail() : user != null ? user.getEmail() : null;
+        String username = customer != null ? customer.getUsername() : user != null ? user.getUsername() : null;
+        if (email == null) {
+            logger.warn("No email address found for order confirmation: {}", order.getId());
+            return;
+        }
+        
+        String subject = "Order Confirmation #" + order.getId();
+        String message = String.format(
+            "Dear %s,\n\nThank you for your order!\n\n" +
+            "Order Details:\n" +
+            "Order ID: %d\n" +
+            "Total Amount: $%.2f\n" +
+            "Order Date: %s\n\n" +
+            "We'll send you updates as your order is processed.\n\n" +
+            "Best regards,\nYour Grocery Store Team",
+            username,
+            order.getId(),
+            order.getTotalAmount(),
+            order.getOrderDate()
+        );
+        
+        emailService.sendSimpleMessage(email, subject, message);
+        logger.info("Confirmation email sent for order: {}", order.getId());
+    }
+}
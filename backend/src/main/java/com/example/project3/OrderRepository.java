@@ -1,19 +1,82 @@
 package com.example.project3;
 
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.Collection;
 import java.util.List;
 
 public interface OrderRepository extends JpaRepository<Order, Long> {
     List<Order> findByCustomerId(Long customerId);
+    long countByCustomerId(Long customerId);
+    @EntityGraph(attributePaths = "orderItems.fruit.category")
+    List<Order> findByCustomerIdIn(Collection<Long> customerIds);
+    @EntityGraph(attributePaths = "orderItems.fruit.category")
     List<Order> findByCustomerOrderByOrderDateDesc(Customer customer);
     List<Order> findAllByFulfilledFalse();
+    long countByFulfilledFalse();
     List<Order> findAllByFulfilledTrue();
+    @EntityGraph(attributePaths = "orderItems.fruit.category")
     List<Order> findByCustomerAndFulfilledTrueOrderByOrderDateDesc(Customer customer);
+    @EntityGraph(attributePaths = "orderItems.fruit.category")
     List<Order> findByCustomerAndFulfilledFalseOrderByOrderDateDesc(Customer customer);
     List<Order> findByOrderDateAfter(LocalDateTime date);
     List<Order> findByCouponCode(String couponCode);
+
+    // Keyset page of a customer's orders, newest first; (orderDate, id) of the last row is the cursor
+    @Query("SELECT new com.example.project3.OrderSummaryDTO(o.id, o.orderDate, o.totalAmount, o.originalAmount, " +
+           "o.discountAmount, o.couponCode, o.fulfilled, o.fulfilledDate, " +
+           "(SELECT SUM(i.quantity) FROM OrderItem i WHERE i.order = o)) " +
+           "FROM Order o WHERE o.customer.id = :customerId AND o.fulfilled IN :fulfilled " +
+           "AND (o.orderDate < :beforeDate OR (o.orderDate = :beforeDate AND o.id < :beforeId)) " +
+           "ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummaryDTO> findHistoryPage(@Param("customerId") Long customerId,
+                                          @Param("fulfilled") Collection<Boolean> fulfilled,
+                                          @Param("beforeDate") LocalDateTime beforeDate,
+                                          @Param("beforeId") Long beforeId,
+                                          Pageable pageable);
+
+    // Most recent orders across all customers, for staff dashboards
+    @Query("SELECT new com.example.project3.OrderSummaryDTO(o.id, o.orderDate, o.totalAmount, o.originalAmount, " +
+           "o.discountAmount, o.couponCode, o.fulfilled, o.fulfilledDate, " +
+           "(SELECT SUM(i.quantity) FROM OrderItem i WHERE i.order = o)) " +
+           "FROM Order o ORDER BY o.orderDate DESC, o.id DESC")
+    List<OrderSummaryDTO> findRecentSummaries(Pageable pageable);
+
+    @Query("SELECT new com.example.project3.OrderItemDTO(i.order.id, i.id, i.quantity, i.price, f.id, f.name, " +
+           "f.description, c.name, f.imageUrl) " +
+           "FROM OrderItem i JOIN i.fruit f LEFT JOIN f.category c WHERE i.order.id IN :orderIds ORDER BY i.id")
+    List<OrderItemDTO> findHistoryItems(@Param("orderIds") Collection<Long> orderIds);
     
+    // Aggregate projections for analytics - all reduction happens in the database
+
+    interface OrderTotals {
+        long getOrderCount();
+        BigDecimal getRevenue();
+    }
+
+    interface DailyOrderTotals {
+        int getYear();
+        int getMonth();
+        int getDay();
+        long getOrders();
+        BigDecimal getRevenue();
+        long getFulfilledOrders();
+        BigDecimal getFulfilledRevenue();
+    }
+
+    // Source of SalesRollupService.rebuild(): one row per order day
+    @Query("SELECT YEAR(o.orderDate) AS year, MONTH(o.orderDate) AS month, DAY(o.orderDate) AS day, " +
+           "COUNT(o) AS orders, COALESCE(SUM(o.totalAmount), 0) AS revenue, " +
+           "SUM(CASE WHEN o.fulfilled = true THEN 1 ELSE 0 END) AS fulfilledOrders, " +
+           "COALESCE(SUM(CASE WHEN o.fulfilled = true THEN o.totalAmount ELSE 0 END), 0) AS fulfilledRevenue " +
+           "FROM Order o GROUP BY YEAR(o.orderDate), MONTH(o.orderDate), DAY(o.orderDate)")
+    List<DailyOrderTotals> findDailyTotalsForRollup();
+
     default List<Order> findByUserId(Long userId) {
         return findByCustomerId(userId);
     }
@@ -1,20 +1,24 @@
 package com.example.project3;
 
-import org.modelmapper.ModelMapper;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.cache.annotation.Cacheable;
+import org.springframework.context.ApplicationEventPublisher;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import java.math.BigDecimal;
 import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
-import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 
 @Service
@@ -36,16 +40,19 @@ public class OrderService {
     private CustomerRepository customerRepository;
 
     @Autowired
-    private CustomerProfileService customerProfileService;
+    private CouponService couponService;
 
     @Autowired
-    private CouponService couponService;
+    private OrderOutboxService orderOutboxService;
+
+    @Autowired
+    private OrderMapper orderMapper;
 
     @Autowired
-    private EmailService emailService;
+    private CheckoutMetrics checkoutMetrics;
 
     @Autowired
-    private ModelMapper modelMapper;
+    private ApplicationEventPublisher eventPublisher;
 
     @Cacheable(value = "orders", key = "#username")
     public List<OrderDTO> getUserOrders(String username) {
@@ -62,9 +69,7 @@ public class OrderService {
             orders = orderRepository.findByUserOrderByOrderDateDesc(user);
         }
         
-        return orders.stream()
-                .map(order -> modelMapper.map(order, OrderDTO.class))
-                .collect(Collectors.toList());
+        return orderMapper.toDtos(orders);
     }
 
     @Cacheable(value = "orders", key = "#username + '-fulfilled'")
@@ -82,9 +87,7 @@ public class OrderService {
             orders = orderRepository.findByUserAndFulfilledTrueOrderByOrderDateDesc(user);
         }
         
-        return orders.stream()
-                .map(order -> modelMapper.map(order, OrderDTO.class))
-                .collect(Collectors.toList());
+        return orderMapper.toDtos(orders);
     }
 
     @Cacheable(value = "orders", key = "#username + '-pending'")
@@ -102,9 +105,7 @@ public class OrderService {
             orders = orderRepository.findByUserAndFulfilledFalseOrderByOrderDateDesc(user);
         }
         
-        return orders.stream()
-                .map(order -> modelMapper.map(order, OrderDTO.class))
-                .collect(Collectors.toList());
+        return orderMapper.toDtos(orders);
     }
 
     @Transactional
@@ -113,6 +114,129 @@ public class OrderService {
         
         validateCheckoutRequest(checkoutRequest);
         
+        OrderOwner owner = resolveOwner(username);
+        Order order = newOrder(owner);
+
+        // Process order items
+        OrderProcessingResult result = processOrderItems(checkoutRequest.getCartItems(), order);
+        
+        return finishOrder(order, owner, checkoutRequest.getCouponCode(), result.originalAmount, username);
+    }
+
+    /**
+     * Group-commit path used by {@link CheckoutBatcher}: stock for the whole batch is allocated in
+     * memory, reserved with one conditional update per product and committed in one transaction.
+     * Per-request failures are returned in the matching outcome; if another transaction takes the
+     * stock first, {@link StockContentionException} rolls the batch back so callers can retry.
+     */
+    @Transactional
+    public List<BatchOutcome> createOrders(List<BatchCheckout> batch) {
+        List<BatchOutcome> outcomes = new ArrayList<>(batch.size());
+        Map<String, OrderOwner> owners = new HashMap<>();
+        Set<Long> fruitIds = new HashSet<>();
+
+        for (BatchCheckout checkout : batch) {
+            BatchOutcome outcome = new BatchOutcome();
+            try {
+                validateCheckoutRequest(checkout.request);
+                outcome.owner = owners.computeIfAbsent(checkout.username, this::resolveOwner);
+                checkout.request.getCartItems().forEach(item -> fruitIds.add(item.getFruitId()));
+            } catch (RuntimeException e) {
+                outcome.error = e;
+            }
+            outcomes.add(outcome);
+        }
+
+        Map<Long, Fruit> fruitsById = fruitIds.isEmpty() ? Map.of() :
+                fruitRepository.findAllWithCategoryByIdIn(fruitIds).stream()
+                        .collect(Collectors.toMap(Fruit::getId, Function.identity()));
+
+        // Allocate against the stock snapshot in arrival order; each request is all-or-nothing
+        Map<Long, Integer> reserved = new LinkedHashMap<>();
+        for (int i = 0; i < batch.size(); i++) {
+            BatchOutcome outcome = outcomes.get(i);
+            if (outcome.error != null) {
+                continue;
+            }
+            List<CartItemDTO> cartItems = batch.get(i).request.getCartItems();
+            try {
+                Order order = newOrder(outcome.owner);
+                BigDecimal originalAmount = addOrderItems(cartItems, order, fruitsById);
+                Map<Long, Integer> quantities = mergeQuantities(cartItems);
+                for (Map.Entry<Long, Integer> entry : quantities.entrySet()) {
+                    Fruit fruit = fruitsById.get(entry.getKey());
+                    int available = (fruit.getStock() != null ? fruit.getStock() : 0)
+                            - reserved.getOrDefault(fruit.getId(), 0);
+                    if (entry.getValue() > available) {
+                        throw new InsufficientStockException(
+                            String.format("Insufficient stock for %s. Requested: %d, Available: %d",
+                                fruit.getName(), entry.getValue(), available));
+                    }
+                }
+                quantities.forEach((fruitId, quantity) -> reserved.merge(fruitId, quantity, Integer::sum));
+                outcome.pendingOrder = order;
+                outcome.originalAmount = originalAmount;
+            } catch (RuntimeException e) {
+                outcome.error = e;
+            }
+        }
+
+        if (!reserved.isEmpty()) {
+            Set<Long> shortFruitIds = checkoutMetrics.timeStockReservation(
+                    () -> fruitRepository.decrementStockIfAvailable(reserved));
+            if (!shortFruitIds.isEmpty()) {
+                throw new StockContentionException("Stock changed concurrently for products " + shortFruitIds);
+            }
+        }
+
+        for (int i = 0; i < batch.size(); i++) {
+            BatchOutcome outcome = outcomes.get(i);
+            if (outcome.pendingOrder != null) {
+                BatchCheckout checkout = batch.get(i);
+                outcome.order = finishOrder(outcome.pendingOrder, outcome.owner,
+                        checkout.request.getCouponCode(), outcome.originalAmount, checkout.username);
+            }
+        }
+        logger.info("Committed checkout batch of {} requests for {} products", batch.size(), reserved.size());
+        return outcomes;
+    }
+
+    @Transactional
+    public void fulfillOrder(Long orderId) {
+        fulfillOrder(orderId, null);
+    }
+
+    @Transactional
+    public void fulfillOrder(Long orderId, String notes) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with id: " + orderId));
+        
+        order.setFulfilled(true);
+        order.setFulfilledDate(LocalDateTime.now());
+        if (notes != null && !notes.trim().isEmpty()) {
+            order.setOrderNotes(notes);
+        }
+        orderRepository.save(order);
+        orderOutboxService.enqueue(order, OrderOutboxEvent.EventType.ROLLUP_ORDER_FULFILLED);
+        publishOrderEvent(OrderDomainEvent.Type.FULFILLED, order, null, 0);
+        // Fulfilment changes none of the customer profile aggregates, so the profile is left alone
+    }
+
+    @Transactional
+    public void unfulfillOrder(Long orderId) {
+        Order order = orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderNotFoundException("Order not found with id: " + orderId));
+
+        order.setFulfilled(false);
+        order.setFulfilledDate(null);
+        orderRepository.save(order);
+        orderOutboxService.enqueue(order, OrderOutboxEvent.EventType.ROLLUP_ORDER_UNFULFILLED);
+        publishOrderEvent(OrderDomainEvent.Type.UNFULFILLED, order, null, 0);
+    }
+
+    // Private helper methods
+
+    private OrderOwner resolveOwner(String username) {
         // Find user (handle both customers and staff)
         Customer customer = customerRepository.findByUsername(username)
                 .orElse(customerRepository.findByEmail(username).orElse(null));
@@ -126,56 +250,79 @@ public class OrderService {
         if (customer == null && user == null) {
             throw new UsernameNotFoundException("User not found with username: " + username);
         }
+        return new OrderOwner(customer, user);
+    }
 
+    private Order newOrder(OrderOwner owner) {
         Order order = new Order();
-        if (customer != null) {
-            order.setCustomer(customer);
+        if (owner.customer != null) {
+            order.setCustomer(owner.customer);
         } else {
-            order.setUser(user);
+            order.setUser(owner.user);
         }
         order.setOrderDate(LocalDateTime.now());
+        return order;
+    }
 
-        // Process order items
-        OrderProcessingResult result = processOrderItems(checkoutRequest.getCartItems(), order);
-        
+    private OrderDTO finishOrder(Order order, OrderOwner owner, String couponCode, BigDecimal originalAmount,
+                                 String username) {
         // Apply coupon if provided
-        BigDecimal finalAmount = applyCoupon(checkoutRequest.getCouponCode(), customer, user, result.originalAmount, order);
+        BigDecimal finalAmount = applyCoupon(couponCode, owner.customer, owner.user, originalAmount, order);
         
         order.setTotalAmount(finalAmount);
+        // Counted inside the checkout transaction, so orders earlier in the same batch are included
+        long customerOrdersBefore = owner.customer != null
+                ? orderRepository.countByCustomerId(owner.customer.getId()) : 0;
 
         // Save order
         Order savedOrder = orderRepository.save(order);
+        checkoutMetrics.recordOrderValue(finalAmount);
         logger.info("Order created successfully with ID: {} for user: {}", savedOrder.getId(), username);
 
-        // Post-processing (async operations) - run after transaction commits
-        final Customer finalCustomer = customer;
-        final User finalUser = user;
-        CompletableFuture.runAsync(() -> handlePostOrderProcessing(savedOrder, finalCustomer, finalUser));
+        // Profile update and confirmation email are dispatched from the outbox once this commits
+        orderOutboxService.enqueue(savedOrder, OrderOutboxEvent.EventType.ORDER_CREATED);
+        orderOutboxService.enqueue(savedOrder, OrderOutboxEvent.EventType.ORDER_CONFIRMATION_EMAIL, owner.user);
+        orderOutboxService.enqueue(savedOrder, OrderOutboxEvent.EventType.ROLLUP_ORDER_CREATED);
+        publishOrderEvent(OrderDomainEvent.Type.CREATED, savedOrder, owner.user, customerOrdersBefore);
 
-        return modelMapper.map(savedOrder, OrderDTO.class);
+        return orderMapper.toDto(savedOrder);
     }
 
-    @Transactional
-    public void fulfillOrder(Long orderId) {
-        Order order = orderRepository.findById(orderId)
-                .orElseThrow(() -> new OrderNotFoundException("Order not found with id: " + orderId));
-        
-        order.setFulfilled(true);
-        order.setFulfilledDate(LocalDateTime.now());
-        orderRepository.save(order);
-        
-        // Update customer profile
-        try {
-            if (order.getUser() != null) {
-                customerProfileService.updateProfileFromOrders(order.getUser().getId());
+    /** {@code staff} is the user who placed the order when it has no customer; orders do not store it. */
+    private void publishOrderEvent(OrderDomainEvent.Type type, Order order, User staff, long customerOrdersBefore) {
+        Customer customer = order.getCustomer();
+        Set<String> logins = new HashSet<>();
+        if (customer != null) {
+            if (customer.getUsername() != null) {
+                logins.add(customer.getUsername());
+            }
+            if (customer.getEmail() != null) {
+                logins.add(customer.getEmail());
             }
-            logger.info("Customer profile updated after order fulfillment for order: {}", orderId);
-        } catch (Exception e) {
-            logger.error("Failed to update customer profile after fulfillment for order: {}", orderId, e);
         }
-    }
+        if (staff != null) {
+            logins.add(staff.getUsername());
+        }
 
-    // Private helper methods
+        // Only a new order changes stock; fulfilment does not touch product data
+        Set<Long> fruitIds = new HashSet<>();
+        Set<Long> categoryIds = new HashSet<>();
+        List<OrderDomainEvent.Line> lines = new ArrayList<>();
+        if (type == OrderDomainEvent.Type.CREATED) {
+            for (OrderItem item : order.getOrderItems()) {
+                fruitIds.add(item.getFruit().getId());
+                if (item.getFruit().getCategory() != null) {
+                    categoryIds.add(item.getFruit().getCategory().getId());
+                }
+                lines.add(new OrderDomainEvent.Line(item.getFruit().getId(), item.getQuantity(),
+                        item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()))));
+            }
+        }
+
+        eventPublisher.publishEvent(new OrderDomainEvent(type, order.getId(),
+                customer != null ? customer.getId() : null, logins, fruitIds, categoryIds,
+                order.getOrderDate(), lines, customerOrdersBefore));
+    }
 
     private User findUserByUsername(String username) {
         return userRepository.findByUsername(username)
@@ -188,6 +335,9 @@ public class OrderService {
         }
         
         for (CartItemDTO item : request.getCartItems()) {
+            if (item.getFruitId() == null) {
+                throw new InvalidOrderException("Item product id is required");
+            }
             if (item.getQuantity() <= 0) {
                 throw new InvalidOrderException("Item quantity must be positive");
             }
@@ -195,22 +345,50 @@ public class OrderService {
     }
 
     private OrderProcessingResult processOrderItems(List<CartItemDTO> cartItems, Order order) {
+        logger.info("Processing {} items in cart", cartItems.size());
+
+        // Total quantity per product, so repeated cart lines reserve stock in one statement
+        Map<Long, Integer> quantitiesByFruitId = mergeQuantities(cartItems);
+
+        // Load every cart product (with its category) in a single query
+        Map<Long, Fruit> fruitsById = fruitRepository.findAllWithCategoryByIdIn(quantitiesByFruitId.keySet()).stream()
+                .collect(Collectors.toMap(Fruit::getId, Function.identity()));
+
+        BigDecimal originalAmount = addOrderItems(cartItems, order, fruitsById);
+
+        // Reserve stock for all products in one JDBC batch - the loaded entities are never
+        // written back, so their stock is only a snapshot used for the error message
+        Set<Long> shortFruitIds = checkoutMetrics.timeStockReservation(
+                () -> fruitRepository.decrementStockIfAvailable(quantitiesByFruitId));
+        if (!shortFruitIds.isEmpty()) {
+            Fruit fruit = fruitsById.get(shortFruitIds.iterator().next());
+            throw new InsufficientStockException(
+                String.format("Insufficient stock for %s. Requested: %d, Available: %d", 
+                    fruit.getName(), quantitiesByFruitId.get(fruit.getId()), fruit.getStock()));
+        }
+        logger.info("Stock reserved for {} products", quantitiesByFruitId.size());
+
+        return new OrderProcessingResult(order.getOrderItems(), originalAmount);
+    }
+
+    private Map<Long, Integer> mergeQuantities(List<CartItemDTO> cartItems) {
+        Map<Long, Integer> quantitiesByFruitId = new LinkedHashMap<>();
+        for (CartItemDTO itemDTO : cartItems) {
+            quantitiesByFruitId.merge(itemDTO.getFruitId(), itemDTO.getQuantity(), Integer::sum);
+        }
+        return quantitiesByFruitId;
+    }
+
+    private BigDecimal addOrderItems(List<CartItemDTO> cartItems, Order order, Map<Long, Fruit> fruitsById) {
         Set<OrderItem> orderItems = new HashSet<>();
         BigDecimal originalAmount = BigDecimal.ZERO;
 
-        logger.info("Processing {} items in cart", cartItems.size());
-        
         for (CartItemDTO itemDTO : cartItems) {
-            logger.info("Processing item: fruitId={}, quantity={}", itemDTO.getFruitId(), itemDTO.getQuantity());
+            logger.debug("Processing item: fruitId={}, quantity={}", itemDTO.getFruitId(), itemDTO.getQuantity());
             
-            Fruit fruit = fruitRepository.findById(itemDTO.getFruitId())
-                    .orElseThrow(() -> new ProductNotFoundException("Fruit not found with id: " + itemDTO.getFruitId()));
-
-            // Validate stock
-            if (fruit.getStock() < itemDTO.getQuantity()) {
-                throw new InsufficientStockException(
-                    String.format("Insufficient stock for %s. Requested: %d, Available: %d", 
-                        fruit.getName(), itemDTO.getQuantity(), fruit.getStock()));
+            Fruit fruit = fruitsById.get(itemDTO.getFruitId());
+            if (fruit == null) {
+                throw new ProductNotFoundException("Fruit not found with id: " + itemDTO.getFruitId());
             }
 
             // Validate price
@@ -218,11 +396,6 @@ public class OrderService {
                 throw new InvalidPriceException("Product " + fruit.getName() + " has invalid price");
             }
 
-            // Update stock
-            fruit.setStock(fruit.getStock() - itemDTO.getQuantity());
-            fruitRepository.save(fruit);
-            logger.info("Stock updated for {}. New stock: {}", fruit.getName(), fruit.getStock());
-
             // Create order item
             OrderItem orderItem = new OrderItem();
             orderItem.setOrder(order);
@@ -233,13 +406,11 @@ public class OrderService {
 
             BigDecimal itemTotal = fruit.getPrice().multiply(BigDecimal.valueOf(itemDTO.getQuantity()));
             originalAmount = originalAmount.add(itemTotal);
-            logger.info("Item {} processed. Item total: {}", fruit.getName(), itemTotal);
         }
 
         order.setOrderItems(orderItems);
         order.setOriginalAmount(originalAmount);
-        
-        return new OrderProcessingResult(orderItems, originalAmount);
+        return originalAmount;
     }
 
     private BigDecimal applyCoupon(String couponCode, Customer customer, User user, BigDecimal originalAmount, Order order) {
@@ -256,8 +427,8 @@ public class OrderService {
                 return originalAmount;
             }
 
-            CouponService.CouponValidationResult validation = 
-                couponService.validateCouponDetailed(couponCode, orderCustomer, originalAmount);
+            CouponService.CouponValidationResult validation = checkoutMetrics.timeCouponValidation(
+                () -> couponService.validateCouponDetailed(couponCode, orderCustomer, originalAmount));
             
             if (validation.isValid()) {
                 BigDecimal discountAmount = validation.getDiscountAmount();
@@ -280,74 +451,60 @@ public class OrderService {
         }
     }
 
-    private void handlePostOrderProcessing(Order order, Customer customer, User user) {
-        // Update customer profile (non-blocking)
-        try {
-            if (customer != null) {
-                customerProfileService.updateProfileFromOrders(customer.getId());
-                logger.info("Customer profile updated for customer: {}", customer.getUsername());
-            } else if (user != null) {
-                customerProfileService.updateProfileFromOrders(user.getId());
-                logger.info("Customer profile updated for user: {}", user.getUsername());
-            }
-        } catch (Exception e) {
-            String username = customer != null ? customer.getUsername() : (user != null ? user.getUsername() : "unknown");
-            logger.error("Failed to update customer profile for user: {}", username, e);
-        }
+    // Inner classes for better organization
+    private static class OrderProcessingResult {
+        final Set<OrderItem> orderItems;
+        final BigDecimal originalAmount;
 
-        // Send confirmation email (non-blocking)
-        try {
-            sendOrderConfirmationEmail(order, customer, user);
-        } catch (Exception e) {
-            logger.error("Failed to send confirmation email for order: {}", order.getId(), e);
+        OrderProcessingResult(Set<OrderItem> orderItems, BigDecimal originalAmount) {
+            this.orderItems = orderItems;
+            this.originalAmount = originalAmount;
         }
     }
 
-    private void sendOrderConfirmationEmail(Order order, Customer customer, User user) {
-        String username = customer != null ? customer.getUsername() : (user != null ? user.getUsername() : "Customer");
-        String email = customer != null ? customer.getEmail() : (user != null ? user.getEmail() : null);
-        
-        if (email == null) {
-            logger.warn("No email address found for order confirmation: {}", order.getId());
-            return;
+    private static class OrderOwner {
+        final Customer customer;
+        final User user;
+
+        OrderOwner(Customer customer, User user) {
+            this.customer = customer;
+            this.user = user;
         }
-        
-        String subject = "Order Confirmation #" + order.getId();
-        String message = String.format(
-            "Dear %s,\n\nThank you for your order!\n\n" +
-            "Order Details:\n" +
-            "Order ID: %d\n" +
-            "Total Amount: $%.2f\n" +
-            "Order Date: %s\n\n" +
-            "We'll send you updates as your order is processed.\n\n" +
-            "Best regards,\nYour Grocery Store Team",
-            username,
-            order.getId(),
-            order.getTotalAmount(),
-            order.getOrderDate()
-        );
-        
-        try {
-            emailService.sendSimpleMessage(email, subject, message);
-            logger.info("Confirmation email sent for order: {}", order.getId());
-        } catch (Exception emailError) {
-            logger.warn("Failed to send confirmation email for order {}: {}", order.getId(), emailError.getMessage());
-            // Don't fail the entire order process if email fails
+    }
+
+    public static class BatchCheckout {
+        final CheckoutRequest request;
+        final String username;
+
+        public BatchCheckout(CheckoutRequest request, String username) {
+            this.request = request;
+            this.username = username;
         }
     }
 
-    // Inner classes for better organization
-    private static class OrderProcessingResult {
-        final Set<OrderItem> orderItems;
-        final BigDecimal originalAmount;
+    public static class BatchOutcome {
+        private OrderOwner owner;
+        private Order pendingOrder;
+        private BigDecimal originalAmount;
+        private OrderDTO order;
+        private RuntimeException error;
 
-        OrderProcessingResult(Set<OrderItem> orderItems, BigDecimal originalAmount) {
-            this.orderItems = orderItems;
-            this.originalAmount = originalAmount;
+        public OrderDTO getOrder() {
+            return order;
+        }
+
+        public RuntimeException getError() {
+            return error;
         }
     }
 
     // Custom exceptions for better error handling
+    public static class StockContentionException extends RuntimeException {
+        public StockContentionException(String message) {
+            super(message);
+        }
+    }
+
     public static class OrderNotFoundException extends RuntimeException {
         public OrderNotFoundException(String message) {
             super(message);
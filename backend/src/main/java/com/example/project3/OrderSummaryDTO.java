@@ -0,0 +1,85 @@
+package com.example.project3;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Order history row built directly by a JPQL constructor expression.
+ * Line items are only attached when the full view is requested.
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public class OrderSummaryDTO {
+
+    private Long id;
+    private LocalDateTime orderDate;
+    private BigDecimal totalAmount;
+    private BigDecimal originalAmount;
+    private BigDecimal discountAmount;
+    private String couponCode;
+    private boolean fulfilled;
+    private LocalDateTime fulfilledDate;
+    private long totalItems;
+    private List<OrderItemDTO> orderItems;
+
+    public OrderSummaryDTO(Long id, LocalDateTime orderDate, BigDecimal totalAmount, BigDecimal originalAmount,
+                           BigDecimal discountAmount, String couponCode, boolean fulfilled,
+                           LocalDateTime fulfilledDate, Long totalItems) {
+        this.id = id;
+        this.orderDate = orderDate;
+        this.totalAmount = totalAmount;
+        this.originalAmount = originalAmount;
+        this.discountAmount = discountAmount;
+        this.couponCode = couponCode;
+        this.fulfilled = fulfilled;
+        this.fulfilledDate = fulfilledDate;
+        this.totalItems = totalItems != null ? totalItems : 0;
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public LocalDateTime getOrderDate() {
+        return orderDate;
+    }
+
+    public BigDecimal getTotalAmount() {
+        return totalAmount;
+    }
+
+    public BigDecimal getOriginalAmount() {
+        return originalAmount;
+    }
+
+    public BigDecimal getDiscountAmount() {
+        return discountAmount;
+    }
+
+    public String getCouponCode() {
+        return couponCode;
+    }
+
+    public boolean isFulfilled() {
+        return fulfilled;
+    }
+
+    public LocalDateTime getFulfilledDate() {
+        return fulfilledDate;
+    }
+
+    public long getTotalItems() {
+        return totalItems;
+    }
+
+    public List<OrderItemDTO> getOrderItems() {
+        return orderItems;
+    }
+
+    public void setOrderItems(List<OrderItemDTO> orderItems) {
+        this.orderItems = orderItems;
+    }
+}
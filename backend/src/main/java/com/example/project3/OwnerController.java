@@ -11,6 +11,7 @@ import org.springframework.web.servlet.mvc.support.RedirectAttributes;
 import java.time.LocalDateTime;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 
 @Controller
@@ -33,27 +34,19 @@ public class OwnerController {
     private OrderRepository orderRepository;
 
     @Autowired
-    private FruitRepository fruitRepository;
+    private CustomerProfileRepository customerProfileRepository;
 
     @Autowired
-    private CustomerProfileRepository customerProfileRepository;
+    private DashboardSnapshotService dashboardSnapshotService;
 
     @GetMapping("/dashboard")
     @PreAuthorize("hasRole('OWNER')")
     public String ownerDashboard(Model model) {
-        // Owner dashboard with system-wide metrics
-        model.addAttribute("totalStaff", staffRepository.count());
-        model.addAttribute("totalCustomers", customerRepository.count());
-        model.addAttribute("totalOrders", orderRepository.count());
-        model.addAttribute("totalProducts", fruitRepository.count());
-        
-        model.addAttribute("activeStaff", staffRepository.findByIsActiveTrue().size());
-        model.addAttribute("activeCustomers", customerRepository.findByIsActiveTrue().size());
-        model.addAttribute("recentOrders", orderRepository.findAll().stream()
-                .sorted((o1, o2) -> o2.getOrderDate().compareTo(o1.getOrderDate()))
-                .limit(5)
-                .toList());
-        
+        // Owner dashboard with system-wide metrics, from the shared snapshot
+        SnapshotCache.Snapshot<Map<String, Object>> snapshot = dashboardSnapshotService.getOwnerDashboard();
+        model.addAllAttributes(snapshot.getValue());
+        model.addAttribute("snapshotAgeSeconds", snapshot.getAgeSeconds());
+
         return "owner/dashboard";
     }
 
@@ -0,0 +1,79 @@
+package com.example.project3;
+
+import jakarta.persistence.*;
+import java.time.LocalDate;
+
+/**
+ * Encoded {@link HyperLogLog} of the customers who ordered on one day: all buyers, or the
+ * buyers of one product. Maintained by {@link CustomerReachService}.
+ */
+@Entity
+@Table(name = "reach_sketches", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_reach_sketch_key", columnNames = {"scope", "bucket_day", "dimension_id"})
+})
+public class ReachSketch {
+
+    // dimension_id used for BUYERS rows, so the unique key never contains NULL
+    public static final long ALL_ID = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Scope scope;
+
+    @Column(name = "bucket_day", nullable = false)
+    private LocalDate bucketDay;
+
+    @Column(name = "dimension_id", nullable = false)
+    private Long dimensionId;
+
+    @Column(nullable = false, length = HyperLogLog.MAX_ENCODED_BYTES)
+    private byte[] registers;
+
+    public enum Scope {
+        BUYERS,
+        PRODUCT
+    }
+
+    public ReachSketch() {
+    }
+
+    public ReachSketch(Scope scope, LocalDate bucketDay, Long dimensionId, HyperLogLog sketch) {
+        this.scope = scope;
+        this.bucketDay = bucketDay;
+        this.dimensionId = dimensionId;
+        this.registers = sketch.toBytes();
+    }
+
+    public HyperLogLog toSketch() {
+        return HyperLogLog.fromBytes(registers);
+    }
+
+    public void setSketch(HyperLogLog sketch) {
+        this.registers = sketch.toBytes();
+    }
+
+    // Getters
+    public Long getId() {
+        return id;
+    }
+
+    public Scope getScope() {
+        return scope;
+    }
+
+    public LocalDate getBucketDay() {
+        return bucketDay;
+    }
+
+    public Long getDimensionId() {
+        return dimensionId;
+    }
+
+    public byte[] getRegisters() {
+        return registers;
+    }
+}
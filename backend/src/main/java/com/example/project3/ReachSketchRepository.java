@@ -0,0 +1,14 @@
+package com.example.project3;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+
+public interface ReachSketchRepository extends JpaRepository<ReachSketch, Long> {
+
+    Optional<ReachSketch> findByScopeAndBucketDayAndDimensionId(ReachSketch.Scope scope, LocalDate bucketDay, Long dimensionId);
+
+    List<ReachSketch> findByScopeAndBucketDayBetween(ReachSketch.Scope scope, LocalDate from, LocalDate to);
+}
@@ -0,0 +1,456 @@
+package com.example.project3;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Append-only columnar store of order-line facts for ad-hoc analytics slicing. Each line is
+ * one slot across primitive columns (epoch day, product, category, zone, quantity, revenue in
+ * cents), and queries are single passes over those arrays into dense per-group accumulators.
+ * Ids of 0 mean "none" (uncategorised product, order without a delivery zone). Large scans
+ * are split across the given pool; without one every scan runs on the calling thread.
+ */
+public class SalesCube {
+
+    public static final int ANY = -1;
+
+    // Dense accumulators hold three longs per group; beyond this the query is too fine-grained
+    static final int MAX_GROUPS = 1 << 20;
+
+    private static final int MIN_PARALLEL_LINES = 1 << 20;
+    private static final int MAX_PARALLEL_GROUPS = 1 << 16;
+
+    public enum Dimension {
+        DAY, WEEK, MONTH, PRODUCT, CATEGORY, ZONE;
+
+        boolean isTime() {
+            return this == DAY || this == WEEK || this == MONTH;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ForkJoinPool scanPool;
+
+    private int[] day;
+    private int[] product;
+    private int[] category;
+    private int[] zone;
+    private int[] quantity;
+    private long[] revenueCents;
+    private int size;
+
+    private int minDay = Integer.MAX_VALUE;
+    private int maxDay = Integer.MIN_VALUE;
+    private int maxProduct;
+    private int maxCategory;
+    private int maxZone;
+
+    public SalesCube() {
+        this(1 << 16);
+    }
+
+    public SalesCube(int initialCapacity) {
+        this(initialCapacity, null);
+    }
+
+    public SalesCube(int initialCapacity, ForkJoinPool scanPool) {
+        this.scanPool = scanPool;
+        int capacity = Math.max(16, initialCapacity);
+        day = new int[capacity];
+        product = new int[capacity];
+        category = new int[capacity];
+        zone = new int[capacity];
+        quantity = new int[capacity];
+        revenueCents = new long[capacity];
+    }
+
+    public void append(int epochDay, int productId, int categoryId, int zoneId, int qty, long cents) {
+        lock.writeLock().lock();
+        try {
+            appendLocked(epochDay, productId, categoryId, zoneId, qty, cents);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /** Appends a batch of lines under one lock acquisition; all arrays must have equal length. */
+    public void appendAll(int[] epochDays, int[] productIds, int[] categoryIds, int[] zoneIds,
+                          int[] quantities, long[] cents) {
+        lock.writeLock().lock();
+        try {
+            for (int i = 0; i < epochDays.length; i++) {
+                appendLocked(epochDays[i], productIds[i], categoryIds[i], zoneIds[i], quantities[i], cents[i]);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    public int size() {
+        lock.readLock().lock();
+        try {
+            return size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    public Result query(Query query) {
+        lock.readLock().lock();
+        try {
+            return queryLocked(query);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void appendLocked(int epochDay, int productId, int categoryId, int zoneId, int qty, long cents) {
+        if (productId < 0 || categoryId < 0 || zoneId < 0) {
+            throw new IllegalArgumentException("Ids must not be negative");
+        }
+        if (size == day.length) {
+            grow();
+        }
+        day[size] = epochDay;
+        product[size] = productId;
+        category[size] = categoryId;
+        zone[size] = zoneId;
+        quantity[size] = qty;
+        revenueCents[size] = cents;
+        size++;
+
+        minDay = Math.min(minDay, epochDay);
+        maxDay = Math.max(maxDay, epochDay);
+        maxProduct = Math.max(maxProduct, productId);
+        maxCategory = Math.max(maxCategory, categoryId);
+        maxZone = Math.max(maxZone, zoneId);
+    }
+
+    private void grow() {
+        int capacity = day.length * 2;
+        day = Arrays.copyOf(day, capacity);
+        product = Arrays.copyOf(product, capacity);
+        category = Arrays.copyOf(category, capacity);
+        zone = Arrays.copyOf(zone, capacity);
+        quantity = Arrays.copyOf(quantity, capacity);
+        revenueCents = Arrays.copyOf(revenueCents, capacity);
+    }
+
+    private Result queryLocked(Query query) {
+        List<Dimension> dimensions = query.getGroupBy();
+        if (size == 0) {
+            return new Result(dimensions, List.of());
+        }
+
+        int from = Math.max(query.fromDay, minDay);
+        int to = Math.min(query.toDay, maxDay);
+        if (from > to) {
+            return new Result(dimensions, List.of());
+        }
+
+        // Each dimension maps a column value to a dense bucket through a lookup table,
+        // so the scan below is the same branch-light loop whatever the grouping
+        Grouping outer = dimensions.size() > 0 ? grouping(dimensions.get(0), from, to) : Grouping.single(from, to);
+        Grouping inner = dimensions.size() > 1 ? grouping(dimensions.get(1), from, to) : Grouping.single(from, to);
+        long groups = (long) outer.buckets() * inner.buckets();
+        if (groups > MAX_GROUPS) {
+            throw new IllegalArgumentException("Query would produce too many groups: " + groups);
+        }
+
+        Accumulators totals;
+        if (scanPool != null && size >= MIN_PARALLEL_LINES && groups <= MAX_PARALLEL_GROUPS) {
+            int chunks = Math.max(1, Math.min(scanPool.getParallelism(), size / (MIN_PARALLEL_LINES / 4)));
+            int chunkSize = (size + chunks - 1) / chunks;
+            List<ForkJoinTask<Accumulators>> scans = new ArrayList<>(chunks);
+            for (int c = 0; c < chunks; c++) {
+                int start = c * chunkSize;
+                int end = Math.min(size, start + chunkSize);
+                scans.add(scanPool.submit(() -> scan(query, outer, inner, from, to, (int) groups, start, end)));
+            }
+            totals = scans.stream().map(ForkJoinTask::join).reduce(Accumulators::merge).orElseThrow();
+        } else {
+            totals = scan(query, outer, inner, from, to, (int) groups, 0, size);
+        }
+
+        List<Row> rows = new ArrayList<>();
+        int innerBuckets = inner.buckets();
+        for (int g = 0; g < groups; g++) {
+            if (totals.lines(g) == 0) {
+                continue;
+            }
+            int[] keys = dimensions.size() == 0 ? new int[0]
+                    : dimensions.size() == 1 ? new int[]{outer.keys[g / innerBuckets]}
+                    : new int[]{outer.keys[g / innerBuckets], inner.keys[g % innerBuckets]};
+            rows.add(new Row(keys, totals.quantity(g), totals.revenueCents(g), totals.lines(g)));
+        }
+        return new Result(dimensions, rows);
+    }
+
+    private Accumulators scan(Query query, Grouping outer, Grouping inner, int from, int to, int groups,
+                              int start, int end) {
+        Accumulators acc = new Accumulators(groups);
+        int[] outerSource = column(outer.source);
+        int[] innerSource = column(inner.source);
+        int[] outerLookup = outer.lookup;
+        int[] innerLookup = inner.lookup;
+        int outerBase = outer.base;
+        int innerBase = inner.base;
+        int innerBuckets = inner.buckets();
+        int productFilter = query.productId;
+        int categoryFilter = query.categoryId;
+        int zoneFilter = query.zoneId;
+
+        int[] days = day;
+        int[] products = product;
+        int[] categories = category;
+        int[] zones = zone;
+        int[] quantities = quantity;
+        long[] cents = revenueCents;
+        long[] sums = acc.sums;
+
+        if (groups == 1) {
+            // Totals only: keep the sums in registers instead of storing to the accumulators per line
+            long quantitySum = 0;
+            long revenueSum = 0;
+            long lineCount = 0;
+            for (int i = start; i < end; i++) {
+                int d = days[i];
+                if (d < from || d > to
+                        || (productFilter != ANY && products[i] != productFilter)
+                        || (categoryFilter != ANY && categories[i] != categoryFilter)
+                        || (zoneFilter != ANY && zones[i] != zoneFilter)) {
+                    continue;
+                }
+                quantitySum += quantities[i];
+                revenueSum += cents[i];
+                lineCount++;
+            }
+            sums[0] = quantitySum;
+            sums[1] = revenueSum;
+            sums[2] = lineCount;
+            return acc;
+        }
+
+        for (int i = start; i < end; i++) {
+            int d = days[i];
+            if (d < from || d > to
+                    || (productFilter != ANY && products[i] != productFilter)
+                    || (categoryFilter != ANY && categories[i] != categoryFilter)
+                    || (zoneFilter != ANY && zones[i] != zoneFilter)) {
+                continue;
+            }
+            int slot = 3 * (outerLookup[outerSource[i] - outerBase] * innerBuckets + innerLookup[innerSource[i] - innerBase]);
+            sums[slot] += quantities[i];
+            sums[slot + 1] += cents[i];
+            sums[slot + 2]++;
+        }
+        return acc;
+    }
+
+    private int[] column(Dimension source) {
+        switch (source) {
+            case PRODUCT: return product;
+            case CATEGORY: return category;
+            case ZONE: return zone;
+            default: return day;
+        }
+    }
+
+    private Grouping grouping(Dimension dimension, int from, int to) {
+        switch (dimension) {
+            case PRODUCT: return Grouping.identity(dimension, maxProduct);
+            case CATEGORY: return Grouping.identity(dimension, maxCategory);
+            case ZONE: return Grouping.identity(dimension, maxZone);
+            default: return Grouping.period(dimension, from, to);
+        }
+    }
+
+    /** Maps column values (offset by base) to dense buckets, and buckets back to output keys. */
+    private static final class Grouping {
+        final Dimension source;
+        final int base;
+        final int[] lookup;
+        final int[] keys;
+
+        private Grouping(Dimension source, int base, int[] lookup, int[] keys) {
+            this.source = source;
+            this.base = base;
+            this.lookup = lookup;
+            this.keys = keys;
+        }
+
+        int buckets() {
+            return keys.length;
+        }
+
+        static Grouping single(int from, int to) {
+            return new Grouping(Dimension.DAY, from, new int[to - from + 1], new int[]{0});
+        }
+
+        static Grouping identity(Dimension dimension, int maxId) {
+            int[] ids = new int[maxId + 1];
+            for (int i = 0; i <= maxId; i++) {
+                ids[i] = i;
+            }
+            return new Grouping(dimension, 0, ids, ids);
+        }
+
+        // Keys of time buckets are the epoch day each period starts on (weeks start on Monday)
+        static Grouping period(Dimension dimension, int from, int to) {
+            int[] lookup = new int[to - from + 1];
+            int[] keys = new int[lookup.length];
+            int buckets = 0;
+            int currentKey = Integer.MIN_VALUE;
+            for (int d = from; d <= to; d++) {
+                int key = periodStart(dimension, d);
+                if (key != currentKey) {
+                    currentKey = key;
+                    keys[buckets++] = key;
+                }
+                lookup[d - from] = buckets - 1;
+            }
+            return new Grouping(Dimension.DAY, from, lookup, Arrays.copyOf(keys, buckets));
+        }
+
+        private static int periodStart(Dimension dimension, int epochDay) {
+            switch (dimension) {
+                case WEEK:
+                    return (int) LocalDate.ofEpochDay(epochDay)
+                            .with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toEpochDay();
+                case MONTH:
+                    return (int) LocalDate.ofEpochDay(epochDay).withDayOfMonth(1).toEpochDay();
+                default:
+                    return epochDay;
+            }
+        }
+    }
+
+    // Quantity, revenue and line count interleaved per group, so each line touches one cache line
+    private static final class Accumulators {
+        final long[] sums;
+
+        Accumulators(int groups) {
+            sums = new long[groups * 3];
+        }
+
+        long quantity(int group) {
+            return sums[3 * group];
+        }
+
+        long revenueCents(int group) {
+            return sums[3 * group + 1];
+        }
+
+        long lines(int group) {
+            return sums[3 * group + 2];
+        }
+
+        Accumulators merge(Accumulators other) {
+            for (int i = 0; i < sums.length; i++) {
+                sums[i] += other.sums[i];
+            }
+            return this;
+        }
+    }
+
+    public static class Query {
+        private final List<Dimension> groupBy;
+        private int fromDay = Integer.MIN_VALUE;
+        private int toDay = Integer.MAX_VALUE;
+        private int productId = ANY;
+        private int categoryId = ANY;
+        private int zoneId = ANY;
+
+        public Query(List<Dimension> groupBy) {
+            if (groupBy.size() > 2) {
+                throw new IllegalArgumentException("At most two group-by dimensions are supported");
+            }
+            this.groupBy = List.copyOf(groupBy);
+        }
+
+        public Query between(LocalDate from, LocalDate to) {
+            if (from != null) {
+                fromDay = (int) from.toEpochDay();
+            }
+            if (to != null) {
+                toDay = (int) to.toEpochDay();
+            }
+            return this;
+        }
+
+        public Query product(int productId) {
+            this.productId = productId;
+            return this;
+        }
+
+        public Query category(int categoryId) {
+            this.categoryId = categoryId;
+            return this;
+        }
+
+        public Query zone(int zoneId) {
+            this.zoneId = zoneId;
+            return this;
+        }
+
+        public List<Dimension> getGroupBy() {
+            return groupBy;
+        }
+    }
+
+    public static class Row {
+        private final int[] keys;
+        private final long quantity;
+        private final long revenueCents;
+        private final long lines;
+
+        Row(int[] keys, long quantity, long revenueCents, long lines) {
+            this.keys = keys;
+            this.quantity = quantity;
+            this.revenueCents = revenueCents;
+            this.lines = lines;
+        }
+
+        /** One key per group-by dimension: an id, or the epoch day a time bucket starts on. */
+        public int[] getKeys() {
+            return keys;
+        }
+
+        public long getQuantity() {
+            return quantity;
+        }
+
+        public long getRevenueCents() {
+            return revenueCents;
+        }
+
+        public long getLines() {
+            return lines;
+        }
+    }
+
+    public static class Result {
+        private final List<Dimension> dimensions;
+        private final List<Row> rows;
+
+        Result(List<Dimension> dimensions, List<Row> rows) {
+            this.dimensions = dimensions;
+            this.rows = rows;
+        }
+
+        public List<Dimension> getDimensions() {
+            return dimensions;
+        }
+
+        public List<Row> getRows() {
+            return rows;
+        }
+    }
+}
@@ -0,0 +1,24 @@
+package com.example.project3;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Loads the in-memory sales cube once the data seeders have run.
+ */
+@Component
+@Order(20)
+public class SalesCubeInitializer implements CommandLineRunner {
+
+    @Autowired
+    private SalesCubeService salesCubeService;
+
+    @Override
+    public void run(String... args) {
+        if (salesCubeService.isEnabled()) {
+            salesCubeService.load();
+        }
+    }
+}
@@ -0,0 +1,267 @@
+package com.example.project3;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * Loads order lines into a {@link SalesCube} at startup and appends new orders as they
+ * commit, for ad-hoc group-by queries in /admin/analytics. Created orders are queued by
+ * the event listener and appended on the next refresh tick or query, so checkout never
+ * waits on the cube. A line's category is its product's category at load time.
+ */
+@Service
+public class SalesCubeService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesCubeService.class);
+
+    private static final String LINES_SQL =
+            "SELECT o.id AS order_id, o.order_date, oi.fruit_id, COALESCE(f.category_id, 0) AS category_id, " +
+            "COALESCE(o.delivery_zone_id, 0) AS zone_id, oi.quantity, COALESCE(oi.price, 0) AS price " +
+            "FROM order_items oi JOIN orders o ON o.id = oi.order_id JOIN fruit f ON f.id = oi.fruit_id ";
+
+    private static final int APPEND_BATCH_SIZE = 500;
+    private static final int LOAD_FETCH_SIZE = 10_000;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private DeliveryZoneRepository deliveryZoneRepository;
+
+    @Value("${app.analytics.cube.enabled:true}")
+    private boolean enabled;
+
+    @Value("${app.analytics.cube.initial-capacity:65536}")
+    private int initialCapacity;
+
+    @Value("${app.analytics.cube.scan-threads:4}")
+    private int scanThreads;
+
+    // Large cube scans run here rather than on the common pool shared with the rest of the JVM
+    private ForkJoinPool scanPool;
+
+    private volatile SalesCube cube;
+    private final BitSet loadedOrders = new BitSet();
+    private final Queue<Long> pendingOrders = new ConcurrentLinkedQueue<>();
+
+    @PostConstruct
+    void startScanPool() {
+        scanPool = new ForkJoinPool(scanThreads);
+    }
+
+    @PreDestroy
+    void stopScanPool() {
+        scanPool.shutdownNow();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    public boolean isReady() {
+        return cube != null;
+    }
+
+    /** Streams every order line into a fresh cube; readers see the previous cube until it is swapped in. */
+    @Transactional(readOnly = true)
+    public synchronized int load() {
+        long started = System.currentTimeMillis();
+        SalesCube fresh = new SalesCube(initialCapacity, scanPool);
+        BitSet orders = new BitSet();
+        LineBuffer buffer = new LineBuffer(fresh);
+
+        // Stream with a cursor rather than materialising millions of rows in the driver
+        jdbcTemplate.query(connection -> {
+            PreparedStatement statement = connection.prepareStatement(LINES_SQL);
+            statement.setFetchSize(LOAD_FETCH_SIZE);
+            return statement;
+        }, (RowCallbackHandler) rs -> {
+            orders.set(orderIndex(rs.getLong("order_id")));
+            buffer.add(rs);
+        });
+        buffer.flush();
+
+        loadedOrders.clear();
+        loadedOrders.or(orders);
+        cube = fresh;
+        logger.info("Loaded {} order lines into the sales cube in {} ms",
+                fresh.size(), System.currentTimeMillis() - started);
+        appendPending();
+        return fresh.size();
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderDomainEvent event) {
+        if (enabled && event.getType() == OrderDomainEvent.Type.CREATED) {
+            pendingOrders.add(event.getOrderId());
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.cube.refresh-interval-ms:5000}")
+    public synchronized void appendPending() {
+        if (cube == null || pendingOrders.isEmpty()) {
+            return;
+        }
+        List<Long> batch = new ArrayList<>();
+        Long orderId;
+        while ((orderId = pendingOrders.poll()) != null) {
+            // The startup load may already have picked up orders committed while it ran
+            if (!loadedOrders.get(orderIndex(orderId))) {
+                batch.add(orderId);
+            }
+            if (batch.size() == APPEND_BATCH_SIZE) {
+                appendOrders(batch);
+                batch.clear();
+            }
+        }
+        if (!batch.isEmpty()) {
+            appendOrders(batch);
+        }
+    }
+
+    public List<Map<String, Object>> query(SalesCube.Query query) {
+        if (cube == null) {
+            throw new CubeNotReadyException("Sales cube is still loading");
+        }
+        appendPending();
+        SalesCube.Result result = cube.query(query);
+        return toRows(result);
+    }
+
+    private void appendOrders(List<Long> orderIds) {
+        String placeholders = String.join(",", Collections.nCopies(orderIds.size(), "?"));
+        LineBuffer buffer = new LineBuffer(cube);
+        jdbcTemplate.query(LINES_SQL + "WHERE o.id IN (" + placeholders + ")",
+                (RowCallbackHandler) buffer::add, orderIds.toArray());
+        buffer.flush();
+        orderIds.forEach(id -> loadedOrders.set(orderIndex(id)));
+        logger.debug("Appended {} orders to the sales cube", orderIds.size());
+    }
+
+    private List<Map<String, Object>> toRows(SalesCube.Result result) {
+        List<SalesCube.Dimension> dimensions = result.getDimensions();
+        List<Map<Long, String>> labels = new ArrayList<>();
+        for (int d = 0; d < dimensions.size(); d++) {
+            labels.add(labelsFor(dimensions.get(d), result.getRows(), d));
+        }
+
+        List<Map<String, Object>> rows = new ArrayList<>(result.getRows().size());
+        for (SalesCube.Row row : result.getRows()) {
+            Map<String, Object> entry = new LinkedHashMap<>();
+            for (int d = 0; d < dimensions.size(); d++) {
+                SalesCube.Dimension dimension = dimensions.get(d);
+                String name = dimension.name().toLowerCase(Locale.ROOT);
+                int key = row.getKeys()[d];
+                if (dimension.isTime()) {
+                    entry.put(name, LocalDate.ofEpochDay(key).toString());
+                } else {
+                    entry.put(name + "Id", key);
+                    entry.put(name, labels.get(d).getOrDefault((long) key, key == 0 ? "None" : "#" + key));
+                }
+            }
+            entry.put("quantity", row.getQuantity());
+            entry.put("revenue", BigDecimal.valueOf(row.getRevenueCents(), 2));
+            entry.put("lines", row.getLines());
+            rows.add(entry);
+        }
+        return rows;
+    }
+
+    private Map<Long, String> labelsFor(SalesCube.Dimension dimension, List<SalesCube.Row> rows, int index) {
+        if (dimension.isTime()) {
+            return Map.of();
+        }
+        Set<Long> ids = new HashSet<>();
+        rows.forEach(row -> ids.add((long) row.getKeys()[index]));
+        Map<Long, String> labels = new HashMap<>();
+        switch (dimension) {
+            case PRODUCT:
+                fruitRepository.findAllById(ids).forEach(f -> labels.put(f.getId(), f.getName()));
+                break;
+            case CATEGORY:
+                categoryRepository.findAllById(ids).forEach(c -> labels.put(c.getId(), c.getName()));
+                break;
+            case ZONE:
+                deliveryZoneRepository.findAllById(ids).forEach(z -> labels.put(z.getId(), z.getName()));
+                break;
+            default:
+                break;
+        }
+        return labels;
+    }
+
+    private static int orderIndex(long orderId) {
+        return Math.toIntExact(orderId);
+    }
+
+    /** Collects result rows into column chunks so appends take the cube's lock once per chunk. */
+    private static final class LineBuffer {
+        private final SalesCube target;
+        private final int[] days = new int[APPEND_BATCH_SIZE];
+        private final int[] products = new int[APPEND_BATCH_SIZE];
+        private final int[] categories = new int[APPEND_BATCH_SIZE];
+        private final int[] zones = new int[APPEND_BATCH_SIZE];
+        private final int[] quantities = new int[APPEND_BATCH_SIZE];
+        private final long[] cents = new long[APPEND_BATCH_SIZE];
+        private int count;
+
+        LineBuffer(SalesCube target) {
+            this.target = target;
+        }
+
+        void add(ResultSet rs) throws SQLException {
+            days[count] = (int) rs.getTimestamp("order_date").toLocalDateTime().toLocalDate().toEpochDay();
+            products[count] = Math.toIntExact(rs.getLong("fruit_id"));
+            categories[count] = Math.toIntExact(rs.getLong("category_id"));
+            zones[count] = Math.toIntExact(rs.getLong("zone_id"));
+            quantities[count] = rs.getInt("quantity");
+            cents[count] = rs.getBigDecimal("price").multiply(BigDecimal.valueOf(quantities[count]))
+                    .movePointRight(2).setScale(0, RoundingMode.HALF_UP).longValueExact();
+            if (++count == APPEND_BATCH_SIZE) {
+                flush();
+            }
+        }
+
+        void flush() {
+            if (count == 0) {
+                return;
+            }
+            target.appendAll(Arrays.copyOf(days, count), Arrays.copyOf(products, count),
+                    Arrays.copyOf(categories, count), Arrays.copyOf(zones, count),
+                    Arrays.copyOf(quantities, count), Arrays.copyOf(cents, count));
+            count = 0;
+        }
+    }
+
+    public static class CubeNotReadyException extends RuntimeException {
+        public CubeNotReadyException(String message) {
+            super(message);
+        }
+    }
+}
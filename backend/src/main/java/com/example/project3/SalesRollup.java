@@ -0,0 +1,135 @@
+package com.example.project3;
+
+import jakarta.persistence.*;
+import java.math.BigDecimal;
+import java.time.LocalDate;
+
+/**
+ * Pre-aggregated sales for one period (day or month) and one dimension value
+ * (store total, a category or a product). Maintained by {@link SalesRollupService}.
+ */
+@Entity
+@Table(name = "sales_rollups", uniqueConstraints = {
+    @UniqueConstraint(name = "uk_sales_rollup_key", columnNames = {"granularity", "period_start", "dimension", "dimension_id"})
+})
+public class SalesRollup {
+
+    // dimension_id used for TOTAL rows, so the unique key never contains NULL
+    public static final long TOTAL_ID = 0L;
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Granularity granularity;
+
+    @Column(name = "period_start", nullable = false)
+    private LocalDate periodStart;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false, length = 16)
+    private Dimension dimension;
+
+    @Column(name = "dimension_id", nullable = false)
+    private Long dimensionId;
+
+    private String label;
+
+    // Orders in the period (for CATEGORY/PRODUCT: orders containing that category/product)
+    @Column(name = "order_count", nullable = false)
+    private long orderCount;
+
+    @Column(nullable = false)
+    private long quantity;
+
+    // TOTAL: sum of order totals after discounts; CATEGORY/PRODUCT: sum of price at sale x quantity
+    @Column(nullable = false, precision = 19, scale = 2)
+    private BigDecimal revenue = BigDecimal.ZERO;
+
+    @Column(name = "fulfilled_count", nullable = false)
+    private long fulfilledCount;
+
+    @Column(name = "fulfilled_revenue", nullable = false, precision = 19, scale = 2)
+    private BigDecimal fulfilledRevenue = BigDecimal.ZERO;
+
+    public enum Granularity {
+        DAY,
+        MONTH;
+
+        public LocalDate periodStart(LocalDate date) {
+            return this == DAY ? date : date.withDayOfMonth(1);
+        }
+    }
+
+    public enum Dimension {
+        TOTAL,
+        CATEGORY,
+        PRODUCT
+    }
+
+    public SalesRollup() {
+    }
+
+    public SalesRollup(Granularity granularity, LocalDate periodStart, Dimension dimension, Long dimensionId, String label) {
+        this.granularity = granularity;
+        this.periodStart = periodStart;
+        this.dimension = dimension;
+        this.dimensionId = dimensionId;
+        this.label = label;
+    }
+
+    public void add(long orders, long quantity, BigDecimal revenue, long fulfilled, BigDecimal fulfilledRevenue) {
+        this.orderCount += orders;
+        this.quantity += quantity;
+        this.revenue = this.revenue.add(revenue);
+        this.fulfilledCount += fulfilled;
+        this.fulfilledRevenue = this.fulfilledRevenue.add(fulfilledRevenue);
+    }
+
+    // Getters and Setters
+    public Long getId() {
+        return id;
+    }
+
+    public Granularity getGranularity() {
+        return granularity;
+    }
+
+    public LocalDate getPeriodStart() {
+        return periodStart;
+    }
+
+    public Dimension getDimension() {
+        return dimension;
+    }
+
+    public Long getDimensionId() {
+        return dimensionId;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public long getOrderCount() {
+        return orderCount;
+    }
+
+    public long getQuantity() {
+        return quantity;
+    }
+
+    public BigDecimal getRevenue() {
+        return revenue;
+    }
+
+    public long getFulfilledCount() {
+        return fulfilledCount;
+    }
+
+    public BigDecimal getFulfilledRevenue() {
+        return fulfilledRevenue;
+    }
+}
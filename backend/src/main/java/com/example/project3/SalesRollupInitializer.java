@@ -0,0 +1,37 @@
+package com.example.project3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+
+/**
+ * Backfills the sales rollups at startup when they are empty but orders exist (first deploy),
+ * or on demand with --app.analytics.rollups.rebuild-on-startup=true.
+ */
+@Component
+@Order(10) // Run after the data seeders
+public class SalesRollupInitializer implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupInitializer.class);
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Value("${app.analytics.rollups.rebuild-on-startup:false}")
+    private boolean rebuildOnStartup;
+
+    @Override
+    public void run(String... args) {
+        if (rebuildOnStartup || (salesRollupService.isEmpty() && orderRepository.count() > 0)) {
+            logger.info("Rebuilding sales rollups from order history");
+            salesRollupService.rebuild();
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.project3;
+
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface SalesRollupRepository extends JpaRepository<SalesRollup, Long>, SalesRollupWriter {
+
+    List<SalesRollup> findByGranularityAndDimensionAndPeriodStartGreaterThanEqualOrderByPeriodStart(
+            SalesRollup.Granularity granularity, SalesRollup.Dimension dimension, LocalDate from);
+
+    List<SalesRollup> findByGranularityAndDimensionOrderByPeriodStart(
+            SalesRollup.Granularity granularity, SalesRollup.Dimension dimension);
+
+    @Query("SELECT COALESCE(SUM(r.orderCount), 0) AS orderCount, COALESCE(SUM(r.revenue), 0) AS revenue " +
+           "FROM SalesRollup r WHERE r.granularity = :granularity AND r.dimension = :dimension")
+    OrderRepository.OrderTotals sumTotals(@Param("granularity") SalesRollup.Granularity granularity,
+                                          @Param("dimension") SalesRollup.Dimension dimension);
+
+    // All-time totals per category/product, summed over the monthly rows
+    @Query("SELECT MAX(r.label) AS name, SUM(r.quantity) AS quantitySold, SUM(r.revenue) AS revenue " +
+           "FROM SalesRollup r WHERE r.granularity = :granularity " +
+           "AND r.dimension = :dimension GROUP BY r.dimensionId ORDER BY SUM(r.quantity) DESC, MAX(r.label)")
+    List<OrderItemRepository.NamedSales> findTopByQuantity(@Param("granularity") SalesRollup.Granularity granularity,
+                                                          @Param("dimension") SalesRollup.Dimension dimension,
+                                                          Pageable pageable);
+
+    @Query("SELECT MAX(r.label) AS name, SUM(r.quantity) AS quantitySold, SUM(r.revenue) AS revenue " +
+           "FROM SalesRollup r WHERE r.granularity = :granularity " +
+           "AND r.dimension = :dimension GROUP BY r.dimensionId ORDER BY SUM(r.revenue) DESC, MAX(r.label)")
+    List<OrderItemRepository.NamedSales> findAllByRevenue(@Param("granularity") SalesRollup.Granularity granularity,
+                                                         @Param("dimension") SalesRollup.Dimension dimension);
+}
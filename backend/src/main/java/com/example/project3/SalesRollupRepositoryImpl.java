@@ -0,0 +1,47 @@
+package com.example.project3;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.util.Collection;
+
+public class SalesRollupRepositoryImpl implements SalesRollupWriter {
+
+    private static final String INCREMENT_SQL =
+            "UPDATE sales_rollups SET order_count = order_count + ?, quantity = quantity + ?, " +
+            "revenue = revenue + ?, fulfilled_count = fulfilled_count + ?, " +
+            "fulfilled_revenue = fulfilled_revenue + ?, label = COALESCE(?, label) " +
+            "WHERE granularity = ? AND period_start = ? AND dimension = ? AND dimension_id = ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO sales_rollups (granularity, period_start, dimension, dimension_id, label, " +
+            "order_count, quantity, revenue, fulfilled_count, fulfilled_revenue) " +
+            "VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)";
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Override
+    public void addToRollups(Collection<SalesRollup> deltas) {
+        for (SalesRollup delta : deltas) {
+            if (increment(delta) == 0) {
+                // A concurrent insert of the same key fails this transaction on the unique
+                // constraint; the outbox retries it and the retry takes the update path
+                jdbcTemplate.update(INSERT_SQL,
+                        delta.getGranularity().name(), Date.valueOf(delta.getPeriodStart()),
+                        delta.getDimension().name(), delta.getDimensionId(), delta.getLabel(),
+                        delta.getOrderCount(), delta.getQuantity(), delta.getRevenue(),
+                        delta.getFulfilledCount(), delta.getFulfilledRevenue());
+            }
+        }
+    }
+
+    private int increment(SalesRollup delta) {
+        return jdbcTemplate.update(INCREMENT_SQL,
+                delta.getOrderCount(), delta.getQuantity(), delta.getRevenue(),
+                delta.getFulfilledCount(), delta.getFulfilledRevenue(), delta.getLabel(),
+                delta.getGranularity().name(), Date.valueOf(delta.getPeriodStart()),
+                delta.getDimension().name(), delta.getDimensionId());
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.project3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Isolation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Daily and monthly sales rollups by store total, category and product. Order changes reach
+ * the rollups as deltas through the order outbox; {@link #rebuild()} recomputes everything
+ * from the order tables for backfills. Analytics reads only touch the rollup table.
+ */
+@Service
+@Transactional
+public class SalesRollupService {
+
+    private static final Logger logger = LoggerFactory.getLogger(SalesRollupService.class);
+
+    private static final List<OrderOutboxEvent.EventType> ROLLUP_EVENTS = List.of(
+            OrderOutboxEvent.EventType.ROLLUP_ORDER_CREATED,
+            OrderOutboxEvent.EventType.ROLLUP_ORDER_FULFILLED,
+            OrderOutboxEvent.EventType.ROLLUP_ORDER_UNFULFILLED);
+
+    private static final int SKIP_BATCH_SIZE = 1000;
+
+    @Autowired
+    private SalesRollupRepository rollupRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private OrderOutboxEventRepository outboxEventRepository;
+
+    public void applyOrderCreated(Long orderId) {
+        Order order = findOrder(orderId);
+        LocalDate orderDay = order.getOrderDate().toLocalDate();
+        BigDecimal total = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+
+        List<SalesRollup> deltas = new ArrayList<>();
+        for (SalesRollup.Granularity granularity : SalesRollup.Granularity.values()) {
+            LocalDate periodStart = granularity.periodStart(orderDay);
+            Map<Long, SalesRollup> products = new LinkedHashMap<>();
+            Map<Long, SalesRollup> categories = new LinkedHashMap<>();
+            long quantity = 0;
+
+            for (OrderItem item : order.getOrderItems()) {
+                Fruit fruit = item.getFruit();
+                BigDecimal lineRevenue = item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+                quantity += item.getQuantity();
+
+                products.computeIfAbsent(fruit.getId(), id -> new SalesRollup(granularity, periodStart,
+                        SalesRollup.Dimension.PRODUCT, id, fruit.getName()))
+                        .add(0, item.getQuantity(), lineRevenue, 0, BigDecimal.ZERO);
+                if (fruit.getCategory() != null) {
+                    Category category = fruit.getCategory();
+                    categories.computeIfAbsent(category.getId(), id -> new SalesRollup(granularity, periodStart,
+                            SalesRollup.Dimension.CATEGORY, id, category.getName()))
+                            .add(0, item.getQuantity(), lineRevenue, 0, BigDecimal.ZERO);
+                }
+            }
+
+            // Fulfilment is counted only by its own events, whatever the order's state is now
+            SalesRollup totalRow = new SalesRollup(granularity, periodStart,
+                    SalesRollup.Dimension.TOTAL, SalesRollup.TOTAL_ID, null);
+            totalRow.add(1, quantity, total, 0, BigDecimal.ZERO);
+            deltas.add(totalRow);
+            for (SalesRollup row : products.values()) {
+                row.add(1, 0, BigDecimal.ZERO, 0, BigDecimal.ZERO);
+                deltas.add(row);
+            }
+            for (SalesRollup row : categories.values()) {
+                row.add(1, 0, BigDecimal.ZERO, 0, BigDecimal.ZERO);
+                deltas.add(row);
+            }
+        }
+        rollupRepository.addToRollups(deltas);
+    }
+
+    public void applyFulfilmentChange(Long orderId, boolean fulfilled) {
+        Order order = findOrder(orderId);
+        LocalDate orderDay = order.getOrderDate().toLocalDate();
+        BigDecimal total = order.getTotalAmount() != null ? order.getTotalAmount() : BigDecimal.ZERO;
+        int sign = fulfilled ? 1 : -1;
+
+        List<SalesRollup> deltas = new ArrayList<>();
+        for (SalesRollup.Granularity granularity : SalesRollup.Granularity.values()) {
+            SalesRollup totalRow = new SalesRollup(granularity, granularity.periodStart(orderDay),
+                    SalesRollup.Dimension.TOTAL, SalesRollup.TOTAL_ID, null);
+            totalRow.add(0, 0, BigDecimal.ZERO, sign, fulfilled ? total : total.negate());
+            deltas.add(totalRow);
+        }
+        rollupRepository.addToRollups(deltas);
+    }
+
+    /**
+     * Recomputes every rollup row from the order tables. Reads on one repeatable-read snapshot
+     * and skips only the rollup deltas pending in it, which are exactly those of the orders it
+     * counted; an order committing meanwhile keeps its delta pending for the outbox to apply.
+     */
+    @Transactional(isolation = Isolation.REPEATABLE_READ)
+    public int rebuild() {
+        List<Long> counted = outboxEventRepository.findPendingEventIds(ROLLUP_EVENTS);
+        Map<String, SalesRollup> rows = new LinkedHashMap<>();
+        for (OrderRepository.DailyOrderTotals day : orderRepository.findDailyTotalsForRollup()) {
+            LocalDate date = LocalDate.of(day.getYear(), day.getMonth(), day.getDay());
+            for (SalesRollup.Granularity granularity : SalesRollup.Granularity.values()) {
+                row(rows, granularity, date, SalesRollup.Dimension.TOTAL, SalesRollup.TOTAL_ID, null)
+                        .add(day.getOrders(), 0, day.getRevenue(), day.getFulfilledOrders(), day.getFulfilledRevenue());
+            }
+        }
+        addLineSales(rows, SalesRollup.Dimension.PRODUCT, orderItemRepository.findDailyProductSales());
+        addLineSales(rows, SalesRollup.Dimension.CATEGORY, orderItemRepository.findDailyCategorySales());
+
+        LocalDateTime now = LocalDateTime.now();
+        int skipped = 0;
+        for (int from = 0; from < counted.size(); from += SKIP_BATCH_SIZE) {
+            skipped += outboxEventRepository.skipPending(
+                    counted.subList(from, Math.min(from + SKIP_BATCH_SIZE, counted.size())), now);
+        }
+        rollupRepository.deleteAllInBatch();
+        rollupRepository.saveAll(rows.values());
+        logger.info("Rebuilt {} sales rollup rows ({} pending deltas skipped)", rows.size(), skipped);
+        return rows.size();
+    }
+
+    @Transactional(readOnly = true)
+    public boolean isEmpty() {
+        return rollupRepository.count() == 0;
+    }
+
+    @Transactional(readOnly = true)
+    public OrderRepository.OrderTotals getAllTimeTotals() {
+        return rollupRepository.sumTotals(SalesRollup.Granularity.MONTH, SalesRollup.Dimension.TOTAL);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SalesRollup> getDailyTotalsSince(LocalDate from) {
+        return rollupRepository.findByGranularityAndDimensionAndPeriodStartGreaterThanEqualOrderByPeriodStart(
+                SalesRollup.Granularity.DAY, SalesRollup.Dimension.TOTAL, from);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SalesRollup> getDailyProductSalesSince(LocalDate from) {
+        return rollupRepository.findByGranularityAndDimensionAndPeriodStartGreaterThanEqualOrderByPeriodStart(
+                SalesRollup.Granularity.DAY, SalesRollup.Dimension.PRODUCT, from);
+    }
+
+    @Transactional(readOnly = true)
+    public List<SalesRollup> getMonthlyTotals() {
+        return rollupRepository.findByGranularityAndDimensionOrderByPeriodStart(
+                SalesRollup.Granularity.MONTH, SalesRollup.Dimension.TOTAL);
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderItemRepository.NamedSales> getTopProducts(int limit) {
+        return rollupRepository.findTopByQuantity(SalesRollup.Granularity.MONTH, SalesRollup.Dimension.PRODUCT, PageRequest.of(0, limit));
+    }
+
+    @Transactional(readOnly = true)
+    public List<OrderItemRepository.NamedSales> getCategoryPerformance() {
+        return rollupRepository.findAllByRevenue(SalesRollup.Granularity.MONTH, SalesRollup.Dimension.CATEGORY);
+    }
+
+    private void addLineSales(Map<String, SalesRollup> rows, SalesRollup.Dimension dimension,
+                              List<OrderItemRepository.DailyLineSales> sales) {
+        for (OrderItemRepository.DailyLineSales day : sales) {
+            LocalDate date = LocalDate.of(day.getYear(), day.getMonth(), day.getDay());
+            for (SalesRollup.Granularity granularity : SalesRollup.Granularity.values()) {
+                row(rows, granularity, date, dimension, day.getId(), day.getName())
+                        .add(day.getOrders(), day.getQuantity(), day.getRevenue(), 0, BigDecimal.ZERO);
+                // Store totals also carry the item quantity for the period
+                if (dimension == SalesRollup.Dimension.PRODUCT) {
+                    row(rows, granularity, date, SalesRollup.Dimension.TOTAL, SalesRollup.TOTAL_ID, null)
+                            .add(0, day.getQuantity(), BigDecimal.ZERO, 0, BigDecimal.ZERO);
+                }
+            }
+        }
+    }
+
+    private SalesRollup row(Map<String, SalesRollup> rows, SalesRollup.Granularity granularity, LocalDate date,
+                            SalesRollup.Dimension dimension, Long dimensionId, String label) {
+        LocalDate periodStart = granularity.periodStart(date);
+        String key = granularity + "|" + periodStart + "|" + dimension + "|" + dimensionId;
+        return rows.computeIfAbsent(key, k -> new SalesRollup(granularity, periodStart, dimension, dimensionId, label));
+    }
+
+    private Order findOrder(Long orderId) {
+        return orderRepository.findById(orderId)
+                .orElseThrow(() -> new OrderService.OrderNotFoundException("Order not found with id: " + orderId));
+    }
+}
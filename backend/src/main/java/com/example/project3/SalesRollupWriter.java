@@ -0,0 +1,12 @@
+package com.example.project3;
+
+import java.util.Collection;
+
+public interface SalesRollupWriter {
+
+    /**
+     * Adds each delta's counters to the stored row with the same key, inserting rows that
+     * do not exist yet.
+     */
+    void addToRollups(Collection<SalesRollup> deltas);
+}
@@ -17,7 +17,7 @@ public class ScheduledTaskService {
     private AIEmailMarketingService aiEmailMarketingService;
     
     @Autowired
-    private CustomerProfileService customerProfileService;
+    private CustomerProfileRebuildJob customerProfileRebuildJob;
 
     /**
      * Process pending email campaigns every 5 minutes
@@ -34,19 +34,33 @@ public class ScheduledTaskService {
     }
 
     /**
-     * Update customer profiles daily at 2 AM
+     * Refresh profiles of customers active since the last run, daily at 2 AM
      */
     @Scheduled(cron = "0 0 2 * * *")
     public void updateCustomerProfiles() {
         try {
             logger.info("Starting daily customer profile update...");
-            customerProfileService.updateAllProfiles();
+            customerProfileRebuildJob.runDirty();
             logger.info("Completed daily customer profile update");
         } catch (Exception e) {
             logger.error("Error updating customer profiles", e);
         }
     }
 
+    /**
+     * Recompute every customer profile weekly, repairing anything the daily runs missed
+     */
+    @Scheduled(cron = "0 0 4 * * SUN")
+    public void rebuildAllCustomerProfiles() {
+        try {
+            logger.info("Starting weekly customer profile rebuild...");
+            customerProfileRebuildJob.run();
+            logger.info("Completed weekly customer profile rebuild");
+        } catch (Exception e) {
+            logger.error("Error rebuilding customer profiles", e);
+        }
+    }
+
     /**
      * Generate automated re-engagement campaigns weekly
      */
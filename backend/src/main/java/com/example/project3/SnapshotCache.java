@@ -0,0 +1,156 @@
+package com.example.project3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Stale-while-revalidate holder for one expensive, shared value. Readers always get the
+ * latest snapshot immediately; only the very first read waits for a load. Refreshes are
+ * single-flight and load once: callers that trigger one while it runs join it, and changes
+ * flagged with {@link #markDirty()} are picked up by the owner's next refresh tick, so a
+ * steady stream of changes costs at most one load per tick.
+ */
+public class SnapshotCache<T> {
+
+    private static final Logger logger = LoggerFactory.getLogger(SnapshotCache.class);
+
+    private final String name;
+    private final Supplier<T> loader;
+    private final Duration maxAge;
+    private final Executor executor;
+    private final Clock clock;
+
+    private volatile Snapshot<T> current;
+    private volatile boolean dirty;
+    private CompletableFuture<Snapshot<T>> inFlight;
+    private final AtomicLong loads = new AtomicLong();
+
+    public SnapshotCache(String name, Supplier<T> loader, Duration maxAge, Executor executor) {
+        this(name, loader, maxAge, executor, Clock.systemUTC());
+    }
+
+    SnapshotCache(String name, Supplier<T> loader, Duration maxAge, Executor executor, Clock clock) {
+        this.name = name;
+        this.loader = loader;
+        this.maxAge = maxAge;
+        this.executor = executor;
+        this.clock = clock;
+    }
+
+    public Snapshot<T> get() {
+        Snapshot<T> snapshot = current;
+        if (snapshot == null) {
+            return awaitFirstLoad();
+        }
+        // Dirty snapshots wait for the refresh tick; only an expired one is refreshed by a read
+        if (snapshot.isOlderThan(maxAge, clock.instant())) {
+            refresh();
+        }
+        return snapshot;
+    }
+
+    /** Flags the snapshot as outdated; the next refresh tick or read recomputes it. */
+    public void markDirty() {
+        dirty = true;
+    }
+
+    public boolean needsRefresh() {
+        Snapshot<T> snapshot = current;
+        return snapshot == null || dirty || snapshot.isOlderThan(maxAge, clock.instant());
+    }
+
+    public synchronized CompletableFuture<Snapshot<T>> refresh() {
+        if (inFlight != null) {
+            return inFlight;
+        }
+        CompletableFuture<Snapshot<T>> future = new CompletableFuture<>();
+        inFlight = future;
+        try {
+            executor.execute(() -> runRefresh(future));
+        } catch (RuntimeException e) {
+            inFlight = null;
+            future.completeExceptionally(e);
+        }
+        return future;
+    }
+
+    long getLoadCount() {
+        return loads.get();
+    }
+
+    private Snapshot<T> awaitFirstLoad() {
+        try {
+            return refresh().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while loading " + name + " snapshot", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    private void runRefresh(CompletableFuture<Snapshot<T>> future) {
+        RuntimeException failure = null;
+        // Cleared before loading so a change that lands during the load leaves it dirty
+        dirty = false;
+        try {
+            loads.incrementAndGet();
+            current = new Snapshot<>(loader.get(), clock.instant(), clock);
+        } catch (RuntimeException e) {
+            // Left dirty so the next refresh tick retries
+            dirty = true;
+            failure = e;
+            logger.warn("Refreshing the {} snapshot failed, keeping the previous one", name, e);
+        }
+        synchronized (this) {
+            inFlight = null;
+        }
+
+        Snapshot<T> snapshot = current;
+        if (snapshot == null) {
+            future.completeExceptionally(failure);
+        } else {
+            future.complete(snapshot);
+        }
+    }
+
+    public static class Snapshot<T> {
+        private final T value;
+        private final Instant takenAt;
+        private final Clock clock;
+
+        Snapshot(T value, Instant takenAt, Clock clock) {
+            this.value = value;
+            this.takenAt = takenAt;
+            this.clock = clock;
+        }
+
+        public T getValue() {
+            return value;
+        }
+
+        public Instant getTakenAt() {
+            return takenAt;
+        }
+
+        public long getAgeSeconds() {
+            return Duration.between(takenAt, clock.instant()).toSeconds();
+        }
+
+        boolean isOlderThan(Duration age, Instant now) {
+            return takenAt.plus(age).isBefore(now);
+        }
+    }
+}
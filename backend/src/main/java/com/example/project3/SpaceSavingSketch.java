@@ -0,0 +1,161 @@
+package com.example.project3;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Weighted space-saving heavy-hitter sketch over long keys, holding at most {@code capacity}
+ * counters. A reported count never underestimates the true weight and overestimates it by at
+ * most the entry's error, which is bounded by total weight / capacity. Any key whose true
+ * weight exceeds total / capacity is guaranteed to be tracked.
+ */
+public class SpaceSavingSketch {
+
+    private final int capacity;
+    private final Map<Long, Entry> entries = new HashMap<>();
+    private long totalWeight;
+
+    public SpaceSavingSketch(int capacity) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public synchronized void add(long key, long weight, BigDecimal revenue) {
+        if (weight <= 0) {
+            return;
+        }
+        totalWeight += weight;
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            entry.count += weight;
+            entry.revenue = entry.revenue.add(revenue);
+            return;
+        }
+        if (entries.size() < capacity) {
+            entries.put(key, new Entry(key, weight, 0, revenue));
+            return;
+        }
+        // Replace the smallest counter; the newcomer inherits its count as possible overestimate
+        Entry smallest = minEntry();
+        entries.remove(smallest.key);
+        entries.put(key, new Entry(key, smallest.count + weight, smallest.count, revenue));
+    }
+
+    public synchronized long getTotalWeight() {
+        return totalWeight;
+    }
+
+    /** Upper bound on the overestimate of any reported count. */
+    public synchronized long getMaxError() {
+        return entries.size() < capacity ? 0 : minEntry().count;
+    }
+
+    public synchronized List<Entry> top(int limit) {
+        List<Entry> sorted = new ArrayList<>(entries.size());
+        entries.values().forEach(entry -> sorted.add(entry.copy()));
+        sorted.sort(Comparator.comparingLong(Entry::getCount).reversed().thenComparingLong(Entry::getKey));
+        return sorted.size() > limit ? new ArrayList<>(sorted.subList(0, limit)) : sorted;
+    }
+
+    /**
+     * Combines sketches (e.g. one per day) into one of the given capacity. A key missing from a
+     * full sketch may still have weight up to that sketch's smallest counter there, so that much
+     * is added to its count and error to keep the upper-bound guarantee.
+     */
+    public static SpaceSavingSketch merge(Collection<SpaceSavingSketch> sketches, int capacity) {
+        List<Map<Long, Entry>> snapshots = new ArrayList<>();
+        List<Long> missingBounds = new ArrayList<>();
+        long total = 0;
+        for (SpaceSavingSketch sketch : sketches) {
+            synchronized (sketch) {
+                Map<Long, Entry> copy = new HashMap<>();
+                sketch.entries.forEach((key, entry) -> copy.put(key, entry.copy()));
+                snapshots.add(copy);
+                missingBounds.add(sketch.entries.size() < sketch.capacity ? 0 : sketch.minEntry().count);
+                total += sketch.totalWeight;
+            }
+        }
+
+        Map<Long, Entry> combined = new HashMap<>();
+        for (Map<Long, Entry> snapshot : snapshots) {
+            for (Entry entry : snapshot.values()) {
+                combined.computeIfAbsent(entry.key, key -> new Entry(key, 0, 0, BigDecimal.ZERO)).absorb(entry);
+            }
+        }
+        for (Entry entry : combined.values()) {
+            for (int i = 0; i < snapshots.size(); i++) {
+                if (!snapshots.get(i).containsKey(entry.key)) {
+                    entry.count += missingBounds.get(i);
+                    entry.error += missingBounds.get(i);
+                }
+            }
+        }
+
+        SpaceSavingSketch merged = new SpaceSavingSketch(capacity);
+        merged.totalWeight = total;
+        combined.values().stream()
+                .sorted(Comparator.comparingLong(Entry::getCount).reversed())
+                .limit(capacity)
+                .forEach(entry -> merged.entries.put(entry.key, entry));
+        return merged;
+    }
+
+    private Entry minEntry() {
+        Entry smallest = null;
+        for (Entry entry : entries.values()) {
+            if (smallest == null || entry.count < smallest.count) {
+                smallest = entry;
+            }
+        }
+        return smallest;
+    }
+
+    public static class Entry {
+        private final long key;
+        private long count;
+        private long error;
+        private BigDecimal revenue;
+
+        Entry(long key, long count, long error, BigDecimal revenue) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+            this.revenue = revenue;
+        }
+
+        public long getKey() {
+            return key;
+        }
+
+        /** Estimated weight; the true weight lies in [count - error, count]. */
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+
+        /** Revenue seen while the key was tracked: a lower bound when error > 0. */
+        public BigDecimal getRevenue() {
+            return revenue;
+        }
+
+        private void absorb(Entry other) {
+            count += other.count;
+            error += other.error;
+            revenue = revenue.add(other.revenue);
+        }
+
+        private Entry copy() {
+            return new Entry(key, count, error, revenue);
+        }
+    }
+}
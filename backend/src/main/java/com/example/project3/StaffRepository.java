@@ -23,6 +23,8 @@ public interface StaffRepository extends JpaRepository<StaffMember, Long> {
     Boolean existsByEmployeeId(String employeeId);
     
     List<StaffMember> findByIsActiveTrue();
+
+    long countByIsActiveTrue();
     
     List<StaffMember> findByIsActiveFalse();
     
@@ -0,0 +1,139 @@
+package com.example.project3;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+
+import java.time.LocalDate;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Best sellers by quantity for sliding windows (today, 7 and 30 days) in bounded memory: one
+ * {@link SpaceSavingSketch} per day for the last 30 days, merged per query. Keyed by product
+ * id so renamed products don't split, with names looked up at read time. Seeded from the
+ * daily product rollups and fed by order events; a periodic reseed corrects any drift.
+ */
+@Component
+public class TopProductsTracker {
+
+    private static final Logger logger = LoggerFactory.getLogger(TopProductsTracker.class);
+
+    static final int RETAINED_DAYS = 30;
+
+    public enum Window {
+        TODAY(1),
+        LAST_7_DAYS(7),
+        LAST_30_DAYS(30);
+
+        private final int days;
+
+        Window(int days) {
+            this.days = days;
+        }
+
+        public static Window fromParam(String value) {
+            switch (value.trim().toLowerCase()) {
+                case "today": return TODAY;
+                case "7d": return LAST_7_DAYS;
+                case "30d": return LAST_30_DAYS;
+                default: throw new IllegalArgumentException("Unknown window: " + value + " (use today, 7d or 30d)");
+            }
+        }
+    }
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Value("${app.analytics.top-products.sketch-capacity:200}")
+    private int sketchCapacity;
+
+    private volatile ConcurrentSkipListMap<LocalDate, SpaceSavingSketch> days = new ConcurrentSkipListMap<>();
+    private volatile boolean loaded;
+
+    // Events that arrive while a rebuild reads the rollups, replayed into the new sketches before the swap
+    private final Object eventLock = new Object();
+    private List<OrderDomainEvent> duringRebuild;
+
+    public List<Map<String, Object>> getTopProducts(Window window, int limit) {
+        if (!loaded) {
+            rebuild();
+        }
+        LocalDate today = LocalDate.now();
+        Collection<SpaceSavingSketch> inWindow = days.subMap(today.minusDays(window.days - 1L), true, today, true).values();
+        List<SpaceSavingSketch.Entry> top = SpaceSavingSketch.merge(inWindow, sketchCapacity).top(limit);
+
+        Set<Long> ids = new HashSet<>();
+        top.forEach(entry -> ids.add(entry.getKey()));
+        Map<Long, String> names = new HashMap<>();
+        fruitRepository.findAllById(ids).forEach(fruit -> names.put(fruit.getId(), fruit.getName()));
+
+        List<Map<String, Object>> rows = new ArrayList<>(top.size());
+        for (SpaceSavingSketch.Entry entry : top) {
+            Map<String, Object> row = new HashMap<>();
+            row.put("productId", entry.getKey());
+            row.put("name", names.getOrDefault(entry.getKey(), "#" + entry.getKey()));
+            row.put("quantitySold", entry.getCount());
+            row.put("maxOvercount", entry.getError());
+            row.put("revenue", entry.getRevenue());
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    @Scheduled(fixedDelayString = "${app.analytics.top-products.rebuild-interval-ms:3600000}")
+    public synchronized void rebuild() {
+        synchronized (eventLock) {
+            duringRebuild = new ArrayList<>();
+        }
+        try {
+            LocalDate from = LocalDate.now().minusDays(RETAINED_DAYS - 1L);
+            ConcurrentSkipListMap<LocalDate, SpaceSavingSketch> fresh = new ConcurrentSkipListMap<>();
+            for (SalesRollup row : salesRollupService.getDailyProductSalesSince(from)) {
+                fresh.computeIfAbsent(row.getPeriodStart(), day -> new SpaceSavingSketch(sketchCapacity))
+                        .add(row.getDimensionId(), row.getQuantity(), row.getRevenue());
+            }
+            synchronized (eventLock) {
+                duringRebuild.forEach(event -> apply(fresh, event));
+                days = fresh;
+                loaded = true;
+            }
+            logger.debug("Top products sketches rebuilt for {} days", fresh.size());
+        } finally {
+            synchronized (eventLock) {
+                duringRebuild = null;
+            }
+        }
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onOrderEvent(OrderDomainEvent event) {
+        if (event.getType() != OrderDomainEvent.Type.CREATED || event.getLines().isEmpty()) {
+            return;
+        }
+        synchronized (eventLock) {
+            if (duringRebuild != null) {
+                duringRebuild.add(event);
+            }
+            if (loaded) {
+                apply(days, event);
+            }
+        }
+    }
+
+    private void apply(ConcurrentSkipListMap<LocalDate, SpaceSavingSketch> target, OrderDomainEvent event) {
+        LocalDate day = event.getOrderDate() != null ? event.getOrderDate().toLocalDate() : LocalDate.now();
+        SpaceSavingSketch sketch = target.computeIfAbsent(day, d -> new SpaceSavingSketch(sketchCapacity));
+        for (OrderDomainEvent.Line line : event.getLines()) {
+            sketch.add(line.getFruitId(), line.getQuantity(), line.getRevenue());
+        }
+        target.headMap(LocalDate.now().minusDays(RETAINED_DAYS - 1L)).clear();
+    }
+}
@@ -0,0 +1,194 @@
+package com.example.project3;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+/**
+ * 100 negotiations parked in a slow Gemini call against a 20-connection pool: none of them
+ * may hold a connection while waiting, so checkouts run at their usual latency meanwhile.
+ */
+@DataJpaTest(showSql = false, properties = {
+        "spring.datasource.hikari.maximum-pool-size=20",
+        "spring.datasource.hikari.connection-timeout=3000",
+        "logging.level.com.example.project3=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({AINegotiationService.class, CustomerTierService.class, CustomerProfileService.class, CouponService.class,
+        DirtyCustomerTracker.class, OrderService.class, OrderMapper.class, CheckoutMetrics.class,
+        SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AINegotiationServiceLoadTest {
+
+    private static final int NEGOTIATIONS = 100;
+    private static final int CHECKOUTS = 40;
+
+    @Autowired
+    private AINegotiationService aiNegotiationService;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CustomerProfileService customerProfileService;
+
+    @Autowired
+    private CustomerProfileRepository customerProfileRepository;
+
+    @Autowired
+    private NegotiationProfileRepository negotiationProfileRepository;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private DirtyCustomerSetRepository dirtyCustomerSetRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @MockBean
+    private GeminiService geminiService;
+
+    @MockBean
+    private OrderOutboxService orderOutboxService;
+
+    private final List<Customer> negotiators = new ArrayList<>();
+    private Long fruitId;
+
+    @BeforeEach
+    void setUp() {
+        Category category = categoryRepository.save(new Category("Fruit"));
+        Fruit apple = new Fruit("Apple", new BigDecimal("2.00"));
+        apple.setStock(10_000);
+        apple.setCategory(category);
+        fruitId = fruitRepository.save(apple).getId();
+
+        createCustomer("buyer");
+        // Registration creates the profile, so negotiations only read it
+        for (int i = 0; i < NEGOTIATIONS; i++) {
+            Customer negotiator = createCustomer("negotiator" + i);
+            customerProfileService.getOrCreateProfile(negotiator.getId());
+            negotiators.add(negotiator);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        couponRepository.deleteAll();
+        negotiationProfileRepository.deleteAll();
+        dirtyCustomerSetRepository.deleteAll();
+        customerProfileRepository.deleteAll();
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        categoryRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void checkoutLatency_UnaffectedWhileNegotiationsWaitOnGemini() throws Exception {
+        // Arrange - warm up, then measure checkouts on an idle pool
+        checkoutLatencies(CHECKOUTS);
+        List<Long> idle = checkoutLatencies(CHECKOUTS);
+
+        CountDownLatch inGemini = new CountDownLatch(NEGOTIATIONS);
+        CountDownLatch geminiAnswers = new CountDownLatch(1);
+        when(geminiService.getResponse(anyString(), any())).thenAnswer(invocation -> {
+            inGemini.countDown();
+            geminiAnswers.await(60, TimeUnit.SECONDS);
+            return "Here is 10% off!";
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(NEGOTIATIONS);
+        List<Future<NegotiationResponse>> responses = new ArrayList<>();
+        for (Customer negotiator : negotiators) {
+            NegotiationRequest request = new NegotiationRequest("Any discount?", new BigDecimal("40.00"), null);
+            responses.add(executor.submit(() -> aiNegotiationService.processNegotiationRequest(negotiator, request)));
+        }
+
+        // Act - all 100 are inside the model call, five times the pool size
+        assertTrue(inGemini.await(30, TimeUnit.SECONDS),
+                (NEGOTIATIONS - inGemini.getCount()) + " negotiations reached Gemini");
+        List<Long> underLoad = checkoutLatencies(CHECKOUTS);
+        geminiAnswers.countDown();
+
+        // Assert
+        for (Future<NegotiationResponse> response : responses) {
+            assertTrue(response.get(30, TimeUnit.SECONDS).isOfferMade());
+        }
+        executor.shutdown();
+        assertEquals(NEGOTIATIONS, couponRepository.count());
+        assertEquals(NEGOTIATIONS, negotiationProfileRepository.count());
+
+        // A checkout queued behind a held pool would wait seconds for a connection
+        long idleMedian = percentile(idle, 0.50);
+        long loadMedian = percentile(underLoad, 0.50);
+        assertTrue(loadMedian <= 3 * idleMedian + TimeUnit.MILLISECONDS.toNanos(20),
+                "median " + loadMedian / 1_000 + "us under load vs " + idleMedian / 1_000 + "us idle");
+        assertTrue(percentile(underLoad, 1.0) < TimeUnit.MILLISECONDS.toNanos(1000),
+                "max " + percentile(underLoad, 1.0) / 1_000_000 + "ms under load");
+    }
+
+    private List<Long> checkoutLatencies(int checkouts) {
+        List<Long> latencies = new ArrayList<>(checkouts);
+        for (int i = 0; i < checkouts; i++) {
+            CartItemDTO item = new CartItemDTO();
+            item.setFruitId(fruitId);
+            item.setQuantity(1);
+            CheckoutRequest request = new CheckoutRequest();
+            request.setCartItems(List.of(item));
+
+            long start = System.nanoTime();
+            orderService.createOrder(request, "buyer");
+            latencies.add(System.nanoTime() - start);
+        }
+        Collections.sort(latencies);
+        return latencies;
+    }
+
+    private static long percentile(List<Long> sortedLatencies, double p) {
+        int index = (int) Math.ceil(p * sortedLatencies.size()) - 1;
+        return sortedLatencies.get(Math.max(index, 0));
+    }
+
+    private Customer createCustomer(String username) {
+        Customer customer = new Customer();
+        customer.setUsername(username);
+        customer.setEmail(username + "@example.com");
+        customer.setPassword("secret");
+        return customerRepository.save(customer);
+    }
+}
@@ -0,0 +1,122 @@
+package com.example.project3;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class AnalyticsDashboardFanOutTest {
+
+    @Mock
+    private CustomerRepository customerRepository;
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @Mock
+    private CustomerSegmentTracker customerSegmentTracker;
+
+    @InjectMocks
+    private AnalyticsService analyticsService;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    private final CountDownLatch releaseCustomerCount = new CountDownLatch(1);
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(analyticsService, "meterRegistry", meterRegistry);
+        ReflectionTestUtils.setField(analyticsService, "dashboardThreads", 5);
+        ReflectionTestUtils.setField(analyticsService, "dashboardQueueCapacity", 10);
+        ReflectionTestUtils.setField(analyticsService, "componentTimeoutMs", 300L);
+        analyticsService.startDashboardExecutor();
+
+        OrderRepository.OrderTotals totals = mock(OrderRepository.OrderTotals.class);
+        when(totals.getOrderCount()).thenReturn(4L);
+        when(totals.getRevenue()).thenReturn(new BigDecimal("10.00"));
+        when(salesRollupService.getAllTimeTotals()).thenReturn(totals);
+        when(salesRollupService.getDailyTotalsSince(any())).thenReturn(List.of());
+        when(salesRollupService.getTopProducts(10)).thenReturn(List.of());
+        when(customerSegmentTracker.getSegments()).thenReturn(Map.of("new", 1));
+    }
+
+    @AfterEach
+    void tearDown() {
+        releaseCustomerCount.countDown();
+        analyticsService.stopDashboardExecutor();
+    }
+
+    @Test
+    void getDashboardData_SlowComponentIsUnavailableWithoutBlockingOthers() {
+        // Arrange
+        when(customerRepository.count()).thenAnswer(invocation -> {
+            releaseCustomerCount.await(10, TimeUnit.SECONDS);
+            return 7L;
+        });
+
+        // Act
+        long started = System.nanoTime();
+        Map<String, Object> dashboard = analyticsService.getDashboardData();
+        long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - started);
+
+        // Assert
+        assertTrue(elapsedMs < 2000, "dashboard waited " + elapsedMs + " ms");
+        Map<?, ?> status = (Map<?, ?>) dashboard.get("componentStatus");
+        assertEquals(AnalyticsService.STATUS_UNAVAILABLE, status.get("totalCustomers"));
+        assertEquals(AnalyticsService.STATUS_OK, status.get("totals"));
+        assertFalse(dashboard.containsKey("totalCustomers"));
+        assertEquals(new BigDecimal("2.50"), dashboard.get("averageOrderValue"));
+        assertEquals(1.0, meterRegistry.get("analytics.dashboard.degraded")
+                .tag("component", "totalCustomers").counter().count());
+    }
+
+    @Test
+    void getDashboardData_ServesLastGoodValueAsStale() {
+        // Arrange - first call succeeds, the next one hangs past the deadline
+        when(customerRepository.count()).thenReturn(7L).thenAnswer(invocation -> {
+            releaseCustomerCount.await(10, TimeUnit.SECONDS);
+            return 8L;
+        });
+        analyticsService.getDashboardData();
+
+        // Act
+        Map<String, Object> dashboard = analyticsService.getDashboardData();
+
+        // Assert
+        assertEquals(AnalyticsService.STATUS_STALE, ((Map<?, ?>) dashboard.get("componentStatus")).get("totalCustomers"));
+        assertEquals(7L, dashboard.get("totalCustomers"));
+        assertTrue(meterRegistry.get("analytics.dashboard.component")
+                .tag("component", "totals").tag("outcome", "success").timer().count() >= 2);
+    }
+
+    @Test
+    void getDashboardData_FailingComponentDoesNotFailDashboard() {
+        // Arrange
+        when(customerSegmentTracker.getSegments()).thenThrow(new IllegalStateException("boom"));
+        when(customerRepository.count()).thenReturn(7L);
+
+        // Act
+        Map<String, Object> dashboard = analyticsService.getDashboardData();
+
+        // Assert
+        assertEquals(AnalyticsService.STATUS_UNAVAILABLE, ((Map<?, ?>) dashboard.get("componentStatus")).get("customerSegments"));
+        assertEquals(7L, dashboard.get("totalCustomers"));
+        assertEquals(1, meterRegistry.get("analytics.dashboard.component")
+                .tag("component", "customerSegments").tag("outcome", "error").timer().count());
+    }
+}
@@ -0,0 +1,242 @@
+package com.example.project3;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Pins the rollup-backed analytics to a straightforward in-memory reduction of the
+ * same seeded orders, using the price each item was sold at.
+ */
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({AnalyticsService.class, CustomerSegmentTracker.class, SalesRollupService.class, TopProductsTracker.class,
+        SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class AnalyticsServiceTest {
+
+    @Autowired
+    private AnalyticsService analyticsService;
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private final List<Order> seededOrders = new ArrayList<>();
+    private final List<Fruit> fruits = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(42);
+        List<Category> categories = List.of(
+                categoryRepository.save(new Category("Fruit")),
+                categoryRepository.save(new Category("Vegetables")),
+                categoryRepository.save(new Category("Dairy")));
+
+        for (int i = 0; i < 8; i++) {
+            Fruit fruit = new Fruit("Product " + i, BigDecimal.valueOf(50 + random.nextInt(500), 2));
+            fruit.setCategory(categories.get(i % categories.size()));
+            fruits.add(fruitRepository.save(fruit));
+        }
+
+        Customer customer = new Customer();
+        customer.setUsername("buyer");
+        customer.setEmail("buyer@example.com");
+        customer.setPassword("secret");
+        customer = customerRepository.save(customer);
+
+        LocalDateTime now = LocalDateTime.now();
+        for (int i = 0; i < 60; i++) {
+            Order order = new Order();
+            order.setCustomer(customer);
+            // Half in the last 30 days, the rest spread over the previous year
+            order.setOrderDate(i % 2 == 0 ? now.minusDays(random.nextInt(29)).minusHours(1)
+                                          : now.minusDays(31 + random.nextInt(330)));
+
+            BigDecimal total = BigDecimal.ZERO;
+            int lines = 1 + random.nextInt(3);
+            for (int l = 0; l < lines; l++) {
+                Fruit fruit = fruits.get(random.nextInt(fruits.size()));
+                OrderItem item = new OrderItem();
+                item.setOrder(order);
+                item.setFruit(fruit);
+                item.setQuantity(1 + random.nextInt(6));
+                item.setPrice(fruit.getPrice());
+                order.getOrderItems().add(item);
+                total = total.add(fruit.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            }
+            order.setOriginalAmount(total);
+            order.setTotalAmount(i % 7 == 0 ? total.multiply(new BigDecimal("0.90")).setScale(2, RoundingMode.HALF_UP) : total);
+            seededOrders.add(orderRepository.save(order));
+        }
+
+        // Re-price everything after the sales: analytics must keep using the price at sale
+        for (Fruit fruit : fruits) {
+            fruit.setPrice(fruit.getPrice().add(new BigDecimal("1.00")));
+            fruitRepository.save(fruit);
+        }
+
+        salesRollupService.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        salesRollupRepository.deleteAll();
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        categoryRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void kpis_MatchInMemoryReduction() {
+        // Arrange
+        BigDecimal expectedRevenue = seededOrders.stream()
+                .map(Order::getTotalAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        BigDecimal expectedAverage = expectedRevenue.divide(BigDecimal.valueOf(seededOrders.size()), 2, RoundingMode.HALF_UP);
+
+        // Act
+        Map<String, Object> dashboard = analyticsService.getDashboardData();
+
+        // Assert
+        assertEquals(0, expectedRevenue.compareTo(analyticsService.getTotalRevenue()));
+        assertEquals(0, expectedRevenue.compareTo((BigDecimal) dashboard.get("totalRevenue")));
+        assertEquals(60L, ((Number) dashboard.get("totalOrders")).longValue());
+        assertEquals(expectedAverage, dashboard.get("averageOrderValue"));
+        assertEquals(expectedAverage, analyticsService.getAverageOrderValue());
+        assertEquals(Map.of("totals", "ok", "totalCustomers", "ok", "recentSales", "ok",
+                "topProducts", "ok", "customerSegments", "ok"), dashboard.get("componentStatus"));
+    }
+
+    @Test
+    void monthlyAndRecentSales_MatchInMemoryReduction() {
+        // Arrange
+        Map<String, List<Order>> byMonth = new TreeMap<>();
+        Map<String, List<Order>> byDay = new TreeMap<>();
+        LocalDate firstRecentDay = LocalDate.now().minusDays(29);
+        for (Order order : seededOrders) {
+            LocalDateTime date = order.getOrderDate();
+            byMonth.computeIfAbsent(date.getYear() + "-" + String.format("%02d", date.getMonthValue()),
+                    k -> new ArrayList<>()).add(order);
+            if (!date.toLocalDate().isBefore(firstRecentDay)) {
+                byDay.computeIfAbsent(date.toLocalDate().toString(), k -> new ArrayList<>()).add(order);
+            }
+        }
+
+        // Act
+        List<Map<String, Object>> monthly = analyticsService.getMonthlySalesReport();
+        List<Map<String, Object>> recent = analyticsService.getRecentSalesData();
+
+        // Assert
+        assertEquals(normalize(periodRows("month", byMonth)), normalize(monthly));
+        assertEquals(normalize(periodRows("date", byDay)), normalize(recent));
+    }
+
+    @Test
+    void productAndCategorySales_UsePriceAtSale() {
+        // Arrange
+        Map<String, int[]> quantityByProduct = new HashMap<>();
+        Map<String, BigDecimal> revenueByProduct = new HashMap<>();
+        Map<String, int[]> quantityByCategory = new HashMap<>();
+        Map<String, BigDecimal> revenueByCategory = new HashMap<>();
+        for (Order order : seededOrders) {
+            for (OrderItem item : order.getOrderItems()) {
+                BigDecimal lineTotal = item.getPrice().multiply(BigDecimal.valueOf(item.getQuantity()));
+                String product = item.getFruit().getName();
+                String category = item.getFruit().getCategory().getName();
+                quantityByProduct.computeIfAbsent(product, k -> new int[1])[0] += item.getQuantity();
+                revenueByProduct.merge(product, lineTotal, BigDecimal::add);
+                quantityByCategory.computeIfAbsent(category, k -> new int[1])[0] += item.getQuantity();
+                revenueByCategory.merge(category, lineTotal, BigDecimal::add);
+            }
+        }
+        List<Map<String, Object>> expectedProducts = namedRows(quantityByProduct, revenueByProduct);
+        expectedProducts.sort(Comparator.<Map<String, Object>>comparingInt(m -> -(Integer) m.get("quantitySold"))
+                .thenComparing(m -> (String) m.get("name")));
+        List<Map<String, Object>> expectedCategories = namedRows(quantityByCategory, revenueByCategory);
+        expectedCategories.sort(Comparator.<Map<String, Object>, BigDecimal>comparing(m -> (BigDecimal) m.get("revenue"))
+                .reversed().thenComparing(m -> (String) m.get("name")));
+
+        // Act
+        List<Map<String, Object>> topProducts = analyticsService.getTopSellingProducts();
+        List<Map<String, Object>> categories = analyticsService.getCategoryPerformance();
+
+        // Assert
+        assertEquals(normalize(expectedProducts), normalize(topProducts));
+        assertEquals(normalize(expectedCategories), normalize(categories));
+    }
+
+    private List<Map<String, Object>> periodRows(String key, Map<String, List<Order>> grouped) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        grouped.forEach((period, orders) -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put(key, period);
+            row.put("orders", orders.size());
+            row.put("revenue", orders.stream().map(Order::getTotalAmount).reduce(BigDecimal.ZERO, BigDecimal::add));
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    private List<Map<String, Object>> namedRows(Map<String, int[]> quantities, Map<String, BigDecimal> revenue) {
+        List<Map<String, Object>> rows = new ArrayList<>();
+        quantities.forEach((name, quantity) -> {
+            Map<String, Object> row = new HashMap<>();
+            row.put("name", name);
+            row.put("quantitySold", quantity[0]);
+            row.put("revenue", revenue.get(name));
+            rows.add(row);
+        });
+        return rows;
+    }
+
+    // BigDecimal scale differs between Java arithmetic and SQL sums; compare by value
+    private List<Map<String, Object>> normalize(List<Map<String, Object>> rows) {
+        List<Map<String, Object>> normalized = new ArrayList<>();
+        for (Map<String, Object> row : rows) {
+            Map<String, Object> copy = new LinkedHashMap<>();
+            row.forEach((k, v) -> copy.put(k, v instanceof BigDecimal d ? d.stripTrailingZeros().toPlainString() : v));
+            normalized.add(copy);
+        }
+        return normalized;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.project3;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false, properties = {
+        "app.checkout.batching.enabled=true",
+        "app.checkout.batching.max-batch-size=16",
+        "app.checkout.batching.max-wait-ms=20"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({OrderService.class, OrderMapper.class, CheckoutMetrics.class, SimpleMeterRegistry.class, CheckoutBatcher.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutBatcherTest {
+
+    private static final int INITIAL_STOCK = 50;
+
+    @Autowired
+    private CheckoutBatcher checkoutBatcher;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @MockBean
+    private CustomerProfileService customerProfileService;
+
+    @MockBean
+    private CouponService couponService;
+
+    @MockBean
+    private OrderOutboxService orderOutboxService;
+
+    private Fruit fruit;
+
+    @BeforeEach
+    void setUp() {
+        Category category = categoryRepository.save(new Category("Stone fruit"));
+
+        fruit = new Fruit("Peach", new BigDecimal("1.20"));
+        fruit.setStock(INITIAL_STOCK);
+        fruit.setCategory(category);
+        fruit = fruitRepository.save(fruit);
+
+        Customer customer = new Customer();
+        customer.setUsername("buyer");
+        customer.setEmail("buyer@example.com");
+        customer.setPassword("secret");
+        customerRepository.save(customer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        categoryRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void submit_CoalescesConcurrentCheckoutsWithoutOverselling() throws Exception {
+        // Arrange
+        int threads = 20;
+        int attemptsPerThread = 5;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch startGate = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger rejections = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            futures.add(executor.submit(() -> {
+                startGate.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    try {
+                        OrderDTO order = checkoutBatcher.submit(checkoutFor(fruit.getId(), 1), "buyer");
+                        assertNotNull(order.getId());
+                        successes.incrementAndGet();
+                    } catch (OrderService.InsufficientStockException e) {
+                        rejections.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        startGate.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(INITIAL_STOCK, successes.get());
+        assertEquals(threads * attemptsPerThread - INITIAL_STOCK, rejections.get());
+        assertEquals(0, fruitRepository.findById(fruit.getId()).orElseThrow().getStock());
+        assertEquals(INITIAL_STOCK, orderRepository.count());
+        assertTrue(checkoutBatcher.getBatchCount() < threads * attemptsPerThread,
+                "expected requests to share batches, got " + checkoutBatcher.getBatchCount() + " batches");
+    }
+
+    @Test
+    void submit_TimedOutCheckoutIsNeverCommitted() {
+        // Arrange - the worker holds the request for the 20 ms coalescing window, far past 1 ms
+        ReflectionTestUtils.setField(checkoutBatcher, "requestTimeoutMs", 1L);
+        IllegalStateException timeout;
+        try {
+            // Act
+            timeout = assertThrows(IllegalStateException.class,
+                    () -> checkoutBatcher.submit(checkoutFor(fruit.getId(), 3), "buyer"));
+        } finally {
+            ReflectionTestUtils.setField(checkoutBatcher, "requestTimeoutMs", 10000L);
+        }
+        // Queued behind the timed-out request on the single worker, so it is answered after it
+        OrderDTO next = checkoutBatcher.submit(checkoutFor(fruit.getId(), 1), "buyer");
+
+        // Assert
+        assertTrue(timeout.getMessage().contains("Timed out"));
+        assertNotNull(next.getId());
+        assertEquals(1, orderRepository.count());
+        assertEquals(INITIAL_STOCK - 1, fruitRepository.findById(fruit.getId()).orElseThrow().getStock());
+    }
+
+    @Test
+    void createOrders_FailsOnlyTheRequestsThatCannotBeServed() {
+        // Arrange
+        List<OrderService.BatchCheckout> batch = List.of(
+                new OrderService.BatchCheckout(checkoutFor(fruit.getId(), 10), "buyer"),
+                new OrderService.BatchCheckout(checkoutFor(fruit.getId(), 45), "buyer"),
+                new OrderService.BatchCheckout(checkoutFor(-1L, 1), "buyer"),
+                new OrderService.BatchCheckout(checkoutFor(fruit.getId(), 1), "nobody"),
+                new OrderService.BatchCheckout(checkoutFor(fruit.getId(), 40), "buyer"));
+        long committedBefore = checkoutLatency("committed").count();
+        long rolledBackBefore = checkoutLatency("rolled_back").count();
+
+        // Act
+        List<OrderService.BatchOutcome> outcomes = orderService.createOrders(batch);
+
+        // Assert
+        assertNotNull(outcomes.get(0).getOrder());
+        assertInstanceOf(OrderService.InsufficientStockException.class, outcomes.get(1).getError());
+        assertInstanceOf(OrderService.ProductNotFoundException.class, outcomes.get(2).getError());
+        assertNotNull(outcomes.get(3).getError());
+        assertNotNull(outcomes.get(4).getOrder());
+        assertEquals(0, fruitRepository.findById(fruit.getId()).orElseThrow().getStock());
+        assertEquals(2, orderRepository.count());
+        // Latency is recorded per caller around the proxy, never by the batch transaction itself
+        assertEquals(committedBefore, checkoutLatency("committed").count());
+        assertEquals(rolledBackBefore, checkoutLatency("rolled_back").count());
+    }
+
+    private Timer checkoutLatency(String outcome) {
+        return meterRegistry.get(CheckoutMetrics.CHECKOUT).tag("outcome", outcome).timer();
+    }
+
+    private CheckoutRequest checkoutFor(Long fruitId, int quantity) {
+        CartItemDTO item = new CartItemDTO();
+        item.setFruitId(fruitId);
+        item.setQuantity(quantity);
+
+        CheckoutRequest request = new CheckoutRequest();
+        request.setCartItems(List.of(item));
+        return request;
+    }
+}
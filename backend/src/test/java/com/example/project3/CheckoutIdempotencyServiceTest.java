@@ -0,0 +1,205 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckoutIdempotencyServiceTest {
+
+    private CheckoutIdempotencyService idempotencyService;
+    private AtomicInteger checkoutCalls;
+
+    @BeforeEach
+    void setUp() {
+        idempotencyService = new CheckoutIdempotencyService();
+        ReflectionTestUtils.setField(idempotencyService, "ttlMinutes", 60L);
+        ReflectionTestUtils.setField(idempotencyService, "maxEntries", 100);
+        ReflectionTestUtils.setField(idempotencyService, "waitTimeoutMs", 5000L);
+        checkoutCalls = new AtomicInteger();
+    }
+
+    @Test
+    void execute_ReplaysStoredResponse() {
+        // Act
+        CheckoutIdempotencyService.CheckoutResult first =
+                idempotencyService.execute("buyer", "key-1", checkoutRequest(3), this::createOrder);
+        first.getOrder().setFulfilled(true);
+        CheckoutIdempotencyService.CheckoutResult replay =
+                idempotencyService.execute("buyer", "key-1", checkoutRequest(3), this::createOrder);
+
+        // Assert - the replay is the response as originally sent, not the order's current state
+        assertFalse(first.isReplayed());
+        assertTrue(replay.isReplayed());
+        assertEquals(first.getOrder().getId(), replay.getOrder().getId());
+        assertEquals(new BigDecimal("4.50"), replay.getOrder().getTotalAmount());
+        assertEquals(LocalDateTime.of(2024, 3, 1, 12, 30), replay.getOrder().getOrderDate());
+        assertFalse(replay.getOrder().isFulfilled());
+        assertEquals(1, checkoutCalls.get());
+    }
+
+    @Test
+    void execute_EvictsLeastRecentlyUsedKeyWhenFull() {
+        // Arrange
+        ReflectionTestUtils.setField(idempotencyService, "maxEntries", 2);
+        idempotencyService.execute("buyer", "key-1", checkoutRequest(3), this::createOrder);
+        idempotencyService.execute("buyer", "key-2", checkoutRequest(3), this::createOrder);
+        idempotencyService.execute("buyer", "key-1", checkoutRequest(3), this::createOrder);
+
+        // Act
+        idempotencyService.execute("buyer", "key-3", checkoutRequest(3), this::createOrder);
+
+        // Assert - key-2 was evicted, key-1 was touched by its replay and is kept
+        assertEquals(2, idempotencyService.size());
+        assertTrue(idempotencyService.execute("buyer", "key-1", checkoutRequest(3), this::createOrder).isReplayed());
+        assertFalse(idempotencyService.execute("buyer", "key-2", checkoutRequest(3), this::createOrder).isReplayed());
+    }
+
+    @Test
+    void execute_KeysAreScopedPerUser() {
+        // Act
+        idempotencyService.execute("buyer", "key-1", checkoutRequest(3), this::createOrder);
+        CheckoutIdempotencyService.CheckoutResult other =
+                idempotencyService.execute("someone-else", "key-1", checkoutRequest(3), this::createOrder);
+
+        // Assert
+        assertFalse(other.isReplayed());
+        assertEquals(2, checkoutCalls.get());
+    }
+
+    @Test
+    void execute_RejectsKeyReusedForDifferentCart() {
+        // Arrange
+        idempotencyService.execute("buyer", "key-1", checkoutRequest(3), this::createOrder);
+
+        // Act & Assert
+        assertThrows(CheckoutIdempotencyService.IdempotencyKeyReuseException.class, () -> {
+            idempotencyService.execute("buyer", "key-1", checkoutRequest(4), this::createOrder);
+        });
+        assertEquals(1, checkoutCalls.get());
+    }
+
+    @Test
+    void execute_RejectsDifferentCartWhoseLinesHashAlike() {
+        // Arrange - 1 x 32 and 2 x 1 have the same 31-based hash code
+        idempotencyService.execute("buyer", "key-1", checkoutRequest(1L, 32), this::createOrder);
+
+        // Act & Assert
+        assertThrows(CheckoutIdempotencyService.IdempotencyKeyReuseException.class, () -> {
+            idempotencyService.execute("buyer", "key-1", checkoutRequest(2L, 1), this::createOrder);
+        });
+        assertEquals(1, checkoutCalls.get());
+    }
+
+    @Test
+    void execute_FailedCheckoutIsNotRemembered() {
+        // Arrange
+        assertThrows(OrderService.InsufficientStockException.class, () -> {
+            idempotencyService.execute("buyer", "key-1", checkoutRequest(3), () -> {
+                throw new OrderService.InsufficientStockException("Out of stock");
+            });
+        });
+
+        // Act
+        CheckoutIdempotencyService.CheckoutResult retry =
+                idempotencyService.execute("buyer", "key-1", checkoutRequest(3), this::createOrder);
+
+        // Assert
+        assertFalse(retry.isReplayed());
+        assertEquals(1, checkoutCalls.get());
+    }
+
+    @Test
+    void execute_ConcurrentDuplicatesWaitForFirstRequest() throws Exception {
+        // Arrange
+        int threads = 8;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<CheckoutIdempotencyService.CheckoutResult>> futures = new ArrayList<>();
+
+        for (int i = 0; i < threads; i++) {
+            futures.add(executor.submit(() -> {
+                startGate.await();
+                return idempotencyService.execute("buyer", "key-1", checkoutRequest(3), () -> {
+                    sleep(200);
+                    return createOrder();
+                });
+            }));
+        }
+
+        // Act
+        startGate.countDown();
+        List<CheckoutIdempotencyService.CheckoutResult> results = new ArrayList<>();
+        for (Future<CheckoutIdempotencyService.CheckoutResult> future : futures) {
+            results.add(future.get(10, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(1, checkoutCalls.get());
+        assertEquals(1, results.stream().filter(r -> !r.isReplayed()).count());
+        assertTrue(results.stream().allMatch(r -> r.getOrder().getId().equals(1L)));
+    }
+
+    @Test
+    void evictExpired_RemovesCompletedEntriesPastTtl() {
+        // Arrange
+        idempotencyService.execute("buyer", "key-1", checkoutRequest(3), this::createOrder);
+        ReflectionTestUtils.setField(idempotencyService, "ttlMinutes", -1L);
+
+        // Act
+        idempotencyService.evictExpired();
+
+        // Assert
+        assertEquals(0, idempotencyService.size());
+    }
+
+    @Test
+    void execute_RejectsOverlongKey() {
+        assertThrows(OrderService.InvalidOrderException.class, () -> {
+            idempotencyService.execute("buyer", "k".repeat(256), checkoutRequest(3), this::createOrder);
+        });
+    }
+
+    private OrderDTO createOrder() {
+        OrderDTO order = new OrderDTO();
+        order.setId((long) checkoutCalls.incrementAndGet());
+        order.setOrderDate(LocalDateTime.of(2024, 3, 1, 12, 30));
+        order.setTotalAmount(new BigDecimal("4.50"));
+        return order;
+    }
+
+    private CheckoutRequest checkoutRequest(int quantity) {
+        return checkoutRequest(1L, quantity);
+    }
+
+    private CheckoutRequest checkoutRequest(Long fruitId, int quantity) {
+        CartItemDTO item = new CartItemDTO();
+        item.setFruitId(fruitId);
+        item.setQuantity(quantity);
+
+        CheckoutRequest request = new CheckoutRequest();
+        request.setCartItems(List.of(item));
+        return request;
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.project3;
+
+import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.distribution.CountAtBucket;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CheckoutMetricsTest {
+
+    private SimpleMeterRegistry registry;
+    private CheckoutMetrics checkoutMetrics;
+
+    @BeforeEach
+    void setUp() {
+        registry = new SimpleMeterRegistry();
+        checkoutMetrics = new CheckoutMetrics();
+        ReflectionTestUtils.setField(checkoutMetrics, "meterRegistry", registry);
+        ReflectionTestUtils.setField(checkoutMetrics, "latencySloMs", new long[]{50, 100, 250});
+        ReflectionTestUtils.setField(checkoutMetrics, "stepSloMs", new long[]{5, 10});
+        ReflectionTestUtils.setField(checkoutMetrics, "valueSlo", new double[]{10, 50});
+        checkoutMetrics.registerMeters();
+    }
+
+    @Test
+    void getSummary_ReportsPercentilesOfOrderValues() {
+        // Arrange - order totals 1..100
+        for (int total = 1; total <= 100; total++) {
+            checkoutMetrics.recordOrderValue(BigDecimal.valueOf(total));
+        }
+
+        // Act
+        @SuppressWarnings("unchecked")
+        Map<String, Object> orderValue = (Map<String, Object>) checkoutMetrics.getSummary().get("orderValue");
+
+        // Assert - HdrHistogram percentiles at two significant digits
+        assertEquals(100L, orderValue.get("countSinceStart"));
+        assertEquals(50.0, (Double) orderValue.get("p50"), 1.0);
+        assertEquals(90.0, (Double) orderValue.get("p90"), 1.0);
+        assertEquals(99.0, (Double) orderValue.get("p99"), 1.0);
+        assertEquals(100.0, orderValue.get("max"));
+    }
+
+    @Test
+    void timeCheckout_RecordsOnceByOutcome() {
+        // Act
+        OrderDTO order = checkoutMetrics.timeCheckout(OrderDTO::new);
+        checkoutMetrics.timeCheckout(OrderDTO::new);
+        assertThrows(OrderService.InsufficientStockException.class, () -> checkoutMetrics.timeCheckout(() -> {
+            throw new OrderService.InsufficientStockException("Out of stock");
+        }));
+
+        // Assert
+        assertNotNull(order);
+        assertEquals(2, registry.get(CheckoutMetrics.CHECKOUT).tag("outcome", "committed").timer().count());
+        assertEquals(1, registry.get(CheckoutMetrics.CHECKOUT).tag("outcome", "rolled_back").timer().count());
+    }
+
+    @Test
+    void timeStockReservation_FillsServiceLevelBuckets() {
+        // Act
+        Integer result = checkoutMetrics.timeStockReservation(() -> 42);
+
+        // Assert
+        Timer timer = registry.get(CheckoutMetrics.STOCK_RESERVATION).timer();
+        assertEquals(42, result);
+        assertEquals(1, timer.count());
+        CountAtBucket[] buckets = timer.takeSnapshot().histogramCounts();
+        assertEquals(2, buckets.length);
+        assertEquals(5, buckets[0].bucket(TimeUnit.MILLISECONDS), 0.001);
+        assertEquals(1, buckets[1].count(), 0.001);
+    }
+}
@@ -0,0 +1,145 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.YearMonth;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(CohortRetentionService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CohortRetentionServiceTest {
+
+    @Autowired
+    private CohortRetentionService cohortRetentionService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private final YearMonth thisMonth = YearMonth.now();
+    private int customers;
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void getRetention_ReportsNotReadyInsteadOfScanningBeforeTheFirstBuild() {
+        // Arrange
+        CohortRetentionService target = AopTestUtils.getTargetObject(cohortRetentionService);
+        ReflectionTestUtils.setField(target, "matrix", null);
+
+        // Act & Assert
+        assertThrows(CohortRetentionService.RetentionNotReadyException.class,
+                () -> cohortRetentionService.getRetention(12));
+        assertNull(ReflectionTestUtils.getField(target, "matrix"));
+    }
+
+    @Test
+    void rebuild_CountsCustomersActivePerMonthSinceSignup() {
+        // Arrange - cohort three months ago: a orders in months 0 and 2 (twice), b in month 1, c never
+        YearMonth cohort = thisMonth.minusMonths(3);
+        Customer a = saveCustomer(cohort);
+        Customer b = saveCustomer(cohort);
+        saveCustomer(cohort);
+        saveOrder(a, cohort);
+        saveOrder(a, cohort.plusMonths(2));
+        saveOrder(a, cohort.plusMonths(2));
+        saveOrder(b, cohort.plusMonths(1));
+
+        // Act
+        CohortRetentionService.RetentionMatrix matrix = cohortRetentionService.rebuild();
+        Map<String, Object> json = cohortRetentionService.getRetention(12);
+
+        // Assert
+        assertEquals(3, matrix.getSize(cohort));
+        assertEquals(1, matrix.getActive(cohort, 0));
+        assertEquals(1, matrix.getActive(cohort, 1));
+        assertEquals(1, matrix.getActive(cohort, 2));
+        assertEquals(0, matrix.getActive(cohort, 3));
+        List<?> rows = (List<?>) json.get("cohorts");
+        assertEquals(Map.of("cohort", cohort.toString(), "customers", 3,
+                "activeCustomers", List.of(1, 1, 1, 0),
+                "retentionPercent", List.of(33.3, 33.3, 33.3, 0.0)), rows.get(0));
+    }
+
+    @Test
+    void refreshRecent_MatchesFullRebuild() {
+        // Arrange - a year of signups and orders, then new activity after the first build
+        Random random = new Random(11);
+        List<Customer> all = new ArrayList<>();
+        for (int m = 12; m >= 0; m--) {
+            for (int i = 0; i < 1 + random.nextInt(4); i++) {
+                Customer customer = saveCustomer(thisMonth.minusMonths(m));
+                all.add(customer);
+                for (int o = 0; o < random.nextInt(4); o++) {
+                    saveOrder(customer, thisMonth.minusMonths(random.nextInt(m + 1)));
+                }
+            }
+        }
+        cohortRetentionService.rebuild();
+        for (int i = 0; i < 15; i++) {
+            Customer customer = all.get(random.nextInt(all.size()));
+            saveOrder(customer, random.nextBoolean() ? thisMonth : thisMonth.minusMonths(1));
+        }
+        saveOrder(saveCustomer(thisMonth), thisMonth);
+
+        // Act
+        cohortRetentionService.refreshRecent();
+        Map<String, Object> incremental = withoutTimestamp(cohortRetentionService.getRetention(24));
+        cohortRetentionService.rebuild();
+        Map<String, Object> rebuilt = withoutTimestamp(cohortRetentionService.getRetention(24));
+
+        // Assert
+        assertEquals(13, ((List<?>) rebuilt.get("cohorts")).size());
+        assertEquals(rebuilt, incremental);
+    }
+
+    private Map<String, Object> withoutTimestamp(Map<String, Object> retention) {
+        retention.remove("generatedAt");
+        return retention;
+    }
+
+    private Customer saveCustomer(YearMonth signup) {
+        customers++;
+        Customer customer = new Customer();
+        customer.setUsername("cohort" + customers);
+        customer.setEmail("cohort" + customers + "@example.com");
+        customer.setPassword("secret");
+        customer.setCreatedAt(signup.atDay(1).atTime(8, 0));
+        return customerRepository.save(customer);
+    }
+
+    private void saveOrder(Customer customer, YearMonth month) {
+        Order order = new Order();
+        order.setCustomer(customer);
+        LocalDateTime date = month.atDay(1).atTime(12, 0);
+        order.setOrderDate(date);
+        order.setTotalAmount(BigDecimal.ONE);
+        orderRepository.save(order);
+    }
+}
@@ -0,0 +1,260 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.when;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({AINegotiationService.class, CustomerTierService.class, CustomerProfileService.class, CouponService.class,
+        DirtyCustomerTracker.class, StatementCounter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerProfileCacheTest {
+
+    @Autowired
+    private AINegotiationService aiNegotiationService;
+
+    @Autowired
+    private CustomerProfileService customerProfileService;
+
+    @Autowired
+    private CustomerProfileRepository customerProfileRepository;
+
+    @Autowired
+    private NegotiationProfileRepository negotiationProfileRepository;
+
+    @Autowired
+    private CouponRepository couponRepository;
+
+    @Autowired
+    private DirtyCustomerSetRepository dirtyCustomerSetRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockBean
+    private GeminiService geminiService;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        customer = new Customer();
+        customer.setUsername("negotiator");
+        customer.setEmail("negotiator@example.com");
+        customer.setPassword("secret");
+        customer = customerRepository.save(customer);
+
+        when(geminiService.getResponse(anyString(), any())).thenReturn("Here is 10% off!");
+    }
+
+    @AfterEach
+    void tearDown() {
+        couponRepository.deleteAll();
+        negotiationProfileRepository.deleteAll();
+        dirtyCustomerSetRepository.deleteAll();
+        customerProfileRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void negotiation_ReadsTheProfileOnceAndCreatesItOnlyOnce() {
+        // Act
+        Map<String, Integer> first = countStatementsForNegotiation();
+        Map<String, Integer> second = countStatementsForNegotiation();
+
+        // Assert - one read for the context and one for the outcome; the tier and capability
+        // lookups reuse the row the context transaction already read
+        assertEquals(1, first.get("insert into customer_profiles"));
+        assertEquals(0, second.get("insert into customer_profiles"));
+        assertEquals(2, second.get("select from customer_profiles"));
+        CustomerProfile profile = customerProfileRepository.findByCustomerId(customer.getId()).orElseThrow();
+        assertEquals(2, profile.getNegotiationAttempts());
+        assertEquals(1, customerProfileRepository.count());
+    }
+
+    @Test
+    void getOrCreateProfile_ConcurrentFirstRequestsCreateOneProfile() throws Exception {
+        // Arrange
+        int threads = 6;
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            results.add(executor.submit(() -> {
+                start.await();
+                return customerProfileService.getOrCreateProfile(customer.getId()).getId();
+            }));
+        }
+
+        // Act
+        start.countDown();
+        Set<Long> profileIds = new HashSet<>();
+        for (Future<Long> result : results) {
+            profileIds.add(result.get(30, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(1, profileIds.size());
+        assertEquals(1, customerProfileRepository.count());
+    }
+
+    @Test
+    @Timeout(120)
+    void getOrCreateProfile_MoreConcurrentFirstRequestsThanPoolConnections() throws Exception {
+        // Arrange - more callers than the pool's 20 connections, each already holding one
+        int threads = 25;
+        List<Long> customerIds = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Customer other = new Customer();
+            other.setUsername("first-" + i);
+            other.setEmail("first-" + i + "@example.com");
+            other.setPassword("secret");
+            customerIds.add(customerRepository.save(other).getId());
+        }
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<Long>> results = new ArrayList<>();
+        for (int i = 0; i < threads; i++) {
+            Long customerId = customerIds.get(i % customerIds.size());
+            results.add(executor.submit(() -> {
+                start.await();
+                return transaction.execute(status -> customerProfileService.getOrCreateProfile(customerId).getId());
+            }));
+        }
+
+        // Act
+        start.countDown();
+        Set<Long> profileIds = new HashSet<>();
+        for (Future<Long> result : results) {
+            profileIds.add(result.get(60, TimeUnit.SECONDS));
+        }
+        executor.shutdown();
+
+        // Assert
+        assertEquals(customerIds.size(), profileIds.size());
+        assertEquals(customerIds.size(), customerProfileRepository.count());
+    }
+
+    @Test
+    void negotiation_ConcurrentNegotiationsKeepEveryAttempt() throws Exception {
+        // Arrange - every negotiation waits in Gemini until all have read the profile
+        int threads = 6;
+        customerProfileService.getOrCreateProfile(customer.getId());
+        CountDownLatch inGemini = new CountDownLatch(threads);
+        when(geminiService.getResponse(anyString(), any())).thenAnswer(invocation -> {
+            inGemini.countDown();
+            inGemini.await(30, TimeUnit.SECONDS);
+            return "Here is 10% off!";
+        });
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        List<Future<NegotiationResponse>> responses = new ArrayList<>();
+
+        // Act
+        for (int i = 0; i < threads; i++) {
+            NegotiationRequest request = new NegotiationRequest("Any discount?", new BigDecimal("40.00"), null);
+            responses.add(executor.submit(() -> aiNegotiationService.processNegotiationRequest(customer, request)));
+        }
+        for (Future<NegotiationResponse> response : responses) {
+            assertTrue(response.get(30, TimeUnit.SECONDS).isOfferMade());
+        }
+        executor.shutdown();
+
+        // Assert
+        CustomerProfile profile = customerProfileRepository.findByCustomerId(customer.getId()).orElseThrow();
+        assertEquals(threads, profile.getNegotiationAttempts());
+        assertEquals(threads, profile.getSuccessfulNegotiations());
+    }
+
+    @Test
+    void recordEmailActivity_KeepsANegotiationCommittedMeanwhile() throws Exception {
+        // Arrange
+        customerProfileService.getOrCreateProfile(customer.getId());
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        List<Future<NegotiationResponse>> negotiation = new ArrayList<>();
+
+        // Act - a negotiation starts while the email activity transaction has read the profile
+        transaction.executeWithoutResult(status -> {
+            customerProfileService.recordEmailActivity(customer.getId(), "sent");
+            NegotiationRequest request = new NegotiationRequest("Any discount?", new BigDecimal("40.00"), null);
+            negotiation.add(executor.submit(() -> aiNegotiationService.processNegotiationRequest(customer, request)));
+            sleep(1000);
+        });
+        assertTrue(negotiation.get(0).get(30, TimeUnit.SECONDS).isOfferMade());
+        executor.shutdown();
+
+        // Assert
+        CustomerProfile profile = customerProfileRepository.findByCustomerId(customer.getId()).orElseThrow();
+        assertEquals(1, profile.getEmailsSent());
+        assertEquals(1, profile.getNegotiationAttempts());
+    }
+
+    @Test
+    void getOrCreateProfile_CreatesAgainAfterTheProfileWasDeleted() {
+        // Arrange
+        CustomerProfile original = customerProfileService.getOrCreateProfile(customer.getId());
+        customerProfileService.deleteProfile(original);
+
+        // Act
+        CustomerProfile recreated = customerProfileService.getOrCreateProfile(customer.getId());
+
+        // Assert
+        assertNotEquals(original.getId(), recreated.getId());
+        assertEquals(1, customerProfileRepository.count());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private Map<String, Integer> countStatementsForNegotiation() {
+        NegotiationRequest request = new NegotiationRequest("Can I get a discount?", new BigDecimal("40.00"), null);
+
+        StatementCounter.reset();
+        NegotiationResponse response = aiNegotiationService.processNegotiationRequest(customer, request);
+        Map<String, Integer> counts = StatementCounter.count("select from customer_profiles",
+                "insert into customer_profiles");
+
+        assertTrue(response.isOfferMade(), response.getAiResponse());
+        return counts;
+    }
+}
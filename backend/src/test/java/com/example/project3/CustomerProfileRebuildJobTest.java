@@ -0,0 +1,232 @@
+package com.example.project3;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false, properties = {
+        "app.profiles.rebuild.chunk-size=2",
+        "app.profiles.rebuild.threads=3"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({CustomerProfileRebuildJob.class, CustomerProfileService.class, DirtyCustomerTracker.class,
+        SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerProfileRebuildJobTest {
+
+    private static final int CUSTOMERS = 11;
+
+    @Autowired
+    private CustomerProfileRebuildJob customerProfileRebuildJob;
+
+    @Autowired
+    private JobCheckpointRepository jobCheckpointRepository;
+
+    @Autowired
+    private DirtyCustomerTracker dirtyCustomerTracker;
+
+    @Autowired
+    private DirtyCustomerSetRepository dirtyCustomerSetRepository;
+
+    @Autowired
+    private CustomerProfileService customerProfileService;
+
+    @Autowired
+    private CustomerProfileRepository customerProfileRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    private final List<Long> customerIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Category category = categoryRepository.save(new Category("Fruit"));
+        Fruit apple = new Fruit("Apple", new BigDecimal("2.50"));
+        apple.setCategory(category);
+        apple = fruitRepository.save(apple);
+
+        // Customer i has i % 3 orders, so some customers have nothing to recompute
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Customer customer = new Customer();
+            customer.setUsername("buyer" + i);
+            customer.setEmail("buyer" + i + "@example.com");
+            customer.setPassword("secret");
+            customer = customerRepository.save(customer);
+            customerIds.add(customer.getId());
+            for (int o = 0; o < i % 3; o++) {
+                Order order = new Order();
+                order.setCustomer(customer);
+                order.setOrderDate(LocalDateTime.now().minusDays(5 + o));
+                OrderItem item = new OrderItem();
+                item.setOrder(order);
+                item.setFruit(apple);
+                item.setQuantity(2);
+                item.setPrice(apple.getPrice());
+                order.getOrderItems().add(item);
+                order.setTotalAmount(new BigDecimal("5.00"));
+                orderRepository.save(order);
+            }
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        jobCheckpointRepository.deleteAll();
+        dirtyCustomerSetRepository.deleteAll();
+        customerProfileRepository.deleteAll();
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        categoryRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void run_RecomputesEveryCustomerInParallelChunks() {
+        // Arrange - the registry is shared with the other tests
+        double processedBefore = meterRegistry.get("profiles.rebuild.processed").counter().count();
+
+        // Act - pages of 6 ids, split into chunks of 2 on 3 threads
+        JobCheckpoint checkpoint = customerProfileRebuildJob.run().orElseThrow();
+
+        // Assert
+        assertEquals(JobCheckpoint.Status.COMPLETED, checkpoint.getStatus());
+        assertEquals(CUSTOMERS, checkpoint.getProcessed());
+        assertEquals(0, checkpoint.getFailed());
+        assertEquals(customerIds.get(CUSTOMERS - 1), checkpoint.getLastProcessedId());
+        for (int i = 0; i < CUSTOMERS; i++) {
+            int expectedOrders = i % 3;
+            Optional<CustomerProfile> profile = customerProfileRepository.findByCustomerId(customerIds.get(i));
+            if (expectedOrders == 0) {
+                assertTrue(profile.isEmpty(), "customer " + i);
+            } else {
+                assertEquals(expectedOrders, profile.orElseThrow().getTotalOrders(), "customer " + i);
+                assertEquals(0, new BigDecimal("5.00").multiply(BigDecimal.valueOf(expectedOrders))
+                        .compareTo(profile.get().getTotalSpent()), "customer " + i);
+            }
+        }
+        assertTrue(meterRegistry.get("profiles.rebuild.throughput").gauge().value() > 0);
+        assertEquals(CUSTOMERS, meterRegistry.get("profiles.rebuild.processed").counter().count() - processedBefore);
+    }
+
+    @Test
+    void run_StartsAFreshPassAfterACompletedRun() {
+        // Arrange
+        customerProfileRebuildJob.run();
+
+        // Act
+        JobCheckpoint checkpoint = customerProfileRebuildJob.run().orElseThrow();
+
+        // Assert - progress was reset rather than continued
+        assertEquals(CUSTOMERS, checkpoint.getProcessed());
+        assertEquals(JobCheckpoint.Status.COMPLETED, checkpoint.getStatus());
+    }
+
+    @Test
+    void run_ResumesAfterTheLastCheckpointedCustomer() {
+        // Arrange - a previous run died after checkpointing the first five customers
+        JobCheckpoint interrupted = new JobCheckpoint(CustomerProfileRebuildJob.JOB_NAME);
+        interrupted.start();
+        interrupted.advance(customerIds.get(4), 5, 0);
+        jobCheckpointRepository.save(interrupted);
+
+        // Act
+        JobCheckpoint checkpoint = customerProfileRebuildJob.run().orElseThrow();
+
+        // Assert
+        assertEquals(JobCheckpoint.Status.COMPLETED, checkpoint.getStatus());
+        assertEquals(CUSTOMERS, checkpoint.getProcessed());
+        for (int i = 0; i < CUSTOMERS; i++) {
+            boolean recomputed = customerProfileRepository.findByCustomerId(customerIds.get(i)).isPresent();
+            assertEquals(i > 4 && i % 3 != 0, recomputed, "customer " + i);
+        }
+    }
+
+    @Test
+    void runDirty_RecomputesOnlyMarkedAndAgedCustomers() {
+        // Arrange - every customer with orders has a profile, then all of them go stale
+        customerProfileRebuildJob.run();
+        customerProfileRepository.findAll().forEach(profile -> {
+            profile.setTotalOrders(99);
+            customerProfileRepository.save(profile);
+        });
+        // Crossed 31 days since the last order in the last day: risk and tier move
+        Customer lapsed = customerRepository.findById(customerIds.get(10)).orElseThrow();
+        Order old = orderRepository.findByCustomerId(lapsed.getId()).get(0);
+        old.setOrderDate(LocalDateTime.now().minusDays(31).minusHours(2));
+        orderRepository.save(old);
+        CustomerProfile lapsedProfile = customerProfileRepository.findByCustomerId(lapsed.getId()).orElseThrow();
+        lapsedProfile.setLastOrderDate(old.getOrderDate());
+        lapsedProfile.setFirstOrderDate(old.getOrderDate());
+        customerProfileRepository.save(lapsedProfile);
+
+        dirtyCustomerTracker.mark(customerIds.get(1));
+        dirtyCustomerTracker.mark(customerIds.get(2));
+        dirtyCustomerTracker.flush();
+        // Still buffered when the run starts
+        dirtyCustomerTracker.mark(customerIds.get(4));
+
+        // Act
+        JobCheckpoint checkpoint = customerProfileRebuildJob.runDirty().orElseThrow();
+
+        // Assert
+        assertEquals(4, checkpoint.getProcessed());
+        for (int i = 0; i < CUSTOMERS; i++) {
+            Optional<CustomerProfile> profile = customerProfileRepository.findByCustomerId(customerIds.get(i));
+            if (i % 3 == 0) {
+                continue;
+            }
+            boolean refreshed = i == 1 || i == 2 || i == 4 || i == 10;
+            assertEquals(refreshed ? i % 3 : 99, profile.orElseThrow().getTotalOrders(), "customer " + i);
+        }
+        CustomerProfile refreshedLapsed = customerProfileRepository.findByCustomerId(lapsed.getId()).orElseThrow();
+        assertEquals("Medium", refreshedLapsed.getRiskLevel());
+        assertEquals(0, dirtyCustomerTracker.countPending());
+        assertTrue(dirtyCustomerTracker.loadRebuilding().isEmpty());
+    }
+
+    @Test
+    void runDirty_SecondRunOnlySeesNewMarks() {
+        // Arrange
+        dirtyCustomerTracker.mark(customerIds.get(1));
+        customerProfileRebuildJob.runDirty();
+        customerProfileService.recordEmailActivity(customerIds.get(5), "sent");
+
+        // Act
+        JobCheckpoint checkpoint = customerProfileRebuildJob.runDirty().orElseThrow();
+
+        // Assert
+        assertEquals(1, checkpoint.getProcessed());
+        assertEquals(customerIds.get(5), checkpoint.getLastProcessedId());
+    }
+}
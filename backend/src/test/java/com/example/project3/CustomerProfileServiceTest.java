@@ -0,0 +1,204 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({CustomerProfileService.class, DirtyCustomerTracker.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerProfileServiceTest {
+
+    @Autowired
+    private CustomerProfileService customerProfileService;
+
+    @Autowired
+    private CustomerProfileRepository customerProfileRepository;
+
+    @Autowired
+    private DirtyCustomerSetRepository dirtyCustomerSetRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private final List<Fruit> products = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        String[] categories = {"Fruit", "Dairy", "Bakery", "Vegetables"};
+        for (int c = 0; c < categories.length; c++) {
+            Category category = categoryRepository.save(new Category(categories[c]));
+            for (int i = 0; i < 2; i++) {
+                Fruit fruit = new Fruit(categories[c] + " " + i, BigDecimal.valueOf(150 + 245 * c + 60 * i, 2));
+                fruit.setCategory(category);
+                products.add(fruitRepository.save(fruit));
+            }
+        }
+        // Uncategorised products count towards totals but not category spending
+        products.add(fruitRepository.save(new Fruit("Loose item", new BigDecimal("0.75"))));
+    }
+
+    @AfterEach
+    void tearDown() {
+        dirtyCustomerSetRepository.deleteAll();
+        customerProfileRepository.deleteAll();
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        categoryRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void applyOrder_MatchesFullRecomputeForRandomHistories() {
+        for (int seed = 0; seed < 12; seed++) {
+            // Arrange - orders arrive in id order but with dates in any order, across years
+            Random random = new Random(seed);
+            Customer customer = createCustomer("buyer" + seed);
+            LocalDateTime start = LocalDateTime.now().minusDays(random.nextInt(900)).withSecond(0).withNano(0);
+            int orderCount = 1 + random.nextInt(30);
+
+            // Act
+            CustomerProfile incremental = null;
+            for (int i = 0; i < orderCount; i++) {
+                Order order = createOrder(customer, start.plusHours(random.nextInt(24 * 800)), random);
+                incremental = customerProfileService.applyOrder(order);
+            }
+            Map<String, Object> delta = snapshot(incremental);
+            Map<String, Object> full = snapshot(customerProfileService.updateProfileFromOrders(customer.getId()));
+
+            // Assert
+            assertEquals(orderCount, delta.get("totalOrders"), "seed " + seed);
+            assertEquals(full, delta, "seed " + seed);
+        }
+    }
+
+    @Test
+    void applyOrder_RecomputesInsteadOfDoubleCountingAnOrderAlreadyApplied() {
+        // Arrange
+        Random random = new Random(1);
+        Customer customer = createCustomer("buyer");
+        LocalDateTime start = LocalDateTime.now().minusDays(40).withSecond(0).withNano(0);
+        Order first = createOrder(customer, start, random);
+        Order second = createOrder(customer, start.plusDays(3), random);
+        customerProfileService.applyOrder(second);
+
+        // Act - the first order was already counted by the initial recompute
+        CustomerProfile profile = customerProfileService.applyOrder(first);
+
+        // Assert
+        assertEquals(2, profile.getTotalOrders());
+        assertEquals(0, first.getTotalAmount().add(second.getTotalAmount()).compareTo(profile.getTotalSpent()));
+        assertEquals(second.getId(), profile.getLastAppliedOrderId());
+    }
+
+    @Test
+    void applyOrder_RecomputesProfilesWithoutRunningTotals() {
+        // Arrange - a profile written before running totals existed
+        Random random = new Random(2);
+        Customer customer = createCustomer("legacy");
+        LocalDateTime start = LocalDateTime.now().minusDays(10).withSecond(0).withNano(0);
+        createOrder(customer, start, random);
+        createOrder(customer, start.plusDays(1), random);
+        CustomerProfile legacy = new CustomerProfile();
+        legacy.setCustomer(customer);
+        legacy.setTotalOrders(1);
+        legacy.setTotalSpent(new BigDecimal("1.00"));
+        customerProfileRepository.save(legacy);
+        Order latest = createOrder(customer, start.plusDays(2), random);
+
+        // Act
+        CustomerProfile profile = customerProfileService.applyOrder(latest);
+
+        // Assert
+        assertEquals(3, profile.getTotalOrders());
+        assertEquals(latest.getId(), profile.getLastAppliedOrderId());
+        assertEquals(3, profile.getMonthlyOrderCounts().values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    private Customer createCustomer(String username) {
+        Customer customer = new Customer();
+        customer.setUsername(username);
+        customer.setEmail(username + "@example.com");
+        customer.setPassword("secret");
+        return customerRepository.save(customer);
+    }
+
+    private Order createOrder(Customer customer, LocalDateTime orderDate, Random random) {
+        Order order = new Order();
+        order.setCustomer(customer);
+        order.setOrderDate(orderDate);
+        BigDecimal total = BigDecimal.ZERO;
+        for (int l = 0; l < 1 + random.nextInt(4); l++) {
+            Fruit fruit = products.get(random.nextInt(products.size()));
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setFruit(fruit);
+            item.setQuantity(1 + random.nextInt(5));
+            item.setPrice(fruit.getPrice());
+            order.getOrderItems().add(item);
+            total = total.add(fruit.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+        }
+        // Some orders carry a coupon discount, so totals differ from the line sum
+        if (random.nextInt(4) == 0) {
+            total = total.multiply(new BigDecimal("0.90")).setScale(2, RoundingMode.HALF_UP);
+        }
+        order.setTotalAmount(total);
+        return orderRepository.save(order);
+    }
+
+    private static Map<String, Object> snapshot(CustomerProfile profile) {
+        Map<String, Object> values = new LinkedHashMap<>();
+        values.put("totalOrders", profile.getTotalOrders());
+        values.put("totalSpent", plain(profile.getTotalSpent()));
+        values.put("averageOrderValue", plain(profile.getAverageOrderValue()));
+        values.put("orderFrequencyDays", profile.getOrderFrequencyDays());
+        values.put("firstOrderDate", profile.getFirstOrderDate());
+        values.put("lastOrderDate", profile.getLastOrderDate());
+        Map<String, String> categorySpending = new TreeMap<>();
+        profile.getCategorySpending().forEach((category, amount) -> categorySpending.put(category, plain(amount)));
+        values.put("categorySpending", categorySpending);
+        values.put("monthlyOrderCounts", new TreeMap<>(profile.getMonthlyOrderCounts()));
+        values.put("favoriteCategories", new ArrayList<>(profile.getFavoriteCategories()));
+        values.put("customerSegment", profile.getCustomerSegment());
+        values.put("riskLevel", profile.getRiskLevel());
+        values.put("priceSensitivity", profile.getPriceSensitivity());
+        values.put("seasonalPreferences", profile.getSeasonalPreferences());
+        values.put("aiPersonalityProfile", profile.getAiPersonalityProfile());
+        values.put("lastAppliedOrderId", profile.getLastAppliedOrderId());
+        return values;
+    }
+
+    private static String plain(BigDecimal value) {
+        return value.stripTrailingZeros().toPlainString();
+    }
+}
@@ -0,0 +1,203 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.util.AopTestUtils;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(CustomerReachService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerReachServiceTest {
+
+    @Autowired
+    private CustomerReachService customerReachService;
+
+    @Autowired
+    private ReachSketchRepository reachSketchRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private final List<Order> orders = new ArrayList<>();
+    private Fruit apple;
+    private Fruit pear;
+
+    @BeforeEach
+    void setUp() {
+        apple = fruitRepository.save(new Fruit("Apple", new BigDecimal("1.20")));
+        pear = fruitRepository.save(new Fruit("Pear", new BigDecimal("1.50")));
+        List<Customer> customers = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            Customer customer = new Customer();
+            customer.setUsername("buyer" + i);
+            customer.setEmail("buyer" + i + "@example.com");
+            customer.setPassword("secret");
+            customers.add(customerRepository.save(customer));
+        }
+
+        // Today: buyers 0-5 (two orders each); 3 days ago: buyers 4-9; 20 days ago: buyers 10-11
+        LocalDateTime today = LocalDate.now().atTime(0, 30);
+        for (int i = 0; i < 6; i++) {
+            orders.add(saveOrder(customers.get(i), today, apple));
+            orders.add(saveOrder(customers.get(i), today.plusMinutes(5), i < 2 ? pear : apple));
+        }
+        for (int i = 4; i < 10; i++) {
+            orders.add(saveOrder(customers.get(i), today.minusDays(3), pear));
+        }
+        for (int i = 10; i < 12; i++) {
+            orders.add(saveOrder(customers.get(i), today.minusDays(20), apple));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        reachSketchRepository.deleteAll();
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void orderEvents_MatchFullRebuild() {
+        // Act
+        for (Order order : orders) {
+            customerReachService.onOrderEvent(createdEvent(order));
+        }
+        Map<String, Object> incremental = customerReachService.getActiveBuyers();
+        Map<String, Object> incrementalProducts = customerReachService.getProductReach(30);
+        customerReachService.rebuild();
+
+        // Assert - counts this small are exact in practice
+        assertEquals(6L, incremental.get("dailyActiveBuyers"));
+        assertEquals(10L, incremental.get("weeklyActiveBuyers"));
+        assertEquals(12L, incremental.get("monthlyActiveBuyers"));
+        assertEquals(incremental, customerReachService.getActiveBuyers());
+        assertEquals(incrementalProducts, customerReachService.getProductReach(30));
+    }
+
+    @Test
+    void getProductReach_CountsDistinctCustomersInWindow() {
+        // Arrange
+        customerReachService.rebuild();
+
+        // Act
+        List<?> lastWeek = (List<?>) customerReachService.getProductReach(7).get("products");
+        List<Map<String, Object>> series = customerReachService.getDailyActiveBuyers(7);
+
+        // Assert - pear: buyers 0,1 today and 4-9 three days ago; apple: buyers 0-5 today
+        assertEquals(List.of(
+                Map.of("productId", pear.getId(), "name", "Pear", "distinctCustomers", 8L),
+                Map.of("productId", apple.getId(), "name", "Apple", "distinctCustomers", 6L)), lastWeek);
+        assertEquals(7, series.size());
+        assertEquals(6L, series.get(6).get("activeBuyers"));
+        assertEquals(6L, series.get(3).get("activeBuyers"));
+        assertEquals(0L, series.get(0).get("activeBuyers"));
+        assertThrows(IllegalArgumentException.class, () -> customerReachService.getProductReach(0));
+    }
+
+    @Test
+    void replayedEvents_AreNotCountedTwice() {
+        // Arrange
+        customerReachService.rebuild();
+
+        // Act - every order delivered again after the rebuild already counted it
+        for (Order order : orders) {
+            customerReachService.onOrderEvent(createdEvent(order));
+        }
+
+        // Assert
+        assertEquals(12L, customerReachService.getActiveBuyers().get("monthlyActiveBuyers"));
+    }
+
+    @Test
+    void onOrderEvent_DoesNotWaitForAFlushOrRebuild() throws Exception {
+        // Arrange - another thread holds the lock a flush or rebuild writes under
+        CustomerReachService target = AopTestUtils.getTargetObject(customerReachService);
+        Object storeLock = ReflectionTestUtils.getField(target, "storeLock");
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        Thread writer = new Thread(() -> {
+            synchronized (storeLock) {
+                held.countDown();
+                try {
+                    release.await(30, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        writer.start();
+        assertTrue(held.await(10, TimeUnit.SECONDS));
+
+        // Act
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        Future<?> buffered = executor.submit(() -> {
+            for (Order order : orders) {
+                customerReachService.onOrderEvent(createdEvent(order));
+            }
+        });
+
+        // Assert
+        try {
+            buffered.get(5, TimeUnit.SECONDS);
+        } finally {
+            release.countDown();
+            writer.join();
+            executor.shutdown();
+        }
+        assertEquals(12L, customerReachService.getActiveBuyers().get("monthlyActiveBuyers"));
+    }
+
+    private Order saveOrder(Customer customer, LocalDateTime date, Fruit fruit) {
+        Order order = new Order();
+        order.setCustomer(customer);
+        order.setOrderDate(date);
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setFruit(fruit);
+        item.setQuantity(1);
+        item.setPrice(fruit.getPrice());
+        order.getOrderItems().add(item);
+        order.setTotalAmount(fruit.getPrice());
+        return orderRepository.save(order);
+    }
+
+    private static OrderDomainEvent createdEvent(Order order) {
+        OrderItem item = order.getOrderItems().iterator().next();
+        return new OrderDomainEvent(OrderDomainEvent.Type.CREATED, order.getId(), order.getCustomer().getId(),
+                Set.of(), Set.of(item.getFruit().getId()), Set.of(), order.getOrderDate(),
+                List.of(new OrderDomainEvent.Line(item.getFruit().getId(), 1, item.getPrice())));
+    }
+}
@@ -0,0 +1,114 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(CustomerSegmentTracker.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerSegmentTrackerTest {
+
+    @Autowired
+    private CustomerSegmentTracker tracker;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    private final List<Customer> customers = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Order counts 0, 0, 1, 3, 4, 6 -> 2 new, 2 regular, 2 vip
+        int[] orderCounts = {0, 0, 1, 3, 4, 6};
+        for (int i = 0; i < orderCounts.length; i++) {
+            Customer customer = new Customer();
+            customer.setUsername("customer" + i);
+            customer.setEmail("customer" + i + "@example.com");
+            customer.setPassword("secret");
+            customer = customerRepository.save(customer);
+            customers.add(customer);
+            for (int o = 0; o < orderCounts[i]; o++) {
+                placeOrder(customer);
+            }
+        }
+        tracker.rebuild();
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void rebuild_CountsCustomersPerBucketInOneQuery() {
+        // Act
+        Map<String, Object> segments = tracker.getSegments();
+
+        // Assert
+        assertEquals(Map.of("new", 2, "regular", 2, "vip", 2, "total", 6), segments);
+    }
+
+    @Test
+    void onOrderEvent_MovesCustomersAcrossBucketBoundaries() {
+        // Act - first order for a new customer, fourth order for a regular one, one more for a vip
+        tracker.onOrderEvent(createdEvent(placeOrder(customers.get(0)), 0));
+        tracker.onOrderEvent(createdEvent(placeOrder(customers.get(3)), 3));
+        tracker.onOrderEvent(createdEvent(placeOrder(customers.get(5)), 6));
+
+        // Assert
+        assertEquals(Map.of("new", 1, "regular", 2, "vip", 3, "total", 6), tracker.getSegments());
+
+        tracker.rebuild();
+        assertEquals(Map.of("new", 1, "regular", 2, "vip", 3, "total", 6), tracker.getSegments());
+    }
+
+    @Test
+    void onOrderEvent_OrdersCommittedTogetherEachMoveFromTheirOwnCount() {
+        // Arrange - a batch commits two first orders for one new customer before any listener runs
+        Order first = placeOrder(customers.get(0));
+        Order second = placeOrder(customers.get(0));
+
+        // Act
+        tracker.onOrderEvent(createdEvent(first, 0));
+        tracker.onOrderEvent(createdEvent(second, 1));
+
+        // Assert
+        assertEquals(Map.of("new", 1, "regular", 3, "vip", 2, "total", 6), tracker.getSegments());
+    }
+
+    private static OrderDomainEvent createdEvent(Order order, long customerOrdersBefore) {
+        Customer customer = order.getCustomer();
+        return new OrderDomainEvent(OrderDomainEvent.Type.CREATED, order.getId(), customer.getId(),
+                Set.of(customer.getUsername()), Set.of(), Set.of(), order.getOrderDate(), List.of(),
+                customerOrdersBefore);
+    }
+
+    private Order placeOrder(Customer customer) {
+        Order order = new Order();
+        order.setCustomer(customer);
+        order.setTotalAmount(new BigDecimal("5.00"));
+        return orderRepository.save(order);
+    }
+}
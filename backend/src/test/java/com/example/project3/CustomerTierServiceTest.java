@@ -0,0 +1,113 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({CustomerTierService.class, CustomerProfileService.class, DirtyCustomerTracker.class,
+        StatementCounter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CustomerTierServiceTest {
+
+    @Autowired
+    private CustomerTierService customerTierService;
+
+    @Autowired
+    private CustomerProfileService customerProfileService;
+
+    @Autowired
+    private CustomerProfileRepository customerProfileRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private Customer customer;
+
+    @BeforeEach
+    void setUp() {
+        customer = new Customer();
+        customer.setUsername("shopper");
+        customer.setEmail("shopper@example.com");
+        customer.setPassword("secret");
+        customer = customerRepository.save(customer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        customerProfileRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void calculateNegotiationCapability_ByUsernameIsOneRead() {
+        // Arrange
+        customerProfileService.getOrCreateProfile(customer.getId());
+
+        // Act
+        StatementCounter.reset();
+        CustomerTierService.NegotiationCapability capability =
+                customerTierService.calculateNegotiationCapability("shopper");
+        Map<String, Integer> counts = StatementCounter.count("select");
+
+        // Assert
+        assertEquals(1, counts.get("select"));
+        assertEquals(CustomerTierService.CustomerTier.NEW_CUSTOMER, capability.getTier());
+        assertTrue(capability.canNegotiate());
+    }
+
+    @Test
+    void calculateNegotiationCapability_UsesTheStoredTier() {
+        // Arrange - the stored tier wins over what the aggregates alone would give
+        CustomerProfile profile = customerProfileService.getOrCreateProfile(customer.getId());
+        profile.setNegotiationTier(CustomerTierService.CustomerTier.VIP_GOLD.name());
+        profile.setAverageOrderValue(new BigDecimal("120.00"));
+        customerProfileRepository.save(profile);
+
+        // Act
+        CustomerTierService.NegotiationCapability byUsername =
+                customerTierService.calculateNegotiationCapability("shopper");
+        CustomerTierService.NegotiationCapability byProfile = customerTierService.capabilityFor(profile);
+
+        // Assert
+        assertEquals(CustomerTierService.CustomerTier.VIP_GOLD, byUsername.getTier());
+        assertEquals(22, byUsername.getMaxDiscountPercentage());
+        assertEquals("ACCOMMODATING", byUsername.getNegotiationStrategy());
+        assertEquals(byUsername.getMaxDiscountPercentage(), byProfile.getMaxDiscountPercentage());
+        assertEquals(byUsername.getNegotiationAttemptsRemaining(), byProfile.getNegotiationAttemptsRemaining());
+    }
+
+    @Test
+    void calculateNegotiationCapability_ComputesTheTierForProfilesWithoutOne() {
+        // Arrange - written before the tier was stored
+        CustomerProfile legacy = new CustomerProfile();
+        legacy.setCustomer(customer);
+        legacy.setTotalOrders(12);
+        legacy.setTotalSpent(new BigDecimal("600.00"));
+        legacy.setFirstOrderDate(LocalDateTime.now().minusDays(200));
+        legacy.setLastOrderDate(LocalDateTime.now().minusDays(5));
+        customerProfileRepository.save(legacy);
+
+        // Act
+        CustomerTierService.NegotiationCapability capability =
+                customerTierService.calculateNegotiationCapability("shopper");
+
+        // Assert
+        assertEquals(CustomerTierService.CustomerTier.REGULAR_LOYAL, capability.getTier());
+    }
+}
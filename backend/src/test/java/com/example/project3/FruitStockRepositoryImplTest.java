@@ -0,0 +1,50 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+class FruitStockRepositoryImplTest {
+
+    private FruitStockRepositoryImpl fruitStockRepository;
+    private JdbcTemplate jdbcTemplate;
+
+    @BeforeEach
+    void setUp() {
+        jdbcTemplate = mock(JdbcTemplate.class);
+        fruitStockRepository = new FruitStockRepositoryImpl();
+        ReflectionTestUtils.setField(fruitStockRepository, "jdbcTemplate", jdbcTemplate);
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void decrementStockIfAvailable_UpdatesRowsInFruitIdOrder() {
+        // Arrange - cart order 30, 10, 20; only fruit 30 is short
+        Map<Long, Integer> quantities = new LinkedHashMap<>();
+        quantities.put(30L, 3);
+        quantities.put(10L, 1);
+        quantities.put(20L, 2);
+        when(jdbcTemplate.batchUpdate(anyString(), anyList())).thenReturn(new int[]{1, 1, 0});
+
+        // Act
+        Set<Long> shortFruitIds = fruitStockRepository.decrementStockIfAvailable(quantities);
+
+        // Assert
+        ArgumentCaptor<List<Object[]>> batchArgs = ArgumentCaptor.forClass(List.class);
+        verify(jdbcTemplate).batchUpdate(anyString(), batchArgs.capture());
+        assertEquals(List.of(10L, 20L, 30L), batchArgs.getValue().stream().map(args -> args[1]).toList());
+        assertArrayEquals(new Object[]{3, 30L, 3}, batchArgs.getValue().get(2));
+        assertEquals(Set.of(30L), shortFruitIds);
+    }
+}
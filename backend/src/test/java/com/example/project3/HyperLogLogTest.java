@@ -0,0 +1,77 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class HyperLogLogTest {
+
+    @Test
+    void estimate_StaysWithinThreeStandardErrors() {
+        for (int distinct : new int[]{1_000, 50_000, 1_000_000}) {
+            // Arrange - every id added twice, which must not change the estimate
+            HyperLogLog sketch = new HyperLogLog();
+            for (long id = 1; id <= distinct; id++) {
+                sketch.add(id);
+                sketch.add(id);
+            }
+
+            // Act
+            long estimate = sketch.estimate();
+
+            // Assert
+            double error = Math.abs(estimate - distinct) / (double) distinct;
+            assertTrue(error < 3 * HyperLogLog.RELATIVE_STANDARD_ERROR,
+                    "estimate " + estimate + " for " + distinct + " distinct ids");
+        }
+    }
+
+    @Test
+    void merge_EstimatesTheUnion() {
+        // Arrange - two days of buyers overlapping on ids 20,001..30,000
+        HyperLogLog monday = new HyperLogLog();
+        HyperLogLog tuesday = new HyperLogLog();
+        HyperLogLog union = new HyperLogLog();
+        for (long id = 1; id <= 30_000; id++) {
+            monday.add(id);
+            union.add(id);
+        }
+        for (long id = 20_001; id <= 50_000; id++) {
+            tuesday.add(id);
+            union.add(id);
+        }
+
+        // Act
+        monday.merge(tuesday);
+
+        // Assert - merging is exact: same registers as one sketch over both streams
+        assertEquals(union.estimate(), monday.estimate());
+        assertEquals(50_000, monday.estimate(), 50_000 * 3 * HyperLogLog.RELATIVE_STANDARD_ERROR);
+    }
+
+    @Test
+    void toBytes_RoundTripsSparseAndDenseEncodings() {
+        // Arrange
+        HyperLogLog small = new HyperLogLog();
+        HyperLogLog large = new HyperLogLog();
+        for (long id = 1; id <= 25; id++) {
+            small.add(id);
+        }
+        for (long id = 1; id <= 200_000; id++) {
+            large.add(id * 7919);
+        }
+
+        // Act
+        byte[] smallBytes = small.toBytes();
+        byte[] largeBytes = large.toBytes();
+
+        // Assert
+        assertTrue(smallBytes.length <= 2 + 25 * 3);
+        assertEquals(HyperLogLog.MAX_ENCODED_BYTES, largeBytes.length);
+        assertEquals(25, HyperLogLog.fromBytes(smallBytes).estimate());
+        assertEquals(large.estimate(), HyperLogLog.fromBytes(largeBytes).estimate());
+        assertArrayEquals(largeBytes, HyperLogLog.fromBytes(largeBytes).toBytes());
+        assertTrue(new HyperLogLog().isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> HyperLogLog.fromBytes(new byte[]{9, 12}));
+    }
+}
@@ -0,0 +1,197 @@
+package com.example.project3;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.cache.CacheManager;
+import org.springframework.cache.annotation.EnableCaching;
+import org.springframework.cache.concurrent.ConcurrentMapCacheManager;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({OrderService.class, OrderMapper.class, CheckoutMetrics.class,
+        SimpleMeterRegistry.class, OrderCacheInvalidator.class, OrderCacheInvalidationTest.CachingConfig.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderCacheInvalidationTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CacheManager cacheManager;
+
+    @Autowired
+    private OrderCacheInvalidator orderCacheInvalidator;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockBean
+    private CustomerProfileService customerProfileService;
+
+    @MockBean
+    private CouponService couponService;
+
+    @MockBean
+    private OrderOutboxService orderOutboxService;
+
+    private Fruit fruit;
+
+    @BeforeEach
+    void setUp() {
+        Category category = categoryRepository.save(new Category("Citrus"));
+        fruit = new Fruit("Lemon", new BigDecimal("0.80"));
+        fruit.setStock(100);
+        fruit.setCategory(category);
+        fruit = fruitRepository.save(fruit);
+
+        Customer customer = new Customer();
+        customer.setUsername("buyer");
+        customer.setEmail("buyer@example.com");
+        customer.setPassword("secret");
+        customerRepository.save(customer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        cacheManager.getCacheNames().forEach(name -> cacheManager.getCache(name).clear());
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        categoryRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void createOrder_EvictsEveryOrdersEntryForCustomer() {
+        // Arrange - warm all three views, for both login names
+        for (String login : List.of("buyer", "buyer@example.com")) {
+            orderService.getUserOrders(login);
+            orderService.getUserFulfilledOrders(login);
+            orderService.getUserPendingOrders(login);
+        }
+
+        // Act
+        orderService.createOrder(checkout(2), "buyer");
+
+        // Assert
+        for (String login : List.of("buyer", "buyer@example.com")) {
+            assertEquals(1, orderService.getUserOrders(login).size());
+            assertEquals(1, orderService.getUserPendingOrders(login).size());
+            assertEquals(0, orderService.getUserFulfilledOrders(login).size());
+        }
+    }
+
+    @Test
+    void fulfillAndUnfulfill_MoveOrderBetweenCachedViews() {
+        // Arrange
+        Long orderId = orderService.createOrder(checkout(1), "buyer").getId();
+        assertEquals(1, orderService.getUserPendingOrders("buyer").size());
+        assertEquals(0, orderService.getUserFulfilledOrders("buyer").size());
+
+        // Act
+        orderService.fulfillOrder(orderId, "Left at door");
+
+        // Assert
+        assertEquals(0, orderService.getUserPendingOrders("buyer").size());
+        assertEquals(1, orderService.getUserFulfilledOrders("buyer").size());
+        assertTrue(orderService.getUserOrders("buyer").get(0).isFulfilled());
+
+        // Act
+        orderService.unfulfillOrder(orderId);
+
+        // Assert
+        assertEquals(1, orderService.getUserPendingOrders("buyer").size());
+        assertEquals(0, orderService.getUserFulfilledOrders("buyer").size());
+    }
+
+    @Test
+    void createOrder_EvictsProductEntriesWhoseStockChanged() {
+        // Arrange
+        var products = cacheManager.getCache("products");
+        products.put(FruitController.ALL_PRODUCTS_KEY, "stale");
+        products.put(FruitController.productKey(fruit.getId()), "stale");
+        products.put(FruitController.categoryKey(fruit.getCategory().getId()), "stale");
+        products.put(FruitController.productKey(-1L), "untouched");
+
+        // Act
+        orderService.createOrder(checkout(1), "buyer");
+
+        // Assert
+        assertNull(products.get(FruitController.ALL_PRODUCTS_KEY));
+        assertNull(products.get(FruitController.productKey(fruit.getId())));
+        assertNull(products.get(FruitController.categoryKey(fruit.getCategory().getId())));
+        assertNotNull(products.get(FruitController.productKey(-1L)));
+    }
+
+    @Test
+    void staffOrderEvents_EvictTheStaffOrders() {
+        // Arrange
+        var orders = cacheManager.getCache("orders");
+        orders.put("clerk", "stale");
+        orders.put("clerk-pending", "stale");
+        orders.put("buyer", "untouched");
+
+        // Act - created by the clerk, whose login comes with the event
+        orderCacheInvalidator.onOrderEvent(new OrderDomainEvent(OrderDomainEvent.Type.CREATED, 1L, null,
+                Set.of("clerk"), Set.of(), Set.of()));
+
+        // Assert
+        assertNull(orders.get("clerk"));
+        assertNull(orders.get("clerk-pending"));
+        assertNotNull(orders.get("buyer"));
+
+        // Act - fulfilled later, when nothing records who placed it
+        orderCacheInvalidator.onOrderEvent(new OrderDomainEvent(OrderDomainEvent.Type.FULFILLED, 1L, null,
+                Set.of(), Set.of(), Set.of()));
+
+        // Assert
+        assertNull(orders.get("buyer"));
+    }
+
+    private CheckoutRequest checkout(int quantity) {
+        CartItemDTO item = new CartItemDTO();
+        item.setFruitId(fruit.getId());
+        item.setQuantity(quantity);
+
+        CheckoutRequest request = new CheckoutRequest();
+        request.setCartItems(List.of(item));
+        return request;
+    }
+
+    @TestConfiguration
+    @EnableCaching
+    static class CachingConfig {
+
+        @Bean
+        CacheManager cacheManager() {
+            return new ConcurrentMapCacheManager("orders", "products");
+        }
+    }
+}
@@ -0,0 +1,83 @@
+package com.example.project3;
+
+import org.h2.jdbcx.JdbcDataSource;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.io.OutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+/**
+ * Exports a million synthetic orders in a JVM limited to 64 MB of heap (the low-heap surefire
+ * execution). The orders live in a file-backed H2 database with a small page cache, so the
+ * heap only has to fit the export itself.
+ */
+@Tag("low-heap")
+class OrderExportHeapTest {
+
+    private static final int ORDERS = 1_000_000;
+
+    @Test
+    void exportOrders_StreamsAMillionOrdersInConstantHeap() throws Exception {
+        // Arrange
+        assumeTrue(Runtime.getRuntime().maxMemory() <= 128L * 1024 * 1024, "needs a small -Xmx");
+        JdbcDataSource dataSource = new JdbcDataSource();
+        dataSource.setURL("jdbc:h2:file:./target/export-heap/orders;MODE=PostgreSQL;CACHE_SIZE=8192;LAZY_QUERY_EXECUTION=1");
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.execute("DROP ALL OBJECTS");
+        jdbcTemplate.execute("CREATE TABLE customers (id BIGINT PRIMARY KEY, username VARCHAR(64), email VARCHAR(128))");
+        jdbcTemplate.execute("INSERT INTO customers SELECT X, 'buyer' || X, 'buyer' || X || '@example.com' " +
+                "FROM SYSTEM_RANGE(1, 1000)");
+        jdbcTemplate.execute("CREATE TABLE delivery_zones (id BIGINT PRIMARY KEY, name VARCHAR(64))");
+        jdbcTemplate.execute("INSERT INTO delivery_zones VALUES (1, 'Centre, North')");
+        jdbcTemplate.execute("CREATE TABLE orders (id BIGINT PRIMARY KEY, customer_id BIGINT, order_date TIMESTAMP, " +
+                "original_amount DECIMAL(19, 2), discount_amount DECIMAL(19, 2), total_amount DECIMAL(19, 2), " +
+                "coupon_code VARCHAR(32), fulfilled BOOLEAN, fulfilled_date TIMESTAMP, delivery_zone_id BIGINT)");
+        jdbcTemplate.execute("INSERT INTO orders SELECT X AS id, MOD(X, 1000) + 1 AS customer_id, " +
+                "DATEADD('MINUTE', X, TIMESTAMP '2023-01-01 00:00:00') AS order_date, " +
+                "CAST(MOD(X, 100) + 5.5 AS DECIMAL(19, 2)) AS original_amount, " +
+                "CAST(0.5 AS DECIMAL(19, 2)) AS discount_amount, CAST(MOD(X, 100) + 5 AS DECIMAL(19, 2)) AS total_amount, " +
+                "CASE WHEN MOD(X, 10) = 0 THEN 'SAVE10' END, MOD(X, 2) = 0 AS fulfilled, " +
+                "CAST(NULL AS TIMESTAMP) AS fulfilled_date, CASE WHEN MOD(X, 3) = 0 THEN 1 END AS delivery_zone_id " +
+                "FROM SYSTEM_RANGE(1, " + ORDERS + ")");
+        OrderExportService service = new OrderExportService();
+        ReflectionTestUtils.setField(service, "jdbcTemplate", jdbcTemplate);
+        CountingOutputStream out = new CountingOutputStream();
+
+        // Act
+        long rows = service.exportOrders(null, null, OrderExportService.Format.CSV, out);
+
+        // Assert - more CSV than the whole heap went through, so nothing was held on to
+        assertEquals(ORDERS, rows);
+        assertEquals(ORDERS + 1, out.lines);
+        assertTrue(out.bytes > 64L * 1024 * 1024, "exported " + out.bytes + " bytes");
+        jdbcTemplate.execute("DROP ALL OBJECTS DELETE FILES");
+    }
+
+    private static final class CountingOutputStream extends OutputStream {
+        private long bytes;
+        private long lines;
+
+        @Override
+        public void write(int b) {
+            bytes++;
+            if (b == '\n') {
+                lines++;
+            }
+        }
+
+        @Override
+        public void write(byte[] buffer, int offset, int length) {
+            bytes += length;
+            for (int i = offset; i < offset + length; i++) {
+                if (buffer[i] == '\n') {
+                    lines++;
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package com.example.project3;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.ByteArrayOutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(OrderExportService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderExportServiceTest {
+
+    @Autowired
+    private OrderExportService orderExportService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private Order march;
+
+    @BeforeEach
+    void setUp() {
+        Fruit apple = fruitRepository.save(new Fruit("Apple \"Gala\", red", new BigDecimal("1.25")));
+        Customer customer = new Customer();
+        customer.setUsername("o'brien, jr");
+        customer.setEmail("obrien@example.com");
+        customer.setPassword("secret");
+        customer = customerRepository.save(customer);
+
+        march = saveOrder(customer, apple, LocalDateTime.of(2024, 3, 31, 23, 59), 4);
+        saveOrder(customer, apple, LocalDateTime.of(2024, 4, 1, 0, 0), 2);
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void exportOrders_WritesQuotedCsvForInclusiveDateRange() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long rows = orderExportService.exportOrders(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31),
+                OrderExportService.Format.CSV, out);
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+        assertEquals(1, rows);
+        assertEquals(2, lines.length);
+        assertEquals("order_id,order_date,customer_id,username,email,original_amount,discount_amount,"
+                + "total_amount,coupon_code,fulfilled,fulfilled_date,delivery_zone", lines[0]);
+        assertTrue(lines[1].startsWith(march.getId() + ",2024-03-31T23:59,"), lines[1]);
+        assertTrue(lines[1].contains(",\"o'brien, jr\",obrien@example.com,5.00,0.00,5.00,,false,,"), lines[1]);
+    }
+
+    @Test
+    void exportOrders_IncludesOrdersWithoutACustomer() throws Exception {
+        // Arrange - staff orders carry no customer; the mapping declares the column not null
+        jdbcTemplate.execute("ALTER TABLE orders ALTER COLUMN customer_id DROP NOT NULL");
+        try {
+            jdbcTemplate.update("INSERT INTO orders (order_date, original_amount, discount_amount, total_amount, fulfilled) "
+                    + "VALUES (TIMESTAMP '2024-03-15 10:00:00', 3.00, 0.00, 3.00, false)");
+            Long staffOrderId = jdbcTemplate.queryForObject("SELECT id FROM orders WHERE customer_id IS NULL", Long.class);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+            // Act
+            long rows = orderExportService.exportOrders(LocalDate.of(2024, 3, 1), LocalDate.of(2024, 3, 31),
+                    OrderExportService.Format.CSV, out);
+
+            // Assert
+            String[] lines = out.toString(StandardCharsets.UTF_8).split("\r\n");
+            assertEquals(2, rows);
+            assertEquals(staffOrderId + ",2024-03-15T10:00,,,,3.00,0.00,3.00,,false,,", lines[2]);
+        } finally {
+            jdbcTemplate.update("DELETE FROM orders WHERE customer_id IS NULL");
+            jdbcTemplate.execute("ALTER TABLE orders ALTER COLUMN customer_id SET NOT NULL");
+        }
+    }
+
+    @Test
+    void exportSales_WritesOneJsonObjectPerLine() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        ObjectMapper mapper = new ObjectMapper();
+
+        // Act
+        long rows = orderExportService.exportSales(null, null, OrderExportService.Format.NDJSON, out);
+
+        // Assert
+        String[] lines = out.toString(StandardCharsets.UTF_8).split("\n");
+        assertEquals(2, rows);
+        assertEquals(2, lines.length);
+        JsonNode first = mapper.readTree(lines[0]);
+        assertEquals(march.getId(), first.get("order_id").asLong());
+        assertEquals("Apple \"Gala\", red", first.get("product").asText());
+        assertTrue(first.get("category").isNull());
+        assertEquals(4, first.get("quantity").asInt());
+        assertEquals(0, new BigDecimal("5.00").compareTo(first.get("line_total").decimalValue()));
+    }
+
+    @Test
+    void exportOrders_WritesHeaderForEmptyRange() throws Exception {
+        // Arrange
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        // Act
+        long rows = orderExportService.exportOrders(LocalDate.of(2020, 1, 1), LocalDate.of(2020, 1, 31),
+                OrderExportService.Format.CSV, out);
+
+        // Assert
+        assertEquals(0, rows);
+        assertTrue(out.toString(StandardCharsets.UTF_8).startsWith("order_id,"));
+        assertThrows(IllegalArgumentException.class, () -> orderExportService.exportOrders(
+                LocalDate.of(2024, 2, 1), LocalDate.of(2024, 1, 1), OrderExportService.Format.CSV, out));
+    }
+
+    private Order saveOrder(Customer customer, Fruit fruit, LocalDateTime date, int quantity) {
+        Order order = new Order();
+        order.setCustomer(customer);
+        order.setOrderDate(date);
+        OrderItem item = new OrderItem();
+        item.setOrder(order);
+        item.setFruit(fruit);
+        item.setQuantity(quantity);
+        item.setPrice(fruit.getPrice());
+        order.getOrderItems().add(item);
+        BigDecimal total = fruit.getPrice().multiply(BigDecimal.valueOf(quantity));
+        order.setOriginalAmount(total);
+        order.setTotalAmount(total);
+        return orderRepository.save(order);
+    }
+}
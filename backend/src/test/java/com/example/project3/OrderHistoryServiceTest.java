@@ -0,0 +1,155 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(OrderHistoryService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderHistoryServiceTest {
+
+    private static final int ORDERS = 25;
+
+    @Autowired
+    private OrderHistoryService orderHistoryService;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @BeforeEach
+    void setUp() {
+        Category category = categoryRepository.save(new Category("Berries"));
+        Fruit fruit = new Fruit("Strawberry", new BigDecimal("3.00"));
+        fruit.setCategory(category);
+        fruit = fruitRepository.save(fruit);
+
+        Customer customer = new Customer();
+        customer.setUsername("buyer");
+        customer.setEmail("buyer@example.com");
+        customer.setPassword("secret");
+        customer = customerRepository.save(customer);
+
+        // Pairs of orders share a timestamp so the id tie-breaker is exercised
+        LocalDateTime base = LocalDateTime.of(2024, 5, 1, 12, 0);
+        for (int i = 0; i < ORDERS; i++) {
+            Order order = new Order();
+            order.setCustomer(customer);
+            order.setOrderDate(base.plusMinutes(i / 2));
+            order.setTotalAmount(new BigDecimal("6.00"));
+            order.setFulfilled(i % 5 == 0);
+
+            OrderItem item = new OrderItem();
+            item.setOrder(order);
+            item.setFruit(fruit);
+            item.setQuantity(2);
+            item.setPrice(fruit.getPrice());
+            order.getOrderItems().add(item);
+            orderRepository.save(order);
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        categoryRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void getHistory_WalksAllPagesNewestFirstWithoutGapsOrDuplicates() {
+        // Act
+        List<OrderSummaryDTO> seen = new ArrayList<>();
+        List<Integer> pageSizes = new ArrayList<>();
+        String cursor = null;
+        do {
+            OrderHistoryPage page = orderHistoryService.getHistory("buyer",
+                    OrderHistoryService.StatusFilter.ALL, true, cursor, 10);
+            seen.addAll(page.getOrders());
+            pageSizes.add(page.getOrders().size());
+            cursor = page.getNextCursor();
+        } while (cursor != null);
+
+        // Assert
+        assertEquals(List.of(10, 10, 5), pageSizes);
+        Set<Long> ids = new HashSet<>();
+        seen.forEach(o -> ids.add(o.getId()));
+        assertEquals(ORDERS, ids.size());
+        for (int i = 1; i < seen.size(); i++) {
+            OrderSummaryDTO previous = seen.get(i - 1);
+            OrderSummaryDTO current = seen.get(i);
+            assertFalse(current.getOrderDate().isAfter(previous.getOrderDate()));
+            if (current.getOrderDate().equals(previous.getOrderDate())) {
+                assertTrue(current.getId() < previous.getId());
+            }
+        }
+        OrderSummaryDTO first = seen.get(0);
+        assertEquals(1, first.getOrderItems().size());
+        assertEquals("Strawberry", first.getOrderItems().get(0).getFruitName());
+        assertEquals("Berries", first.getOrderItems().get(0).getCategoryName());
+        assertEquals(2, first.getTotalItems());
+    }
+
+    @Test
+    void getHistory_SummaryViewOmitsLineItems() {
+        // Act
+        OrderHistoryPage page = orderHistoryService.getHistory("buyer",
+                OrderHistoryService.StatusFilter.ALL, false, null, 5);
+
+        // Assert
+        assertEquals(5, page.getOrders().size());
+        assertTrue(page.isHasMore());
+        assertNull(page.getOrders().get(0).getOrderItems());
+        assertEquals(2, page.getOrders().get(0).getTotalItems());
+    }
+
+    @Test
+    void getHistory_FiltersByFulfilment() {
+        // Act
+        OrderHistoryPage fulfilled = orderHistoryService.getHistory("buyer",
+                OrderHistoryService.StatusFilter.FULFILLED, false, null, 50);
+        OrderHistoryPage pending = orderHistoryService.getHistory("buyer",
+                OrderHistoryService.StatusFilter.PENDING, false, null, 50);
+
+        // Assert
+        assertEquals(5, fulfilled.getOrders().size());
+        assertTrue(fulfilled.getOrders().stream().allMatch(OrderSummaryDTO::isFulfilled));
+        assertEquals(20, pending.getOrders().size());
+        assertFalse(pending.isHasMore());
+    }
+
+    @Test
+    void getHistory_RejectsMalformedCursor() {
+        assertThrows(OrderService.InvalidOrderException.class, () -> {
+            orderHistoryService.getHistory("buyer", OrderHistoryService.StatusFilter.ALL, false, "not-a-cursor", 10);
+        });
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.project3;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.modelmapper.ModelMapper;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderMapperTest {
+
+    private final ModelMapper modelMapper = new AppConfig().modelMapper();
+    private final OrderMapper orderMapper = new OrderMapper();
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        Category category = new Category("Citrus");
+        category.setId(3L);
+
+        Customer customer = new Customer();
+        customer.setId(9L);
+        customer.setUsername("buyer");
+        customer.setEmail("buyer@example.com");
+
+        order = new Order();
+        order.setId(1L);
+        order.setCustomer(customer);
+        order.setOrderDate(LocalDateTime.of(2024, 5, 1, 12, 30));
+        order.setOriginalAmount(new BigDecimal("6.50"));
+        order.setDiscountAmount(new BigDecimal("0.50"));
+        order.setTotalAmount(new BigDecimal("6.00"));
+        order.setCouponCode("SAVE10");
+        order.setFulfilled(true);
+        order.setFulfilledDate(LocalDateTime.of(2024, 5, 2, 9, 0));
+        order.setOrderNotes("Leave at the door");
+
+        Set<OrderItem> items = new HashSet<>();
+        for (int i = 0; i < 3; i++) {
+            Fruit fruit = new Fruit("Fruit " + i, new BigDecimal("1.00").add(BigDecimal.valueOf(i)));
+            fruit.setId(10L + i);
+            fruit.setDescription("Description " + i);
+            fruit.setImageUrl("/images/" + i + ".png");
+            fruit.setCategory(category);
+
+            OrderItem item = new OrderItem();
+            item.setId(100L + i);
+            item.setOrder(order);
+            item.setFruit(fruit);
+            item.setQuantity(i + 1);
+            item.setPrice(fruit.getPrice());
+            items.add(item);
+        }
+        order.setOrderItems(items);
+    }
+
+    @Test
+    void toDto_MatchesModelMapperOutput() throws Exception {
+        // Act
+        OrderDTO expected = modelMapper.map(order, OrderDTO.class);
+        OrderDTO actual = orderMapper.toDto(order);
+
+        // Assert - item order follows the entity set, so compare sorted
+        expected.getOrderItems().sort(Comparator.comparing(OrderItemDTO::getId));
+        actual.getOrderItems().sort(Comparator.comparing(OrderItemDTO::getId));
+        assertEquals(objectMapper.writeValueAsString(expected), objectMapper.writeValueAsString(actual));
+    }
+
+    @Test
+    void toDto_OrderItemMatchesModelMapperOutput() throws Exception {
+        // Arrange
+        OrderItem item = order.getOrderItems().iterator().next();
+
+        // Act & Assert
+        assertEquals(objectMapper.writeValueAsString(modelMapper.map(item, OrderItemDTO.class)),
+                objectMapper.writeValueAsString(orderMapper.toDto(item)));
+    }
+
+    @Test
+    void toDto_HandlesFruitWithoutCategory() {
+        // Arrange
+        OrderItem item = order.getOrderItems().iterator().next();
+        item.getFruit().setCategory(null);
+
+        // Act
+        OrderItemDTO dto = orderMapper.toDto(item);
+
+        // Assert
+        assertNull(dto.getCategoryName());
+        assertEquals(item.getFruit().getName(), dto.getFruitName());
+    }
+}
@@ -0,0 +1,214 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderOutboxServiceTest {
+
+    @Mock
+    private OrderOutboxEventRepository outboxEventRepository;
+
+    @Mock
+    private OrderRepository orderRepository;
+
+    @Mock
+    private CustomerProfileService customerProfileService;
+
+    @Mock
+    private UserRepository userRepository;
+
+    @Mock
+    private EmailService emailService;
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @InjectMocks
+    private OrderOutboxService orderOutboxService;
+
+    private OrderOutboxEvent event;
+    private Order order;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(orderOutboxService, "maxAttempts", 3);
+        ReflectionTestUtils.setField(orderOutboxService, "initialBackoffMs", 1000L);
+        ReflectionTestUtils.setField(orderOutboxService, "maxBackoffMs", 5000L);
+
+        Customer customer = new Customer();
+        customer.setId(7L);
+        customer.setUsername("buyer");
+        customer.setEmail("buyer@example.com");
+
+        order = new Order();
+        order.setId(42L);
+        order.setCustomer(customer);
+        order.setTotalAmount(new BigDecimal("12.50"));
+
+        event = new OrderOutboxEvent(42L, OrderOutboxEvent.EventType.ORDER_CREATED);
+        event.setId(1L);
+    }
+
+    @Test
+    void process_Success() {
+        // Arrange
+        when(outboxEventRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(event));
+        when(orderRepository.findById(42L)).thenReturn(Optional.of(order));
+
+        // Act
+        orderOutboxService.process(1L);
+
+        // Assert
+        verify(customerProfileService).applyOrder(order);
+        verifyNoInteractions(emailService);
+        assertEquals(OrderOutboxEvent.Status.PROCESSED, event.getStatus());
+        assertNotNull(event.getProcessedAt());
+    }
+
+    @Test
+    void process_SendsConfirmationEmail() {
+        // Arrange
+        OrderOutboxEvent email = new OrderOutboxEvent(42L, OrderOutboxEvent.EventType.ORDER_CONFIRMATION_EMAIL);
+        when(outboxEventRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(email));
+        when(orderRepository.findById(42L)).thenReturn(Optional.of(order));
+
+        // Act
+        orderOutboxService.process(2L);
+
+        // Assert
+        verify(emailService).sendSimpleMessage(eq("buyer@example.com"), anyString(), contains("Dear buyer"));
+        verifyNoInteractions(customerProfileService);
+        assertEquals(OrderOutboxEvent.Status.PROCESSED, email.getStatus());
+    }
+
+    @Test
+    void process_StaffOrderSkipsProfileAndEmailsTheUser() {
+        // Arrange
+        User staff = new User();
+        staff.setUsername("clerk");
+        staff.setEmail("clerk@example.com");
+        order.setCustomer(null);
+        OrderOutboxEvent email = new OrderOutboxEvent(42L, OrderOutboxEvent.EventType.ORDER_CONFIRMATION_EMAIL);
+        email.setStaffUsername("clerk");
+        when(userRepository.findByUsername("clerk")).thenReturn(Optional.of(staff));
+        when(outboxEventRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(event));
+        when(outboxEventRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(email));
+        when(orderRepository.findById(42L)).thenReturn(Optional.of(order));
+
+        // Act
+        orderOutboxService.process(1L);
+        orderOutboxService.process(2L);
+
+        // Assert
+        verifyNoInteractions(customerProfileService);
+        verify(emailService).sendSimpleMessage(eq("clerk@example.com"), anyString(), contains("Dear clerk"));
+        assertEquals(OrderOutboxEvent.Status.PROCESSED, event.getStatus());
+        assertEquals(OrderOutboxEvent.Status.PROCESSED, email.getStatus());
+    }
+
+    @Test
+    void process_SkipsAlreadyProcessedEvent() {
+        // Arrange
+        event.setStatus(OrderOutboxEvent.Status.PROCESSED);
+        when(outboxEventRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(event));
+
+        // Act
+        orderOutboxService.process(1L);
+
+        // Assert
+        verifyNoInteractions(customerProfileService, emailService);
+    }
+
+    @Test
+    void process_RoutesRollupEventsToSalesRollupService() {
+        // Arrange
+        OrderOutboxEvent created = new OrderOutboxEvent(42L, OrderOutboxEvent.EventType.ROLLUP_ORDER_CREATED);
+        OrderOutboxEvent unfulfilled = new OrderOutboxEvent(42L, OrderOutboxEvent.EventType.ROLLUP_ORDER_UNFULFILLED);
+        when(outboxEventRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(created));
+        when(outboxEventRepository.findByIdForUpdate(3L)).thenReturn(Optional.of(unfulfilled));
+
+        // Act
+        orderOutboxService.process(2L);
+        orderOutboxService.process(3L);
+
+        // Assert
+        verify(salesRollupService).applyOrderCreated(42L);
+        verify(salesRollupService).applyFulfilmentChange(42L, false);
+        verifyNoInteractions(customerProfileService, emailService);
+        assertEquals(OrderOutboxEvent.Status.PROCESSED, created.getStatus());
+    }
+
+    @Test
+    void process_EmailFailurePropagatesForRetry() {
+        // Arrange
+        OrderOutboxEvent email = new OrderOutboxEvent(42L, OrderOutboxEvent.EventType.ORDER_CONFIRMATION_EMAIL);
+        when(outboxEventRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(event));
+        when(outboxEventRepository.findByIdForUpdate(2L)).thenReturn(Optional.of(email));
+        when(orderRepository.findById(42L)).thenReturn(Optional.of(order));
+        doThrow(new RuntimeException("SMTP down")).when(emailService)
+            .sendSimpleMessage(anyString(), anyString(), anyString());
+
+        // Act & Assert - the profile update commits on its own event; only the email retries
+        orderOutboxService.process(1L);
+        assertThrows(RuntimeException.class, () -> orderOutboxService.process(2L));
+        verify(customerProfileService).applyOrder(order);
+        assertEquals(OrderOutboxEvent.Status.PROCESSED, event.getStatus());
+        assertEquals(OrderOutboxEvent.Status.PENDING, email.getStatus());
+    }
+
+    @Test
+    void recordFailure_SchedulesRetryWithBackoff() {
+        // Arrange
+        when(outboxEventRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(event));
+        LocalDateTime before = LocalDateTime.now();
+
+        // Act
+        orderOutboxService.recordFailure(1L, new RuntimeException("SMTP down"));
+
+        // Assert
+        assertEquals(1, event.getAttempts());
+        assertEquals(OrderOutboxEvent.Status.PENDING, event.getStatus());
+        assertFalse(event.getNextAttemptAt().isBefore(before.plusSeconds(1)));
+        assertTrue(event.getLastError().contains("SMTP down"));
+        verify(outboxEventRepository).save(event);
+    }
+
+    @Test
+    void recordFailure_GivesUpAfterMaxAttempts() {
+        // Arrange
+        event.setAttempts(2);
+        when(outboxEventRepository.findByIdForUpdate(1L)).thenReturn(Optional.of(event));
+
+        // Act
+        orderOutboxService.recordFailure(1L, new RuntimeException("SMTP down"));
+
+        // Assert
+        assertEquals(3, event.getAttempts());
+        assertEquals(OrderOutboxEvent.Status.FAILED, event.getStatus());
+    }
+
+    @Test
+    void calculateBackoff_DoublesUpToMaximum() {
+        assertEquals(Duration.ofSeconds(1), orderOutboxService.calculateBackoff(1));
+        assertEquals(Duration.ofSeconds(2), orderOutboxService.calculateBackoff(2));
+        assertEquals(Duration.ofSeconds(4), orderOutboxService.calculateBackoff(3));
+        assertEquals(Duration.ofSeconds(5), orderOutboxService.calculateBackoff(4));
+    }
+}
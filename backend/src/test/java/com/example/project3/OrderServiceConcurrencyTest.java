@@ -0,0 +1,148 @@
+package com.example.project3;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({OrderService.class, OrderMapper.class, CheckoutMetrics.class, SimpleMeterRegistry.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderServiceConcurrencyTest {
+
+    private static final int INITIAL_STOCK = 50;
+    private static final int THREADS = 20;
+    private static final int ATTEMPTS_PER_THREAD = 5;
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockBean
+    private CustomerProfileService customerProfileService;
+
+    @MockBean
+    private CouponService couponService;
+
+    @MockBean
+    private OrderOutboxService orderOutboxService;
+
+    private Fruit fruit;
+
+    @BeforeEach
+    void setUp() {
+        Category category = categoryRepository.save(new Category("Citrus"));
+
+        fruit = new Fruit("Orange", new BigDecimal("1.50"));
+        fruit.setStock(INITIAL_STOCK);
+        fruit.setCategory(category);
+        fruit = fruitRepository.save(fruit);
+
+        Customer customer = new Customer();
+        customer.setUsername("buyer");
+        customer.setEmail("buyer@example.com");
+        customer.setPassword("secret");
+        customerRepository.save(customer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        categoryRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void concurrentCheckouts_NeverOversell() throws Exception {
+        // Arrange
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch startGate = new CountDownLatch(1);
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger rejections = new AtomicInteger();
+        List<Future<?>> futures = new ArrayList<>();
+
+        for (int t = 0; t < THREADS; t++) {
+            futures.add(executor.submit(() -> {
+                startGate.await();
+                for (int i = 0; i < ATTEMPTS_PER_THREAD; i++) {
+                    try {
+                        orderService.createOrder(checkoutFor(fruit.getId(), 1), "buyer");
+                        successes.incrementAndGet();
+                    } catch (OrderService.InsufficientStockException e) {
+                        rejections.incrementAndGet();
+                    }
+                }
+                return null;
+            }));
+        }
+
+        // Act
+        startGate.countDown();
+        for (Future<?> future : futures) {
+            future.get(60, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Assert
+        int finalStock = fruitRepository.findById(fruit.getId()).orElseThrow().getStock();
+        assertEquals(INITIAL_STOCK, successes.get());
+        assertEquals(THREADS * ATTEMPTS_PER_THREAD - INITIAL_STOCK, rejections.get());
+        assertEquals(0, finalStock);
+        assertEquals(successes.get(), orderRepository.count());
+    }
+
+    @Test
+    void checkout_InsufficientStockLeavesStockUntouched() {
+        // Act & Assert
+        assertThrows(OrderService.InsufficientStockException.class, () -> {
+            orderService.createOrder(checkoutFor(fruit.getId(), INITIAL_STOCK + 1), "buyer");
+        });
+
+        assertEquals(INITIAL_STOCK, fruitRepository.findById(fruit.getId()).orElseThrow().getStock());
+        assertEquals(0, orderRepository.count());
+    }
+
+    private CheckoutRequest checkoutFor(Long fruitId, int quantity) {
+        CartItemDTO item = new CartItemDTO();
+        item.setFruitId(fruitId);
+        item.setQuantity(quantity);
+
+        CheckoutRequest request = new CheckoutRequest();
+        request.setCartItems(List.of(item));
+        return request;
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.project3;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({OrderService.class, OrderMapper.class, CheckoutMetrics.class,
+        SimpleMeterRegistry.class, StatementCounter.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class OrderServiceQueryCountTest {
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockBean
+    private CustomerProfileService customerProfileService;
+
+    @MockBean
+    private CouponService couponService;
+
+    @MockBean
+    private OrderOutboxService orderOutboxService;
+
+    private final List<Long> fruitIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Category fruitCategory = categoryRepository.save(new Category("Fruit"));
+        Category vegetableCategory = categoryRepository.save(new Category("Vegetables"));
+
+        for (int i = 0; i < 30; i++) {
+            Fruit fruit = new Fruit("Product " + i, new BigDecimal("2.00"));
+            fruit.setStock(1000);
+            fruit.setCategory(i % 2 == 0 ? fruitCategory : vegetableCategory);
+            fruitIds.add(fruitRepository.save(fruit).getId());
+        }
+
+        Customer customer = new Customer();
+        customer.setUsername("buyer");
+        customer.setEmail("buyer@example.com");
+        customer.setPassword("secret");
+        customerRepository.save(customer);
+    }
+
+    @AfterEach
+    void tearDown() {
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        categoryRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void checkout_ProductQueriesDoNotGrowWithCartSize() {
+        // Act
+        Map<String, Integer> singleLine = countStatementsForCheckout(1);
+        Map<String, Integer> tenLines = countStatementsForCheckout(10);
+        Map<String, Integer> thirtyLines = countStatementsForCheckout(30);
+
+        // Assert - reads and stock updates are constant, only order line inserts scale
+        assertEquals(singleLine.get("select"), tenLines.get("select"));
+        assertEquals(singleLine.get("select"), thirtyLines.get("select"));
+        assertEquals(1, singleLine.get("update"));
+        assertEquals(1, thirtyLines.get("update"));
+        assertEquals(1, singleLine.get("insert into order_items"));
+        assertEquals(30, thirtyLines.get("insert into order_items"));
+
+        assertEquals(997, fruitRepository.findById(fruitIds.get(0)).orElseThrow().getStock());
+    }
+
+    private Map<String, Integer> countStatementsForCheckout(int lines) {
+        List<CartItemDTO> cartItems = new ArrayList<>();
+        for (int i = 0; i < lines; i++) {
+            CartItemDTO item = new CartItemDTO();
+            item.setFruitId(fruitIds.get(i));
+            item.setQuantity(1);
+            cartItems.add(item);
+        }
+        CheckoutRequest request = new CheckoutRequest();
+        request.setCartItems(cartItems);
+
+        StatementCounter.reset();
+        orderService.createOrder(request, "buyer");
+        return StatementCounter.count("select", "update", "insert into order_items");
+    }
+}
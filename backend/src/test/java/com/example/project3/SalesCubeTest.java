@@ -0,0 +1,160 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.temporal.TemporalAdjusters;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.Predicate;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SalesCubeTest {
+
+    private static final LocalDate START = LocalDate.of(2024, 1, 1);
+
+    private SalesCube cube;
+    private final List<int[]> lines = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        // Small initial capacity so appends exercise column growth
+        cube = new SalesCube(16);
+        Random random = new Random(11);
+        for (int i = 0; i < 5000; i++) {
+            int day = (int) START.toEpochDay() + random.nextInt(120);
+            int product = 1 + random.nextInt(40);
+            int category = product % 7;
+            int zone = random.nextInt(4);
+            int quantity = 1 + random.nextInt(5);
+            int cents = 50 + random.nextInt(1000);
+            cube.append(day, product, category, zone, quantity, (long) cents * quantity);
+            lines.add(new int[]{day, product, category, zone, quantity, cents * quantity});
+        }
+    }
+
+    @Test
+    void query_GroupsByCategoryAndWeekLikeNaiveReduction() {
+        // Act
+        SalesCube.Result result = cube.query(new SalesCube.Query(
+                List.of(SalesCube.Dimension.CATEGORY, SalesCube.Dimension.WEEK)));
+
+        // Assert
+        Map<String, long[]> expected = reduce(line -> line[2] + "|" + weekStart(line[0]), line -> true);
+        assertRowsMatch(expected, result);
+    }
+
+    @Test
+    void query_FiltersByDateRangeAndZone() {
+        // Arrange
+        LocalDate from = START.plusDays(10);
+        LocalDate to = START.plusDays(40);
+
+        // Act
+        SalesCube.Result result = cube.query(new SalesCube.Query(
+                List.of(SalesCube.Dimension.PRODUCT, SalesCube.Dimension.MONTH))
+                .between(from, to)
+                .zone(2));
+
+        // Assert
+        Map<String, long[]> expected = reduce(
+                line -> line[1] + "|" + LocalDate.ofEpochDay(line[0]).withDayOfMonth(1).toEpochDay(),
+                line -> line[3] == 2 && line[0] >= from.toEpochDay() && line[0] <= to.toEpochDay());
+        assertRowsMatch(expected, result);
+    }
+
+    @Test
+    void query_WithoutGroupByReturnsGrandTotal() {
+        // Act
+        SalesCube.Result result = cube.query(new SalesCube.Query(List.of()).category(3));
+
+        // Assert
+        Map<String, long[]> expected = reduce(line -> "", line -> line[2] == 3);
+        assertEquals(1, result.getRows().size());
+        assertEquals(0, result.getRows().get(0).getKeys().length);
+        assertArrayEquals(expected.get(""), totals(result.getRows().get(0)));
+    }
+
+    @Test
+    void query_RejectsTooManyGroupsAndDimensions() {
+        cube.append((int) START.toEpochDay(), SalesCube.MAX_GROUPS, 0, 0, 1, 100);
+
+        assertThrows(IllegalArgumentException.class, () -> cube.query(new SalesCube.Query(
+                List.of(SalesCube.Dimension.PRODUCT, SalesCube.Dimension.DAY))));
+        assertThrows(IllegalArgumentException.class, () -> new SalesCube.Query(
+                List.of(SalesCube.Dimension.PRODUCT, SalesCube.Dimension.DAY, SalesCube.Dimension.ZONE)));
+    }
+
+    @Test
+    void query_SplitsLargeScansAcrossTheGivenPool() {
+        // Arrange - enough lines to split, and a sequential cube with the same lines to compare
+        AtomicInteger poolThreads = new AtomicInteger();
+        ForkJoinPool scanPool = new ForkJoinPool(2, pool -> {
+            poolThreads.incrementAndGet();
+            return ForkJoinPool.defaultForkJoinWorkerThreadFactory.newThread(pool);
+        }, null, false);
+        SalesCube parallel = new SalesCube(16, scanPool);
+        SalesCube sequential = new SalesCube(16);
+        Random random = new Random(7);
+        for (int i = 0; i < (1 << 20) + 1000; i++) {
+            int day = (int) START.toEpochDay() + random.nextInt(60);
+            int product = 1 + random.nextInt(40);
+            parallel.append(day, product, product % 7, 0, 1, 100);
+            sequential.append(day, product, product % 7, 0, 1, 100);
+        }
+        SalesCube.Query query = new SalesCube.Query(List.of(SalesCube.Dimension.PRODUCT));
+
+        try {
+            // Act
+            SalesCube.Result result = parallel.query(query);
+
+            // Assert
+            List<SalesCube.Row> expected = sequential.query(query).getRows();
+            assertEquals(expected.size(), result.getRows().size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertArrayEquals(totals(expected.get(i)), totals(result.getRows().get(i)));
+            }
+            assertTrue(poolThreads.get() > 0);
+        } finally {
+            scanPool.shutdownNow();
+        }
+    }
+
+    private Map<String, long[]> reduce(Function<int[], String> key, Predicate<int[]> filter) {
+        Map<String, long[]> totals = new HashMap<>();
+        for (int[] line : lines) {
+            if (filter.test(line)) {
+                long[] sums = totals.computeIfAbsent(key.apply(line), k -> new long[3]);
+                sums[0] += line[4];
+                sums[1] += line[5];
+                sums[2]++;
+            }
+        }
+        return totals;
+    }
+
+    private void assertRowsMatch(Map<String, long[]> expected, SalesCube.Result result) {
+        assertEquals(expected.size(), result.getRows().size());
+        for (SalesCube.Row row : result.getRows()) {
+            String key = row.getKeys()[0] + "|" + row.getKeys()[1];
+            assertArrayEquals(expected.get(key), totals(row), key);
+        }
+    }
+
+    private static long[] totals(SalesCube.Row row) {
+        return new long[]{row.getQuantity(), row.getRevenueCents(), row.getLines()};
+    }
+
+    private static long weekStart(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).with(TemporalAdjusters.previousOrSame(DayOfWeek.MONDAY)).toEpochDay();
+    }
+}
@@ -0,0 +1,216 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.stubbing.Answer;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.SpyBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.TreeMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mockingDetails;
+import static org.mockito.Mockito.reset;
+
+@DataJpaTest(showSql = false)
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import(SalesRollupService.class)
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class SalesRollupServiceTest {
+
+    @Autowired
+    private SalesRollupService salesRollupService;
+
+    @Autowired
+    private SalesRollupRepository salesRollupRepository;
+
+    @Autowired
+    private OrderOutboxEventRepository outboxEventRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @SpyBean
+    private OrderItemRepository orderItemRepository;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    private final List<Order> orders = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        Random random = new Random(7);
+        Category fruitCategory = categoryRepository.save(new Category("Fruit"));
+        Category dairyCategory = categoryRepository.save(new Category("Dairy"));
+        List<Fruit> products = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            Fruit fruit = new Fruit("Product " + i, BigDecimal.valueOf(100 + 37 * i, 2));
+            fruit.setCategory(i < 3 ? fruitCategory : dairyCategory);
+            products.add(fruitRepository.save(fruit));
+        }
+        // One uncategorised product still counts towards store and product totals
+        products.add(fruitRepository.save(new Fruit("Loose item", new BigDecimal("0.75"))));
+
+        Customer customer = new Customer();
+        customer.setUsername("buyer");
+        customer.setEmail("buyer@example.com");
+        customer.setPassword("secret");
+        customer = customerRepository.save(customer);
+
+        LocalDateTime start = LocalDateTime.of(2024, 1, 28, 9, 0);
+        for (int i = 0; i < 40; i++) {
+            Order order = new Order();
+            order.setCustomer(customer);
+            order.setOrderDate(start.plusHours(11L * i));
+            BigDecimal total = BigDecimal.ZERO;
+            for (int l = 0; l < 1 + random.nextInt(3); l++) {
+                Fruit fruit = products.get(random.nextInt(products.size()));
+                OrderItem item = new OrderItem();
+                item.setOrder(order);
+                item.setFruit(fruit);
+                item.setQuantity(1 + random.nextInt(4));
+                item.setPrice(fruit.getPrice());
+                order.getOrderItems().add(item);
+                total = total.add(fruit.getPrice().multiply(BigDecimal.valueOf(item.getQuantity())));
+            }
+            order.setTotalAmount(total);
+            orders.add(orderRepository.save(order));
+        }
+    }
+
+    @AfterEach
+    void tearDown() {
+        salesRollupRepository.deleteAll();
+        outboxEventRepository.deleteAll();
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        categoryRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    @Test
+    void incrementalDeltas_MatchFullRebuild() {
+        // Act - replay what the outbox would deliver: creations, fulfilments and one reversal
+        for (Order order : orders) {
+            salesRollupService.applyOrderCreated(order.getId());
+        }
+        for (int i = 0; i < orders.size(); i += 3) {
+            setFulfilled(orders.get(i), true);
+            salesRollupService.applyFulfilmentChange(orders.get(i).getId(), true);
+        }
+        setFulfilled(orders.get(3), false);
+        salesRollupService.applyFulfilmentChange(orders.get(3).getId(), false);
+
+        Map<String, String> incremental = snapshot();
+        salesRollupService.rebuild();
+        Map<String, String> rebuilt = snapshot();
+
+        // Assert
+        assertFalse(incremental.isEmpty());
+        assertEquals(rebuilt, incremental);
+    }
+
+    @Test
+    void rebuild_SkipsPendingRollupDeltasButNotOtherEvents() {
+        // Arrange
+        Order order = orders.get(0);
+        outboxEventRepository.save(new OrderOutboxEvent(order.getId(), OrderOutboxEvent.EventType.ROLLUP_ORDER_CREATED));
+        outboxEventRepository.save(new OrderOutboxEvent(order.getId(), OrderOutboxEvent.EventType.ORDER_CREATED));
+
+        // Act
+        salesRollupService.rebuild();
+
+        // Assert
+        assertEquals(1, outboxEventRepository.countByStatus(OrderOutboxEvent.Status.SKIPPED));
+        assertEquals(1, outboxEventRepository.countByStatus(OrderOutboxEvent.Status.PENDING));
+        assertEquals(40L, salesRollupService.getAllTimeTotals().getOrderCount());
+        assertEquals(2, salesRollupService.getMonthlyTotals().size());
+    }
+
+    @Test
+    void rebuild_OrderCommittingMidRebuildIsCountedOnce() {
+        // Arrange - a checkout commits its order and delta after the recompute has read the orders
+        Order late = orders.get(0);
+        Answer<?> repository = mockingDetails(orderItemRepository).getMockCreationSettings().getDefaultAnswer();
+        doAnswer(invocation -> {
+            Object sales = repository.answer(invocation);
+            runInOtherThread(() -> {
+                Order order = new Order();
+                order.setCustomer(late.getCustomer());
+                order.setOrderDate(late.getOrderDate());
+                order.setTotalAmount(late.getTotalAmount());
+                for (OrderItem lateItem : late.getOrderItems()) {
+                    OrderItem item = new OrderItem();
+                    item.setOrder(order);
+                    item.setFruit(lateItem.getFruit());
+                    item.setQuantity(lateItem.getQuantity());
+                    item.setPrice(lateItem.getPrice());
+                    order.getOrderItems().add(item);
+                }
+                Long orderId = orderRepository.save(order).getId();
+                outboxEventRepository.save(new OrderOutboxEvent(orderId, OrderOutboxEvent.EventType.ROLLUP_ORDER_CREATED));
+            });
+            return sales;
+        }).when(orderItemRepository).findDailyProductSales();
+
+        // Act - rebuild, then let the outbox deliver whatever is still pending
+        salesRollupService.rebuild();
+        reset(orderItemRepository);
+        for (OrderOutboxEvent event : outboxEventRepository.findAll()) {
+            if (event.getStatus() == OrderOutboxEvent.Status.PENDING) {
+                salesRollupService.applyOrderCreated(event.getOrderId());
+            }
+        }
+        Map<String, String> afterDelivery = snapshot();
+        salesRollupService.rebuild();
+
+        // Assert
+        assertEquals(41L, salesRollupService.getAllTimeTotals().getOrderCount());
+        assertEquals(snapshot(), afterDelivery);
+    }
+
+    private static void runInOtherThread(Runnable work) throws InterruptedException {
+        Thread thread = new Thread(work);
+        thread.start();
+        thread.join();
+    }
+
+    private void setFulfilled(Order order, boolean fulfilled) {
+        Order stored = orderRepository.findById(order.getId()).orElseThrow();
+        stored.setFulfilled(fulfilled);
+        orderRepository.save(stored);
+    }
+
+    private Map<String, String> snapshot() {
+        Map<String, String> rows = new TreeMap<>();
+        for (SalesRollup row : salesRollupRepository.findAll()) {
+            String key = row.getGranularity() + "|" + row.getPeriodStart() + "|" + row.getDimension() + "|" + row.getDimensionId();
+            rows.put(key, row.getOrderCount() + "|" + row.getQuantity() + "|" + row.getRevenue().stripTrailingZeros().toPlainString()
+                    + "|" + row.getFulfilledCount() + "|" + row.getFulfilledRevenue().stripTrailingZeros().toPlainString()
+                    + "|" + row.getLabel());
+        }
+        return rows;
+    }
+}
@@ -0,0 +1,226 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SnapshotCacheTest {
+
+    private final ExecutorService refreshExecutor = Executors.newSingleThreadExecutor();
+    private final AtomicInteger computations = new AtomicInteger();
+
+    @AfterEach
+    void tearDown() {
+        refreshExecutor.shutdownNow();
+    }
+
+    @Test
+    void get_ConcurrentFirstReadsShareOneLoad() throws Exception {
+        // Arrange
+        CountDownLatch releaseLoad = new CountDownLatch(1);
+        SnapshotCache<Integer> cache = new SnapshotCache<>("test", () -> {
+            await(releaseLoad);
+            return computations.incrementAndGet();
+        }, Duration.ofMinutes(1), refreshExecutor);
+
+        int readers = 10;
+        ExecutorService pool = Executors.newFixedThreadPool(readers);
+        List<Future<Integer>> futures = new ArrayList<>();
+        for (int i = 0; i < readers; i++) {
+            futures.add(pool.submit(() -> cache.get().getValue()));
+        }
+
+        // Act
+        Thread.sleep(100);
+        releaseLoad.countDown();
+
+        // Assert
+        for (Future<Integer> future : futures) {
+            assertEquals(1, future.get(5, TimeUnit.SECONDS));
+        }
+        pool.shutdown();
+        assertEquals(1, computations.get());
+    }
+
+    @Test
+    void get_ServesStaleSnapshotWhileRefreshingInBackground() throws Exception {
+        // Arrange
+        MutableClock clock = new MutableClock();
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+        SnapshotCache<Integer> cache = new SnapshotCache<>("test", () -> {
+            if (computations.get() > 0) {
+                await(releaseRefresh);
+            }
+            return computations.incrementAndGet();
+        }, Duration.ofSeconds(30), refreshExecutor, clock);
+        cache.get();
+        clock.advance(Duration.ofSeconds(45));
+
+        // Act - many readers hit the expired snapshot while its refresh is blocked
+        List<Integer> seen = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            seen.add(cache.get().getValue());
+        }
+        long staleAge = cache.get().getAgeSeconds();
+        CompletableFuture<SnapshotCache.Snapshot<Integer>> refresh = cache.refresh();
+        releaseRefresh.countDown();
+        refresh.get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertTrue(seen.stream().allMatch(value -> value == 1));
+        assertEquals(45, staleAge);
+        assertEquals(2, cache.get().getValue());
+        assertEquals(0, cache.get().getAgeSeconds());
+        // Every read during the refresh joined it instead of starting another load
+        assertEquals(2, cache.getLoadCount());
+    }
+
+    @Test
+    void markDirty_ChangeDuringRefreshIsLeftForTheNextTick() throws Exception {
+        // Arrange
+        CountDownLatch refreshStarted = new CountDownLatch(1);
+        CountDownLatch releaseRefresh = new CountDownLatch(1);
+        SnapshotCache<Integer> cache = new SnapshotCache<>("test", () -> {
+            if (computations.get() == 1) {
+                refreshStarted.countDown();
+                await(releaseRefresh);
+            }
+            return computations.incrementAndGet();
+        }, Duration.ofMinutes(1), refreshExecutor);
+        cache.get();
+
+        // Act
+        cache.markDirty();
+        CompletableFuture<SnapshotCache.Snapshot<Integer>> refresh = cache.refresh();
+        refreshStarted.await(5, TimeUnit.SECONDS);
+        for (int i = 0; i < 5; i++) {
+            cache.markDirty();
+            assertSame(refresh, cache.refresh());
+        }
+        releaseRefresh.countDown();
+        refresh.get(5, TimeUnit.SECONDS);
+
+        // Assert - one load per refresh; reads of the dirty snapshot do not start another
+        assertEquals(2, computations.get());
+        assertEquals(2, cache.get().getValue());
+        assertEquals(2, cache.getLoadCount());
+        assertTrue(cache.needsRefresh());
+
+        // Act - the next tick
+        cache.refresh().get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(3, cache.get().getValue());
+        assertFalse(cache.needsRefresh());
+    }
+
+    @Test
+    @Timeout(30)
+    void refresh_CompletesWhileChangesKeepArrivingDuringASlowLoad() throws Exception {
+        // Arrange - orders arrive faster than one load takes
+        AtomicBoolean trading = new AtomicBoolean(true);
+        SnapshotCache<Integer> cache = new SnapshotCache<>("test", () -> {
+            sleep(50);
+            return computations.incrementAndGet();
+        }, Duration.ofMinutes(1), refreshExecutor);
+        SnapshotCache<Integer> other = new SnapshotCache<>("other", () -> 42, Duration.ofMinutes(1), refreshExecutor);
+        Thread orders = new Thread(() -> {
+            while (trading.get()) {
+                cache.markDirty();
+                Thread.onSpinWait();
+            }
+        });
+        orders.setDaemon(true);
+        orders.start();
+
+        try {
+            // Act
+            Integer first = cache.get().getValue();
+            SnapshotCache.Snapshot<Integer> refreshed = cache.refresh().get(5, TimeUnit.SECONDS);
+
+            // Assert - both loads finished, and the shared refresh thread is free for other caches
+            assertEquals(1, first);
+            assertEquals(2, refreshed.getValue());
+            assertEquals(42, other.refresh().get(5, TimeUnit.SECONDS).getValue());
+            assertEquals(2, cache.getLoadCount());
+        } finally {
+            trading.set(false);
+            orders.join();
+        }
+    }
+
+    @Test
+    void refresh_FailureKeepsPreviousSnapshot() throws Exception {
+        // Arrange
+        SnapshotCache<Integer> cache = new SnapshotCache<>("test", () -> {
+            if (computations.incrementAndGet() > 1) {
+                throw new IllegalStateException("database down");
+            }
+            return 1;
+        }, Duration.ofMinutes(1), refreshExecutor);
+        cache.get();
+
+        // Act
+        cache.refresh().get(5, TimeUnit.SECONDS);
+
+        // Assert
+        assertEquals(1, cache.get().getValue());
+        assertTrue(cache.needsRefresh());
+    }
+
+    private static void sleep(long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static class MutableClock extends Clock {
+        private Instant now = Instant.parse("2024-01-01T00:00:00Z");
+
+        void advance(Duration duration) {
+            now = now.plus(duration);
+        }
+
+        @Override
+        public java.time.ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(java.time.ZoneId zone) {
+            return this;
+        }
+
+        @Override
+        public Instant instant() {
+            return now;
+        }
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class SpaceSavingSketchTest {
+
+    @Test
+    void add_TracksHeavyHittersWithinErrorBound() {
+        // Arrange - skewed stream over 5000 products, far more than the 50 counters
+        SpaceSavingSketch sketch = new SpaceSavingSketch(50);
+        Map<Long, Long> exact = new HashMap<>();
+        Random random = new Random(3);
+        for (int i = 0; i < 100_000; i++) {
+            long product = zipf(random, 5000);
+            long quantity = 1 + random.nextInt(3);
+            sketch.add(product, quantity, BigDecimal.ONE);
+            exact.merge(product, quantity, Long::sum);
+        }
+
+        // Act
+        List<SpaceSavingSketch.Entry> top = sketch.top(50);
+
+        // Assert - every product above total / capacity is guaranteed a counter
+        long bound = sketch.getTotalWeight() / 50;
+        List<Long> tracked = top.stream().map(SpaceSavingSketch.Entry::getKey).toList();
+        exact.forEach((product, weight) -> {
+            if (weight > bound) {
+                assertTrue(tracked.contains(product), "heavy hitter " + product);
+            }
+        });
+        assertEquals(1L, tracked.get(0));
+        for (SpaceSavingSketch.Entry entry : top) {
+            long truth = exact.get(entry.getKey());
+            assertTrue(entry.getCount() >= truth);
+            assertTrue(entry.getCount() - entry.getError() <= truth);
+            assertTrue(entry.getError() <= bound);
+        }
+    }
+
+    @Test
+    void merge_KeepsUpperBoundGuaranteeAcrossDays() {
+        // Arrange
+        Random random = new Random(5);
+        List<SpaceSavingSketch> days = new ArrayList<>();
+        Map<Long, Long> exact = new HashMap<>();
+        for (int day = 0; day < 7; day++) {
+            SpaceSavingSketch sketch = new SpaceSavingSketch(30);
+            for (int i = 0; i < 5000; i++) {
+                // Each day has its own favourite so day-level and week-level leaders differ
+                long product = random.nextInt(4) == 0 ? 1000 + day : zipf(random, 2000);
+                sketch.add(product, 1, new BigDecimal("2.50"));
+                exact.merge(product, 1L, Long::sum);
+            }
+            days.add(sketch);
+        }
+
+        // Act
+        SpaceSavingSketch week = SpaceSavingSketch.merge(days, 30);
+
+        // Assert
+        assertEquals(35_000, week.getTotalWeight());
+        for (SpaceSavingSketch.Entry entry : week.top(10)) {
+            long truth = exact.get(entry.getKey());
+            assertTrue(entry.getCount() >= truth, "count for " + entry.getKey());
+            assertTrue(entry.getCount() - entry.getError() <= truth, "lower bound for " + entry.getKey());
+        }
+        assertEquals(1L, week.top(1).get(0).getKey());
+    }
+
+    // Rank-frequency ~ 1/rank, products numbered from 1
+    private static long zipf(Random random, int products) {
+        double harmonic = Math.log(products) + 0.5772;
+        double target = random.nextDouble() * harmonic;
+        double sum = 0;
+        for (int rank = 1; rank <= products; rank++) {
+            sum += 1.0 / rank;
+            if (sum >= target) {
+                return rank;
+            }
+        }
+        return products;
+    }
+}
@@ -0,0 +1,91 @@
+package com.example.project3;
+
+import org.springframework.beans.factory.config.BeanPostProcessor;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+
+import javax.sql.DataSource;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Test support that records every statement prepared through the DataSource, for tests that
+ * assert how many queries a call issues. Import it, {@link #reset()} before the call and
+ * {@link #count(String...)} after it.
+ */
+@TestConfiguration
+class StatementCounter {
+
+    private static final Queue<String> STATEMENTS = new ConcurrentLinkedQueue<>();
+
+    static void reset() {
+        STATEMENTS.clear();
+    }
+
+    /**
+     * Counts the statements prepared since the last reset, per kind. A kind is the statement's
+     * first keyword, optionally followed by words it must contain, e.g. {@code "select"},
+     * {@code "insert into order_items"} or {@code "select from customer_profiles"}.
+     */
+    static Map<String, Integer> count(String... kinds) {
+        Map<String, Integer> counts = new LinkedHashMap<>();
+        for (String kind : kinds) {
+            counts.put(kind, (int) STATEMENTS.stream().filter(sql -> matches(sql, kind)).count());
+        }
+        return counts;
+    }
+
+    private static boolean matches(String sql, String kind) {
+        int space = kind.indexOf(' ');
+        String keyword = space < 0 ? kind : kind.substring(0, space);
+        return sql.startsWith(keyword + " ") && (space < 0 || sql.contains(kind.substring(space) + " "));
+    }
+
+    private static void record(String sql) {
+        STATEMENTS.add(sql.trim().toLowerCase(Locale.ROOT).replaceAll("\\s+", " ") + " ");
+    }
+
+    @Bean
+    static BeanPostProcessor statementCountingDataSourcePostProcessor() {
+        return new BeanPostProcessor() {
+            @Override
+            public Object postProcessAfterInitialization(Object bean, String beanName) {
+                if (bean instanceof DataSource dataSource) {
+                    return Proxy.newProxyInstance(DataSource.class.getClassLoader(),
+                            new Class<?>[]{DataSource.class},
+                            (proxy, method, args) -> {
+                                Object result = invoke(dataSource, method, args);
+                                return result instanceof Connection connection ? countingConnection(connection) : result;
+                            });
+                }
+                return bean;
+            }
+        };
+    }
+
+    private static Connection countingConnection(Connection connection) {
+        return (Connection) Proxy.newProxyInstance(Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                (proxy, method, args) -> {
+                    if (method.getName().startsWith("prepare") && args != null && args[0] instanceof String sql) {
+                        record(sql);
+                    }
+                    return invoke(connection, method, args);
+                });
+    }
+
+    private static Object invoke(Object target, Method method, Object[] args) throws Throwable {
+        try {
+            return method.invoke(target, args);
+        } catch (InvocationTargetException e) {
+            throw e.getTargetException();
+        }
+    }
+}
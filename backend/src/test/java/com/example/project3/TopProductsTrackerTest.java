@@ -0,0 +1,122 @@
+package com.example.project3;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.math.BigDecimal;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class TopProductsTrackerTest {
+
+    @Mock
+    private SalesRollupService salesRollupService;
+
+    @Mock
+    private FruitRepository fruitRepository;
+
+    @InjectMocks
+    private TopProductsTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        ReflectionTestUtils.setField(tracker, "sketchCapacity", 20);
+        LocalDate today = LocalDate.now();
+        when(salesRollupService.getDailyProductSalesSince(today.minusDays(29))).thenReturn(List.of(
+                productDay(today.minusDays(20), 1L, 50),
+                productDay(today.minusDays(3), 2L, 30),
+                productDay(today, 3L, 5)));
+        when(fruitRepository.findAllById(any())).thenAnswer(invocation -> {
+            Fruit renamed = new Fruit("Blood Orange", new BigDecimal("1.00"));
+            renamed.setId(3L);
+            return List.of(renamed);
+        });
+    }
+
+    @Test
+    void getTopProducts_WindowsOnlyCountTheirDays() {
+        // Act
+        List<Map<String, Object>> today = tracker.getTopProducts(TopProductsTracker.Window.TODAY, 10);
+        List<Map<String, Object>> week = tracker.getTopProducts(TopProductsTracker.Window.LAST_7_DAYS, 10);
+        List<Map<String, Object>> month = tracker.getTopProducts(TopProductsTracker.Window.LAST_30_DAYS, 10);
+
+        // Assert
+        assertEquals(List.of(3L), ids(today));
+        assertEquals(List.of(2L, 3L), ids(week));
+        assertEquals(List.of(1L, 2L, 3L), ids(month));
+        assertEquals("Blood Orange", today.get(0).get("name"));
+    }
+
+    @Test
+    void onOrderEvent_AddsSalesByProductIdToToday() {
+        // Arrange
+        tracker.rebuild();
+
+        // Act - the same product id sold under its new name merges with earlier sales
+        tracker.onOrderEvent(createdEvent(new OrderDomainEvent.Line(3L, 40, new BigDecimal("40.00"))));
+        List<Map<String, Object>> today = tracker.getTopProducts(TopProductsTracker.Window.TODAY, 10);
+
+        // Assert
+        assertEquals(1, today.size());
+        assertEquals(45L, today.get(0).get("quantitySold"));
+        assertEquals(0L, today.get(0).get("maxOvercount"));
+        assertEquals(0, new BigDecimal("45.00").compareTo((BigDecimal) today.get(0).get("revenue")));
+    }
+
+    @Test
+    void onOrderEvent_DuringRebuildIsKeptInTheNewSketches() {
+        // Arrange - an order lands while the rebuild is reading the rollups
+        tracker.rebuild();
+        LocalDate today = LocalDate.now();
+        when(salesRollupService.getDailyProductSalesSince(today.minusDays(29))).thenAnswer(invocation -> {
+            tracker.onOrderEvent(createdEvent(new OrderDomainEvent.Line(3L, 40, new BigDecimal("40.00"))));
+            return List.of(productDay(today, 3L, 5));
+        });
+
+        // Act
+        tracker.rebuild();
+
+        // Assert
+        assertEquals(45L, tracker.getTopProducts(TopProductsTracker.Window.TODAY, 10).get(0).get("quantitySold"));
+    }
+
+    @Test
+    void onOrderEvent_IgnoresFulfilmentChanges() {
+        // Arrange
+        tracker.rebuild();
+
+        // Act
+        tracker.onOrderEvent(new OrderDomainEvent(OrderDomainEvent.Type.FULFILLED, 1L, 1L, Set.of(), Set.of(), Set.of()));
+
+        // Assert
+        assertEquals(5L, tracker.getTopProducts(TopProductsTracker.Window.TODAY, 10).get(0).get("quantitySold"));
+    }
+
+    private static OrderDomainEvent createdEvent(OrderDomainEvent.Line line) {
+        return new OrderDomainEvent(OrderDomainEvent.Type.CREATED, 9L, 1L, Set.of("buyer"), Set.of(line.getFruitId()),
+                Set.of(), LocalDateTime.now(), List.of(line));
+    }
+
+    private static SalesRollup productDay(LocalDate day, long productId, int quantity) {
+        SalesRollup row = new SalesRollup(SalesRollup.Granularity.DAY, day, SalesRollup.Dimension.PRODUCT, productId, "Product");
+        row.add(1, quantity, BigDecimal.valueOf(quantity), 0, BigDecimal.ZERO);
+        return row;
+    }
+
+    private static List<Long> ids(List<Map<String, Object>> rows) {
+        return rows.stream().map(row -> (Long) row.get("productId")).toList();
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.project3.benchmark;
+
+import com.example.project3.CartItemDTO;
+import com.example.project3.Category;
+import com.example.project3.CategoryRepository;
+import com.example.project3.CheckoutBatcher;
+import com.example.project3.CheckoutRequest;
+import com.example.project3.CouponService;
+import com.example.project3.Customer;
+import com.example.project3.CustomerProfileService;
+import com.example.project3.CustomerRepository;
+import com.example.project3.Fruit;
+import com.example.project3.FruitRepository;
+import com.example.project3.OrderMapper;
+import com.example.project3.OrderOutboxService;
+import com.example.project3.OrderRepository;
+import com.example.project3.OrderService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.jdbc.AutoConfigureTestDatabase;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiFunction;
+
+/**
+ * Flash-sale load harness: many buyers hammering a handful of SKUs, run once through the
+ * per-request checkout and once through {@link CheckoutBatcher}. Prints p50/p99 latency and
+ * throughput for each. Not part of the regular test run; start it explicitly:
+ * mvn test -Dtest=CheckoutLoadHarness -Dharness.threads=64 -Dharness.requests=200
+ */
+@DataJpaTest(showSql = false, properties = {
+        "app.checkout.batching.enabled=true",
+        "logging.level.com.example.project3=WARN"
+})
+@AutoConfigureTestDatabase(replace = AutoConfigureTestDatabase.Replace.NONE)
+@ActiveProfiles("test")
+@Import({OrderService.class, OrderMapper.class, CheckoutBatcher.class})
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+class CheckoutLoadHarness {
+
+    private static final int THREADS = Integer.getInteger("harness.threads", 32);
+    private static final int REQUESTS_PER_THREAD = Integer.getInteger("harness.requests", 100);
+    private static final int SKUS = Integer.getInteger("harness.skus", 4);
+
+    @Autowired
+    private OrderService orderService;
+
+    @Autowired
+    private CheckoutBatcher checkoutBatcher;
+
+    @Autowired
+    private FruitRepository fruitRepository;
+
+    @Autowired
+    private CategoryRepository categoryRepository;
+
+    @Autowired
+    private CustomerRepository customerRepository;
+
+    @Autowired
+    private OrderRepository orderRepository;
+
+    @MockBean
+    private CustomerProfileService customerProfileService;
+
+    @MockBean
+    private CouponService couponService;
+
+    @MockBean
+    private OrderOutboxService orderOutboxService;
+
+    @Test
+    void compareCheckoutPaths() throws Exception {
+        List<Long> skus = seed();
+
+        // Warm up both paths before measuring
+        run("warm-up", skus, orderService::createOrder, 4, 20);
+        run("warm-up", skus, checkoutBatcher::submit, 4, 20);
+
+        Result perRequest = run("per-request", skus, orderService::createOrder, THREADS, REQUESTS_PER_THREAD);
+        Result batched = run("group-commit", skus, checkoutBatcher::submit, THREADS, REQUESTS_PER_THREAD);
+
+        System.out.printf("%n%-14s %10s %10s %10s %12s%n", "path", "p50 ms", "p99 ms", "max ms", "orders/s");
+        for (Result result : List.of(perRequest, batched)) {
+            System.out.printf("%-14s %10.2f %10.2f %10.2f %12.0f%n", result.name,
+                    result.percentile(0.50), result.percentile(0.99), result.percentile(1.0), result.throughput());
+        }
+
+        orderRepository.deleteAll();
+        fruitRepository.deleteAll();
+        categoryRepository.deleteAll();
+        customerRepository.deleteAll();
+    }
+
+    private List<Long> seed() {
+        Category category = categoryRepository.save(new Category("Flash sale"));
+        List<Long> skus = new ArrayList<>();
+        for (int i = 0; i < SKUS; i++) {
+            Fruit fruit = new Fruit("Sale item " + i, new BigDecimal("1.00"));
+            fruit.setStock(Integer.MAX_VALUE / 2);
+            fruit.setCategory(category);
+            skus.add(fruitRepository.save(fruit).getId());
+        }
+
+        Customer customer = new Customer();
+        customer.setUsername("flash-buyer");
+        customer.setEmail("flash-buyer@example.com");
+        customer.setPassword("secret");
+        customerRepository.save(customer);
+        return skus;
+    }
+
+    private Result run(String name, List<Long> skus, BiFunction<CheckoutRequest, String, ?> checkout,
+                       int threads, int requestsPerThread) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch startGate = new CountDownLatch(1);
+        List<Future<long[]>> futures = new ArrayList<>();
+
+        for (int t = 0; t < threads; t++) {
+            int offset = t;
+            futures.add(executor.submit(() -> {
+                long[] latencies = new long[requestsPerThread];
+                startGate.await();
+                for (int i = 0; i < requestsPerThread; i++) {
+                    CheckoutRequest request = checkoutFor(skus.get((offset + i) % skus.size()));
+                    long start = System.nanoTime();
+                    checkout.apply(request, "flash-buyer");
+                    latencies[i] = System.nanoTime() - start;
+                }
+                return latencies;
+            }));
+        }
+
+        long start = System.nanoTime();
+        startGate.countDown();
+        List<Long> latencies = new ArrayList<>(threads * requestsPerThread);
+        for (Future<long[]> future : futures) {
+            for (long latency : future.get(10, TimeUnit.MINUTES)) {
+                latencies.add(latency);
+            }
+        }
+        long elapsed = System.nanoTime() - start;
+        executor.shutdown();
+
+        Collections.sort(latencies);
+        return new Result(name, latencies, elapsed);
+    }
+
+    private CheckoutRequest checkoutFor(Long fruitId) {
+        CartItemDTO item = new CartItemDTO();
+        item.setFruitId(fruitId);
+        item.setQuantity(1);
+
+        CheckoutRequest request = new CheckoutRequest();
+        request.setCartItems(List.of(item));
+        return request;
+    }
+
+    private static class Result {
+        final String name;
+        final List<Long> sortedLatencies;
+        final long elapsedNanos;
+
+        Result(String name, List<Long> sortedLatencies, long elapsedNanos) {
+            this.name = name;
+            this.sortedLatencies = sortedLatencies;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        double percentile(double p) {
+            int index = (int) Math.ceil(p * sortedLatencies.size()) - 1;
+            return sortedLatencies.get(Math.max(index, 0)) / 1_000_000.0;
+        }
+
+        double throughput() {
+            return sortedLatencies.size() / (elapsedNanos / 1_000_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.project3.benchmark;
+
+import com.example.project3.AppConfig;
+import com.example.project3.Category;
+import com.example.project3.Customer;
+import com.example.project3.Fruit;
+import com.example.project3.Order;
+import com.example.project3.OrderDTO;
+import com.example.project3.OrderItem;
+import com.example.project3.OrderMapper;
+import org.modelmapper.ModelMapper;
+import org.openjdk.jmh.annotations.*;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Compares the ModelMapper configuration from {@link AppConfig} with {@link OrderMapper}
+ * when mapping a 1k-order history. Run with the gc profiler to see allocation rate:
+ * mvn -Pbenchmark verify -DskipTests -Dbenchmark=OrderMappingBenchmark
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class OrderMappingBenchmark {
+
+    @Param({"1000"})
+    private int orders;
+
+    @Param({"5"})
+    private int itemsPerOrder;
+
+    private List<Order> history;
+    private ModelMapper modelMapper;
+    private OrderMapper orderMapper;
+
+    @Setup
+    public void setUp() {
+        modelMapper = new AppConfig().modelMapper();
+        orderMapper = new OrderMapper();
+
+        Customer customer = new Customer();
+        customer.setId(1L);
+        customer.setUsername("buyer");
+        customer.setEmail("buyer@example.com");
+
+        List<Fruit> catalog = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            Category category = new Category("Category " + (i % 5));
+            category.setId((long) (i % 5));
+            Fruit fruit = new Fruit("Fruit " + i, BigDecimal.valueOf(100 + i, 2));
+            fruit.setId((long) i);
+            fruit.setDescription("Fresh fruit " + i);
+            fruit.setImageUrl("/uploads/" + i + ".png");
+            fruit.setCategory(category);
+            catalog.add(fruit);
+        }
+
+        history = new ArrayList<>(orders);
+        for (int o = 0; o < orders; o++) {
+            Order order = new Order();
+            order.setId((long) o);
+            order.setCustomer(customer);
+            order.setOrderDate(LocalDateTime.now().minusDays(o));
+            order.setTotalAmount(BigDecimal.TEN);
+            order.setOriginalAmount(BigDecimal.TEN);
+
+            Set<OrderItem> items = new HashSet<>();
+            for (int i = 0; i < itemsPerOrder; i++) {
+                OrderItem item = new OrderItem();
+                item.setId((long) o * itemsPerOrder + i);
+                item.setOrder(order);
+                item.setFruit(catalog.get((o + i) % catalog.size()));
+                item.setQuantity(i + 1);
+                item.setPrice(item.getFruit().getPrice());
+                items.add(item);
+            }
+            order.setOrderItems(items);
+            history.add(order);
+        }
+    }
+
+    @Benchmark
+    public List<OrderDTO> modelMapper() {
+        List<OrderDTO> dtos = new ArrayList<>(history.size());
+        for (Order order : history) {
+            dtos.add(modelMapper.map(order, OrderDTO.class));
+        }
+        return dtos;
+    }
+
+    @Benchmark
+    public List<OrderDTO> handwrittenMapper() {
+        return orderMapper.toDtos(history);
+    }
+}
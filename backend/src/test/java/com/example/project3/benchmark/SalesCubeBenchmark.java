@@ -0,0 +1,73 @@
+package com.example.project3.benchmark;
+
+import com.example.project3.SalesCube;
+import org.openjdk.jmh.annotations.*;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Aggregation latency of {@link SalesCube} over a synthetic 5M-line history (three years,
+ * 2k products, 40 categories, 12 zones). The target is well under 10 ms per query:
+ * mvn -Pbenchmark verify -DskipTests -Dbenchmark=SalesCubeBenchmark
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+@State(Scope.Benchmark)
+public class SalesCubeBenchmark {
+
+    private static final LocalDate START = LocalDate.of(2022, 1, 1);
+
+    @Param({"5000000"})
+    private int lines;
+
+    private ForkJoinPool scanPool;
+    private SalesCube cube;
+
+    @Setup
+    public void setUp() {
+        scanPool = new ForkJoinPool(4);
+        cube = new SalesCube(lines, scanPool);
+        SplittableRandom random = new SplittableRandom(42);
+        int firstDay = (int) START.toEpochDay();
+        for (int i = 0; i < lines; i++) {
+            int product = 1 + random.nextInt(2000);
+            int quantity = 1 + random.nextInt(6);
+            cube.append(firstDay + random.nextInt(3 * 365), product, 1 + product % 40, random.nextInt(13),
+                    quantity, (long) quantity * (50 + random.nextInt(2000)));
+        }
+    }
+
+    @TearDown
+    public void tearDown() {
+        scanPool.shutdownNow();
+    }
+
+    @Benchmark
+    public SalesCube.Result revenueByCategoryByWeek() {
+        return cube.query(new SalesCube.Query(List.of(SalesCube.Dimension.CATEGORY, SalesCube.Dimension.WEEK)));
+    }
+
+    @Benchmark
+    public SalesCube.Result unitsByProductByZone() {
+        return cube.query(new SalesCube.Query(List.of(SalesCube.Dimension.PRODUCT, SalesCube.Dimension.ZONE)));
+    }
+
+    @Benchmark
+    public SalesCube.Result lastQuarterForOneCategoryByDay() {
+        return cube.query(new SalesCube.Query(List.of(SalesCube.Dimension.DAY))
+                .between(START.plusDays(3 * 365 - 90), START.plusDays(3 * 365))
+                .category(7));
+    }
+
+    @Benchmark
+    public SalesCube.Result grandTotal() {
+        return cube.query(new SalesCube.Query(List.of()));
+    }
+}
@@ -90,6 +90,7 @@ final class NetworkManager: ObservableObject {
         method: String = "GET", 
         body: Data? = nil, 
         requiresAuth: Bool = true,
+        headers: [String: String] = [:],
         retryCount: Int = 0
     ) async throws -> T {
         
@@ -104,6 +105,9 @@ final class NetworkManager: ObservableObject {
         request.httpBody = body
         request.setValue("application/json", forHTTPHeaderField: "Content-Type")
         request.setValue("application/json", forHTTPHeaderField: "Accept")
+        for (field, value) in headers {
+            request.setValue(value, forHTTPHeaderField: field)
+        }
 
         if requiresAuth {
             if let token = token {
@@ -139,6 +143,7 @@ final class NetworkManager: ObservableObject {
                     method: method, 
                     body: body,
                     requiresAuth: requiresAuth,
+                    headers: headers,
                     retryCount: retryCount + 1
                 )
             }
@@ -221,14 +226,16 @@ final class NetworkManager: ObservableObject {
     func post<T: Codable, U: Codable>(
         endpoint: String, 
         body: U, 
-        requiresAuth: Bool = true
+        requiresAuth: Bool = true,
+        headers: [String: String] = [:]
     ) async throws -> T {
         let data = try JSONEncoder().encode(body)
         return try await fetch(
             endpoint: endpoint, 
             method: "POST", 
             body: data, 
-            requiresAuth: requiresAuth
+            requiresAuth: requiresAuth,
+            headers: headers
         )
     }
     
@@ -285,7 +292,8 @@ final class NetworkManager: ObservableObject {
     }
 
     func checkout(request: CheckoutRequest) async throws -> Order {
-        try await post(endpoint: "/orders/checkout", body: request)
+        // One key per checkout attempt; automatic retries reuse it so the server replays the first result
+        try await post(endpoint: "/orders/checkout", body: request, headers: ["Idempotency-Key": UUID().uuidString])
     }
 
     // MARK: - Customer Profile API